@@ -0,0 +1,118 @@
+package org.jim.mcpdbserver.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 比较两次 JMH 运行的 JSON 结果（-rf json），按基准方法和参数逐项输出分数变化，超出阈值的变慢标记为 REGRESSION
+ * 用法：BaselineComparison &lt;baseline.json&gt; &lt;current.json&gt; [阈值百分比，默认 10]
+ * 有回归时以状态码 1 退出；两次运行的 JDK 主版本不同时分数没有可比性，不比较，以状态码 2 退出
+ * @author yangxin
+ */
+public final class BaselineComparison {
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        Set<String> baselineJdks = jdkVersions(baseline);
+        Set<String> currentJdks = jdkVersions(current);
+        if (!featureVersions(baselineJdks).equals(featureVersions(currentJdks)) || featureVersions(currentJdks).size() > 1) {
+            System.err.printf("Baseline was recorded on JDK %s but current results are from JDK %s, "
+                    + "record a new baseline on the same JDK before comparing%n", baselineJdks, currentJdks);
+            System.exit(2);
+        }
+        System.out.printf("JDK %s%n", currentJdks);
+        int regressions = 0;
+        System.out.printf("%-100s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode metric = entry.getValue().get("primaryMetric");
+            String unit = metric.get("scoreUnit").asText();
+            double score = metric.get("score").asDouble();
+            if (before == null) {
+                System.out.printf("%-100s %14s %14.3f %9s  %s%n", entry.getKey(), "-", score, "new", unit);
+                continue;
+            }
+            double baseScore = before.get("primaryMetric").get("score").asDouble();
+            // 平均耗时类的分数越大越慢，吞吐量类的分数越大越快
+            boolean higherIsWorse = !unit.startsWith("ops/");
+            double change = (score - baseScore) / baseScore * 100;
+            boolean regression = higherIsWorse ? change > threshold : change < -threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-100s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), baseScore, score, change, unit,
+                    regression ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 结果中记录的 JDK 版本（JMH 的 jdkVersion 字段）
+     */
+    private static Set<String> jdkVersions(Map<String, JsonNode> results) {
+        Set<String> versions = new TreeSet<>();
+        for (JsonNode result : results.values()) {
+            JsonNode version = result.get("jdkVersion");
+            versions.add(version != null ? version.asText() : "unknown");
+        }
+        return versions;
+    }
+
+    /**
+     * JDK 主版本，如 21.0.1 为 21；无法识别的版本原样保留
+     */
+    private static Set<String> featureVersions(Set<String> versions) {
+        Set<String> features = new TreeSet<>();
+        for (String version : versions) {
+            try {
+                features.add(String.valueOf(Runtime.Version.parse(version).feature()));
+            } catch (IllegalArgumentException e) {
+                features.add(version);
+            }
+        }
+        return features;
+    }
+
+    /**
+     * 读取 JMH 结果，按 "基准方法 参数=值,..." 作为键
+     */
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace(BaselineComparison.class.getPackageName() + ".", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                String separator = " ";
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    key.append(separator).append(param.getKey()).append('=').append(param.getValue().asText());
+                    separator = ",";
+                }
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,152 @@
+package org.jim.mcpdbserver.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jim.mcpdbserver.McpDbServerApplication;
+import org.jim.mcpdbserver.config.SqlSlowQueryConfig;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.jim.mcpdbserver.service.SlowQueryLog;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 基准测试的公共部分：内存数据库连接池、模拟查询结果，以及不启动 Web 服务的完整应用上下文
+ * @author yangxin
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 不注册到 MeterRegistry 的服务指标，与没有引入 actuator 时相同
+     */
+    static ServerMetrics serverMetrics() {
+        return new ServerMetrics(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    /**
+     * 关闭的慢查询日志，基准测试不经过数据源注册表，也不希望后台线程参与测量
+     */
+    static SlowQueryLog slowQueryLog() {
+        SqlSlowQueryConfig config = new SqlSlowQueryConfig();
+        config.setEnabled(false);
+        return new SlowQueryLog(config, null);
+    }
+
+    /**
+     * 创建内存数据库的连接池，每次调用使用新的数据库
+     * @param database h2、hsqldb 或 derby
+     */
+    static HikariDataSource inMemoryDataSource(String database) {
+        String name = "bench_" + UUID.randomUUID().toString().replace("-", "");
+        HikariDataSource dataSource = new HikariDataSource();
+        switch (database) {
+            case "h2" -> dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+            case "hsqldb" -> dataSource.setJdbcUrl("jdbc:hsqldb:mem:" + name);
+            case "derby" -> {
+                // Derby 默认在工作目录写 derby.log
+                System.setProperty("derby.stream.error.file", "target/derby.log");
+                dataSource.setJdbcUrl("jdbc:derby:memory:" + name + ";create=true");
+            }
+            default -> throw new IllegalArgumentException("Unsupported database: " + database);
+        }
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setPoolName(database + "BenchmarkPool");
+        return dataSource;
+    }
+
+    /**
+     * 第 i 列的类型，依次为整数、字符串、小数和时间，与常见业务表的列类型接近
+     */
+    static String columnType(int column) {
+        return switch (column % 4) {
+            case 0 -> "INT";
+            case 1 -> "VARCHAR(64)";
+            case 2 -> "DECIMAL(12,2)";
+            default -> "TIMESTAMP";
+        };
+    }
+
+    static Object columnValue(int row, int column) {
+        return switch (column % 4) {
+            case 0 -> row * 31 + column;
+            case 1 -> "value-" + row + "-" + column;
+            case 2 -> BigDecimal.valueOf(row * 100L + column, 2);
+            default -> new Timestamp(1_700_000_000_000L + row * 1000L);
+        };
+    }
+
+    /**
+     * 与 JdbcExecutor 返回的结构相同的查询结果
+     */
+    static List<Map<String, Object>> rows(int rows, int columns) {
+        List<Map<String, Object>> result = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int c = 0; c < columns; c++) {
+                row.put("C" + c, columnValue(r, c));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * 启动不带 Web 服务的应用上下文
+     * @param dataSources 配置的 H2 内存数据源数，第一个为默认数据源
+     * @param extensionDirectory 外部扩展目录，不需要时为null
+     */
+    static ConfigurableApplicationContext startServer(int dataSources, Path extensionDirectory) {
+        try {
+            StringBuilder yaml = new StringBuilder("datasource:\n  datasources:\n");
+            for (int i = 0; i < dataSources; i++) {
+                yaml.append("    bench").append(i).append(":\n")
+                        .append("      url: jdbc:h2:mem:bench").append(i).append('_').append(UUID.randomUUID().toString().replace("-", ""))
+                        .append(";DB_CLOSE_DELAY=-1\n")
+                        .append("      username: sa\n")
+                        .append("      password: \"\"\n")
+                        .append("      driver-class-name: org.h2.Driver\n");
+                if (i == 0) {
+                    yaml.append("      default: true\n");
+                }
+            }
+            Path config = Files.createTempFile("benchmark-datasource", ".yml");
+            Files.writeString(config, yaml);
+            config.toFile().deleteOnExit();
+
+            List<String> args = new ArrayList<>(List.of(
+                    "--datasource.config=" + config,
+                    "--extension.directory.watch=false",
+                    "--logging.level.root=WARN",
+                    "--logging.file.name=",
+                    "--audit.file=target/benchmark-audit.ndjson",
+                    "--spring.main.banner-mode=off"));
+            if (extensionDirectory != null) {
+                args.add("--extension.directory.path=" + extensionDirectory);
+            }
+            return new SpringApplicationBuilder(McpDbServerApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .logStartupInfo(false)
+                    .run(args.toArray(String[]::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
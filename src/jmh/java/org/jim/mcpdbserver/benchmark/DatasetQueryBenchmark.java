@@ -0,0 +1,99 @@
+package org.jim.mcpdbserver.benchmark;
+
+import org.jim.mcpdbserver.dataset.DatasetLoader;
+import org.jim.mcpdbserver.dataset.DatasetQuery;
+import org.jim.mcpdbserver.dataset.DatasetSchema;
+import org.jim.mcpdbserver.dataset.Dialect;
+import org.jim.mcpdbserver.dataset.TableSpec;
+import org.jim.mcpdbserver.mcp.DatabaseOperationService;
+import org.jim.mcpdbserver.service.DataSourceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在生成的数据集上执行 {@link DatasetSchema} 中的典型查询，与压测场景使用相同的查询定义
+ * 数据集按 SCALE 装载到 H2 内存库，查询条件按固定种子生成，每次运行的查询序列相同；
+ * 解密、解压查询会命中扩展的结果缓存，与热点数据被反复查询的实际情况一致。
+ * classpath 中的 SM4Decrypt 脚本通过 hutool 解密，需要 BouncyCastle，这里用同名的原生解码器扩展（base64,sm4）替换，密文格式相同
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatasetQueryBenchmark {
+
+    /**
+     * orders 1 万行，customer、core_snapshot、wide_event 各 1000 行
+     */
+    private static final double SCALE = 0.001;
+    private static final long SEED = 42;
+
+    @Param({"orders_by_customer", "orders_status_summary", "orders_range", "customer_by_id", "wide_event_range",
+            "snapshot_decode", "customer_decrypt"})
+    public String query;
+
+    private Path extensionDirectory;
+    private ConfigurableApplicationContext context;
+    private DatabaseOperationService databaseOperationService;
+    private DatasetQuery datasetQuery;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        extensionDirectory = Files.createTempDirectory("benchmark-extensions");
+        Path sm4 = Files.createDirectories(extensionDirectory.resolve("SM4Decrypt"));
+        Files.writeString(sm4.resolve("extension.yml"), """
+                decoder: base64,sm4
+                batch: true
+                deterministic: true
+                """);
+        context = BenchmarkSupport.startServer(1, extensionDirectory);
+        databaseOperationService = context.getBean(DatabaseOperationService.class);
+        DataSource dataSource = context.getBean(DataSourceService.class).getDataSource("bench0");
+        DatasetLoader loader = new DatasetLoader(dataSource::getConnection, Dialect.H2, SEED, SCALE, 1, 1000);
+        for (TableSpec table : DatasetSchema.tables()) {
+            loader.load(table, null);
+        }
+        datasetQuery = DatasetSchema.query(query);
+        random = new SplittableRandom(SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(extensionDirectory);
+    }
+
+    @Benchmark
+    public Object execute() {
+        String sql = datasetQuery.render(SCALE, random);
+        if (datasetQuery.isTransform()) {
+            return databaseOperationService.executeSqlWithTransform(null, sql, datasetQuery.columns(), datasetQuery.extension(),
+                    null, null);
+        }
+        return databaseOperationService.executeSqlOnDefault(sql, null, null);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jim.mcpdbserver.benchmark;
+
+import org.jim.mcpdbserver.mcp.DatabaseOperationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * executeSql 在 N 个数据源上并行执行同一条 SQL 的耗时，与 executeSqlWithDataSource 在单个数据源上执行对比，
+ * 差值即扇出的开销（虚拟线程调度、结果汇总、熔断和并发隔离）。数据源都是 H2 内存数据库
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    private static final String SQL = "SELECT 1 AS ONE";
+
+    @Param({"1", "4", "16"})
+    public int dataSources;
+
+    private ConfigurableApplicationContext context;
+    private DatabaseOperationService databaseOperationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startServer(dataSources, null);
+        databaseOperationService = context.getBean(DatabaseOperationService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> executeSql() {
+        return databaseOperationService.executeSql(SQL, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Object> executeSqlWithDataSource() {
+        return databaseOperationService.executeSqlWithDataSource("bench0", SQL, null, null);
+    }
+}
@@ -0,0 +1,91 @@
+package org.jim.mcpdbserver.benchmark;
+
+import org.jim.mcpdbserver.config.extension.GroovyScriptCache;
+import org.jim.mcpdbserver.config.extension.GroovyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 GroovyService 调用扩展脚本的耗时，包括沙箱调度
+ * cold 在每次调用前移除已编译的脚本类，测量首次调用（编译脚本）的耗时；warm 为脚本已编译后的调用
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroovyServiceBenchmark {
+
+    private static final String EXTENSION = "BenchJson";
+
+    private static final String SCRIPT = """
+            import groovy.json.JsonOutput
+            import groovy.json.JsonSlurper
+
+            def fields = new JsonSlurper().parseText(inputString)
+            def masked = fields.collectEntries { key, value ->
+                [(key): value instanceof String && value.length() > 4 ? value.take(2) + '*' * (value.length() - 4) + value.takeRight(2) : value]
+            }
+            return JsonOutput.toJson([result: masked, fields: fields.size()])
+            """;
+
+    private static final String INPUT = """
+            {"name": "Zhang San", "phone": "13800138000", "id_card": "110101199003077777", "age": 34, "city": "Beijing"}""";
+
+    @Param({"cold", "warm"})
+    public String mode;
+
+    private Path extensionDirectory;
+    private ConfigurableApplicationContext context;
+    private GroovyService groovyService;
+    private GroovyScriptCache groovyScriptCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        extensionDirectory = Files.createTempDirectory("benchmark-extensions");
+        Path scriptDirectory = Files.createDirectories(extensionDirectory.resolve(EXTENSION).resolve("script"));
+        Files.writeString(scriptDirectory.resolve("main.groovy"), SCRIPT);
+        Files.writeString(extensionDirectory.resolve(EXTENSION).resolve("extension.yml"), "description: mask string fields\n");
+        context = BenchmarkSupport.startServer(1, extensionDirectory);
+        groovyService = context.getBean(GroovyService.class);
+        groovyScriptCache = context.getBean(GroovyScriptCache.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void evict() {
+        if ("cold".equals(mode)) {
+            groovyScriptCache.evict(EXTENSION);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(extensionDirectory);
+    }
+
+    @Benchmark
+    public Object executeGroovyScript() {
+        return groovyService.executeGroovyScript(EXTENSION, INPUT);
+    }
+}
@@ -0,0 +1,76 @@
+package org.jim.mcpdbserver.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * executeSqlOnDefault 把查询结果转换为 JsonNode、再由工具结果转换器序列化为返回给模型的文本的耗时
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonConversionBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    private List<Map<String, Object>> resultData;
+    private JsonNode resultNode;
+
+    /**
+     * 与 DatabaseOperationService 中的配置相同
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+    private final DefaultToolCallResultConverter resultConverter = new DefaultToolCallResultConverter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        resultData = BenchmarkSupport.rows(rows, columns);
+        resultNode = objectMapper.readTree(objectMapper.writeValueAsString(resultData));
+    }
+
+    /**
+     * executeSqlOnDefault 中的转换：先写成字符串再解析为 JsonNode
+     */
+    @Benchmark
+    public JsonNode toJsonNode() throws Exception {
+        return objectMapper.readTree(objectMapper.writeValueAsString(resultData));
+    }
+
+    /**
+     * 工具结果转换器把 JsonNode 序列化为返回给模型的文本
+     */
+    @Benchmark
+    public String toToolResult() {
+        return resultConverter.convert(resultNode, JsonNode.class);
+    }
+}
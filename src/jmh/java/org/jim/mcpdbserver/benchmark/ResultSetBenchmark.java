@@ -0,0 +1,92 @@
+package org.jim.mcpdbserver.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.jim.mcpdbserver.service.JdbcExecutor;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcExecutor 执行查询并把结果集转换为行列表的耗时，按数据库、列数和行数组合
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetBenchmark {
+
+    @Param({"h2", "hsqldb", "derby"})
+    public String database;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcExecutor jdbcExecutor;
+    private ParsedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkSupport.inMemoryDataSource(database);
+        StringBuilder create = new StringBuilder("CREATE TABLE bench (");
+        StringBuilder insert = new StringBuilder("INSERT INTO bench VALUES (");
+        for (int c = 0; c < columns; c++) {
+            create.append(c == 0 ? "" : ", ").append('C').append(c).append(' ').append(BenchmarkSupport.columnType(c));
+            insert.append(c == 0 ? "?" : ", ?");
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(create.append(')').toString());
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(insert.append(')').toString())) {
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        stmt.setObject(c + 1, BenchmarkSupport.columnValue(r, c));
+                    }
+                    stmt.addBatch();
+                    // HSQLDB 不允许执行空的批次
+                    if (r % 500 == 499 || r == rows - 1) {
+                        stmt.executeBatch();
+                    }
+                }
+            }
+        }
+        jdbcExecutor = new JdbcExecutor(BenchmarkSupport.serverMetrics(), BenchmarkSupport.slowQueryLog());
+        statement = new SqlStatementParser(new SqlParseCacheConfig()).parse("SELECT * FROM bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public JdbcExecutor.SqlResult executeAndFetch() {
+        return jdbcExecutor.executeSql(database, dataSource, statement);
+    }
+}
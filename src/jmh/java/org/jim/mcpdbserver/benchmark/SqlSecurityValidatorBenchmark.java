@@ -0,0 +1,120 @@
+package org.jim.mcpdbserver.benchmark;
+
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.jim.mcpdbserver.config.SqlSecurityConfig;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
+import org.jim.mcpdbserver.validator.SqlSecurityValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL 解析和安全检查的耗时
+ * realistic 为常见的查询语句；large 为 1KB 到 1MB 的大语句（例如带超长 IN 列表的查询），检查耗时应随长度线性增长。
+ * cold 关闭解析缓存，测量词法分析和关键字匹配本身；cached 为重复执行同一语句时命中解析缓存的情况
+ * @author yangxin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlSecurityValidatorBenchmark {
+
+    private static final Map<String, String> STATEMENTS = Map.of(
+            "point_select", "SELECT id, name, status FROM users WHERE id = 42",
+            "join_report", """
+                    SELECT o.id, o.order_no, c.name AS customer, SUM(i.amount) AS total
+                    FROM orders o
+                    JOIN customers c ON c.id = o.customer_id
+                    LEFT JOIN order_items i ON i.order_id = o.id
+                    WHERE o.created_at >= '2024-01-01' AND o.status IN ('paid', 'shipped') -- reporting window
+                    GROUP BY o.id, o.order_no, c.name
+                    HAVING SUM(i.amount) > 100
+                    ORDER BY total DESC
+                    LIMIT 50""",
+            "cte_window", """
+                    WITH ranked AS (
+                        SELECT user_id, event_type, created_at,
+                               ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY created_at DESC) AS rn
+                        FROM events /* 最近事件 */
+                        WHERE event_type <> 'heartbeat'
+                    )
+                    SELECT user_id, event_type, created_at FROM ranked WHERE rn <= 3""",
+            "escaped_literals", """
+                    SELECT id FROM notes
+                    WHERE body LIKE 'it''s a \\'quoted\\' delete; update' OR title = q'[drop table x]'
+                    AND tag = "insert" """,
+            "dml_blocked", "UPDATE users SET status = 'disabled' WHERE last_login < '2020-01-01'");
+
+    private static SqlSecurityValidator validator(boolean cached) {
+        SqlParseCacheConfig cacheConfig = new SqlParseCacheConfig();
+        if (!cached) {
+            // 只有空语句不超过该长度，其余语句都不缓存解析结果
+            cacheConfig.setMaxSqlLength(0);
+        }
+        return new SqlSecurityValidator(new SqlSecurityConfig(), new SqlStatementParser(cacheConfig));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Realistic {
+
+        @Param({"point_select", "join_report", "cte_window", "escaped_literals", "dml_blocked"})
+        public String statement;
+
+        @Param({"cold", "cached"})
+        public String cache;
+
+        String sql;
+        SqlSecurityValidator validator;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            sql = STATEMENTS.get(statement);
+            validator = validator("cached".equals(cache));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Large {
+
+        @Param({"1024", "16384", "262144", "1048576"})
+        public int size;
+
+        String sql;
+        SqlSecurityValidator validator;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            StringBuilder sql = new StringBuilder("SELECT id, name, status FROM users /* bulk lookup */ WHERE id IN (");
+            for (int i = 0; sql.length() < size - 80; i++) {
+                sql.append(i == 0 ? "" : ", ").append(i * 7919L);
+            }
+            sql.append(") OR name IN ('it''s', 'update me', \"delete\") -- trailing comment\n");
+            this.sql = sql.toString();
+            validator = validator(false);
+        }
+    }
+
+    @Benchmark
+    public SqlSecurityValidator.SqlValidationResult realistic(Realistic state) {
+        return state.validator.validateSql(state.sql);
+    }
+
+    @Benchmark
+    public SqlSecurityValidator.SqlValidationResult large(Large state) {
+        return state.validator.validateSql(state.sql);
+    }
+}
@@ -0,0 +1,56 @@
+package org.jim.mcpdbserver.dataset;
+
+/**
+ * 生成数据的列类型
+ * @author yangxin
+ */
+enum ColumnKind {
+    /**
+     * 主键，等于行号（从 1 开始）
+     */
+    ID,
+    /**
+     * 倾斜分布的外键，取值 1..基数，小的值出现得多（近似 Zipf s=1）
+     */
+    SKEWED_KEY,
+    /**
+     * 均匀分布的整数，取值 0..size-1
+     */
+    INT,
+    /**
+     * 金额，DECIMAL(12,2)
+     */
+    DECIMAL,
+    /**
+     * 2024 年内的时间
+     */
+    TIMESTAMP,
+    /**
+     * 低基数枚举值，靠前的值出现得多
+     */
+    CATEGORY,
+    /**
+     * 中英文混合的文本，最长 size 个字符
+     */
+    VARCHAR,
+    /**
+     * 大文本，约 size 个字符
+     */
+    CLOB,
+    /**
+     * 二进制，size 字节
+     */
+    BLOB,
+    /**
+     * 约 size 字节的 JSON 文档，zstd 压缩后 Base64 编码，与 zstdDecode 扩展对应
+     */
+    ZSTD_JSON,
+    /**
+     * 手机号 SM4 加密后 Base64 编码，与 SM4Decrypt 扩展对应
+     */
+    SM4_PHONE,
+    /**
+     * 身份证号 SM4 加密后 Base64 编码，与 SM4Decrypt 扩展对应
+     */
+    SM4_ID_CARD
+}
@@ -0,0 +1,35 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.util.List;
+
+/**
+ * 列定义
+ * @param name 列名
+ * @param kind 列类型
+ * @param size 长度、字节数或取值范围，含义见 {@link ColumnKind}
+ * @param references SKEWED_KEY 引用的表，基数为该表的行数；为null时基数为 size
+ * @param values CATEGORY 的取值
+ * @author yangxin
+ */
+record ColumnSpec(String name, ColumnKind kind, int size, String references, List<String> values) {
+
+    static ColumnSpec id(String name) {
+        return new ColumnSpec(name, ColumnKind.ID, 0, null, List.of());
+    }
+
+    static ColumnSpec skewedKey(String name, String references) {
+        return new ColumnSpec(name, ColumnKind.SKEWED_KEY, 0, references, List.of());
+    }
+
+    static ColumnSpec of(String name, ColumnKind kind) {
+        return new ColumnSpec(name, kind, 0, null, List.of());
+    }
+
+    static ColumnSpec of(String name, ColumnKind kind, int size) {
+        return new ColumnSpec(name, kind, size, null, List.of());
+    }
+
+    static ColumnSpec category(String name, String... values) {
+        return new ColumnSpec(name, ColumnKind.CATEGORY, 0, null, List.of(values));
+    }
+}
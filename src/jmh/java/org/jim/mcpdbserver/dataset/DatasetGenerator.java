@@ -0,0 +1,145 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生成压测数据集：按 {@link DatasetSchema} 建表，并行批量装载到 H2、SQLite、Derby、HSQLDB 文件库，
+ * 最后在数据集目录写入 datasource.yml，可直接用 --datasource.config 启动服务
+ * <p>
+ * 运行：./mvnw -Pbenchmark compile exec:exec -Dbenchmark.main=org.jim.mcpdbserver.dataset.DatasetGenerator -Dbenchmark.args="--help"
+ * @author yangxin
+ */
+public class DatasetGenerator {
+
+    private static final String USAGE = """
+            Usage: DatasetGenerator [options]
+              --databases <list>   comma separated: h2, sqlite, derby, hsqldb (default h2)
+              --dir <path>         dataset directory (default target/dataset)
+              --scale <n>          row count scale, 1 means 10M orders (default 0.01)
+              --tables <list>      comma separated tables (default all: customer, orders, core_snapshot, wide_event)
+              --seed <n>           random seed, the same seed generates the same data (default 42)
+              --threads <n>        loader threads per database, sqlite always uses 1 (default available processors)
+              --batch <n>          rows per batch insert and commit (default 1000)
+            """;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        Path directory = Path.of(options.getOrDefault("dir", "target/dataset"));
+        double scale = Double.parseDouble(options.getOrDefault("scale", "0.01"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "1000"));
+        List<TableSpec> tables = new ArrayList<>();
+        for (String table : options.getOrDefault("tables", "customer,orders,core_snapshot,wide_event").split(",")) {
+            tables.add(DatasetSchema.table(table.trim()));
+        }
+        List<Dialect> dialects = new ArrayList<>();
+        for (String database : options.getOrDefault("databases", "h2").split(",")) {
+            dialects.add(Dialect.valueOf(database.trim().toUpperCase(Locale.ROOT)));
+        }
+
+        Files.createDirectories(directory);
+        // Derby 默认在工作目录写 derby.log
+        System.setProperty("derby.stream.error.file", directory.resolve("derby.log").toString());
+        for (Dialect dialect : dialects) {
+            Files.createDirectories(directory.resolve(dialect.name().toLowerCase(Locale.ROOT)));
+            String url = dialect.url(directory);
+            DatasetLoader loader = new DatasetLoader(() -> DriverManager.getConnection(url, dialect.username(), ""),
+                    dialect, seed, scale, threads, batchSize);
+            for (TableSpec table : tables) {
+                load(loader, dialect, table, scale);
+            }
+            dialect.shutdown(directory);
+        }
+        Path config = writeDataSourceConfig(directory, dialects);
+        System.out.println("Datasource config written to " + config);
+    }
+
+    private static void load(DatasetLoader loader, Dialect dialect, TableSpec table, double scale) throws Exception {
+        long rows = table.rows(scale);
+        LongAdder loaded = new LongAdder();
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dataset-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.printf("  %s.%s: %,d / %,d rows%n",
+                dialect.name().toLowerCase(Locale.ROOT), table.name(), loaded.sum(), rows), 5, 5, TimeUnit.SECONDS);
+        try {
+            loader.load(table, loaded::add);
+        } finally {
+            reporter.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s.%s: %,d rows in %.1f s (%,.0f rows/s)%n", dialect.name().toLowerCase(Locale.ROOT), table.name(),
+                rows, seconds, rows / seconds);
+    }
+
+    /**
+     * 写入数据集的数据源配置，第一个数据库为默认数据源
+     */
+    private static Path writeDataSourceConfig(Path directory, List<Dialect> dialects) throws IOException {
+        StringBuilder yaml = new StringBuilder("""
+                # DatasetGenerator 生成的数据源配置
+                # 启动服务：./mvnw spring-boot:run -Dspring-boot.run.arguments=--datasource.config=%s
+                datasource:
+                  datasources:
+                """.formatted(directory.resolve("datasource.yml")));
+        for (Dialect dialect : dialects) {
+            String name = "dataset_" + dialect.name().toLowerCase(Locale.ROOT);
+            // 服务打开已存在的 Derby 库，不需要 create=true
+            String url = dialect.url(directory).replace(";create=true", "");
+            yaml.append("    ").append(name).append(":\n")
+                    .append("      url: ").append(url).append('\n')
+                    .append("      username: '").append(dialect.username()).append("'\n")
+                    .append("      password: ''\n")
+                    .append("      driver-class-name: ").append(dialect.driverClassName()).append('\n');
+            if (dialect == dialects.get(0)) {
+                yaml.append("      default: true\n");
+            }
+        }
+        Path config = directory.resolve("datasource.yml");
+        Files.writeString(config, yaml);
+        return config;
+    }
+
+    /**
+     * 解析 --key value 和 --key=value 形式的参数，没有值的参数视为 true
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg + "\n" + USAGE);
+            }
+            String key = arg.substring(2);
+            int equals = key.indexOf('=');
+            if (equals >= 0) {
+                options.put(key.substring(0, equals), key.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
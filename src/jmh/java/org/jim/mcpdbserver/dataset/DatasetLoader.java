@@ -0,0 +1,168 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * 建表并批量装载生成的数据
+ * 行号区间按块分给多个线程，每个线程使用自己的连接，按 batchSize 批量插入并提交；外键列的索引在装载完成后创建
+ * @author yangxin
+ */
+public final class DatasetLoader {
+
+    /**
+     * 每个线程一次领取的行数
+     */
+    private static final int CHUNK_ROWS = 50_000;
+
+    private final ConnectionFactory connections;
+    private final Dialect dialect;
+    private final long seed;
+    private final double scale;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * @param connections 获取装载连接，每个线程调用一次
+     * @param seed 随机种子，相同种子生成相同的数据
+     * @param scale 行数比例，1 表示表定义中的行数
+     * @param threads 装载线程数，SQLite 固定为 1
+     * @param batchSize 每批插入的行数
+     */
+    public DatasetLoader(ConnectionFactory connections, Dialect dialect, long seed, double scale, int threads, int batchSize) {
+        this.connections = connections;
+        this.dialect = dialect;
+        this.seed = seed;
+        this.scale = scale;
+        this.threads = dialect.writers(Math.max(1, threads));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 重建表并装载数据
+     * @param progress 每提交一批后回调本批行数，不需要时为null
+     * @return 装载的行数
+     */
+    public long load(TableSpec table, LongConsumer progress) throws SQLException, InterruptedException {
+        createTable(table);
+        long rows = table.rows(scale);
+        ValueGenerator generator = new ValueGenerator(table, seed, scale);
+        String insert = "INSERT INTO " + table.name() + " ("
+                + table.columns().stream().map(ColumnSpec::name).collect(Collectors.joining(", "))
+                + ") VALUES (" + table.columns().stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long first = 1; first <= rows; first += CHUNK_ROWS) {
+                long from = first;
+                long to = Math.min(rows, first + CHUNK_ROWS - 1);
+                futures.add(executor.submit(() -> {
+                    insert(insert, generator, from, to, progress);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Failed to load " + table.name(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        createIndexes(table);
+        return rows;
+    }
+
+    private void insert(String insert, ValueGenerator generator, long from, long to, LongConsumer progress) throws SQLException {
+        try (Connection connection = connections.get()) {
+            dialect.prepare(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                int pending = 0;
+                for (long id = from; id <= to; id++) {
+                    Object[] values = generator.row(id);
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = dialect.bind(values[i]);
+                        if (value instanceof byte[] bytes) {
+                            statement.setBytes(i + 1, bytes);
+                        } else {
+                            statement.setObject(i + 1, value);
+                        }
+                    }
+                    statement.addBatch();
+                    if (++pending == batchSize || id == to) {
+                        statement.executeBatch();
+                        connection.commit();
+                        if (progress != null) {
+                            progress.accept(pending);
+                        }
+                        pending = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    private void createTable(TableSpec table) throws SQLException {
+        try (Connection connection = connections.get(); Statement statement = connection.createStatement()) {
+            // Derby 不支持 DROP TABLE IF EXISTS
+            if (exists(connection, table.name())) {
+                statement.execute("DROP TABLE " + table.name());
+            }
+            List<ColumnSpec> columns = table.columns();
+            StringBuilder ddl = new StringBuilder("CREATE TABLE ").append(table.name()).append(" (")
+                    .append(dialect.primaryKey(columns.get(0)));
+            for (ColumnSpec column : columns.subList(1, columns.size())) {
+                ddl.append(", ").append(column.name()).append(' ').append(dialect.type(column));
+            }
+            statement.execute(ddl.append(')').toString());
+        }
+    }
+
+    /**
+     * 未加引号的表名在 H2、Derby、HSQLDB 中保存为大写，在 SQLite 中保持原样
+     */
+    private static boolean exists(Connection connection, String table) throws SQLException {
+        for (String name : List.of(table, table.toUpperCase(Locale.ROOT))) {
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, name, new String[]{"TABLE"})) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void createIndexes(TableSpec table) throws SQLException {
+        try (Connection connection = connections.get(); Statement statement = connection.createStatement()) {
+            for (ColumnSpec column : table.columns()) {
+                if (column.kind() == ColumnKind.SKEWED_KEY) {
+                    statement.execute("CREATE INDEX idx_" + table.name() + "_" + column.name()
+                            + " ON " + table.name() + " (" + column.name() + ")");
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection get() throws SQLException;
+    }
+}
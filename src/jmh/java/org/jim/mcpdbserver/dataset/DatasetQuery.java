@@ -0,0 +1,42 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.util.SplittableRandom;
+
+/**
+ * 数据集上的典型查询，JMH 基准测试和压测场景共用
+ * SQL 中的 :key 替换为倾斜分布的 keyColumn 取值，热点值出现得多；:id 替换为均匀分布的主键
+ * @param name 查询名称，也是压测场景名称
+ * @param table 查询的表
+ * @param sql SQL 模板，只使用各数据库通用的语法
+ * @param keyColumn :key 对应的列，没有时为null
+ * @param columns 用扩展处理的列，逗号分隔；普通查询为null
+ * @param extension 处理 columns 的扩展；普通查询为null
+ * @author yangxin
+ */
+public record DatasetQuery(String name, String table, String sql, String keyColumn, String columns, String extension) {
+
+    /**
+     * @return 是否通过 executeSqlWithTransform 用扩展处理结果列
+     */
+    public boolean isTransform() {
+        return extension != null;
+    }
+
+    /**
+     * 生成一条具体的 SQL
+     * @param scale 生成数据集时的行数比例，决定 :id 和 :key 的取值范围
+     * @param random 随机数，相同的种子得到相同的 SQL 序列
+     */
+    public String render(double scale, SplittableRandom random) {
+        TableSpec spec = DatasetSchema.table(table);
+        String rendered = sql;
+        if (rendered.contains(":key")) {
+            long cardinality = DatasetSchema.cardinality(spec.column(keyColumn), scale);
+            rendered = rendered.replace(":key", Long.toString(ValueGenerator.skewed(random, cardinality)));
+        }
+        if (rendered.contains(":id")) {
+            rendered = rendered.replace(":id", Long.toString(1 + random.nextLong(spec.rows(scale))));
+        }
+        return rendered;
+    }
+}
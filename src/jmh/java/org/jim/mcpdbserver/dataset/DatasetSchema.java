@@ -0,0 +1,136 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jim.mcpdbserver.dataset.ColumnKind.BLOB;
+import static org.jim.mcpdbserver.dataset.ColumnKind.CLOB;
+import static org.jim.mcpdbserver.dataset.ColumnKind.DECIMAL;
+import static org.jim.mcpdbserver.dataset.ColumnKind.INT;
+import static org.jim.mcpdbserver.dataset.ColumnKind.SM4_ID_CARD;
+import static org.jim.mcpdbserver.dataset.ColumnKind.SM4_PHONE;
+import static org.jim.mcpdbserver.dataset.ColumnKind.TIMESTAMP;
+import static org.jim.mcpdbserver.dataset.ColumnKind.VARCHAR;
+import static org.jim.mcpdbserver.dataset.ColumnKind.ZSTD_JSON;
+
+/**
+ * 压测数据集的表和查询定义，数据生成器、JMH 基准测试和压测场景共用
+ * <ul>
+ *     <li>customer：手机号、身份证号 SM4 加密，带大文本和二进制列</li>
+ *     <li>orders：scale 为 1 时 1000 万行，customer_id 倾斜分布，少数客户的订单很多</li>
+ *     <li>core_snapshot：zstd 压缩的业务快照，与 zstdDecode 扩展的提示一致</li>
+ *     <li>wide_event：64 列的宽表</li>
+ * </ul>
+ * @author yangxin
+ */
+public final class DatasetSchema {
+
+    private static final Map<String, TableSpec> TABLES = new LinkedHashMap<>();
+    private static final Map<String, DatasetQuery> QUERIES = new LinkedHashMap<>();
+
+    static {
+        add(new TableSpec("customer", List.of(
+                ColumnSpec.id("id"),
+                ColumnSpec.of("name", VARCHAR, 32),
+                ColumnSpec.of("phone", SM4_PHONE),
+                ColumnSpec.of("id_card", SM4_ID_CARD),
+                ColumnSpec.category("city", "Shanghai", "Beijing", "Shenzhen", "Hangzhou", "Chengdu", "Wuhan", "Xian", "Nanjing"),
+                ColumnSpec.category("level", "NORMAL", "SILVER", "GOLD", "PLATINUM"),
+                ColumnSpec.of("created_at", TIMESTAMP),
+                ColumnSpec.of("remark", CLOB, 2000),
+                ColumnSpec.of("avatar", BLOB, 1024)), 1_000_000));
+        add(new TableSpec("orders", List.of(
+                ColumnSpec.id("id"),
+                ColumnSpec.skewedKey("customer_id", "customer"),
+                ColumnSpec.category("status", "PAID", "SHIPPED", "COMPLETED", "CREATED", "CANCELLED", "REFUNDED"),
+                ColumnSpec.category("channel", "APP", "WEB", "MINI_PROGRAM", "OFFLINE"),
+                ColumnSpec.of("amount", DECIMAL),
+                ColumnSpec.of("quantity", INT, 100),
+                ColumnSpec.of("created_at", TIMESTAMP),
+                ColumnSpec.of("note", VARCHAR, 64)), 10_000_000));
+        add(new TableSpec("core_snapshot", List.of(
+                ColumnSpec.id("id"),
+                ColumnSpec.skewedKey("order_id", "orders"),
+                ColumnSpec.category("snapshot_type", "ORDER", "PAYMENT", "LOGISTICS"),
+                ColumnSpec.of("snapshot_data", ZSTD_JSON, 2048),
+                ColumnSpec.of("created_at", TIMESTAMP)), 1_000_000));
+        add(new TableSpec("wide_event", wideEventColumns(), 1_000_000));
+
+        add(new DatasetQuery("orders_by_customer", "orders",
+                "SELECT id, status, amount, created_at FROM orders WHERE customer_id = :key", "customer_id", null, null));
+        add(new DatasetQuery("orders_status_summary", "orders",
+                "SELECT status, COUNT(*) AS cnt, SUM(amount) AS total FROM orders WHERE customer_id = :key GROUP BY status",
+                "customer_id", null, null));
+        add(new DatasetQuery("orders_range", "orders",
+                "SELECT * FROM orders WHERE id BETWEEN :id AND :id + 99", null, null, null));
+        add(new DatasetQuery("customer_by_id", "customer",
+                "SELECT id, name, city, level, created_at FROM customer WHERE id = :id", null, null, null));
+        add(new DatasetQuery("wide_event_range", "wide_event",
+                "SELECT * FROM wide_event WHERE id BETWEEN :id AND :id + 19", null, null, null));
+        add(new DatasetQuery("snapshot_decode", "core_snapshot",
+                "SELECT id, order_id, snapshot_data FROM core_snapshot WHERE id BETWEEN :id AND :id + 9", null,
+                "snapshot_data", "zstdDecode"));
+        add(new DatasetQuery("customer_decrypt", "customer",
+                "SELECT id, phone, id_card FROM customer WHERE id BETWEEN :id AND :id + 9", null,
+                "phone,id_card", "SM4Decrypt"));
+    }
+
+    private DatasetSchema() {
+    }
+
+    public static List<TableSpec> tables() {
+        return List.copyOf(TABLES.values());
+    }
+
+    public static TableSpec table(String name) {
+        TableSpec table = TABLES.get(name);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown dataset table: " + name + ", available: " + TABLES.keySet());
+        }
+        return table;
+    }
+
+    public static List<DatasetQuery> queries() {
+        return List.copyOf(QUERIES.values());
+    }
+
+    /**
+     * @return 查询定义，不存在时返回null
+     */
+    public static DatasetQuery query(String name) {
+        return QUERIES.get(name);
+    }
+
+    /**
+     * SKEWED_KEY 的基数：引用其他表时为该表的行数
+     */
+    static long cardinality(ColumnSpec column, double scale) {
+        return column.references() != null ? table(column.references()).rows(scale) : Math.max(1, column.size());
+    }
+
+    private static List<ColumnSpec> wideEventColumns() {
+        List<ColumnSpec> columns = new ArrayList<>();
+        columns.add(ColumnSpec.id("id"));
+        for (int i = 1; i < 64; i++) {
+            String name = "c%02d".formatted(i);
+            columns.add(switch (i % 5) {
+                case 0 -> ColumnSpec.of(name + "_int", INT, 1_000_000);
+                case 1 -> ColumnSpec.of(name + "_amount", DECIMAL);
+                case 2 -> ColumnSpec.of(name + "_text", VARCHAR, 24);
+                case 3 -> ColumnSpec.of(name + "_time", TIMESTAMP);
+                default -> ColumnSpec.category(name + "_flag", "A", "B", "C", "D");
+            });
+        }
+        return columns;
+    }
+
+    private static void add(TableSpec table) {
+        TABLES.put(table.name(), table);
+    }
+
+    private static void add(DatasetQuery query) {
+        QUERIES.put(query.name(), query);
+    }
+}
@@ -0,0 +1,165 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * 嵌入式数据库的文件库地址、列类型和装载方式
+ * @author yangxin
+ */
+public enum Dialect {
+
+    H2("org.h2.Driver", "sa", 0) {
+        @Override
+        String url(Path directory) {
+            return "jdbc:h2:file:" + directory.resolve("h2/dataset").toAbsolutePath();
+        }
+    },
+    HSQLDB("org.hsqldb.jdbc.JDBCDriver", "SA", 0) {
+        @Override
+        String url(Path directory) {
+            // 使用 cached 表，数据不全部常驻内存
+            return "jdbc:hsqldb:file:" + directory.resolve("hsqldb/dataset").toAbsolutePath()
+                    + ";hsqldb.default_table_type=cached;hsqldb.tx=mvcc";
+        }
+
+        @Override
+        void shutdown(Path directory) throws SQLException {
+            try (Connection connection = DriverManager.getConnection(url(directory), username(), "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    },
+    DERBY("org.apache.derby.iapi.jdbc.AutoloadedDriver", "sa", 0) {
+        @Override
+        String url(Path directory) {
+            return "jdbc:derby:" + directory.resolve("derby/dataset").toAbsolutePath() + ";create=true";
+        }
+
+        @Override
+        void shutdown(Path directory) throws SQLException {
+            try {
+                DriverManager.getConnection("jdbc:derby:" + directory.resolve("derby/dataset").toAbsolutePath() + ";shutdown=true").close();
+            } catch (SQLException e) {
+                // 关闭单个数据库成功时 Derby 抛出 SQLState 08006
+                if (!"08006".equals(e.getSQLState())) {
+                    throw e;
+                }
+            }
+        }
+    },
+    /**
+     * SQLite 同一时间只允许一个写连接，只用一个线程装载
+     */
+    SQLITE("org.sqlite.JDBC", "", 1) {
+        @Override
+        String url(Path directory) {
+            return "jdbc:sqlite:" + directory.resolve("sqlite/dataset.db").toAbsolutePath();
+        }
+
+        @Override
+        String type(ColumnSpec column) {
+            return switch (column.kind()) {
+                case ID, SKEWED_KEY, INT -> "INTEGER";
+                case DECIMAL -> "NUMERIC";
+                case BLOB -> "BLOB";
+                default -> "TEXT";
+            };
+        }
+
+        @Override
+        String primaryKey(ColumnSpec column) {
+            // INTEGER PRIMARY KEY 是 rowid 的别名，不再单独建索引
+            return column.name() + " INTEGER PRIMARY KEY";
+        }
+
+        @Override
+        void prepare(Connection connection) throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=OFF");
+            }
+        }
+
+        @Override
+        Object bind(Object value) {
+            // 按文本保存时间，查询结果与其他数据库的显示方式一致
+            return value instanceof Timestamp timestamp ? timestamp.toString().substring(0, 19) : value;
+        }
+    };
+
+    private final String driverClassName;
+    private final String username;
+    private final int maxWriters;
+
+    Dialect(String driverClassName, String username, int maxWriters) {
+        this.driverClassName = driverClassName;
+        this.username = username;
+        this.maxWriters = maxWriters;
+    }
+
+    /**
+     * @param directory 数据集目录，每种数据库在其中使用自己的子目录
+     */
+    abstract String url(Path directory);
+
+    String driverClassName() {
+        return driverClassName;
+    }
+
+    String username() {
+        return username;
+    }
+
+    /**
+     * @param threads 期望的装载线程数
+     * @return 实际使用的装载线程数
+     */
+    int writers(int threads) {
+        return maxWriters > 0 ? Math.min(threads, maxWriters) : threads;
+    }
+
+    String type(ColumnSpec column) {
+        return switch (column.kind()) {
+            case ID, SKEWED_KEY -> "BIGINT";
+            case INT -> "INT";
+            case DECIMAL -> "DECIMAL(12,2)";
+            case TIMESTAMP -> "TIMESTAMP";
+            case CATEGORY -> "VARCHAR(32)";
+            case VARCHAR -> "VARCHAR(" + column.size() + ")";
+            case CLOB -> "CLOB";
+            case BLOB -> "BLOB";
+            // 压缩后 Base64 编码的长度不超过原文，留出余量
+            case ZSTD_JSON -> "VARCHAR(" + column.size() * 2 + ")";
+            case SM4_PHONE, SM4_ID_CARD -> "VARCHAR(64)";
+        };
+    }
+
+    String primaryKey(ColumnSpec column) {
+        return column.name() + " " + type(column) + " NOT NULL PRIMARY KEY";
+    }
+
+    /**
+     * 装载连接的初始化
+     */
+    void prepare(Connection connection) throws SQLException {
+    }
+
+    /**
+     * 绑定参数前转换取值
+     */
+    Object bind(Object value) {
+        return value;
+    }
+
+    /**
+     * 装载完成后关闭数据库，使服务可以打开文件库
+     */
+    void shutdown(Path directory) throws SQLException {
+    }
+}
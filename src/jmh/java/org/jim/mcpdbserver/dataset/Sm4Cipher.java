@@ -0,0 +1,103 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * SM4 加密（ECB 模式，PKCS#7 填充），生成的密文可由 SM4Decrypt 扩展和 sm4 解码器解密
+ * 与 Sm4ValueDecoder 使用同一套算法（GB/T 32907-2016），加密轮密钥为解密轮密钥的逆序
+ * @author yangxin
+ */
+final class Sm4Cipher {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final int[] FK = {0xa3b1bac6, 0x56aa3350, 0x677d9197, 0xb27022dc};
+
+    private static final byte[] SBOX = toBytes(
+            "d690e9fecce13db716b614c228fb2c052b679a762abe04c3aa441326498606999c4250f491ef987a33540b43edcfac62"
+            + "e4b31ca9c908e89580df94fa758f3fa64707a7fcf37317ba83593c19e6854fa8686b81b27164da8bf8eb0f4b70569d35"
+            + "1e240e5e6358d1a225227c3b01217887d40046579fd327524c3602e7a0c4c89eeabf8ad240c738b5a3f7f2cef96115a1"
+            + "e0ae5da49b341a55ad933230f58cb1e31df6e22e8266ca60c02923ab0d534e6fd5db3745defd8e2f03ff6a726d6c5b51"
+            + "8d1baf92bbddbc7f11d95c411f105ad80ac13188a5cd7bbd2d74d012b8e5b4b08969974a0c96777e65b9f109c56ec684"
+            + "18f07dec3adc4d2079ee5f3ed7cb3948");
+
+    private final int[] roundKeys;
+
+    Sm4Cipher(byte[] key) {
+        if (key.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("SM4 key must be 16 bytes, got " + key.length);
+        }
+        int[] k = new int[36];
+        for (int i = 0; i < 4; i++) {
+            k[i] = ByteBuffer.wrap(key, i * 4, 4).getInt() ^ FK[i];
+        }
+        roundKeys = new int[32];
+        for (int i = 0; i < 32; i++) {
+            k[i + 4] = k[i] ^ tPrime(k[i + 1] ^ k[i + 2] ^ k[i + 3] ^ ck(i));
+            roundKeys[i] = k[i + 4];
+        }
+    }
+
+    /**
+     * 加密，先按 PKCS#7 填充
+     */
+    byte[] encrypt(byte[] plain) {
+        int pad = BLOCK_SIZE - plain.length % BLOCK_SIZE;
+        byte[] out = Arrays.copyOf(plain, plain.length + pad);
+        Arrays.fill(out, plain.length, out.length, (byte) pad);
+        for (int offset = 0; offset < out.length; offset += BLOCK_SIZE) {
+            encryptBlock(out, offset);
+        }
+        return out;
+    }
+
+    /**
+     * 加密一个分组，不填充
+     */
+    void encryptBlock(byte[] block, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(block, offset, BLOCK_SIZE);
+        int x0 = buffer.getInt(), x1 = buffer.getInt(), x2 = buffer.getInt(), x3 = buffer.getInt();
+        for (int i = 0; i < 32; i += 4) {
+            x0 ^= t(x1 ^ x2 ^ x3 ^ roundKeys[i]);
+            x1 ^= t(x2 ^ x3 ^ x0 ^ roundKeys[i + 1]);
+            x2 ^= t(x3 ^ x0 ^ x1 ^ roundKeys[i + 2]);
+            x3 ^= t(x0 ^ x1 ^ x2 ^ roundKeys[i + 3]);
+        }
+        // 反序变换
+        ByteBuffer.wrap(block, offset, BLOCK_SIZE).putInt(x3).putInt(x2).putInt(x1).putInt(x0);
+    }
+
+    private static int ck(int i) {
+        int ck = 0;
+        for (int j = 0; j < 4; j++) {
+            ck = (ck << 8) | (((4 * i + j) * 7) & 0xFF);
+        }
+        return ck;
+    }
+
+    private static int tau(int a) {
+        return (SBOX[a >>> 24] & 0xFF) << 24
+                | (SBOX[(a >>> 16) & 0xFF] & 0xFF) << 16
+                | (SBOX[(a >>> 8) & 0xFF] & 0xFF) << 8
+                | (SBOX[a & 0xFF] & 0xFF);
+    }
+
+    private static int t(int a) {
+        int b = tau(a);
+        return b ^ Integer.rotateLeft(b, 2) ^ Integer.rotateLeft(b, 10) ^ Integer.rotateLeft(b, 18) ^ Integer.rotateLeft(b, 24);
+    }
+
+    private static int tPrime(int a) {
+        int b = tau(a);
+        return b ^ Integer.rotateLeft(b, 13) ^ Integer.rotateLeft(b, 23);
+    }
+
+    private static byte[] toBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, i * 2, i * 2 + 2, 16);
+        }
+        return bytes;
+    }
+}
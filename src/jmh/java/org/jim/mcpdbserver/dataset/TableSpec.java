@@ -0,0 +1,27 @@
+package org.jim.mcpdbserver.dataset;
+
+import java.util.List;
+
+/**
+ * 表定义
+ * @param name 表名
+ * @param columns 列，第一列为主键
+ * @param rows scale 为 1 时的行数
+ * @author yangxin
+ */
+public record TableSpec(String name, List<ColumnSpec> columns, long rows) {
+
+    /**
+     * @param scale 行数比例，至少生成 1 行
+     */
+    public long rows(double scale) {
+        return Math.max(1, Math.round(rows * scale));
+    }
+
+    ColumnSpec column(String name) {
+        return columns.stream()
+                .filter(column -> column.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown column " + name + " in table " + this.name));
+    }
+}
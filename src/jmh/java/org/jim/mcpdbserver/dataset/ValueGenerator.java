@@ -0,0 +1,163 @@
+package org.jim.mcpdbserver.dataset;
+
+import com.github.luben.zstd.Zstd;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按表定义生成行数据
+ * 每一行使用由种子、表名和行号确定的随机数，同一行的取值与生成顺序和线程数无关，相同种子生成的数据完全相同
+ * @author yangxin
+ */
+final class ValueGenerator {
+
+    /**
+     * 与 SM4Decrypt 扩展和 extension.decoder.sm4-key 的默认密钥一致
+     */
+    static final String SM4_KEY = "1234567890123456";
+
+    private static final Sm4Cipher SM4 = new Sm4Cipher(SM4_KEY.getBytes(StandardCharsets.UTF_8));
+
+    private static final long TIME_BASE = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+    private static final long TIME_RANGE = TimeUnit.DAYS.toMillis(366);
+
+    private static final List<String> WORDS = List.of("order", "payment", "refund", "delivery", "invoice", "coupon",
+            "member", "address", "urgent", "gift", "客户", "订单", "快递", "发票", "备注", "商品", "退款", "优惠", "会员", "地址");
+
+    private final TableSpec table;
+    private final long seed;
+    private final long[] cardinalities;
+
+    ValueGenerator(TableSpec table, long seed, double scale) {
+        this.table = table;
+        this.seed = seed ^ mix(table.name().hashCode());
+        this.cardinalities = table.columns().stream()
+                .mapToLong(column -> column.kind() == ColumnKind.SKEWED_KEY ? DatasetSchema.cardinality(column, scale) : 0)
+                .toArray();
+    }
+
+    /**
+     * 生成一行
+     * @param id 行号，从 1 开始，也是主键
+     * @return 按列定义顺序的取值
+     */
+    Object[] row(long id) {
+        SplittableRandom random = new SplittableRandom(seed + id);
+        List<ColumnSpec> columns = table.columns();
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(columns.get(i), cardinalities[i], id, random);
+        }
+        return values;
+    }
+
+    private static Object value(ColumnSpec column, long cardinality, long id, SplittableRandom random) {
+        return switch (column.kind()) {
+            case ID -> id;
+            case SKEWED_KEY -> skewed(random, cardinality);
+            case INT -> random.nextInt(column.size());
+            case DECIMAL -> BigDecimal.valueOf(random.nextLong(100, 1_000_000), 2);
+            case TIMESTAMP -> new Timestamp(TIME_BASE + random.nextLong(TIME_RANGE) / 1000 * 1000);
+            case CATEGORY -> column.values().get((int) skewed(random, column.values().size()) - 1);
+            case VARCHAR -> text(random, 1 + random.nextInt(column.size()));
+            case CLOB -> text(random, column.size() / 2 + random.nextInt(column.size() / 2 + 1));
+            case BLOB -> {
+                byte[] bytes = new byte[column.size()];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) random.nextInt(256);
+                }
+                yield bytes;
+            }
+            case ZSTD_JSON -> encode(Zstd.compress(json(random, id, column.size()).getBytes(StandardCharsets.UTF_8), 3));
+            case SM4_PHONE -> encode(SM4.encrypt(phone(random).getBytes(StandardCharsets.UTF_8)));
+            case SM4_ID_CARD -> encode(SM4.encrypt(idCard(random).getBytes(StandardCharsets.UTF_8)));
+        };
+    }
+
+    /**
+     * 倾斜分布的 1..n：取 (n+1)^u 的整数部分，k 出现的概率约与 1/k 成正比（近似 Zipf s=1）
+     */
+    static long skewed(SplittableRandom random, long n) {
+        long k = (long) Math.exp(random.nextDouble() * Math.log(n + 1.0));
+        return Math.min(Math.max(k, 1), n);
+    }
+
+    /**
+     * 中英文混合的文本，最多 maxChars 个字符
+     */
+    private static String text(SplittableRandom random, int maxChars) {
+        StringBuilder text = new StringBuilder(maxChars + 16);
+        while (text.length() < maxChars) {
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(WORDS.get(random.nextInt(WORDS.size())));
+        }
+        text.setLength(maxChars);
+        return text.toString().strip();
+    }
+
+    /**
+     * 约 size 字节的业务快照 JSON
+     */
+    private static String json(SplittableRandom random, long id, int size) {
+        StringBuilder json = new StringBuilder(size + 256);
+        json.append("{\"snapshotId\":").append(id)
+                .append(",\"version\":").append(1 + random.nextInt(5))
+                .append(",\"buyer\":{\"level\":\"").append(random.nextBoolean() ? "GOLD" : "NORMAL")
+                .append("\",\"remark\":\"").append(text(random, 24)).append("\"},\"items\":[");
+        for (int i = 0; json.length() < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sku\":\"SKU-").append(100000 + random.nextInt(900000))
+                    .append("\",\"name\":\"").append(text(random, 12))
+                    .append("\",\"price\":").append(BigDecimal.valueOf(random.nextLong(100, 100_000), 2))
+                    .append(",\"qty\":").append(1 + random.nextInt(5)).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String phone(SplittableRandom random) {
+        StringBuilder phone = new StringBuilder("1").append(3 + random.nextInt(7));
+        for (int i = 0; i < 9; i++) {
+            phone.append(random.nextInt(10));
+        }
+        return phone.toString();
+    }
+
+    /**
+     * 18 位身份证号：地区码、出生日期、顺序码和 ISO 7064 MOD 11-2 校验码
+     */
+    private static String idCard(SplittableRandom random) {
+        StringBuilder idCard = new StringBuilder(18)
+                .append(110000 + random.nextInt(540000))
+                .append(1960 + random.nextInt(45))
+                .append("%02d".formatted(1 + random.nextInt(12)))
+                .append("%02d".formatted(1 + random.nextInt(28)))
+                .append("%03d".formatted(random.nextInt(1000)));
+        int[] weights = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            sum += (idCard.charAt(i) - '0') * weights[i];
+        }
+        return idCard.append("10X98765432".charAt(sum % 11)).toString();
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
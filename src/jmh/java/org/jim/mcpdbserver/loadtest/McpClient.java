@@ -0,0 +1,144 @@
+package org.jim.mcpdbserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最小的 MCP streamable-http 客户端，与 Agent 一样先 initialize，再列出工具、调用工具
+ * 每个实例对应一个 MCP 会话；响应可能是 JSON，也可能是只包含一条消息的 SSE 流，两种都支持
+ * @author yangxin
+ */
+class McpClient {
+
+    private static final String PROTOCOL_VERSION = "2025-03-26";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI endpoint;
+    private final Duration timeout;
+    private final AtomicLong ids = new AtomicLong();
+    private String sessionId;
+
+    McpClient(HttpClient httpClient, ObjectMapper objectMapper, URI endpoint, Duration timeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 初始化会话并发送 initialized 通知
+     */
+    void initialize() throws IOException, InterruptedException {
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("protocolVersion", PROTOCOL_VERSION);
+        params.putObject("capabilities");
+        params.putObject("clientInfo").put("name", "mcp-load-generator").put("version", "1.0.0");
+        HttpResponse<String> response = post(request("initialize", params));
+        sessionId = response.headers().firstValue("Mcp-Session-Id").orElse(null);
+        result(response);
+
+        ObjectNode initialized = objectMapper.createObjectNode();
+        initialized.put("jsonrpc", "2.0");
+        initialized.put("method", "notifications/initialized");
+        post(initialized);
+    }
+
+    JsonNode listTools() throws IOException, InterruptedException {
+        return result(post(request("tools/list", objectMapper.createObjectNode())));
+    }
+
+    /**
+     * 调用工具
+     * @return 工具调用结果，即 JSON-RPC 响应中的 result
+     * @throws McpException 返回 JSON-RPC 错误
+     */
+    JsonNode callTool(String name, Map<String, Object> arguments) throws IOException, InterruptedException {
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("name", name);
+        params.set("arguments", objectMapper.valueToTree(arguments));
+        return result(post(request("tools/call", params)));
+    }
+
+    private ObjectNode request(String method, ObjectNode params) {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("id", ids.incrementAndGet());
+        request.put("method", method);
+        request.set("params", params);
+        return request;
+    }
+
+    private HttpResponse<String> post(ObjectNode body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (sessionId != null) {
+            request.header("Mcp-Session-Id", sessionId);
+        }
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new McpException("HTTP " + response.statusCode());
+        }
+        return response;
+    }
+
+    private JsonNode result(HttpResponse<String> response) throws IOException {
+        String body = response.body();
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (contentType.startsWith("text/event-stream")) {
+            body = lastData(body);
+        }
+        if (body == null || body.isBlank()) {
+            throw new McpException("Empty response");
+        }
+        JsonNode message = objectMapper.readTree(body);
+        if (message.has("error")) {
+            throw new McpException(message.get("error").path("message").asText("JSON-RPC error"));
+        }
+        return message.path("result");
+    }
+
+    /**
+     * SSE 流中最后一条 data 消息，多行 data 按换行拼接
+     */
+    private static String lastData(String stream) {
+        String last = null;
+        StringBuilder data = null;
+        for (String line : stream.split("\r?\n")) {
+            if (line.startsWith("data:")) {
+                if (data == null) {
+                    data = new StringBuilder();
+                } else {
+                    data.append('\n');
+                }
+                data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+            } else if (line.isEmpty() && data != null) {
+                last = data.toString();
+                data = null;
+            }
+        }
+        return data != null ? data.toString() : last;
+    }
+
+    /**
+     * MCP 调用失败：HTTP 错误、JSON-RPC 错误或空响应
+     */
+    static class McpException extends IOException {
+        McpException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package org.jim.mcpdbserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.luben.zstd.Zstd;
+import org.HdrHistogram.Histogram;
+import org.jim.mcpdbserver.dataset.DatasetQuery;
+import org.jim.mcpdbserver.dataset.DatasetSchema;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * MCP 端到端压测：像智能体一样通过 streamable-http 连接 /mcp，initialize、列出工具后按场景混合比例调用工具
+ * <p>
+ * 两种负载模型：
+ * <ul>
+ *     <li>rate：开放模型，按固定速率发起调用，延迟从计划发起时间算起，服务端变慢时排队时间也计入延迟</li>
+ *     <li>concurrency：封闭模型，固定数量的会话各自循环调用，用于找出吞吐上限</li>
+ * </ul>
+ * 报告每个场景的吞吐、p50/p99/p999 延迟和错误率，以及从 /actuator/prometheus 采集的服务端资源使用情况
+ * <p>
+ * 运行：./mvnw -Pbenchmark exec:exec -Dbenchmark.main=org.jim.mcpdbserver.loadtest.McpLoadGenerator -Dbenchmark.args="--help"
+ * @author yangxin
+ */
+public class McpLoadGenerator {
+
+    private static final String USAGE = """
+            Usage: McpLoadGenerator [options]
+              --url <url>              MCP endpoint (default http://localhost:6789/mcp)
+              --metrics-url <url>      Prometheus endpoint (default <origin>/actuator/prometheus, "none" to disable)
+              --mode <rate|concurrency> open model at a fixed rate, or closed model with fixed sessions (default concurrency)
+              --rate <n>               calls per second in rate mode (default 50)
+              --concurrency <n>        sessions in concurrency mode (default 8)
+              --sessions <n>           sessions shared by calls in rate mode (default 8)
+              --max-in-flight <n>      rate mode: calls over this limit are counted as errors, not sent (default 1024)
+              --duration <time>        measured time, e.g. 60s or 2m (default 60s)
+              --warmup <time>          warmup time excluded from the report (default 10s)
+              --timeout <time>         per call timeout (default 30s)
+              --mix <name=weight,...>  scenario weights (default default=60,fanout=20,extension=20)
+                                       scenarios: default, fanout, datasource, extension, or a dataset query
+                                       (orders_by_customer, customer_decrypt, ... see DatasetSchema)
+              --sql <sql>              SQL for the default, fanout and datasource scenarios (default SELECT 1)
+              --datasource <name>      target of the datasource scenario and of dataset queries (default: default datasource)
+              --dataset-scale <n>      --scale used by DatasetGenerator, bounds the generated keys (default 0.01)
+              --max-rows <n>           maxRows argument of the SQL tools
+              --format <format>        format argument of the SQL tools: json, csv, tsv or markdown
+              --extension <name>       extension of the extension scenario (default zstdDecode)
+              --input <text>           extension input (default: base64 of a zstd compressed JSON document)
+              --payload-bytes <n>      size of the generated JSON document before compression (default 4096)
+              --report <file>          also write the report as JSON
+            """;
+
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final Duration timeout;
+    private final List<Scenario> scenarios;
+    private final int totalWeight;
+    private final Map<String, ScenarioStats> stats = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    McpLoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.endpoint = URI.create(options.getOrDefault("url", "http://localhost:6789/mcp"));
+        this.timeout = duration(options.getOrDefault("timeout", "30s"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.scenarios = scenarios();
+        this.totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+        scenarios.forEach(scenario -> stats.put(scenario.name(), new ScenarioStats()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        new McpLoadGenerator(options).run();
+    }
+
+    void run() throws Exception {
+        String mode = options.getOrDefault("mode", "concurrency");
+        Duration warmup = duration(options.getOrDefault("warmup", "10s"));
+        Duration measured = duration(options.getOrDefault("duration", "60s"));
+        int sessions = Integer.parseInt(options.getOrDefault(mode.equals("rate") ? "sessions" : "concurrency", "8"));
+
+        List<McpClient> clients = connect(sessions);
+        ServerResourceSampler sampler = sampler();
+        Thread samplerThread = sampler == null ? null : Thread.ofVirtual().name("resource-sampler").start(sampler);
+
+        System.out.printf("%s mode, %d sessions, warmup %ds, duration %ds, mix %s%n", mode, sessions, warmup.toSeconds(),
+                measured.toSeconds(), scenarios.stream().map(s -> s.name() + "=" + s.weight()).collect(Collectors.joining(",")));
+        long start = System.nanoTime();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + measured.toNanos();
+        Thread warmupReset = Thread.ofVirtual().start(() -> {
+            LockSupport.parkNanos(measureStart - System.nanoTime());
+            stats.values().forEach(ScenarioStats::reset);
+            if (sampler != null) {
+                sampler.reset();
+            }
+        });
+
+        if (mode.equals("rate")) {
+            runAtRate(clients, Double.parseDouble(options.getOrDefault("rate", "50")), start, end);
+        } else if (mode.equals("concurrency")) {
+            runWithConcurrency(clients, end);
+        } else {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        warmupReset.join();
+        executor.shutdown();
+        executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        long elapsed = System.nanoTime() - measureStart;
+
+        if (sampler != null) {
+            sampler.stop();
+            samplerThread.interrupt();
+            sampler.sample();
+        }
+        Map<String, Object> report = report(mode, elapsed, sampler);
+        print(report);
+        String reportFile = options.get("report");
+        if (reportFile != null) {
+            objectMapper.writeValue(Path.of(reportFile).toFile(), report);
+            System.out.println("Report written to " + reportFile);
+        }
+    }
+
+    /**
+     * 开放模型：第 i 个调用计划在 start + i / rate 发起，延迟从计划时间算起，避免服务端变慢时少算排队时间
+     */
+    private void runAtRate(List<McpClient> clients, double rate, long start, long end) {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "1024"));
+        AtomicInteger inFlight = new AtomicInteger();
+        for (long i = 0; ; i++) {
+            long intended = start + i * periodNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario scenario = pick();
+            if (inFlight.get() >= maxInFlight) {
+                stats.get(scenario.name()).recordError(System.nanoTime() - intended, "not sent: max-in-flight reached");
+                continue;
+            }
+            McpClient client = clients.get((int) (i % clients.size()));
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    call(client, scenario, intended);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 封闭模型：每个会话在一个虚拟线程中循环调用，上一个调用完成后立即发起下一个
+     */
+    private void runWithConcurrency(List<McpClient> clients, long end) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (McpClient client : clients) {
+            workers.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < end) {
+                    call(client, pick(), System.nanoTime());
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void call(McpClient client, Scenario scenario, long startNanos) {
+        ScenarioStats scenarioStats = stats.get(scenario.name());
+        try {
+            JsonNode result = client.callTool(scenario.tool(), scenario.arguments().get());
+            String error = errorOf(result);
+            if (error == null) {
+                scenarioStats.recordSuccess(System.nanoTime() - startNanos);
+            } else {
+                scenarioStats.recordError(System.nanoTime() - startNanos, error);
+            }
+        } catch (HttpTimeoutException e) {
+            scenarioStats.recordError(System.nanoTime() - startNanos, "timeout");
+        } catch (McpClient.McpException e) {
+            scenarioStats.recordError(System.nanoTime() - startNanos, abbreviate(e.getMessage()));
+        } catch (IOException e) {
+            scenarioStats.recordError(System.nanoTime() - startNanos, e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 工具调用的错误：isError 为 true，工具返回的 JSON 中包含 error 字段，
+     * 或按文本格式输出时 [数据源名称] 下是一行 error JSON
+     * @return 错误原因，成功时返回null
+     */
+    private String errorOf(JsonNode result) {
+        String text = result.path("content").path(0).path("text").asText("");
+        if (result.path("isError").asBoolean()) {
+            return "tool error: " + abbreviate(text);
+        }
+        if (!text.contains("\"error\"")) {
+            return null;
+        }
+        if (text.startsWith("{")) {
+            try {
+                return errorIn(objectMapper.readTree(text), null, 0);
+            } catch (IOException ignored) {
+                // 不是 JSON，按文本结果检查
+            }
+        }
+        String dataSource = null;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("[") && line.endsWith("]")) {
+                dataSource = line.substring(1, line.length() - 1);
+            } else if (line.startsWith("{\"error\"")) {
+                return (dataSource != null ? "error on " + dataSource + ": " : "error: ") + abbreviate(line);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找 JSON 结果中的 error 字段：顶层错误、多数据源结果中单个数据源的错误，以及扩展处理结果中单元格的错误
+     */
+    private static String errorIn(JsonNode node, String dataSource, int depth) {
+        if (depth > 3 || !node.isContainerNode()) {
+            return null;
+        }
+        JsonNode error = node.get("error");
+        if (error != null && error.isValueNode()) {
+            return (dataSource != null ? "error on " + dataSource + ": " : "error: ") + abbreviate(error.asText());
+        }
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            String found = errorIn(field.getValue(), depth == 0 ? field.getKey() : dataSource, depth + 1);
+            if (found != null) {
+                return found;
+            }
+        }
+        for (JsonNode element : node.isArray() ? node : List.<JsonNode>of()) {
+            String found = errorIn(element, dataSource, depth + 1);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private List<McpClient> connect(int sessions) throws IOException, InterruptedException {
+        List<McpClient> clients = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            McpClient client = new McpClient(httpClient, objectMapper, endpoint, timeout);
+            client.initialize();
+            clients.add(client);
+        }
+        JsonNode tools = clients.get(0).listTools().path("tools");
+        Set<String> names = new HashSet<>();
+        tools.forEach(tool -> names.add(tool.path("name").asText()));
+        for (Scenario scenario : scenarios) {
+            if (!names.contains(scenario.tool())) {
+                throw new IllegalStateException("Tool " + scenario.tool() + " of scenario " + scenario.name()
+                        + " is not provided by " + endpoint + ", available: " + names);
+            }
+        }
+        System.out.printf("Connected %d sessions to %s, %d tools%n", sessions, endpoint, names.size());
+        return clients;
+    }
+
+    private ServerResourceSampler sampler() {
+        String metricsUrl = options.getOrDefault("metrics-url", endpoint.resolve("/actuator/prometheus").toString());
+        if (metricsUrl.equals("none")) {
+            return null;
+        }
+        return new ServerResourceSampler(httpClient, URI.create(metricsUrl), Duration.ofSeconds(1));
+    }
+
+    private Scenario pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            value -= scenario.weight();
+            if (value < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private List<Scenario> scenarios() {
+        String sql = options.getOrDefault("sql", "SELECT 1");
+        List<Scenario> result = new ArrayList<>();
+        for (String entry : options.getOrDefault("mix", "default=60,fanout=20,extension=20").split(",")) {
+            String[] parts = entry.trim().split("=");
+            String name = parts[0].trim();
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight <= 0) {
+                continue;
+            }
+            Map<String, Object> arguments = new HashMap<>();
+            String tool = switch (name) {
+                case "default" -> {
+                    sqlArguments(arguments, sql);
+                    yield "executeSqlOnDefault";
+                }
+                case "fanout" -> {
+                    sqlArguments(arguments, sql);
+                    yield "executeSql";
+                }
+                case "datasource" -> {
+                    String dataSource = options.get("datasource");
+                    if (dataSource == null) {
+                        throw new IllegalArgumentException("--datasource is required by the datasource scenario");
+                    }
+                    arguments.put("dataSourceName", dataSource);
+                    sqlArguments(arguments, sql);
+                    yield "executeSqlWithDataSource";
+                }
+                case "extension" -> {
+                    arguments.put("extensionName", options.getOrDefault("extension", "zstdDecode"));
+                    arguments.put("input", options.containsKey("input") ? options.get("input") : compressedPayload());
+                    yield "executeGroovyScript";
+                }
+                default -> null;
+            };
+            if (tool == null) {
+                result.add(datasetScenario(name, weight));
+                continue;
+            }
+            Map<String, Object> fixed = Map.copyOf(arguments);
+            result.add(new Scenario(name, tool, () -> fixed, weight));
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("--mix has no scenario with a positive weight");
+        }
+        return result;
+    }
+
+    /**
+     * DatasetSchema 中的查询：每次调用按数据集的倾斜分布生成新的查询条件，
+     * 指定 --datasource 时在该数据源执行，否则在默认数据源执行
+     */
+    private Scenario datasetScenario(String name, int weight) {
+        DatasetQuery query = DatasetSchema.query(name);
+        if (query == null) {
+            throw new IllegalArgumentException("Unknown scenario: " + name + ", dataset queries: "
+                    + DatasetSchema.queries().stream().map(DatasetQuery::name).toList());
+        }
+        double scale = Double.parseDouble(options.getOrDefault("dataset-scale", "0.01"));
+        String dataSource = options.get("datasource");
+        String tool = query.isTransform() ? "executeSqlWithTransform"
+                : dataSource != null ? "executeSqlWithDataSource" : "executeSqlOnDefault";
+        return new Scenario(name, tool, () -> {
+            Map<String, Object> arguments = new HashMap<>();
+            sqlArguments(arguments, query.render(scale, new SplittableRandom(ThreadLocalRandom.current().nextLong())));
+            if (dataSource != null) {
+                arguments.put("dataSourceName", dataSource);
+            }
+            if (query.isTransform()) {
+                arguments.put("columns", query.columns());
+                arguments.put("extensionName", query.extension());
+            }
+            return arguments;
+        }, weight);
+    }
+
+    private void sqlArguments(Map<String, Object> arguments, String sql) {
+        arguments.put("sql", sql);
+        if (options.containsKey("max-rows")) {
+            arguments.put("maxRows", Integer.parseInt(options.get("max-rows")));
+        }
+        if (options.containsKey("format")) {
+            arguments.put("format", options.get("format"));
+        }
+    }
+
+    /**
+     * 默认的扩展输入：zstd 压缩后 Base64 编码的 JSON 文档，与 zstdDecode 扩展处理的快照数据形式相同
+     */
+    private String compressedPayload() {
+        int payloadBytes = Integer.parseInt(options.getOrDefault("payload-bytes", "4096"));
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; json.length() < payloadBytes; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i)
+                    .append("\",\"amount\":").append(i * 37 % 10000).append(".25,\"status\":\"")
+                    .append(i % 3 == 0 ? "ACTIVE" : "CLOSED").append("\"}");
+        }
+        json.append("]}");
+        return Base64.getEncoder().encodeToString(Zstd.compress(json.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Map<String, Object> report(String mode, long elapsedNanos, ServerResourceSampler sampler) {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", mode);
+        report.put("measured_seconds", Math.round(seconds * 10) / 10.0);
+        Map<String, Object> byScenario = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long totalCalls = 0;
+        long totalErrors = 0;
+        for (Scenario scenario : scenarios) {
+            ScenarioStats scenarioStats = stats.get(scenario.name());
+            Map<String, Object> entry = summary(scenario.tool(), scenarioStats.latency(), scenarioStats.success(),
+                    scenarioStats.errors(), seconds);
+            Map<String, Long> errorKinds = new LinkedHashMap<>();
+            scenarioStats.errorKinds().forEach((kind, count) -> errorKinds.put(kind, count.sum()));
+            entry.put("error_kinds", errorKinds);
+            byScenario.put(scenario.name(), entry);
+            total.add(scenarioStats.latency());
+            totalCalls += scenarioStats.success() + scenarioStats.errors();
+            totalErrors += scenarioStats.errors();
+        }
+        report.put("scenarios", byScenario);
+        report.put("total", summary(null, total, totalCalls - totalErrors, totalErrors, seconds));
+        if (sampler != null) {
+            report.put("server", sampler.summary());
+        }
+        return report;
+    }
+
+    private static Map<String, Object> summary(String tool, Histogram latency, long success, long errors, double seconds) {
+        long calls = success + errors;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (tool != null) {
+            summary.put("tool", tool);
+        }
+        summary.put("calls", calls);
+        summary.put("errors", errors);
+        summary.put("error_rate", calls == 0 ? 0.0 : Math.round(errors * 10000.0 / calls) / 100.0);
+        summary.put("throughput", Math.round(calls / seconds * 10) / 10.0);
+        Map<String, Double> latencyMs = new LinkedHashMap<>();
+        latencyMs.put("p50", millis(latency.getValueAtPercentile(50)));
+        latencyMs.put("p90", millis(latency.getValueAtPercentile(90)));
+        latencyMs.put("p99", millis(latency.getValueAtPercentile(99)));
+        latencyMs.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        latencyMs.put("max", millis(latency.getMaxValue()));
+        summary.put("latency_ms", latencyMs);
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.printf("%nMeasured %s s%n", report.get("measured_seconds"));
+        String header = "%-22s %-26s %9s %8s %7s %9s %9s %9s %9s %9s %9s%n";
+        System.out.printf(header, "scenario", "tool", "calls", "errors", "err%", "calls/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        Map<String, Object> scenarios = (Map<String, Object>) report.get("scenarios");
+        scenarios.forEach((name, value) -> printRow(name, (Map<String, Object>) value));
+        printRow("total", (Map<String, Object>) report.get("total"));
+        scenarios.forEach((name, value) -> ((Map<String, Long>) ((Map<String, Object>) value).get("error_kinds"))
+                .forEach((kind, count) -> System.out.printf("  %s: %d x %s%n", name, count, kind)));
+        Map<String, Object> server = (Map<String, Object>) report.get("server");
+        if (server != null) {
+            System.out.println("\nServer");
+            server.forEach((key, value) -> System.out.printf("  %-20s %s%n", key, value));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printRow(String name, Map<String, Object> row) {
+        Map<String, Double> latency = (Map<String, Double>) row.get("latency_ms");
+        System.out.printf("%-22s %-26s %9d %8d %7.2f %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, row.getOrDefault("tool", ""),
+                row.get("calls"), row.get("errors"), row.get("error_rate"), row.get("throughput"), latency.get("p50"),
+                latency.get("p90"), latency.get("p99"), latency.get("p999"), latency.get("max"));
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    private static String abbreviate(String message) {
+        if (message == null) {
+            return "";
+        }
+        String line = message.strip().replace('\n', ' ');
+        return line.length() <= 80 ? line : line.substring(0, 77) + "...";
+    }
+
+    /**
+     * 解析 30s、2m、500ms 或纯数字（秒）
+     */
+    static Duration duration(String value) {
+        String text = value.trim().toLowerCase();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(text));
+    }
+
+    /**
+     * 解析 --key value 和 --key=value 形式的参数，没有值的参数视为 true
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg + "\n" + USAGE);
+            }
+            String key = arg.substring(2);
+            int equals = key.indexOf('=');
+            if (equals >= 0) {
+                options.put(key.substring(0, equals), key.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,15 @@
+package org.jim.mcpdbserver.loadtest;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 压测场景：调用的工具、参数和在混合负载中的权重
+ * @param name 场景名称，报告按场景汇总
+ * @param tool MCP 工具名称
+ * @param arguments 每次调用的工具参数，数据集查询每次生成不同的 SQL
+ * @param weight 权重
+ * @author yangxin
+ */
+record Scenario(String name, String tool, Supplier<Map<String, Object>> arguments, int weight) {
+}
@@ -0,0 +1,68 @@
+package org.jim.mcpdbserver.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个场景的统计：延迟分布（微秒）、成功数、错误数和错误原因
+ * @author yangxin
+ */
+class ScenarioStats {
+
+    /**
+     * 保留的错误原因种类上限，超过后归入 other
+     */
+    private static final int MAX_ERROR_KINDS = 20;
+
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+    private final LongAdder success = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorKinds = new ConcurrentHashMap<>();
+
+    void recordSuccess(long latencyNanos) {
+        latency.recordValue(toMicros(latencyNanos));
+        success.increment();
+    }
+
+    void recordError(long latencyNanos, String kind) {
+        latency.recordValue(toMicros(latencyNanos));
+        errors.increment();
+        String key = errorKinds.size() < MAX_ERROR_KINDS || errorKinds.containsKey(kind) ? kind : "other";
+        errorKinds.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 预热结束时清空
+     */
+    void reset() {
+        latency.reset();
+        success.reset();
+        errors.reset();
+        errorKinds.clear();
+    }
+
+    Histogram latency() {
+        return latency;
+    }
+
+    long success() {
+        return success.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    Map<String, LongAdder> errorKinds() {
+        return errorKinds;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)), TimeUnit.MINUTES.toMicros(10));
+    }
+}
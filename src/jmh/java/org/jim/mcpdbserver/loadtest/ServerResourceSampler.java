@@ -0,0 +1,173 @@
+package org.jim.mcpdbserver.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 定期抓取服务端 /actuator/prometheus，统计压测期间的 CPU、堆内存、线程、GC 和连接池使用情况
+ * 抓取失败（例如未开放 prometheus 端点）时只在报告中标记不可用，不影响压测
+ * @author yangxin
+ */
+class ServerResourceSampler implements Runnable {
+
+    private final HttpClient httpClient;
+    private final URI metricsUrl;
+    private final Duration interval;
+
+    private final Map<String, Gauge> gauges = new LinkedHashMap<>();
+    private Map<String, Double> first;
+    private Map<String, Double> last;
+    private String failure;
+    private volatile boolean running = true;
+
+    ServerResourceSampler(HttpClient httpClient, URI metricsUrl, Duration interval) {
+        this.httpClient = httpClient;
+        this.metricsUrl = metricsUrl;
+        this.interval = interval;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            sample();
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * 预热结束时清空已采集的数据
+     */
+    synchronized void reset() {
+        gauges.clear();
+        first = null;
+        last = null;
+    }
+
+    synchronized void sample() {
+        Map<String, Double> values;
+        try {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(metricsUrl).timeout(interval.plusSeconds(5)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                failure = "HTTP " + response.statusCode() + " from " + metricsUrl;
+                return;
+            }
+            values = parse(response.body());
+        } catch (Exception e) {
+            failure = e.getClass().getSimpleName() + " from " + metricsUrl;
+            return;
+        }
+        failure = null;
+        if (first == null) {
+            first = values;
+        }
+        last = values;
+        gauge("process_cpu_usage", values, 100);
+        gauge("system_cpu_usage", values, 100);
+        gauge("jvm_memory_used_bytes{area=\"heap\"}", values, 1.0 / (1024 * 1024));
+        gauge("jvm_threads_live_threads", values, 1);
+        gauge("hikaricp_connections_active", values, 1);
+        gauge("hikaricp_connections_pending", values, 1);
+    }
+
+    /**
+     * @return 指标名称到统计结果，按 Prometheus 文本格式中的名称汇总所有标签
+     */
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (last == null) {
+            summary.put("unavailable", failure != null ? failure : "no samples");
+            return summary;
+        }
+        put(summary, "cpu_process_percent", "process_cpu_usage");
+        put(summary, "cpu_system_percent", "system_cpu_usage");
+        put(summary, "heap_used_mb", "jvm_memory_used_bytes{area=\"heap\"}");
+        put(summary, "live_threads", "jvm_threads_live_threads");
+        put(summary, "pool_active", "hikaricp_connections_active");
+        put(summary, "pool_pending", "hikaricp_connections_pending");
+        summary.put("gc_pauses", Math.round(delta("jvm_gc_pause_seconds_count")));
+        summary.put("gc_pause_ms", Math.round(delta("jvm_gc_pause_seconds_sum") * 1000));
+        return summary;
+    }
+
+    private void put(Map<String, Object> summary, String key, String metric) {
+        Gauge gauge = gauges.get(metric);
+        if (gauge != null) {
+            Map<String, Double> stats = new LinkedHashMap<>();
+            stats.put("mean", round(gauge.sum / gauge.count));
+            stats.put("max", round(gauge.max));
+            summary.put(key, stats);
+        }
+    }
+
+    private double delta(String metric) {
+        return last.getOrDefault(metric, 0.0) - first.getOrDefault(metric, 0.0);
+    }
+
+    private void gauge(String metric, Map<String, Double> values, double scale) {
+        Double value = values.get(metric);
+        if (value != null && !value.isNaN()) {
+            gauges.computeIfAbsent(metric, k -> new Gauge()).add(value * scale);
+        }
+    }
+
+    /**
+     * 解析 Prometheus 文本格式，同名指标的各标签值求和；heap 内存单独按 area="heap" 汇总
+     */
+    static Map<String, Double> parse(String body) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            if (space < 0) {
+                continue;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(space + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String series = line.substring(0, space);
+            int brace = series.indexOf('{');
+            String name = brace < 0 ? series : series.substring(0, brace);
+            values.merge(name, value, Double::sum);
+            if (name.equals("jvm_memory_used_bytes") && series.contains("area=\"heap\"")) {
+                values.merge("jvm_memory_used_bytes{area=\"heap\"}", value, Double::sum);
+            }
+        }
+        return values;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static class Gauge {
+        private double sum;
+        private double max = Double.NEGATIVE_INFINITY;
+        private long count;
+
+        void add(double value) {
+            sum += value;
+            max = Math.max(max, value);
+            count++;
+        }
+    }
+}
@@ -5,10 +5,12 @@ import io.modelcontextprotocol.server.McpSyncServerExchange;
 import io.modelcontextprotocol.spec.McpSchema;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jim.mcpdbserver.audit.AuditLog;
 import org.jim.mcpdbserver.config.MethodToolCallbackProviderCustom;
 import org.jim.mcpdbserver.config.extension.GroovyService;
 import org.jim.mcpdbserver.mcp.DatabaseOperationService;
-import org.springframework.ai.tool.ToolCallbackProvider;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.jim.mcpdbserver.service.DatabaseTypeResolver;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
@@ -33,9 +35,15 @@ public class McpDbServerApplication {
 
 
     @Bean
-    public ToolCallbackProvider mysqlToolCallbackProvider(DatabaseOperationService optionService) {
+    public MethodToolCallbackProviderCustom mysqlToolCallbackProvider(DatabaseOperationService optionService,
+                                                                      DatabaseTypeResolver databaseTypeResolver,
+                                                                      ServerMetrics serverMetrics,
+                                                                      AuditLog auditLog) {
         return MethodToolCallbackProviderCustom.builder()
                 .toolObjects(optionService)
+                .defaultDatabaseType(databaseTypeResolver::getDefaultDatabaseType)
+                .serverMetrics(serverMetrics)
+                .auditLog(auditLog)
                 .build();
     }
 
@@ -0,0 +1,65 @@
+package org.jim.mcpdbserver.audit;
+
+/**
+ * 当前线程正在处理的工具调用，由 {@link AuditedToolCallback} 设置，SQL执行的审计事件从这里取会话和工具名称；
+ * 交给其他线程执行的任务需要用 {@link #wrap(Runnable)} 传递
+ * @author yangxin
+ */
+public final class AuditContext {
+
+    private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+    private AuditContext() {
+    }
+
+    /**
+     * 工具调用
+     * @param session MCP 会话ID，未知时为null
+     * @param tool 工具名称
+     */
+    public record Call(String session, String tool) {
+    }
+
+    /**
+     * @return 当前线程的工具调用，不在工具调用中时为null
+     */
+    public static Call current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程的工具调用
+     * @return 之前的工具调用，用于 {@link #restore(Call)}
+     */
+    static Call enter(Call call) {
+        Call previous = CURRENT.get();
+        CURRENT.set(call);
+        return previous;
+    }
+
+    static void restore(Call previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 让任务在执行线程上沿用提交时的工具调用
+     */
+    public static Runnable wrap(Runnable task) {
+        Call call = CURRENT.get();
+        if (call == null) {
+            return task;
+        }
+        return () -> {
+            Call previous = enter(call);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package org.jim.mcpdbserver.audit;
+
+import org.jim.mcpdbserver.sql.ParsedStatement;
+
+/**
+ * 审计事件，请求线程只创建事件，SQL哈希和 JSON 序列化在后台线程中完成
+ * @param timestamp 事件时间（毫秒时间戳）
+ * @param type 事件类型
+ * @param session MCP 会话ID，不是通过 MCP 调用时为null
+ * @param tool 工具名称，不是通过 MCP 调用时为null
+ * @param dataSource 数据源名称，工具事件和被拒绝的SQL为null
+ * @param statement SQL语句的解析结果，工具事件为null
+ * @param outcome 结果
+ * @param error 失败或拒绝的原因，成功时为null
+ * @param latencyNanos 耗时，没有执行时为-1
+ * @param rows 返回或影响的行数，未知时为-1
+ * @author yangxin
+ */
+public record AuditEvent(long timestamp, Type type, String session, String tool, String dataSource,
+                         ParsedStatement statement, Outcome outcome, String error, long latencyNanos, long rows) {
+
+    /**
+     * 事件类型
+     */
+    public enum Type {
+        /**
+         * 一次工具调用
+         */
+        TOOL,
+        /**
+         * 一次在数据源上执行的SQL，或被安全检查拒绝的SQL
+         */
+        QUERY
+    }
+
+    /**
+     * 事件结果
+     */
+    public enum Outcome {
+        SUCCESS,
+        ERROR,
+        /**
+         * 被SQL安全检查拒绝，没有执行
+         */
+        REJECTED
+    }
+}
@@ -0,0 +1,316 @@
+package org.jim.mcpdbserver.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.AuditLogConfig;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.util.RollingFiles;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 审计日志服务
+ * 请求线程把工具调用和SQL执行事件写入无锁环形缓冲区后立即返回，缓冲区满时丢弃并计数；
+ * 后台线程批量取出事件，序列化为 NDJSON 后通过 FileChannel 追加到文件，文件超过大小上限时滚动。
+ * 成功事件按 success-sample-rate 采样，失败和被拒绝的事件总是记录
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class AuditLog {
+
+    private final AuditLogConfig config;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // 以下字段只由后台线程访问
+    private final BatchBuffer batch = new BatchBuffer();
+    private final MessageDigest digest;
+    private FileChannel channel;
+    private long fileSize;
+
+    public AuditLog(AuditLogConfig config) {
+        this.config = config;
+        this.buffer = new AuditRingBuffer<>(Math.max(2, config.getBufferSize()));
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (config.isEnabled()) {
+            this.writer = new Thread(this::drainLoop, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+            log.info("Audit log enabled: {} (buffer {}, success sample rate {})", config.getFile(), buffer.capacity(),
+                    config.getSuccessSampleRate());
+        } else {
+            this.writer = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 记录一次工具调用
+     * @param session MCP 会话ID，未知时为null
+     * @param tool 工具名称
+     * @param success 是否正常返回
+     * @param error 异常信息，没有时为null
+     * @param latencyNanos 耗时
+     */
+    public void recordTool(String session, String tool, boolean success, String error, long latencyNanos) {
+        offer(AuditEvent.Type.TOOL, session, tool, null, null,
+                success ? AuditEvent.Outcome.SUCCESS : AuditEvent.Outcome.ERROR, error, latencyNanos, -1);
+    }
+
+    /**
+     * 记录一次在数据源上执行的SQL，会话和工具名称取自 {@link AuditContext}
+     * @param dataSource 数据源名称
+     * @param statement SQL语句的解析结果
+     * @param success 是否执行成功
+     * @param error 失败原因，成功时为null
+     * @param latencyNanos 耗时
+     * @param rows 返回或影响的行数，未知时为-1
+     */
+    public void recordQuery(String dataSource, ParsedStatement statement, boolean success, String error,
+                            long latencyNanos, long rows) {
+        AuditContext.Call call = AuditContext.current();
+        offer(AuditEvent.Type.QUERY, call != null ? call.session() : null, call != null ? call.tool() : null, dataSource,
+                statement, success ? AuditEvent.Outcome.SUCCESS : AuditEvent.Outcome.ERROR, error, latencyNanos, rows);
+    }
+
+    /**
+     * 记录一条被SQL安全检查拒绝的SQL
+     * @param tool 工具名称
+     * @param statement SQL语句的解析结果
+     * @param reason 拒绝原因
+     */
+    public void recordRejected(String tool, ParsedStatement statement, String reason) {
+        AuditContext.Call call = AuditContext.current();
+        offer(AuditEvent.Type.QUERY, call != null ? call.session() : null, tool, null, statement,
+                AuditEvent.Outcome.REJECTED, reason, -1, -1);
+    }
+
+    private void offer(AuditEvent.Type type, String session, String tool, String dataSource, ParsedStatement statement,
+                       AuditEvent.Outcome outcome, String error, long latencyNanos, long rows) {
+        if (writer == null) {
+            return;
+        }
+        double sampleRate = config.getSuccessSampleRate();
+        if (outcome == AuditEvent.Outcome.SUCCESS && sampleRate < 1
+                && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            sampledOut.increment();
+            return;
+        }
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), type, session, tool, dataSource, statement,
+                outcome, error, latencyNanos, rows);
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 审计日志的运行状态，供 getServerStats 工具返回
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", writer != null);
+        stats.put("file", config.getFile());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.sum());
+        stats.put("sampled_out", sampledOut.sum());
+        stats.put("write_errors", writeErrors.get());
+        stats.put("buffered", buffer.size());
+        stats.put("buffer_capacity", buffer.capacity());
+        return stats;
+    }
+
+    /**
+     * 后台线程：每次最多取出 batch-size 个事件写入文件，取到的事件不足一批时等待 flush-interval；
+     * 停止后把缓冲区中剩余的事件写完再退出
+     */
+    private void drainLoop() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        long parkNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), config.getFlushInterval().toNanos());
+        while (true) {
+            boolean stopping = !running;
+            int drained = drain(batchSize);
+            if (drained > 0) {
+                write(drained);
+            }
+            if (drained < batchSize) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        }
+        closeChannel();
+    }
+
+    private int drain(int batchSize) {
+        batch.reset();
+        int drained = 0;
+        try (JsonGenerator generator = jsonFactory.createGenerator(batch)) {
+            generator.setRootValueSeparator(null);
+            AuditEvent event;
+            while (drained < batchSize && (event = buffer.poll()) != null) {
+                writeEvent(generator, event);
+                generator.flush();
+                batch.write('\n');
+                drained++;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to serialize audit events: {}", e.getMessage());
+        }
+        return drained;
+    }
+
+    private void writeEvent(JsonGenerator generator, AuditEvent event) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("time", Instant.ofEpochMilli(event.timestamp()).toString());
+        generator.writeStringField("type", event.type().name().toLowerCase(Locale.ROOT));
+        writeOptional(generator, "session", event.session());
+        writeOptional(generator, "tool", event.tool());
+        writeOptional(generator, "datasource", event.dataSource());
+        ParsedStatement statement = event.statement();
+        if (statement != null) {
+            generator.writeStringField("sql_hash", hash(statement.fingerprint()));
+            if (config.isIncludeSql()) {
+                String sql = statement.sql();
+                int maxChars = config.getMaxSqlChars();
+                generator.writeStringField("sql", maxChars > 0 && sql.length() > maxChars ? sql.substring(0, maxChars) + "…" : sql);
+            }
+            generator.writeStringField("statement_type", String.valueOf(statement.type()));
+        }
+        generator.writeStringField("outcome", event.outcome().name().toLowerCase(Locale.ROOT));
+        writeOptional(generator, "error", event.error());
+        if (event.latencyNanos() >= 0) {
+            generator.writeNumberField("latency_ms", Math.round(event.latencyNanos() / 10_000.0) / 100.0);
+        }
+        if (event.rows() >= 0) {
+            generator.writeNumberField("rows", event.rows());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeOptional(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    /**
+     * SQL指纹的 SHA-256 前 8 个字节，字面量不同的同一类SQL哈希相同
+     */
+    private String hash(String fingerprint) {
+        byte[] hash = digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 8);
+    }
+
+    private void write(int events) {
+        ByteBuffer bytes = batch.toByteBuffer();
+        int length = bytes.remaining();
+        try {
+            ensureChannel(length);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            fileSize += length;
+            written.addAndGet(events);
+        } catch (IOException e) {
+            writeErrors.addAndGet(events);
+            log.warn("Failed to write {} audit events to {}: {}", events, config.getFile(), e.getMessage());
+            // 下一批重新打开文件
+            closeChannel();
+        }
+    }
+
+    /**
+     * 打开审计日志文件，写入后超过大小上限时先滚动
+     */
+    private void ensureChannel(int length) throws IOException {
+        Path file = Path.of(config.getFile());
+        if (channel == null) {
+            open(file);
+        }
+        if (fileSize > 0 && fileSize + length > config.getMaxFileSize().toBytes()) {
+            closeChannel();
+            RollingFiles.roll(file, config.getMaxFiles());
+            open(file);
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close audit log {}: {}", config.getFile(), e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * 复用的批量序列化缓冲区，写入文件时直接包装内部数组，不再复制
+     */
+    private static final class BatchBuffer extends ByteArrayOutputStream {
+
+        private BatchBuffer() {
+            super(64 * 1024);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
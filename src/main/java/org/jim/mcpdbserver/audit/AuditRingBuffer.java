@@ -0,0 +1,85 @@
+package org.jim.mcpdbserver.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁的有界环形缓冲区，多个请求线程写入、一个后台线程读取
+ * 每个槽位带一个序号：序号等于写入位置时槽位空闲，等于写入位置加一时槽位已写入。
+ * 写入方只需一次 CAS 抢占位置，缓冲区满时立即返回 false，不等待也不加锁
+ * @author yangxin
+ */
+final class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // 只由读取线程访问
+    private long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入一个元素，可由多个线程同时调用
+     * @return 缓冲区已满时返回 false
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.setPlain(index, element);
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 槽位还没有被读取线程释放，缓冲区已满
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素，只能由读取线程调用
+     * @return 缓冲区为空（或下一个位置还没写完）时返回null
+     */
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.getAcquire(index) != head + 1) {
+            return null;
+        }
+        E element = slots.getPlain(index);
+        slots.setPlain(index, null);
+        sequences.setRelease(index, head + capacity);
+        head++;
+        return element;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 近似的元素个数
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+}
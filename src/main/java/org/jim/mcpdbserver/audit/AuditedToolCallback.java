@@ -0,0 +1,66 @@
+package org.jim.mcpdbserver.audit;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * 记录工具调用审计事件的 ToolCallback，调用期间在 {@link AuditContext} 中保存会话ID和工具名称
+ * @author yangxin
+ */
+public class AuditedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final AuditLog auditLog;
+    private final String toolName;
+
+    public AuditedToolCallback(ToolCallback delegate, AuditLog auditLog) {
+        this.delegate = delegate;
+        this.auditLog = auditLog;
+        this.toolName = delegate.getToolDefinition().name();
+    }
+
+    @Override
+    @NonNull
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    @NonNull
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    @NonNull
+    public String call(@NonNull String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    @NonNull
+    public String call(@NonNull String toolInput, @Nullable ToolContext toolContext) {
+        String session = toolContext == null ? null
+                : McpToolUtils.getMcpExchange(toolContext).map(McpSyncServerExchange::sessionId).orElse(null);
+        AuditContext.Call previous = AuditContext.enter(new AuditContext.Call(session, toolName));
+        long start = System.nanoTime();
+        String result = null;
+        String error = null;
+        try {
+            result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+            return result;
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            AuditContext.restore(previous);
+            auditLog.recordTool(session, toolName, result != null, error, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 审计日志配置类
+ * 工具调用和SQL执行以结构化事件写入环形缓冲区，由后台线程批量写入按大小滚动的 NDJSON 文件，不阻塞请求
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "audit")
+public class AuditLogConfig {
+
+    /**
+     * 是否启用审计日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 审计日志文件，滚动后的历史文件为 .1、.2 …
+     */
+    private String file = "logs/mcp-audit.ndjson";
+
+    /**
+     * 环形缓冲区容量（向上取整为 2 的幂），缓冲区满时丢弃事件并计数
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * 成功事件的采样率，0 到 1；失败和被拒绝的事件总是记录
+     */
+    private double successSampleRate = 1.0;
+
+    /**
+     * 是否记录完整的SQL文本，关闭时只记录SQL指纹的哈希
+     */
+    private boolean includeSql = true;
+
+    /**
+     * SQL文本最多保留的字符数，0 表示不截断
+     */
+    private int maxSqlChars = 10_000;
+
+    /**
+     * 后台线程每次最多取出并写入的事件数
+     */
+    private int batchSize = 512;
+
+    /**
+     * 缓冲区为空时后台线程的等待时间，也是事件写入文件的最大延迟
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * 审计日志文件超过该大小时滚动
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+
+    /**
+     * 保留的历史文件数
+     */
+    private int maxFiles = 10;
+}
@@ -42,6 +42,15 @@ public class DataSourceConfig {
      * @return 默认数据源名称
      */
     public String getDefaultDataSourceName() {
+        return resolveDefaultDataSourceName(datasources);
+    }
+
+    /**
+     * 从给定的数据源配置集合中解析默认数据源名称
+     * @param datasources 数据源配置
+     * @return 默认数据源名称，没有任何数据源时返回null
+     */
+    public static String resolveDefaultDataSourceName(Map<String, Map<String, Object>> datasources) {
         if (CollectionUtils.isEmpty(datasources)) {
             log.warn("No datasources configured, datasources map is empty");
             return null;
@@ -4,7 +4,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.MutablePropertySources;
@@ -16,7 +20,11 @@ import org.springframework.core.io.support.EncodedResource;
 import org.springframework.util.CollectionUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 数据源配置加载器，支持从命令行参数指定的配置文件加载配置
@@ -28,6 +36,11 @@ public class DataSourceConfigLoader implements InitializingBean {
 
     private static final String DATASOURCE_CONFIG_OPTION = "datasource.config";
     private static final String DEFAULT_CONFIG_PATH = "classpath:datasource.yml";
+    private static final String PROPERTY_SOURCE_NAME = "externalDatasourceConfig";
+    private static final String DATASOURCES_PROPERTY = "datasource.datasources";
+    private static final Bindable<Map<String, Map<String, Object>>> DATASOURCES_BINDABLE = Bindable.of(
+            ResolvableType.forClassWithGenerics(Map.class, ResolvableType.forClass(String.class),
+                    ResolvableType.forClassWithGenerics(Map.class, String.class, Object.class)));
 
     private final Environment environment;
     private final ApplicationArguments applicationArguments;
@@ -47,33 +60,8 @@ public class DataSourceConfigLoader implements InitializingBean {
      * 在Bean初始化后自动调用
      */
     public void loadDataSourceConfig() {
-        String configPath = getConfigPath();
-        log.info("Loading datasource configuration from: {}", configPath);
-
         try {
-            Resource resource;
-            if (configPath.startsWith("classpath:")) {
-                // 使用默认配置
-                log.info("Using default datasource configuration from: {}", configPath);
-                // 加载默认配置文件
-                resource = resourceLoader.getResource(configPath);
-            } else {
-                // 使用外部配置文件
-                File configFile = new File(configPath);
-                if (!configFile.exists() || !configFile.isFile()) {
-                    log.warn("Specified datasource config file not found: {}, using default configuration", configPath);
-                    // 使用默认配置文件
-                    resource = resourceLoader.getResource(DEFAULT_CONFIG_PATH);
-                    log.info("Falling back to default datasource configuration: {}", DEFAULT_CONFIG_PATH);
-                } else {
-                    resource = new FileSystemResource(configFile);
-                    log.info("Loading external datasource configuration from: {}", configFile.getAbsolutePath());
-                }
-            }
-
-            // 加载配置文件
-            YamlPropertySourceFactory factory = new YamlPropertySourceFactory();
-            PropertySource<?> propertySource = factory.createPropertySource("externalDatasourceConfig", new EncodedResource(resource));
+            PropertySource<?> propertySource = readPropertySource();
 
             // 将配置添加到环境中，优先级高于默认配置
             if (environment instanceof ConfigurableEnvironment) {
@@ -89,6 +77,80 @@ public class DataSourceConfigLoader implements InitializingBean {
         }
     }
 
+    /**
+     * 重新读取数据源配置文件，并替换环境中已加载的配置
+     * 供数据源热加载使用，读取失败时抛出异常，调用方保持当前配置不变
+     * @return 数据源名称到数据源属性的映射，保持配置文件中的顺序
+     * @throws IOException 配置文件读取失败
+     */
+    public Map<String, Map<String, Object>> reloadDataSourceProperties() throws IOException {
+        PropertySource<?> propertySource = readPropertySource();
+
+        Map<String, Map<String, Object>> datasources = new Binder(ConfigurationPropertySources.from(propertySource))
+                .bind(DATASOURCES_PROPERTY, DATASOURCES_BINDABLE)
+                .orElseGet(LinkedHashMap::new);
+
+        if (environment instanceof ConfigurableEnvironment) {
+            MutablePropertySources propertySources = ((ConfigurableEnvironment) environment).getPropertySources();
+            if (propertySources.contains(PROPERTY_SOURCE_NAME)) {
+                propertySources.replace(PROPERTY_SOURCE_NAME, propertySource);
+            } else {
+                propertySources.addFirst(propertySource);
+            }
+        }
+        return datasources;
+    }
+
+    /**
+     * 获取外部数据源配置文件
+     * @return 外部配置文件路径；使用 classpath 中的默认配置或文件不存在时返回null
+     */
+    public Path getExternalConfigFile() {
+        String configPath = getConfigPath();
+        if (configPath.startsWith("classpath:")) {
+            return null;
+        }
+        File configFile = new File(configPath);
+        if (!configFile.exists() || !configFile.isFile()) {
+            return null;
+        }
+        return configFile.toPath().toAbsolutePath();
+    }
+
+    /**
+     * 解析并读取当前生效的数据源配置文件
+     * @return YAML 配置对应的 PropertySource
+     * @throws IOException 配置文件读取失败
+     */
+    private PropertySource<?> readPropertySource() throws IOException {
+        String configPath = getConfigPath();
+        log.info("Loading datasource configuration from: {}", configPath);
+
+        Resource resource;
+        if (configPath.startsWith("classpath:")) {
+            // 使用默认配置
+            log.info("Using default datasource configuration from: {}", configPath);
+            // 加载默认配置文件
+            resource = resourceLoader.getResource(configPath);
+        } else {
+            // 使用外部配置文件
+            File configFile = new File(configPath);
+            if (!configFile.exists() || !configFile.isFile()) {
+                log.warn("Specified datasource config file not found: {}, using default configuration", configPath);
+                // 使用默认配置文件
+                resource = resourceLoader.getResource(DEFAULT_CONFIG_PATH);
+                log.info("Falling back to default datasource configuration: {}", DEFAULT_CONFIG_PATH);
+            } else {
+                resource = new FileSystemResource(configFile);
+                log.info("Loading external datasource configuration from: {}", configFile.getAbsolutePath());
+            }
+        }
+
+        // 加载配置文件
+        YamlPropertySourceFactory factory = new YamlPropertySourceFactory();
+        return factory.createPropertySource(PROPERTY_SOURCE_NAME, new EncodedResource(resource));
+    }
+
     /**
      * 获取配置文件路径
      * 优先从命令行参数获取，如果没有指定则使用默认路径
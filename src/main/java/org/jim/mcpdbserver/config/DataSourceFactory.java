@@ -0,0 +1,103 @@
+package org.jim.mcpdbserver.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyNameAliases;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据源工厂，根据 datasource.yml 中单个数据源的配置创建 Hikari 连接池
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class DataSourceFactory {
+
+    private final ServerMetrics serverMetrics;
+
+    /**
+     * 每个连接池名称已创建的次数，重新加载时新旧连接池同时存在，名称不能重复
+     */
+    private final Map<String, AtomicInteger> poolGenerations = new ConcurrentHashMap<>();
+
+    public DataSourceFactory(ServerMetrics serverMetrics) {
+        this.serverMetrics = serverMetrics;
+    }
+
+    /**
+     * 根据配置创建数据源
+     * @param dsName 数据源名称
+     * @param dsProperties 数据源属性
+     * @return 数据源
+     */
+    @SuppressWarnings("unchecked")
+    public HikariDataSource createDataSource(String dsName, Map<String, Object> dsProperties) {
+        try {
+            if (CollectionUtils.isEmpty(dsProperties)) {
+                log.warn("No properties provided for datasource {}", dsName);
+                return null;
+            }
+
+            // 设置默认驱动类名，如果用户没有配置
+            if (!dsProperties.containsKey("driver-class-name")) {
+                dsProperties.put("driver-class-name", "com.mysql.cj.jdbc.Driver");
+                log.info("Using default driver-class-name: com.mysql.cj.jdbc.Driver for datasource {}", dsName);
+            }
+
+            // 创建数据源属性
+            DataSourceProperties dataSourceProperties = new DataSourceProperties();
+            ConfigurationPropertySource source = new MapConfigurationPropertySource(dsProperties);
+            ConfigurationPropertyNameAliases aliases = new ConfigurationPropertyNameAliases();
+            aliases.addAliases("url", "jdbc-url");
+            aliases.addAliases("username", "user");
+            Binder binder = new Binder(source.withAliases(aliases));
+
+            // 绑定基本属性
+            binder.bind(ConfigurationPropertyName.EMPTY, Bindable.ofInstance(dataSourceProperties));
+
+            // 创建HikariDataSource
+            HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+
+            // 设置默认的Hikari配置
+            dataSource.setMaximumPoolSize(10);
+            dataSource.setMinimumIdle(5);
+            dataSource.setPoolName(dsName + "HikariCP");
+
+            // 绑定Hikari特定属性，如果用户配置了则覆盖默认值
+            Map<String, Object> hikariProperties = (Map<String, Object>) dsProperties.get("hikari");
+            if (!CollectionUtils.isEmpty(hikariProperties)) {
+                ConfigurationPropertySource hikariSource = new MapConfigurationPropertySource(hikariProperties);
+                Binder hikariBinder = new Binder(hikariSource);
+                hikariBinder.bind(ConfigurationPropertyName.EMPTY, Bindable.ofInstance(dataSource));
+            }
+
+            // 连接池指标以池名称为标签，重新加载创建的连接池加上序号，避免旧连接池关闭时移除新连接池的指标
+            int generation = poolGenerations.computeIfAbsent(dataSource.getPoolName(), key -> new AtomicInteger()).incrementAndGet();
+            if (generation > 1) {
+                dataSource.setPoolName(dataSource.getPoolName() + "-" + generation);
+            }
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(serverMetrics.getRegistry()));
+
+            log.info("Datasource [{}] created successfully", dsName);
+            return dataSource;
+        } catch (Exception e) {
+            log.error("Failed to create datasource [{}]: {}", dsName, e.getMessage(), e);
+            throw e;
+        }
+    }
+}
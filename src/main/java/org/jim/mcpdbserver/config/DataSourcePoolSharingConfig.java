@@ -0,0 +1,22 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 连接池共享配置类
+ * 指向同一数据库服务器、使用相同账号、仅库名（或PostgreSQL的schema）不同的数据源可以共享一个连接池
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.pool-sharing")
+public class DataSourcePoolSharingConfig {
+
+    /**
+     * 是否自动识别可以共享连接池的数据源
+     * 关闭时只有显式配置了相同 shared-pool 的数据源才会共享连接池
+     */
+    private boolean autoDetect = false;
+}
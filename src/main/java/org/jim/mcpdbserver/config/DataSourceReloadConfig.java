@@ -0,0 +1,32 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 数据源热加载配置类
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.reload")
+public class DataSourceReloadConfig {
+
+    /**
+     * 是否监听外部数据源配置文件（--datasource.config）的变化并自动热加载
+     */
+    private boolean watchEnabled = true;
+
+    /**
+     * 文件变化后的等待时间，合并编辑器保存时产生的多次写事件
+     */
+    private Duration watchDebounce = Duration.ofMillis(500);
+
+    /**
+     * 旧连接池的最长排空时间，超时后强制关闭
+     */
+    private Duration drainTimeout = Duration.ofSeconds(30);
+}
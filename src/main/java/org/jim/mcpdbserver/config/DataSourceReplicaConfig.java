@@ -0,0 +1,37 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 只读副本路由配置类
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.replica")
+public class DataSourceReplicaConfig {
+
+    /**
+     * 是否将只读查询路由到数据源配置的只读副本
+     */
+    private boolean readFromReplicas = true;
+
+    /**
+     * 允许的最大复制延迟，延迟超过该值的副本不参与路由
+     */
+    private Duration maxLag = Duration.ofSeconds(10);
+
+    /**
+     * 复制延迟的检测间隔
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * 单个副本一次检测的最长时间（包括获取连接），超时的副本视为不健康
+     */
+    private Duration lagCheckTimeout = Duration.ofSeconds(3);
+}
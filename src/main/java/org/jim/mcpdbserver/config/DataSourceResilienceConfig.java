@@ -0,0 +1,109 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 数据源熔断、健康检测与隔离配置类
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.resilience")
+public class DataSourceResilienceConfig {
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private HealthCheck healthCheck = new HealthCheck();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    /**
+     * 熔断器配置
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * 是否启用熔断
+         */
+        private boolean enabled = true;
+
+        /**
+         * 统计最近多少次调用的结果
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口内至少有多少次调用才计算失败率
+         */
+        private int minimumCalls = 5;
+
+        /**
+         * 失败（含慢调用）比例达到该百分比时打开熔断
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 超过该耗时的调用计为慢调用
+         */
+        private Duration slowCallThreshold = Duration.ofSeconds(10);
+
+        /**
+         * 熔断打开后多久进入半开状态，允许试探调用
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * 半开状态允许的试探调用数，全部成功后关闭熔断
+         */
+        private int halfOpenCalls = 2;
+    }
+
+    /**
+     * 后台健康检测配置
+     */
+    @Data
+    public static class HealthCheck {
+
+        /**
+         * 是否启用后台健康检测
+         */
+        private boolean enabled = true;
+
+        /**
+         * 检测间隔
+         */
+        private Duration interval = Duration.ofSeconds(15);
+
+        /**
+         * 单次检测的连接校验超时
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * 并发隔离配置，避免单个慢数据源占满执行线程和连接
+     */
+    @Data
+    public static class Bulkhead {
+
+        /**
+         * 单个数据源同时执行的最大查询数
+         */
+        private int maxConcurrentCallsPerDataSource = 10;
+
+        /**
+         * 所有数据源同时执行的最大查询数（全局连接预算）
+         */
+        private int maxConcurrentCalls = 64;
+
+        /**
+         * 等待执行许可的最长时间，超时后直接返回繁忙错误
+         */
+        private Duration maxWait = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,33 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 数据源启动初始化配置类
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.startup")
+public class DataSourceStartupConfig {
+
+    /**
+     * 启动时等待数据源初始化完成的最长时间
+     * 超时的数据源在后台继续初始化，完成前标记为不可用
+     */
+    private Duration deadline = Duration.ofSeconds(10);
+
+    /**
+     * 是否在初始化时预热连接池：建立连接并执行校验（hikari.connection-test-query，未配置时使用 Connection.isValid）
+     */
+    private boolean warmUp = true;
+
+    /**
+     * 预热时是否一次性建立 minimum-idle 个连接，而不是只建立一个
+     */
+    private boolean prefillMinimumIdle = true;
+}
@@ -1,13 +1,17 @@
 package org.jim.mcpdbserver.config;
 
-import org.jim.mcpdbserver.service.DatabaseTypeResolver;
-import org.jim.mcpdbserver.util.SpringContextHolder;
+import org.jim.mcpdbserver.audit.AuditLog;
+import org.jim.mcpdbserver.audit.AuditedToolCallback;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.jim.mcpdbserver.metrics.TimedResultConverter;
+import org.jim.mcpdbserver.metrics.TimedToolCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.definition.DefaultToolDefinition;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
 import org.springframework.ai.tool.metadata.ToolMetadata;
 import org.springframework.ai.tool.method.MethodToolCallback;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
@@ -24,6 +28,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.lang.NonNull;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -36,6 +41,8 @@ import java.util.stream.Stream;
 /**
  * FIXME 此处重写MethodToolCallbackProvider，目前主要是为了实现 @Tool description 可以动态化
  * A {@link MethodToolCallbackProvider} that scans one or more objects for methods annotated with {@link Tool}
+ * 工具方法和输入参数的 JSON Schema 在创建时解析一次，工具定义保存为不可变快照，获取工具列表时不再反射；
+ * 动态描述依赖的状态（默认数据源）变化后调用 {@link #refresh()} 重新生成
  */
 public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
 
@@ -43,12 +50,28 @@ public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
 
     private final List<Object> toolObjects;
 
-    private MethodToolCallbackProviderCustom(List<Object> toolObjects) {
+    private final List<ToolMethod> toolMethods;
+
+    private final Supplier<String> defaultDatabaseType;
+
+    private final ServerMetrics serverMetrics;
+
+    private final AuditLog auditLog;
+
+    private volatile ToolCallback[] toolCallbacks;
+
+    private MethodToolCallbackProviderCustom(List<Object> toolObjects, Supplier<String> defaultDatabaseType,
+                                             ServerMetrics serverMetrics, AuditLog auditLog) {
         Assert.notNull(toolObjects, "toolObjects cannot be null");
         Assert.noNullElements(toolObjects, "toolObjects cannot contain null elements");
         assertToolAnnotatedMethodsPresent(toolObjects);
         this.toolObjects = toolObjects;
-        validateToolCallbacks(getToolCallbacks());
+        this.defaultDatabaseType = defaultDatabaseType;
+        this.serverMetrics = serverMetrics;
+        this.auditLog = auditLog;
+        this.toolMethods = resolveToolMethods(toolObjects);
+        this.toolCallbacks = buildToolCallbacks();
+        validateToolCallbacks(this.toolCallbacks);
     }
 
     public static MethodToolCallbackProviderCustom.Builder builder() {
@@ -75,43 +98,72 @@ public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
     @Override
     @NonNull
     public ToolCallback[] getToolCallbacks() {
-        var toolCallbacks = this.toolObjects.stream()
-                .map(toolObject -> Stream
+        return this.toolCallbacks.clone();
+    }
+
+    /**
+     * 重新生成工具定义并替换快照，定义未变化的工具继续使用原来的 ToolCallback
+     * @return 定义发生变化的工具
+     */
+    public synchronized List<ToolCallback> refresh() {
+        ToolCallback[] previous = this.toolCallbacks;
+        ToolCallback[] rebuilt = buildToolCallbacks();
+        List<ToolCallback> changed = new ArrayList<>();
+        for (int i = 0; i < rebuilt.length; i++) {
+            if (rebuilt[i].getToolDefinition().equals(previous[i].getToolDefinition())) {
+                rebuilt[i] = previous[i];
+            } else {
+                changed.add(rebuilt[i]);
+            }
+        }
+        this.toolCallbacks = rebuilt;
+        return changed;
+    }
+
+    private List<ToolMethod> resolveToolMethods(List<Object> toolObjects) {
+        return toolObjects.stream()
+                .flatMap(toolObject -> Stream
                         .of(ReflectionUtils.getDeclaredMethods(
                                 AopUtils.isAopProxy(toolObject) ? AopUtils.getTargetClass(toolObject) : toolObject.getClass()))
                         .filter(this::isToolAnnotatedMethod)
                         .filter(toolMethod -> !isFunctionalType(toolMethod))
                         .filter(ReflectionUtils.USER_DECLARED_METHODS::matches)
-                        .map(toolMethod -> MethodToolCallback.builder()
+                        .map(toolMethod -> new ToolMethod(toolObject, toolMethod, ToolUtils.getToolName(toolMethod),
+                                JsonSchemaGenerator.generateForMethodInput(toolMethod))))
+                .toList();
+    }
 
-                                // FIXME 此处重写了 toolDefinition 的生成，主要是为了动态化 description
-                                .toolDefinition(builder(toolMethod).build())
+    private ToolCallback[] buildToolCallbacks() {
+        return this.toolMethods.stream()
+                .map(toolMethod -> instrument(MethodToolCallback.builder()
 
-                                .toolMetadata(ToolMetadata.from(toolMethod))
-                                .toolMethod(toolMethod)
-                                .toolObject(toolObject)
-                                .toolCallResultConverter(ToolUtils.getToolCallResultConverter(toolMethod))
+                        // FIXME 此处重写了 toolDefinition 的生成，主要是为了动态化 description
+                        .toolDefinition(DefaultToolDefinition.builder()
+                                .name(toolMethod.name())
+                                .description(getToolDescription(toolMethod.method(), this.defaultDatabaseType))
+                                .inputSchema(toolMethod.inputSchema())
                                 .build())
-                        .toArray(ToolCallback[]::new))
-                .flatMap(Stream::of)
-                .toArray(ToolCallback[]::new);
-
-        validateToolCallbacks(toolCallbacks);
 
-        return toolCallbacks;
+                        .toolMetadata(ToolMetadata.from(toolMethod.method()))
+                        .toolMethod(toolMethod.method())
+                        .toolObject(toolMethod.toolObject())
+                        .toolCallResultConverter(resultConverter(toolMethod))
+                        .build()))
+                .toArray(ToolCallback[]::new);
     }
 
+    private ToolCallResultConverter resultConverter(ToolMethod toolMethod) {
+        ToolCallResultConverter converter = ToolUtils.getToolCallResultConverter(toolMethod.method());
+        return this.serverMetrics == null ? converter : new TimedResultConverter(toolMethod.name(), converter, this.serverMetrics);
+    }
 
-    public static DefaultToolDefinition.Builder builder(Method method) {
-        Assert.notNull(method, "method cannot be null");
-        return DefaultToolDefinition.builder()
-                .name(ToolUtils.getToolName(method))
-                .description(getToolDescription(method))
-                .inputSchema(JsonSchemaGenerator.generateForMethodInput(method));
+    private ToolCallback instrument(ToolCallback toolCallback) {
+        ToolCallback audited = this.auditLog == null ? toolCallback : new AuditedToolCallback(toolCallback, this.auditLog);
+        return this.serverMetrics == null ? audited : new TimedToolCallback(audited, this.serverMetrics);
     }
 
 
-    public static String getToolDescription(Method method) {
+    public static String getToolDescription(Method method, Supplier<String> defaultDatabaseType) {
         Assert.notNull(method, "method cannot be null");
         var tool = AnnotatedElementUtils.findMergedAnnotation(method, Tool.class);
         if (tool == null) {
@@ -124,17 +176,13 @@ public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
         }
 
         // 针对 executeSqlOnDefault 工具的描述进行动态化处理
-        if (!"executeSqlOnDefault".equals(method.getName()) || !description.contains("%s")){
+        if (!"executeSqlOnDefault".equals(method.getName()) || !description.contains("%s") || defaultDatabaseType == null){
             return description;
         }
 
         // 获取默认数据源的数据库类型并替换占位符
         try {
-            if (SpringContextHolder.isApplicationContextAvailable()) {
-                DatabaseTypeResolver resolver = SpringContextHolder.getBean(DatabaseTypeResolver.class);
-                String databaseType = resolver.getDefaultDatabaseType();
-                return String.format(description, databaseType);
-            }
+            return String.format(description, defaultDatabaseType.get());
         } catch (Exception e) {
             logger.warn("Failed to get database type for executeSqlOnDefault description: {}", e.getMessage());
         }
@@ -170,10 +218,22 @@ public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
         }
     }
 
+    /**
+     * 创建时解析的工具方法，输入参数的 JSON Schema 不随运行状态变化
+     */
+    private record ToolMethod(Object toolObject, Method method, String name, String inputSchema) {
+    }
+
     public static final class Builder {
 
         private List<Object> toolObjects;
 
+        private Supplier<String> defaultDatabaseType;
+
+        private ServerMetrics serverMetrics;
+
+        private AuditLog auditLog;
+
         private Builder() {
         }
 
@@ -183,8 +243,33 @@ public class MethodToolCallbackProviderCustom implements ToolCallbackProvider {
             return this;
         }
 
+        /**
+         * 默认数据源的数据库类型，用于替换 executeSqlOnDefault 描述中的占位符，只在生成工具定义时调用
+         */
+        public MethodToolCallbackProviderCustom.Builder defaultDatabaseType(Supplier<String> defaultDatabaseType) {
+            this.defaultDatabaseType = defaultDatabaseType;
+            return this;
+        }
+
+        /**
+         * 记录工具调用耗时、结果转换耗时和返回字节数，未设置时不记录
+         */
+        public MethodToolCallbackProviderCustom.Builder serverMetrics(ServerMetrics serverMetrics) {
+            this.serverMetrics = serverMetrics;
+            return this;
+        }
+
+        /**
+         * 记录工具调用的审计事件，未设置时不记录
+         */
+        public MethodToolCallbackProviderCustom.Builder auditLog(AuditLog auditLog) {
+            this.auditLog = auditLog;
+            return this;
+        }
+
         public MethodToolCallbackProviderCustom build() {
-            return new MethodToolCallbackProviderCustom(this.toolObjects);
+            return new MethodToolCallbackProviderCustom(this.toolObjects, this.defaultDatabaseType, this.serverMetrics,
+                    this.auditLog);
         }
 
     }
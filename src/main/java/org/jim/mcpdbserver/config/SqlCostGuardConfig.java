@@ -0,0 +1,87 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 查询代价检查配置类
+ * 执行只读查询前先用数据库的 EXPLAIN 估算扫描行数和代价，超过阈值时警告、拒绝或自动限制返回行数；
+ * 阈值可以在数据源配置中通过 cost-guard 单独覆盖
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.cost-guard")
+public class SqlCostGuardConfig {
+
+    /**
+     * 是否启用查询代价检查
+     */
+    private boolean enabled = false;
+
+    /**
+     * 估算扫描行数超过该值时在结果中附加警告，0 表示不检查
+     */
+    private long warnRows = 1_000_000;
+
+    /**
+     * 估算扫描行数超过该值时执行 action，0 表示不检查
+     */
+    private long maxRows = 100_000_000;
+
+    /**
+     * 估算代价超过该值时在结果中附加警告，0 表示不检查（代价的单位由数据库决定，不同数据库之间不可比较）
+     */
+    private double warnCost = 0;
+
+    /**
+     * 估算代价超过该值时执行 action，0 表示不检查
+     */
+    private double maxCost = 0;
+
+    /**
+     * 超过 max-rows 或 max-cost 时的处理方式
+     */
+    private Action action = Action.REJECT;
+
+    /**
+     * action 为 LIMIT 时返回的最多行数
+     */
+    private int limitRows = 100;
+
+    /**
+     * 执行计划缓存条数，按数据源和SQL指纹缓存
+     */
+    private int planCacheSize = 512;
+
+    /**
+     * 执行计划缓存时间，过期后重新 EXPLAIN，以反映表数据量的变化
+     */
+    private Duration planCacheTtl = Duration.ofMinutes(10);
+
+    /**
+     * EXPLAIN 的超时时间，超时时不检查直接执行
+     */
+    private Duration explainTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 超过阈值时的处理方式
+     */
+    public enum Action {
+        /**
+         * 拒绝执行并返回错误
+         */
+        REJECT,
+        /**
+         * 照常执行，结果中附加警告
+         */
+        WARN,
+        /**
+         * 自动加上 limit-rows 行数限制后执行，结果中附加警告
+         */
+        LIMIT
+    }
+}
@@ -0,0 +1,25 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SQL解析结果缓存配置类
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.parse-cache")
+public class SqlParseCacheConfig {
+
+    /**
+     * 最多缓存的解析结果数，按最近使用淘汰
+     */
+    private int maxEntries = 1024;
+
+    /**
+     * 超过该长度的SQL不缓存解析结果，避免大语句占用内存
+     */
+    private int maxSqlLength = 64 * 1024;
+}
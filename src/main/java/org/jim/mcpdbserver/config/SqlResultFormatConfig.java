@@ -0,0 +1,32 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询结果输出格式配置类
+ * 表格型结果可以输出为 CSV/TSV/Markdown 文本，比 JSON 对象数组节省大量 token
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.result-format")
+public class SqlResultFormatConfig {
+
+    /**
+     * 默认输出格式，数据源可以通过 result-format 单独配置，工具调用的 format 参数优先
+     */
+    private ResultFormat defaultFormat = ResultFormat.JSON;
+
+    /**
+     * 文本格式中单个单元格最多保留的字符数，超过时截断并以省略号结尾，0 表示不截断
+     */
+    private int maxCellChars = 200;
+
+    /**
+     * 是否在文本结果末尾附加行数、字节数和估算的 token 数
+     */
+    private boolean includeSummary = true;
+}
@@ -0,0 +1,40 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询行数限制配置类
+ * 没有行数限制的只读查询按目标数据库的方言自动加上限制，避免大表扫描长时间占用数据库
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.row-limit")
+public class SqlRowLimitConfig {
+
+    /**
+     * 默认最多返回的行数，数据源可以通过 max-rows 单独配置，0 表示不自动加限制
+     */
+    private int defaultMaxRows = 1000;
+
+    /**
+     * Oracle 的限制写法：FETCH_FIRST 需要 12c 及以上版本，更早的版本使用 ROWNUM
+     */
+    private OracleSyntax oracleSyntax = OracleSyntax.FETCH_FIRST;
+
+    /**
+     * Oracle 行数限制写法
+     */
+    public enum OracleSyntax {
+        /**
+         * 语句末尾追加 FETCH FIRST n ROWS ONLY
+         */
+        FETCH_FIRST,
+        /**
+         * 包装为 SELECT * FROM (...) WHERE ROWNUM <= n
+         */
+        ROWNUM
+    }
+}
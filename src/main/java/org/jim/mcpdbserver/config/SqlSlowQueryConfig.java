@@ -0,0 +1,85 @@
+package org.jim.mcpdbserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 慢查询日志配置类
+ * 执行时间超过阈值的SQL在后台线程中记录日志、可选地采集执行计划，并按数据源和SQL指纹聚合统计；
+ * 阈值和是否采集执行计划可以在数据源配置中通过 slow-query 单独覆盖
+ * @author yangxin
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.slow-query")
+public class SqlSlowQueryConfig {
+
+    /**
+     * 是否启用慢查询日志，关闭时数据源的 slow-query 配置也不生效；数据源可以单独关闭
+     */
+    private boolean enabled = true;
+
+    /**
+     * 慢查询阈值：获取连接、执行和读取结果集的总耗时超过该值时记录
+     */
+    private Duration threshold = Duration.ofSeconds(1);
+
+    /**
+     * 是否在慢查询之后运行 EXPLAIN 采集执行计划（只对单条只读查询，支持 MySQL、MariaDB、PostgreSQL、H2、SQLite、ClickHouse）
+     */
+    private boolean explain = false;
+
+    /**
+     * 同一数据源、同一指纹的执行计划在该时间内只采集一次
+     */
+    private Duration explainInterval = Duration.ofMinutes(10);
+
+    /**
+     * EXPLAIN 的超时时间
+     */
+    private Duration explainTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 执行计划最多保留的字符数
+     */
+    private int maxPlanChars = 4000;
+
+    /**
+     * 聚合统计最多保留的指纹数，超过时淘汰总耗时最小的指纹
+     */
+    private int topK = 100;
+
+    /**
+     * 每个指纹用于计算 p95 的最近耗时样本数
+     */
+    private int samplesPerFingerprint = 128;
+
+    /**
+     * 等待后台线程处理的慢查询队列长度，队列满时丢弃并计数，不阻塞查询
+     */
+    private int queueCapacity = 1024;
+
+    /**
+     * 聚合统计的转储文件，为空时不转储；每次转储追加一行 JSON
+     */
+    private String dumpFile;
+
+    /**
+     * 转储间隔，期间没有新的慢查询时不转储
+     */
+    private Duration dumpInterval = Duration.ofMinutes(1);
+
+    /**
+     * 转储文件超过该大小时滚动为 .1、.2 …
+     */
+    private DataSize dumpMaxFileSize = DataSize.ofMegabytes(10);
+
+    /**
+     * 保留的历史转储文件数
+     */
+    private int dumpMaxFiles = 5;
+}
@@ -3,6 +3,8 @@ package org.jim.mcpdbserver.config.extension;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
+import java.time.Duration;
+
 /**
  * @author James Smith
  */
@@ -30,17 +32,52 @@ public class Extension {
      */
     private String mainFileName = "main.groovy";
 
+    /**
+     * 是否使用 @CompileStatic 静态编译主函数脚本，默认关闭。
+     * 开启后脚本需要显式声明类型，入参通过 binding.getVariable('inputString') 读取
+     */
+    private Boolean compileStatic = false;
+
+    /**
+     * 主函数脚本是否支持批量处理，默认关闭。
+     * 开启后批量处理时整批输入通过 inputStrings（List&lt;String&gt;）传入，脚本需返回等长的结果列表；
+     * 关闭时批量处理逐个值调用脚本，入参仍为 inputString
+     */
+    private Boolean batch = false;
+
+    /**
+     * 扩展是否是确定性的，默认否：相同输入总是得到相同结果，不依赖当前时间、随机数或外部状态。
+     * 标记为确定性的扩展启用结果缓存（extension.result-cache），相同输入直接返回缓存结果
+     */
+    private Boolean deterministic = false;
+
+    /**
+     * 单次调用的最长执行时间，未配置时使用 extension.sandbox.timeout
+     */
+    private Duration timeout;
+
+    /**
+     * 同时执行的最大调用数，未配置时使用 extension.sandbox.max-concurrency
+     */
+    private Integer maxConcurrency;
+
+    /**
+     * 原生解码器链，逗号分隔，按顺序执行，例如 base64,zstd。可用解码器：base64、hex、gzip、zstd、sm4
+     * 配置后单值调用和批量处理都直接使用编译好的 Java 解码器，不再执行脚本；未配置时执行 Groovy 脚本
+     */
+    private String decoder;
+
     /**
      * 脚本加载路径。默认为：resources/扩展名/groovy/script （脚本内容与脚本路径都会被执行）
      * <br>
-     * TODO 目前暂不支持自定义加载路径。
+     * 配置后为文件系统目录，从该目录加载 mainFileName 指定的主函数脚本；外部扩展目录中的扩展默认为 扩展目录/扩展名/script
      */
     private String scriptPath;
 
     /**
      * groovy脚本依赖包加载路径。默认为：resources/扩展名/groovy/dependency
      * <br>
-     * TODO 目前暂不支持自定义加载路径。
+     * 配置后为文件系统目录，加载其中（包括子目录）的所有 jar；外部扩展目录中的扩展默认为 扩展目录/扩展名/dependency
      */
     private String scriptPathDependency;
 
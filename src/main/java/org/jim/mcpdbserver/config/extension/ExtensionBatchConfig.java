@@ -0,0 +1,27 @@
+package org.jim.mcpdbserver.config.extension;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 扩展批量处理配置，用于在服务端对整列查询结果执行扩展
+ * @author James Smith
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "extension.batch")
+public class ExtensionBatchConfig {
+
+    /**
+     * 每批交给扩展处理的值个数，各批在虚拟线程上并行执行
+     */
+    private int batchSize = 200;
+
+    /**
+     * 整列处理的最长等待时间，超时未完成的批次返回错误
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+}
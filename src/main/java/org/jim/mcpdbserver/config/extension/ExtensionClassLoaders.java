@@ -0,0 +1,251 @@
+package org.jim.mcpdbserver.config.extension;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+/**
+ * 扩展依赖类加载器
+ * 注册扩展时扫描一次 groovy/扩展名/dependency 目录下的 jar，为每个扩展创建独立、长期存在的类加载器；
+ * jar 中的类已经在应用 classpath 中（例如通过 PropertiesLauncher 的 loader.path 加载）时不再重复加载。
+ * 打包在 fat jar 中的依赖先解压到临时目录；外部扩展目录中的扩展从其 dependency 目录加载依赖
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class ExtensionClassLoaders {
+
+    /**
+     * 判断 jar 是否已在 classpath 中时检查的类数量
+     */
+    private static final int SAMPLE_CLASSES = 3;
+
+    @jakarta.annotation.Resource
+    private ExtensionConfig extensionConfig;
+
+    @jakarta.annotation.Resource
+    private ExtensionSandboxConfig extensionSandboxConfig;
+
+    private final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(getClass().getClassLoader());
+    private final Map<String, ClassLoader> classLoaders = new ConcurrentHashMap<>();
+    private volatile Path extractDirectory;
+    private volatile ScheduledExecutorService retireExecutor;
+
+    /**
+     * 启动时为所有启用的扩展解析依赖
+     */
+    @PostConstruct
+    public void init() {
+        List<Extension> extensions = extensionConfig.getExtensions();
+        if (CollectionUtils.isEmpty(extensions)) {
+            return;
+        }
+        extensions.stream()
+                .filter(extension -> !Boolean.FALSE.equals(extension.getEnabled()))
+                .forEach(this::getClassLoader);
+    }
+
+    /**
+     * 获取扩展的类加载器，首次调用时解析依赖
+     * @param extension 扩展
+     * @return 扩展脚本使用的类加载器，没有需要额外加载的依赖时为应用类加载器
+     */
+    public ClassLoader getClassLoader(Extension extension) {
+        return classLoaders.computeIfAbsent(extension.getName(), name -> createClassLoader(extension));
+    }
+
+    /**
+     * 移除扩展的类加载器，下次调用时重新解析依赖
+     * @param extensionName 扩展名称
+     */
+    public void evict(String extensionName) {
+        retire(extensionName, classLoaders.remove(extensionName));
+    }
+
+    /**
+     * 为扩展解析依赖并创建新的类加载器，不替换当前使用的类加载器
+     * @param extension 扩展
+     * @return 新的类加载器，通过 {@link #install(String, ClassLoader)} 生效
+     * @throws IOException 依赖解析失败，调用方应继续使用当前的类加载器和脚本
+     */
+    ClassLoader prepare(Extension extension) throws IOException {
+        return resolveClassLoader(extension);
+    }
+
+    /**
+     * 替换扩展当前使用的类加载器
+     */
+    void install(String extensionName, ClassLoader classLoader) {
+        ClassLoader old = classLoaders.put(extensionName, classLoader);
+        if (old != classLoader) {
+            retire(extensionName, old);
+        }
+    }
+
+    /**
+     * 放弃预先创建但没有生效的类加载器
+     */
+    void discard(String extensionName, ClassLoader classLoader) {
+        if (classLoader instanceof URLClassLoader urlClassLoader && !classLoaders.containsValue(classLoader)) {
+            closeQuietly(extensionName, urlClassLoader);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ScheduledExecutorService executor = retireExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        classLoaders.forEach((name, classLoader) -> {
+            if (classLoader instanceof URLClassLoader urlClassLoader) {
+                closeQuietly(name, urlClassLoader);
+            }
+        });
+        classLoaders.clear();
+        Path directory = extractDirectory;
+        if (directory != null) {
+            try {
+                FileSystemUtils.deleteRecursively(directory);
+            } catch (IOException e) {
+                log.warn("Failed to delete extracted extension dependencies in {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 旧的类加载器延迟关闭：正在执行的调用已经取得旧版本的脚本类，仍可能需要从中加载类，
+     * 等待两倍的扩展执行超时后这些调用已经结束或被取消
+     */
+    private void retire(String extensionName, ClassLoader classLoader) {
+        if (!(classLoader instanceof URLClassLoader urlClassLoader)) {
+            return;
+        }
+        long delay = extensionSandboxConfig.getTimeout().multipliedBy(2).toMillis();
+        retireExecutor().schedule(() -> closeQuietly(extensionName, urlClassLoader), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService retireExecutor() {
+        if (retireExecutor == null) {
+            retireExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "extension-classloader-retire");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return retireExecutor;
+    }
+
+    /**
+     * 首次使用时解析依赖，失败时记录错误并使用应用类加载器，扩展中依赖这些 jar 的调用会在执行时失败
+     */
+    private ClassLoader createClassLoader(Extension extension) {
+        try {
+            return resolveClassLoader(extension);
+        } catch (IOException e) {
+            log.error("Failed to resolve dependencies for extension {}: {}", extension.getName(), e.getMessage(), e);
+            return GroovyService.class.getClassLoader();
+        }
+    }
+
+    private ClassLoader resolveClassLoader(Extension extension) throws IOException {
+        ClassLoader parent = GroovyService.class.getClassLoader();
+        // 配置了 scriptPathDependency 时（外部扩展目录中的扩展）从文件系统目录加载依赖
+        String pattern = StringUtils.isNotBlank(extension.getScriptPathDependency())
+                ? "file:" + Path.of(extension.getScriptPathDependency()).toAbsolutePath().toString().replace('\\', '/') + "/**/*.jar"
+                : "classpath*:groovy/" + extension.getName() + "/dependency/**/*.jar";
+        List<URL> jarUrls = new ArrayList<>();
+        List<String> onClasspath = new ArrayList<>();
+        for (Resource jar : resolver.getResources(pattern)) {
+            if (isOnClasspath(jar, parent)) {
+                onClasspath.add(jar.getFilename());
+            } else {
+                jarUrls.add(toLocalUrl(extension.getName(), jar));
+            }
+        }
+
+        if (!onClasspath.isEmpty()) {
+            log.info("Dependencies of extension {} already in classpath: {}", extension.getName(), onClasspath);
+        }
+        if (jarUrls.isEmpty()) {
+            return parent;
+        }
+        log.info("Created classloader for extension {} with {} dependency JARs: {}", extension.getName(), jarUrls.size(),
+                jarUrls.stream().map(URL::toString).toList());
+        return new URLClassLoader("extension-" + extension.getName(), jarUrls.toArray(new URL[0]), parent);
+    }
+
+    /**
+     * 按 jar 的条目索引判断依赖是否已在 classpath 中：取前几个类文件，父类加载器都能找到时视为已加载
+     */
+    private static boolean isOnClasspath(Resource jar, ClassLoader parent) throws IOException {
+        int checked = 0;
+        try (JarInputStream jarInputStream = new JarInputStream(jar.getInputStream())) {
+            JarEntry entry;
+            while (checked < SAMPLE_CLASSES && (entry = jarInputStream.getNextJarEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                if (parent.getResource(name) == null) {
+                    return false;
+                }
+                checked++;
+            }
+        }
+        return checked > 0;
+    }
+
+    /**
+     * 文件系统中的 jar 直接使用，fat jar 中的 jar 解压到临时目录
+     */
+    private URL toLocalUrl(String extensionName, Resource jar) throws IOException {
+        if (jar.isFile()) {
+            return jar.getFile().toURI().toURL();
+        }
+        Path directory = extractDirectory();
+        Path target = Files.createDirectories(directory.resolve(extensionName)).resolve(jar.getFilename());
+        try (InputStream inputStream = jar.getInputStream()) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target.toUri().toURL();
+    }
+
+    private synchronized Path extractDirectory() throws IOException {
+        if (extractDirectory == null) {
+            extractDirectory = Files.createTempDirectory("mcp-extension-");
+        }
+        return extractDirectory;
+    }
+
+    private static void closeQuietly(String extensionName, URLClassLoader classLoader) {
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            log.warn("Failed to close classloader for extension {}: {}", extensionName, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.jim.mcpdbserver.config.extension;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 外部扩展目录
+ * 启动时加载并预编译目录中的所有扩展，之后通过 WatchService 监听目录变化，在后台线程中重新解析依赖、编译脚本，
+ * 成功后依次替换类加载器、脚本类和扩展列表；编译失败时继续使用旧版本。
+ * 正在执行的调用已经取得旧版本的脚本类，会在旧版本上执行完成
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class ExtensionDirectory {
+
+    private static final String DESCRIPTOR = "extension.yml";
+
+    private final ExtensionDirectoryConfig config;
+    private final ExtensionClassLoaders extensionClassLoaders;
+    private final GroovyScriptCache groovyScriptCache;
+    private final ExtensionResultCache extensionResultCache;
+    private final ExtensionSandbox extensionSandbox;
+
+    /**
+     * 当前生效的扩展，整体替换，读取时不加锁
+     */
+    private volatile Map<String, Extension> extensions = Map.of();
+    private volatile WatchService watchService;
+    private Path root;
+    private Thread watcher;
+
+    public ExtensionDirectory(ExtensionDirectoryConfig config, ExtensionClassLoaders extensionClassLoaders,
+                              GroovyScriptCache groovyScriptCache, ExtensionResultCache extensionResultCache,
+                              ExtensionSandbox extensionSandbox) {
+        this.config = config;
+        this.extensionClassLoaders = extensionClassLoaders;
+        this.groovyScriptCache = groovyScriptCache;
+        this.extensionResultCache = extensionResultCache;
+        this.extensionSandbox = extensionSandbox;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isBlank(config.getPath())) {
+            return;
+        }
+        root = Path.of(config.getPath()).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(root);
+            for (String name : listExtensionNames()) {
+                reload(name);
+            }
+            log.info("Loaded {} extensions from directory {}: {}", extensions.size(), root, extensions.keySet());
+            if (config.isWatch()) {
+                startWatching();
+            }
+        } catch (IOException e) {
+            log.error("Failed to load extensions from directory {}: {}", root, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.warn("Failed to close extension directory watcher: {}", e.getMessage());
+            }
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    /**
+     * 外部扩展目录中当前生效的扩展，按扩展名排序
+     */
+    public List<Extension> getExtensions() {
+        return List.copyOf(extensions.values());
+    }
+
+    private void startWatching() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        registerRecursively(root);
+        watcher = new Thread(this::watchLoop, "extension-directory-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching extension directory {}", root);
+    }
+
+    private void watchLoop() {
+        Set<String> changed = new LinkedHashSet<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                collect(watchService.take(), changed);
+                // 合并短时间内的多次变化，等待文件写入完成
+                WatchKey key;
+                while ((key = watchService.poll(config.getDebounce().toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (String name : changed) {
+                    reload(name);
+                }
+                changed.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 关闭服务时退出
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        Path watched = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 丢失了部分事件，全部重新加载
+                changed.addAll(extensions.keySet());
+                changed.addAll(listExtensionNames());
+                continue;
+            }
+            Path child = watched.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registerRecursively(child);
+            }
+            Path relative = root.relativize(child);
+            if (relative.getNameCount() > 0 && !relative.toString().isEmpty()) {
+                changed.add(relative.getName(0).toString());
+            }
+        }
+        key.reset();
+    }
+
+    private void registerRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.filter(Files::isDirectory).toList()) {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to watch extension directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private List<String> listExtensionNames() {
+        try (Stream<Path> children = Files.list(root)) {
+            return children.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Failed to list extension directory {}: {}", root, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 重新加载一个扩展：目录不存在时移除；否则读取描述文件、解析依赖并预编译脚本，全部成功后才替换
+     */
+    private void reload(String name) {
+        Path directory = root.resolve(name);
+        if (!Files.isDirectory(directory)) {
+            if (extensions.containsKey(name)) {
+                publish(name, null);
+                evictCaches(name);
+                log.info("Extension [{}] removed from directory {}", name, root);
+            }
+            return;
+        }
+
+        Extension extension;
+        try {
+            extension = readDescriptor(name, directory);
+        } catch (RuntimeException | IOException e) {
+            log.error("Failed to read {} of extension [{}], keeping the current version: {}", DESCRIPTOR, name, e.getMessage());
+            return;
+        }
+
+        if (!Boolean.FALSE.equals(extension.getEnabled()) && StringUtils.isBlank(extension.getDecoder())) {
+            long start = System.nanoTime();
+            ClassLoader classLoader;
+            try {
+                classLoader = extensionClassLoaders.prepare(extension);
+            } catch (IOException e) {
+                log.error("Failed to resolve dependencies of extension [{}], keeping the current version: {}", name, e.getMessage());
+                return;
+            }
+            GroovyScriptCache.CompiledScript compiled;
+            try {
+                compiled = groovyScriptCache.prepare(extension, classLoader);
+            } catch (IOException e) {
+                extensionClassLoaders.discard(name, classLoader);
+                log.error("Failed to load extension [{}], keeping the current version: {}", name, e.getMessage());
+                return;
+            }
+            // 先替换类加载器再替换脚本类，期间的调用即使取得新的类加载器和旧的脚本类，也只会按新的类加载器重新编译
+            extensionClassLoaders.install(name, classLoader);
+            groovyScriptCache.install(name, compiled);
+            log.info("Extension [{}] compiled in {} ms", name, (System.nanoTime() - start) / 1_000_000);
+        } else {
+            groovyScriptCache.evict(name);
+            extensionClassLoaders.evict(name);
+        }
+        extensionResultCache.evict(name);
+        extensionSandbox.evict(name);
+        publish(name, extension);
+        log.info("Extension [{}] loaded from {}", name, directory);
+    }
+
+    private Extension readDescriptor(String name, Path directory) throws IOException {
+        Extension extension = new Extension();
+        Path descriptor = directory.resolve(DESCRIPTOR);
+        if (Files.isRegularFile(descriptor)) {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader().load(name, new FileSystemResource(descriptor));
+            extension = new Binder(ConfigurationPropertySources.from(sources))
+                    .bind(ConfigurationPropertyName.EMPTY, Bindable.of(Extension.class))
+                    .orElseGet(Extension::new);
+        }
+        // 扩展名固定为目录名，脚本和依赖的相对路径相对于扩展目录
+        extension.setName(name);
+        extension.setScriptPath(resolve(directory, extension.getScriptPath(), "script"));
+        extension.setScriptPathDependency(resolve(directory, extension.getScriptPathDependency(), "dependency"));
+        return extension;
+    }
+
+    private static String resolve(Path directory, String configured, String defaultPath) {
+        return directory.resolve(StringUtils.isNotBlank(configured) ? configured : defaultPath).normalize().toString();
+    }
+
+    private void evictCaches(String name) {
+        groovyScriptCache.evict(name);
+        extensionClassLoaders.evict(name);
+        extensionResultCache.evict(name);
+        extensionSandbox.evict(name);
+    }
+
+    private synchronized void publish(String name, Extension extension) {
+        Map<String, Extension> updated = new TreeMap<>(extensions);
+        if (extension == null) {
+            updated.remove(name);
+        } else {
+            updated.put(name, extension);
+        }
+        extensions = Collections.unmodifiableMap(updated);
+    }
+}
@@ -0,0 +1,34 @@
+package org.jim.mcpdbserver.config.extension;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 外部扩展目录配置
+ * 目录下每个子目录是一个扩展：子目录名为扩展名，script 目录存放主函数脚本，dependency 目录存放依赖 jar，
+ * 可选的 extension.yml 描述扩展的其他配置（与 extension.yml 中 extensions 列表的单项相同）
+ * @author James Smith
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "extension.directory")
+public class ExtensionDirectoryConfig {
+
+    /**
+     * 外部扩展目录，未配置时只使用 classpath 中的扩展
+     */
+    private String path;
+
+    /**
+     * 是否监听目录变化，自动重新加载新增、修改和删除的扩展
+     */
+    private boolean watch = true;
+
+    /**
+     * 目录变化后等待文件写入完成的时间，这段时间内的多次变化合并为一次重新加载
+     */
+    private Duration debounce = Duration.ofMillis(500);
+}
@@ -0,0 +1,10 @@
+package org.jim.mcpdbserver.config.extension;
+
+/**
+ * 单个扩展的统计信息
+ * @param execution 沙箱中的执行统计，扩展还没有实际执行过时为null
+ * @param cache 结果缓存统计，扩展没有启用结果缓存时为null
+ * @author James Smith
+ */
+public record ExtensionMetrics(ExtensionSandbox.Stats execution, ExtensionResultCache.Stats cache) {
+}
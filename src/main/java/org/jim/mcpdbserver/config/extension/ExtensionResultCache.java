@@ -0,0 +1,173 @@
+package org.jim.mcpdbserver.config.extension;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 扩展结果缓存，按扩展分别缓存，键为输入的 SHA-256 摘要
+ * 每个扩展的缓存按估算的结果字节数限制总大小，按最近使用淘汰，并在 TTL 到期后失效。
+ * 只缓存正常返回的结果，执行抛出异常的输入不缓存
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class ExtensionResultCache {
+
+    /**
+     * 每个缓存项除结果以外的估算开销：摘要键、链表节点、缓存项对象
+     */
+    private static final int ENTRY_OVERHEAD = 200;
+
+    private final ExtensionResultCacheConfig config;
+    private final Map<String, ResultCache> caches = new ConcurrentHashMap<>();
+
+    public ExtensionResultCache(ExtensionResultCacheConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 扩展是否使用结果缓存：全局开启且扩展标记为 deterministic
+     */
+    public boolean isEnabled(Extension extension) {
+        return config.isEnabled() && Boolean.TRUE.equals(extension.getDeterministic());
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String key(String input) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * 查询缓存结果，同时统计命中和未命中次数
+     * @return 缓存项，未命中时返回null；缓存项的值本身可以是null
+     */
+    public Cached get(String extensionName, String key) {
+        return caches.computeIfAbsent(extensionName, name -> new ResultCache()).get(key);
+    }
+
+    public void put(String extensionName, String key, Object value) {
+        long size = estimateSize(value) + ENTRY_OVERHEAD;
+        if (size > config.getMaxEntryBytes().toBytes()) {
+            return;
+        }
+        caches.computeIfAbsent(extensionName, name -> new ResultCache()).put(key, value, size);
+    }
+
+    /**
+     * 清空扩展的缓存结果，扩展脚本或配置变更时调用
+     */
+    public void evict(String extensionName) {
+        ResultCache cache = caches.remove(extensionName);
+        if (cache != null) {
+            log.info("Evicted result cache of extension [{}]", extensionName);
+        }
+    }
+
+    /**
+     * 各扩展的缓存统计，按扩展名排序
+     */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> stats = new TreeMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+
+    /**
+     * 结果大小估算：字符串按 UTF-16 每字符 2 字节，其他对象按其字符串形式估算
+     */
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof CharSequence text) {
+            return 2L * text.length();
+        }
+        return 2L * String.valueOf(value).length();
+    }
+
+    /**
+     * 缓存项
+     */
+    public record Cached(Object value, long size, long expiresAt) {
+    }
+
+    /**
+     * 缓存统计
+     * @param hits 命中次数
+     * @param misses 未命中次数
+     * @param hitRate 命中率，没有查询时为0
+     * @param evictions 因容量或过期淘汰的结果数
+     * @param entries 当前缓存的结果数
+     * @param bytes 当前缓存结果的估算字节数
+     */
+    public record Stats(long hits, long misses, double hitRate, long evictions, int entries, long bytes) {
+    }
+
+    /**
+     * 单个扩展的缓存，访问顺序的 LinkedHashMap，所有操作在自身锁内完成
+     */
+    private final class ResultCache {
+
+        private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        synchronized Cached get(String key) {
+            Cached cached = entries.get(key);
+            if (cached != null && cached.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                bytes -= cached.size();
+                evictions++;
+                cached = null;
+            }
+            if (cached == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return cached;
+        }
+
+        synchronized void put(String key, Object value, long size) {
+            Cached previous = entries.put(key, new Cached(value, size, System.nanoTime() + config.getTtl().toNanos()));
+            if (previous != null) {
+                bytes -= previous.size();
+            }
+            bytes += size;
+            long maxBytes = config.getMaxBytes().toBytes();
+            Iterator<Cached> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().size();
+                eldest.remove();
+                evictions++;
+            }
+        }
+
+        synchronized Stats stats() {
+            long lookups = hits + misses;
+            return new Stats(hits, misses, lookups == 0 ? 0 : (double) hits / lookups, evictions, entries.size(), bytes);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jim.mcpdbserver.config.extension;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 扩展结果缓存配置，只对 extension.yml 中标记为 deterministic 的扩展生效
+ * @author James Smith
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "extension.result-cache")
+public class ExtensionResultCacheConfig {
+
+    /**
+     * 是否启用扩展结果缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个扩展的缓存最多占用的字节数（按结果大小估算），超过时淘汰最久未使用的结果
+     */
+    private DataSize maxBytes = DataSize.ofMegabytes(64);
+
+    /**
+     * 超过该大小的单个结果不缓存
+     */
+    private DataSize maxEntryBytes = DataSize.ofMegabytes(4);
+
+    /**
+     * 缓存结果的有效期
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+}
@@ -0,0 +1,343 @@
+package org.jim.mcpdbserver.config.extension;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 扩展执行沙箱
+ * 扩展在固定大小的平台线程池中执行，不占用 MCP 请求线程；每次调用有执行时间上限，每个扩展有并发上限，
+ * 并通过 ThreadMXBean 统计工作线程在本次调用中分配的内存，超过上限时取消调用。
+ * <p>
+ * 取消时设置调用的取消标记并中断工作线程。编译脚本时注入的检查（见 {@link GroovyScriptCache}）会在循环、闭包和方法入口
+ * 检查 {@link #isCancelled()}，脚本因此抛出异常退出；停在依赖库代码中、不响应中断的调用会继续占用工作线程和并发名额，
+ * 直到真正结束，避免一个失控的扩展耗尽所有工作线程。
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class ExtensionSandbox {
+
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+
+    private final ExtensionSandboxConfig config;
+    private final ServerMetrics serverMetrics;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService watchdog;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final Set<Invocation> running = ConcurrentHashMap.newKeySet();
+
+    public ExtensionSandbox(ExtensionSandboxConfig config, ServerMetrics serverMetrics) {
+        this.config = config;
+        this.serverMetrics = serverMetrics;
+        AtomicInteger threadIndex = new AtomicInteger();
+        int threads = Math.max(1, config.getWorkerThreads());
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "extension-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threadMXBean = allocationMXBean();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "extension-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (threadMXBean != null && config.getMaxAllocatedBytes().toBytes() > 0) {
+            long interval = Math.max(10, config.getWatchdogInterval().toMillis());
+            watchdog.scheduleWithFixedDelay(this::checkAllocations, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 当前线程上执行的扩展调用是否已被取消，供编译后的脚本和耗时的解码器检查
+     */
+    public static boolean isCancelled() {
+        Invocation invocation = CURRENT.get();
+        return invocation != null && invocation.cancelReason != null;
+    }
+
+    /**
+     * 当前线程上执行的扩展调用已被取消时抛出 CancellationException
+     */
+    public static void checkCancelled() {
+        Invocation invocation = CURRENT.get();
+        if (invocation != null && invocation.cancelReason != null) {
+            throw new CancellationException(invocation.cancelReason);
+        }
+    }
+
+    /**
+     * 在沙箱中执行扩展调用，等待执行完成
+     *
+     * @param extension 扩展
+     * @param task 调用内容
+     * @return 调用结果
+     * @throws IllegalStateException 扩展繁忙、超时、超出内存上限或执行失败
+     */
+    public <T> T execute(Extension extension, Callable<T> task) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = executeInSandbox(extension, task);
+            success = true;
+            return result;
+        } finally {
+            // 包括等待并发名额的时间，即调用方实际等待的时间
+            serverMetrics.recordExtensionExecute(extension.getName(), System.nanoTime() - start, success);
+        }
+    }
+
+    private <T> T executeInSandbox(Extension extension, Callable<T> task) {
+        if (!config.isEnabled()) {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        String name = extension.getName();
+        Counters stats = counters.computeIfAbsent(name, key -> new Counters());
+        stats.calls.increment();
+        Semaphore semaphore = permits.computeIfAbsent(name, key -> new Semaphore(maxConcurrency(extension)));
+        try {
+            if (!semaphore.tryAcquire(config.getMaxWait().toMillis(), TimeUnit.MILLISECONDS)) {
+                stats.rejected.increment();
+                throw new IllegalStateException("Extension " + name + " is busy, " + maxConcurrency(extension)
+                        + " calls are already running");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for extension " + name, e);
+        }
+
+        Invocation invocation = new Invocation(name, semaphore);
+        Future<T> future;
+        try {
+            future = workers.submit(() -> runOnWorker(invocation, task, stats));
+        } catch (RejectedExecutionException e) {
+            invocation.release();
+            stats.rejected.increment();
+            throw new IllegalStateException("Extension worker pool is full, try again later");
+        }
+
+        Duration timeout = timeout(extension);
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            stats.timeouts.increment();
+            invocation.cancel("Extension " + name + " timed out after " + timeout);
+            cancel(invocation, future);
+            log.warn("Extension [{}] timed out after {}, cancelled", name, timeout);
+            throw new IllegalStateException(invocation.cancelReason);
+        } catch (ExecutionException e) {
+            stats.failures.increment();
+            if (invocation.cancelReason != null) {
+                throw new IllegalStateException(invocation.cancelReason, e.getCause());
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            invocation.cancel("Caller of extension " + name + " was interrupted");
+            cancel(invocation, future);
+            throw new IllegalStateException(invocation.cancelReason, e);
+        }
+    }
+
+    /**
+     * 各扩展的执行统计，按扩展名排序
+     */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> stats = new TreeMap<>();
+        counters.forEach((name, c) -> stats.put(name, new Stats(c.calls.sum(), c.failures.sum(), c.timeouts.sum(),
+                c.memoryExceeded.sum(), c.rejected.sum(), c.running.get(), c.allocatedBytes.sum())));
+        return stats;
+    }
+
+    /**
+     * 扩展同时执行的调用数上限，沙箱关闭时不限制
+     */
+    public int concurrencyLimit(Extension extension) {
+        return config.isEnabled() ? maxConcurrency(extension) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 扩展配置变更时重建并发名额，正在执行的调用结束时归还到旧的信号量
+     */
+    public void evict(String extensionName) {
+        permits.remove(extensionName);
+    }
+
+    /**
+     * 取消调用；任务还在队列中时取消后不会再执行，由调用方归还并发名额
+     */
+    private void cancel(Invocation invocation, Future<?> future) {
+        future.cancel(true);
+        if (!invocation.started) {
+            invocation.release();
+        }
+    }
+
+    private <T> T runOnWorker(Invocation invocation, Callable<T> task, Counters stats) throws Exception {
+        invocation.started = true;
+        invocation.thread = Thread.currentThread();
+        invocation.startAllocatedBytes = allocatedBytes(invocation.thread);
+        CURRENT.set(invocation);
+        stats.running.incrementAndGet();
+        running.add(invocation);
+        try {
+            // 调用方已经超时放弃时不再执行
+            checkCancelled();
+            return task.call();
+        } finally {
+            running.remove(invocation);
+            long allocated = allocatedBytes(invocation.thread) - invocation.startAllocatedBytes;
+            if (invocation.startAllocatedBytes >= 0 && allocated > 0) {
+                stats.allocatedBytes.add(allocated);
+                log.debug("Extension [{}] allocated {} bytes", invocation.extensionName, allocated);
+            }
+            stats.running.decrementAndGet();
+            CURRENT.remove();
+            // 清除取消时设置的中断状态，避免影响工作线程执行下一个任务
+            Thread.interrupted();
+            invocation.release();
+        }
+    }
+
+    private void checkAllocations() {
+        long maxBytes = config.getMaxAllocatedBytes().toBytes();
+        for (Invocation invocation : running) {
+            Thread thread = invocation.thread;
+            if (thread == null || invocation.cancelReason != null || invocation.startAllocatedBytes < 0) {
+                continue;
+            }
+            long allocated = allocatedBytes(thread) - invocation.startAllocatedBytes;
+            if (allocated > maxBytes) {
+                counters.computeIfAbsent(invocation.extensionName, key -> new Counters()).memoryExceeded.increment();
+                invocation.cancel("Extension " + invocation.extensionName + " allocated " + allocated
+                        + " bytes, over the limit of " + maxBytes + " bytes");
+                thread.interrupt();
+                log.warn("Extension [{}] cancelled: allocated {} bytes, over the limit of {} bytes",
+                        invocation.extensionName, allocated, maxBytes);
+            }
+        }
+    }
+
+    private long allocatedBytes(Thread thread) {
+        return threadMXBean != null ? threadMXBean.getThreadAllocatedBytes(thread.threadId()) : -1;
+    }
+
+    private int maxConcurrency(Extension extension) {
+        Integer maxConcurrency = extension.getMaxConcurrency();
+        return Math.max(1, maxConcurrency != null ? maxConcurrency : config.getMaxConcurrency());
+    }
+
+    private Duration timeout(Extension extension) {
+        return extension.getTimeout() != null ? extension.getTimeout() : config.getTimeout();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        log.warn("Thread allocated memory measurement is not supported, extension memory limit is disabled");
+        return null;
+    }
+
+    /**
+     * 扩展执行统计
+     * @param calls 调用次数
+     * @param failures 执行失败的次数，包括因超出内存上限被取消的调用
+     * @param timeouts 超时的次数
+     * @param memoryExceeded 因超出内存分配上限被取消的次数
+     * @param rejected 因并发名额或工作线程不足被拒绝的次数
+     * @param running 正在执行的调用数
+     * @param allocatedBytes 累计分配的字节数
+     */
+    public record Stats(long calls, long failures, long timeouts, long memoryExceeded, long rejected, int running,
+                        long allocatedBytes) {
+    }
+
+    private static final class Invocation {
+        private final String extensionName;
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean started;
+        private volatile Thread thread;
+        private volatile long startAllocatedBytes = -1;
+        private volatile String cancelReason;
+
+        private Invocation(String extensionName, Semaphore semaphore) {
+            this.extensionName = extensionName;
+            this.semaphore = semaphore;
+        }
+
+        /**
+         * 归还并发名额，调用方和工作线程都可能调用，只归还一次
+         */
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+
+        private void cancel(String reason) {
+            if (cancelReason == null) {
+                cancelReason = reason;
+            }
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder memoryExceeded = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicInteger running = new AtomicInteger();
+    }
+}
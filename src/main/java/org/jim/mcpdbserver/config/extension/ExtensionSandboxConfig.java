@@ -0,0 +1,58 @@
+package org.jim.mcpdbserver.config.extension;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 扩展执行沙箱配置
+ * @author James Smith
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "extension.sandbox")
+public class ExtensionSandboxConfig {
+
+    /**
+     * 是否在独立的工作线程池中执行扩展；关闭时在调用线程上直接执行，没有超时和内存限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 工作线程数，所有扩展共用
+     */
+    private int workerThreads = 8;
+
+    /**
+     * 等待工作线程的任务队列长度，队列满时调用直接返回繁忙错误
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * 单次调用的最长执行时间，扩展可以通过 timeout 覆盖
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * 单个扩展同时执行的最大调用数，扩展可以通过 max-concurrency 覆盖
+     */
+    private int maxConcurrency = 4;
+
+    /**
+     * 等待扩展并发名额的最长时间
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+
+    /**
+     * 单次调用在工作线程上最多分配的内存（ThreadMXBean 统计的累计分配字节数，不是存活对象大小），0 表示不限制
+     */
+    private DataSize maxAllocatedBytes = DataSize.ofMegabytes(512);
+
+    /**
+     * 检查执行时间和内存分配的间隔
+     */
+    private Duration watchdogInterval = Duration.ofMillis(100);
+}
@@ -0,0 +1,212 @@
+package org.jim.mcpdbserver.config.extension;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import groovy.transform.ConditionalInterrupt;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.VariableScope;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 扩展脚本编译缓存
+ * 每个扩展的 main 脚本只编译一次，缓存编译得到的 Script 类，每次调用只创建新的脚本实例和 Binding；
+ * 脚本文件（开发环境或外部扩展目录中的文件系统路径）内容变化或依赖的类加载器变化时才重新编译
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class GroovyScriptCache {
+
+    private final Map<String, CompiledScript> scripts = new ConcurrentHashMap<>();
+    private final ServerMetrics serverMetrics;
+
+    public GroovyScriptCache(ServerMetrics serverMetrics) {
+        this.serverMetrics = serverMetrics;
+    }
+
+    /**
+     * 获取扩展编译后的脚本类
+     * @param extension 扩展
+     * @param parent 脚本依赖所在的类加载器
+     * @return 脚本类
+     * @throws IOException 脚本不存在或读取失败
+     */
+    public Class<? extends Script> getScriptClass(Extension extension, ClassLoader parent) throws IOException {
+        CompiledScript cached = scripts.get(extension.getName());
+        if (cached != null && cached.parent() == parent && cached.compileStatic() == isCompileStatic(extension)
+                && cached.location().equals(scriptLocation(extension))
+                && (cached.pinned() || cached.version() == version(cached.url()))) {
+            return cached.scriptClass();
+        }
+
+        try {
+            return scripts.compute(extension.getName(), (name, old) -> {
+                try {
+                    return compile(extension, parent, old);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).scriptClass();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 预编译扩展脚本但不替换当前使用的版本，编译失败时当前版本不受影响
+     * @param extension 扩展
+     * @param parent 脚本依赖所在的类加载器
+     * @return 编译结果，通过 {@link #install(String, CompiledScript)} 生效
+     * @throws IOException 脚本不存在、读取失败或编译失败
+     */
+    CompiledScript prepare(Extension extension, ClassLoader parent) throws IOException {
+        try {
+            return compile(extension, parent, scripts.get(extension.getName()));
+        } catch (CompilationFailedException e) {
+            throw new IOException("Failed to compile Groovy script of extension " + extension.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 替换扩展当前使用的脚本类，已经取得旧脚本类的调用继续使用旧版本
+     * 替换后的版本不再按文件修改时间自动重新编译，由调用方（外部扩展目录）负责更新，脚本改错时继续使用这个版本
+     */
+    void install(String extensionName, CompiledScript compiled) {
+        scripts.put(extensionName, compiled.pin());
+    }
+
+    /**
+     * 移除扩展的编译结果
+     * @param extensionName 扩展名称
+     */
+    public void evict(String extensionName) {
+        scripts.remove(extensionName);
+    }
+
+    private CompiledScript compile(Extension extension, ClassLoader parent, CompiledScript old) throws IOException {
+        String scriptPath = scriptLocation(extension);
+        URL scriptUrl = scriptUrl(extension);
+        if (scriptUrl == null) {
+            log.error("Groovy script not found: {}", scriptPath);
+            throw new IOException("Groovy script not found: " + scriptPath);
+        }
+
+        long version = version(scriptUrl);
+        String source;
+        try (InputStream inputStream = scriptUrl.openStream()) {
+            source = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        boolean compileStatic = isCompileStatic(extension);
+        // 只是修改时间变化而内容相同，沿用已编译的类
+        if (old != null && old.parent() == parent && old.compileStatic() == compileStatic && old.location().equals(scriptPath)
+                && old.source().equals(source)) {
+            return new CompiledScript(scriptPath, scriptUrl, version, source, parent, compileStatic, old.scriptClass(), false);
+        }
+
+        long start = System.nanoTime();
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.addCompilationCustomizers(cancellationCheck());
+        if (compileStatic) {
+            configuration.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+        }
+        // 每次编译使用新的 GroovyClassLoader，旧版本的类在不再使用后可以被回收
+        GroovyClassLoader classLoader = new GroovyClassLoader(parent, configuration);
+        Class<?> compiled = classLoader.parseClass(
+                new GroovyCodeSource(source, scriptClassName(extension.getName()), GroovyShell.DEFAULT_CODE_BASE), false);
+        if (!Script.class.isAssignableFrom(compiled)) {
+            throw new IOException("Groovy file " + scriptPath + " must be a script, not a class definition");
+        }
+        long elapsed = System.nanoTime() - start;
+        serverMetrics.recordExtensionCompile(extension.getName(), elapsed);
+        log.info("Compiled Groovy script for extension {} in {} ms{}", extension.getName(), elapsed / 1_000_000,
+                compileStatic ? " with @CompileStatic" : "");
+        return new CompiledScript(scriptPath, scriptUrl, version, source, parent, compileStatic, compiled.asSubclass(Script.class),
+                false);
+    }
+
+    /**
+     * 在脚本的循环、闭包和方法入口注入 {@link ExtensionSandbox#isCancelled()} 检查，调用被取消后脚本抛出 InterruptedException 退出
+     */
+    private static ASTTransformationCustomizer cancellationCheck() {
+        ClosureExpression condition = new ClosureExpression(Parameter.EMPTY_ARRAY, new ExpressionStatement(
+                new StaticMethodCallExpression(ClassHelper.make(ExtensionSandbox.class), "isCancelled",
+                        ArgumentListExpression.EMPTY_ARGUMENTS)));
+        condition.setVariableScope(new VariableScope());
+        return new ASTTransformationCustomizer(Map.of("value", condition), ConditionalInterrupt.class);
+    }
+
+    /**
+     * 脚本位置：配置了 scriptPath 时为文件系统目录（外部扩展目录中的扩展），否则为 classpath 下的 groovy/扩展名/script
+     * @return 脚本的 URL，脚本不存在时为null
+     */
+    private static URL scriptUrl(Extension extension) throws IOException {
+        if (StringUtils.isNotBlank(extension.getScriptPath())) {
+            Path path = Path.of(extension.getScriptPath(), extension.getMainFileName());
+            return Files.isRegularFile(path) ? path.toUri().toURL() : null;
+        }
+        return GroovyService.class.getClassLoader().getResource(scriptLocation(extension));
+    }
+
+    static String scriptLocation(Extension extension) {
+        if (StringUtils.isNotBlank(extension.getScriptPath())) {
+            return Path.of(extension.getScriptPath(), extension.getMainFileName()).toString();
+        }
+        return "groovy/" + extension.getName() + "/script/" + extension.getMainFileName();
+    }
+
+    private static boolean isCompileStatic(Extension extension) {
+        return Boolean.TRUE.equals(extension.getCompileStatic());
+    }
+
+    /**
+     * 脚本版本：文件系统中的脚本取修改时间和大小，jar 包中的脚本在运行期间不会变化
+     */
+    private static long version(URL scriptUrl) {
+        if (!"file".equals(scriptUrl.getProtocol())) {
+            return 0;
+        }
+        try {
+            Path path = Path.of(scriptUrl.toURI());
+            return Files.getLastModifiedTime(path).toMillis() * 31 + Files.size(path);
+        } catch (IOException | URISyntaxException e) {
+            return -1;
+        }
+    }
+
+    private static String scriptClassName(String extensionName) {
+        return "Extension_" + extensionName.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    record CompiledScript(String location, URL url, long version, String source, ClassLoader parent, boolean compileStatic,
+                          Class<? extends Script> scriptClass, boolean pinned) {
+
+        CompiledScript pin() {
+            return new CompiledScript(location, url, version, source, parent, compileStatic, scriptClass, true);
+        }
+    }
+}
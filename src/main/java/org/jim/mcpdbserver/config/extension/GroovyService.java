@@ -1,24 +1,22 @@
 package org.jim.mcpdbserver.config.extension;
 
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.jim.mcpdbserver.config.extension.decoder.ValueDecoderRegistry;
+import org.jim.mcpdbserver.metrics.jfr.ExtensionExecutionEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * @author James Smith
@@ -30,13 +28,44 @@ public class GroovyService {
     @Resource
     private ExtensionConfig extensionConfig;
 
+    @Resource
+    private GroovyScriptCache groovyScriptCache;
+
+    @Resource
+    private ExtensionClassLoaders extensionClassLoaders;
+
+    @Resource
+    private ValueDecoderRegistry valueDecoderRegistry;
+
+    @Resource
+    private ExtensionResultCache extensionResultCache;
+
+    @Resource
+    private ExtensionSandbox extensionSandbox;
+
+    @Resource
+    private ExtensionDirectory extensionDirectory;
+
 
     public Object executeGroovyScript(String extensionName, String input) {
+        ExtensionExecutionEvent event = new ExtensionExecutionEvent();
+        event.begin();
+        event.extension = extensionName;
+        event.values = 1;
+        try {
+            Object result = executeGroovyScript(extensionName, input, event);
+            event.success = true;
+            return result;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private Object executeGroovyScript(String extensionName, String input, ExtensionExecutionEvent event) {
         //input = "KLUv/WDTDSUkAFZxskbgsDoHSOiEGGOMMYa1QHgJnMjkdu4zF/OgORFkHke5mwuNMSNJzopsWp8nbBVEv3VJ5Cv+2/0BA4tuIoIRYEwaMcYYY0wIkgCqAKMAGZfyxu+b2s9HrMG3Tm18H4V3R4kmcba4r5gvL8cnuZsvKDHpR3PbDbQhx3m4kPN8wE7MJTpl6k0gb+wvEXzWdvtyvCIhyzGJSVxnu3H/Kj2myLfbm5uPIXdE61MBAhskjZPdbMbXwehH04MzvqjJb3DzJTkRcAgn40tqkcPzk3k/iW6Q2hrFITXKhuynVDyAlRAIOEoifvUoYjcQE+tq9VhLegJWC/FKYy70FC0YNHVmVjtZxVgBwXHehNV6unSWmhuZa13hSm1sajRnZ2HoIEasMxW1UIRMFfHSY2LqarXapFBZZACZWElVVivt1Wmv9PMi1lsnvabVUaB0mglV5qx5NhM7O1MY2jecqYuZbgG2sly6TIeVvNlunbALQRFnXd73EP9REL5ESwqDqrMWNy0vblDli14XsuVzMyqvVKbVUSx0FWjqAe0prPSbzdRkaPdiq7SETAXQyV5SDq0uq7nBcHaYEC290zCTstBOAq2hMKqHs6/EqDFXis46LaWHnAdDaxVgK4tKd2mlX8iWqpuRL4ko2kxG+0XKfDfnW5cZHqIMk+j0wYA0IIHI4/QBgjkWsx6p9psHykdtU5cgVsOWpIn6B785LsRxfF/+EXZCn4dPYh6Q+j4wNMebwBQm1sRRKnGMSioRbLeQ/eA8IMjjAUNQZ39En0LMrTHJdfACytLkl3c+8Ps+7+s+7vNQtNZiwbtj1CjN9e4YcWEH6j6dp/M+wNYLKSvIpMA0sqj8e5ujUW/Os6nJkf+SDwTkfTxPxwO9z/vgkK01QE/qERvImPy8TnqrhepBsekvKx0O/DzOo9GQslLWDAof0vPsLFRUmrO7bDoYg9IDgLuoMbFDSJGIiIwkqaQDUITIGNGcB9JRDMYooDLEEEyIUAQSK4FIYCNEYWJspgVYDKkDSFl5LV7sQA/kGEkzBQzXHfH2ZRdfULdxRjtVoKKFxSGXM6EOCTDIUk4A+GJAS9JBdJnAUUouDBY7QoIKZ2H1zKh3GJCFALjEhd8k5UY7w/TNytCKrMitAECcdpJe7hRd3sFQyhbdDdQXcdAjY3welIUeCFQmstBGVdeILcODMCw2EXhP8aRgpcJ84S9XovGrgrVfbB5nrbuQvwNY+RRn9fOBznHjLWh+rmVNbytMipPM/n7mqM9rJ99FjAl6B8vc9w6eYIFjENGjO7pgCUROIY1oGc++reF0Kb2gq2Qq/dYlGHJMZWh3Qt1LFg3R0PsuVQQ68u8ToX3p6SmagJdddXxe31RJVpF3w681X3Zlx7k2k0EacWdu2kCrTpjQYjmwxLFJoxSo8Dp9FwgCnSgRss8YDEqHrJWnlcp5wzyj/t94bGRXHXcQrWXmnMBAiJSUbc1tVtU9BnB80cyWBTU2VtRK2HKzxYF1AVIPAgkCKxbVE8yEjPZPXQa6sLe0CDiQJalTGqo=";
 
 
-        List<Extension> extensions = extensionConfig.getExtensions();
-        if (CollectionUtils.isEmpty(extensions)) {
+        if (CollectionUtils.isEmpty(extensions())) {
             log.warn("No extensions available.");
             return "There are no extensions available. Please re-search the extension list.";
         }
@@ -44,200 +73,223 @@ public class GroovyService {
             log.error("Input string cannot be null or empty for extension: {}", extensionName);
             throw new IllegalArgumentException("Input string cannot be null or empty");
         }
+        Extension extension = findExtension(extensionName);
+        if (!extensionResultCache.isEnabled(extension)) {
+            return extensionSandbox.execute(extension, () -> executeExtension(extension, extensionName, input));
+        }
 
-        Extension extension = extensions.stream()
-                .filter(f -> f.getName().equals(extensionName))
-                .findFirst()
-                .orElseThrow(() -> {
-                    log.error("Extension not found: {}", extensionName);
-                    return new IllegalArgumentException("Extension not found: " + extensionName);
-                });
-        log.info("Executing Groovy script for extension: {}", extension);
+        String key = extensionResultCache.key(input);
+        ExtensionResultCache.Cached cached = extensionResultCache.get(extensionName, key);
+        if (cached != null) {
+            log.debug("Returning cached result for extension: {}", extensionName);
+            event.cachedValues = 1;
+            return cached.value();
+        }
+        Object result = extensionSandbox.execute(extension, () -> executeExtension(extension, extensionName, input));
+        extensionResultCache.put(extensionName, key, result);
+        return result;
+    }
 
-        String groovyBasePath = "groovy/" + extension.getName();
-        String scriptPath = groovyBasePath + "/script/" + extension.getMainFileName();
-        String jarPathDir = groovyBasePath + "/dependency/";
+    private Object executeExtension(Extension extension, String extensionName, String input) {
+        if (StringUtils.isNotBlank(extension.getDecoder())) {
+            log.debug("Decoding value with native decoders [{}] for extension: {}", extension.getDecoder(), extensionName);
+            return valueDecoderRegistry.decode(extension.getDecoder(), input);
+        }
+        log.debug("Executing Groovy script for extension: {}", extension);
 
-        log.info("Loading Groovy script from path: {} for extension: {}", scriptPath, extensionName);
+        String scriptPath = GroovyScriptCache.scriptLocation(extension);
+        log.debug("Loading Groovy script from path: {} for extension: {}", scriptPath, extensionName);
 
         try {
-            // 检查依赖是否已通过 PropertiesLauncher 加载到 classpath
-            boolean dependenciesAvailable = checkDependenciesInClasspath(extension);
-            if (dependenciesAvailable) {
-                log.info("Dependencies already loaded in classpath via PropertiesLauncher for extension: {}", extensionName);
-                // 使用默认的 ScriptEngineManager，依赖已通过 PropertiesLauncher 加载
-                ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-                log.info("Using default ScriptEngineManager with classpath dependencies for extension: {}", extensionName);
-                return executeGroovyScriptWithEngine(extension, extensionName, scriptEngineManager, input);
-            } else {
-                log.info("Dependencies not found in classpath for extension: {}, attempting dynamic loading", extensionName);
-                return loadWithDynamicClassLoader(extension, extensionName, jarPathDir, input);
-            }
-
+            // 依赖在注册扩展时已解析为扩展专属的类加载器，已在 classpath 中的依赖直接使用应用类加载器
+            Binding binding = new Binding();
+            binding.setVariable("inputString", input);
+            return executeCompiledScript(extension, extensionName, extensionClassLoaders.getClassLoader(extension), binding);
         } catch (Exception e) {
             log.error("An unexpected error occurred while executing Groovy script '{}': {}", extension.getScriptPath(), e.getMessage(), e);
             throw new RuntimeException("An unexpected error occurred: " + e.getMessage(), e);
         }
     }
 
-    public List<Extension> getAllExtensions() {
-        List<Extension> extensions = extensionConfig.getExtensions();
-        log.info("Loaded extensions count: {}", extensions != null ? extensions.size() : 0);
-        if (extensions != null) {
-            extensions.forEach(ext -> log.info("Extension loaded: name={}, enabled={}, description={}",
-                    ext.getName(), ext.getEnabled(), ext.getDescription()));
+    /**
+     * 批量执行扩展脚本，处理一批输入字符串，返回与输入等长、按位置对应的结果列表
+     * 配置了原生解码器链的扩展直接解码，单个值失败时对应位置为包含 error 字段的Map；
+     * 支持批量的扩展（batch: true）整批只执行一次脚本，脚本可以在一批内复用密钥、解码器等对象；
+     * 其余扩展在当前线程上逐个值执行，脚本类和依赖类加载器只解析一次。
+     * 标记为 deterministic 的扩展先查结果缓存，只处理未命中的值。每批提交一个 {@link ExtensionExecutionEvent}
+     *
+     * @param extensionName 扩展名称
+     * @param inputs 输入字符串列表
+     * @return 处理结果列表
+     */
+    public List<Object> executeGroovyScriptBatch(String extensionName, List<String> inputs) {
+        if (CollectionUtils.isEmpty(inputs)) {
+            return List.of();
+        }
+        ExtensionExecutionEvent event = new ExtensionExecutionEvent();
+        event.begin();
+        event.extension = extensionName;
+        event.values = inputs.size();
+        try {
+            List<Object> results = executeGroovyScriptBatch(extensionName, inputs, event);
+            event.success = true;
+            return results;
+        } finally {
+            event.commit();
         }
-        return extensions;
     }
 
-    /**
-     * 检查扩展的依赖是否已在 classpath 中可用
-     * 通过尝试加载已知的依赖类来验证
-     */
-    private boolean checkDependenciesInClasspath(Extension extension) {
-        // 对于 zstdDecode 扩展，检查 zstd-jni 库是否可用
-        if ("zstdDecode".equals(extension.getName())) {
-            try {
-                Class.forName("com.github.luben.zstd.Zstd");
-                log.info("Zstd dependency found in classpath for extension: {}", extension.getName());
-                return true;
-            } catch (ClassNotFoundException e) {
-                log.error("Zstd dependency not found in classpath for extension: {}", extension.getName());
-                return false;
+    private List<Object> executeGroovyScriptBatch(String extensionName, List<String> inputs, ExtensionExecutionEvent event) {
+        Extension extension = findExtension(extensionName);
+        if (!extensionResultCache.isEnabled(extension)) {
+            return extensionSandbox.execute(extension, () -> executeExtensionBatch(extension, extensionName, inputs));
+        }
+
+        List<Object> results = new ArrayList<>(Collections.nCopies(inputs.size(), null));
+        List<String> keys = new ArrayList<>(inputs.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> missInputs = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            String key = extensionResultCache.key(inputs.get(i));
+            keys.add(key);
+            ExtensionResultCache.Cached cached = extensionResultCache.get(extensionName, key);
+            if (cached != null) {
+                results.set(i, cached.value());
+            } else {
+                missIndexes.add(i);
+                missInputs.add(inputs.get(i));
             }
         }
+        event.cachedValues = inputs.size() - missInputs.size();
+        if (missInputs.isEmpty()) {
+            return results;
+        }
 
-        // 对于 SM4Decrypt 扩展，检查 BouncyCastle 库是否可用（hutool SM4 的关键依赖）
-        if ("SM4Decrypt".equals(extension.getName())) {
-            try {
-                Class.forName("org.bouncycastle.crypto.Digest");
-                log.info("BouncyCastle dependency found in classpath for extension: {}", extension.getName());
-                return true;
-            } catch (ClassNotFoundException e) {
-                log.error("BouncyCastle dependency not found in classpath for extension: {}, attempting dynamic loading", extension.getName());
-                return false;
+        List<Object> computed = extensionSandbox.execute(extension, () -> executeExtensionBatch(extension, extensionName, missInputs));
+        for (int i = 0; i < missIndexes.size(); i++) {
+            int index = missIndexes.get(i);
+            results.set(index, computed.get(i));
+            // 单个值的解码错误可能是暂时的（例如超出解码上限），不缓存
+            if (!ValueDecoderRegistry.isError(computed.get(i))) {
+                extensionResultCache.put(extensionName, keys.get(index), computed.get(i));
             }
         }
+        return results;
+    }
 
-        // 对于其他扩展，可以添加相应的检查逻辑
-        // 或者通过扫描 dependency 目录来动态检查
-        return true; // 默认假设依赖已加载
+    private List<Object> executeExtensionBatch(Extension extension, String extensionName, List<String> inputs) {
+        if (StringUtils.isNotBlank(extension.getDecoder())) {
+            return valueDecoderRegistry.decodeAll(extension.getDecoder(), inputs);
+        }
+        ClassLoader scriptParent = extensionClassLoaders.getClassLoader(extension);
+        log.debug("Executing Groovy script for extension: {} on {} values", extensionName, inputs.size());
+
+        if (Boolean.TRUE.equals(extension.getBatch())) {
+            Binding binding = new Binding();
+            binding.setVariable("inputString", null);
+            binding.setVariable("inputStrings", inputs);
+            Object result = executeCompiledScript(extension, extensionName, scriptParent, binding);
+            if (!(result instanceof List<?> list) || list.size() != inputs.size()) {
+                throw new IllegalStateException("Batch extension " + extensionName + " must return a list of "
+                        + inputs.size() + " results");
+            }
+            return new ArrayList<>(list);
+        }
+
+        List<Object> results = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            Binding binding = new Binding();
+            binding.setVariable("inputString", input);
+            results.add(executeCompiledScript(extension, extensionName, scriptParent, binding));
+        }
+        return results;
     }
 
     /**
-     * 使用动态类加载器加载依赖（后备方案）
+     * 扩展在沙箱中允许同时执行的调用数，超出的调用等待并发名额，等待超时返回繁忙
+     *
+     * @param extensionName 扩展名称
+     * @return 并发上限，沙箱关闭时为 Integer.MAX_VALUE
+     * @throws IllegalArgumentException 扩展不存在
      */
-    private Object loadWithDynamicClassLoader(Extension extension, String extensionName, String jarPathDir, String input) {
-        URLClassLoader customClassLoader = null;
-        ClassLoader originalContextClassLoader = Thread.currentThread().getContextClassLoader();
-
-        try {
-            URL resource = GroovyService.class.getClassLoader().getResource(jarPathDir);
-            List<URL> jarUrls = new ArrayList<>();
-            log.info("Attempting dynamic loading for jarDirUrl: {}", resource);
-
-            if (resource == null) {
-                log.warn("Dependency directory not found: {}", jarPathDir);
-                return null;
-            }
-
-            String protocol = resource.getProtocol();
-
-            if ("file".equals(protocol)) {
-                log.info("Loading dependencies from file system for extension: {}", extensionName);
-                File dependencyDir = new File(resource.toURI());
-                if (!(dependencyDir.exists() && dependencyDir.isDirectory())) {
-                    log.warn("Dependency directory does not exist: {}", dependencyDir.getAbsolutePath());
-                    return null;
-                }
-
-                try (Stream<Path> walk = Files.walk(dependencyDir.toPath())) {
-                    jarUrls = walk.filter(Files::isRegularFile)
-                            .filter(p -> p.toString().endsWith(".jar"))
-                            .map(p -> {
-                                try {
-                                    return p.toUri().toURL();
-                                } catch (Exception e) {
-                                    log.error("Error converting JAR path to URL: {}", p, e);
-                                    return null;
-                                }
-                            })
-                            .filter(Objects::nonNull)
-                            .toList();
-
-                    log.info("Found {} dependency JARs for extension: {}, files: {}",
-                            jarUrls.size(), extensionName,
-                            jarUrls.stream().map(URL::toString).toList());
-                }
-            }
+    public int getMaxConcurrency(String extensionName) {
+        return extensionSandbox.concurrencyLimit(findExtension(extensionName));
+    }
 
-            ScriptEngineManager scriptEngineManager;
-            if (!CollectionUtils.isEmpty(jarUrls)) {
-                customClassLoader = new URLClassLoader(jarUrls.toArray(new URL[0]), originalContextClassLoader);
-                Thread.currentThread().setContextClassLoader(customClassLoader);
-                log.info("Custom classloader created with {} JARs for extension: {}", jarUrls.size(), extensionName);
+    /**
+     * 各扩展的统计信息：沙箱中的执行情况和结果缓存命中率，按扩展名排序
+     */
+    public Map<String, ExtensionMetrics> getExtensionMetrics() {
+        Map<String, ExtensionResultCache.Stats> cacheStats = extensionResultCache.getStats();
+        Map<String, ExtensionSandbox.Stats> executionStats = extensionSandbox.getStats();
+        Map<String, ExtensionMetrics> metrics = new TreeMap<>();
+        executionStats.forEach((name, stats) -> metrics.put(name, new ExtensionMetrics(stats, cacheStats.get(name))));
+        cacheStats.forEach((name, stats) -> metrics.putIfAbsent(name, new ExtensionMetrics(null, stats)));
+        return metrics;
+    }
 
-                scriptEngineManager = new ScriptEngineManager(customClassLoader);
-                log.info("Created ScriptEngineManager with custom classloader for extension: {}", extensionName);
-            } else {
-                log.info("No dependency JARs found for extension: {}, using default ScriptEngineManager", extensionName);
-                scriptEngineManager = new ScriptEngineManager();
-            }
+    public List<Extension> getAllExtensions() {
+        List<Extension> extensions = extensions();
+        log.info("Loaded extensions count: {}", extensions != null ? extensions.size() : 0);
+        if (extensions != null) {
+            extensions.forEach(ext -> log.info("Extension loaded: name={}, enabled={}, description={}",
+                    ext.getName(), ext.getEnabled(), ext.getDescription()));
+        }
+        return extensions;
+    }
 
-            // 执行脚本逻辑
-            return executeGroovyScriptWithEngine(extension, extensionName, scriptEngineManager, input);
+    /**
+     * 当前可用的扩展：extension.yml 中配置的扩展和外部扩展目录中的扩展，同名时外部扩展目录中的优先
+     */
+    private List<Extension> extensions() {
+        List<Extension> directoryExtensions = extensionDirectory.getExtensions();
+        if (directoryExtensions.isEmpty()) {
+            return extensionConfig.getExtensions();
+        }
+        Map<String, Extension> merged = new LinkedHashMap<>();
+        if (extensionConfig.getExtensions() != null) {
+            extensionConfig.getExtensions().forEach(extension -> merged.put(extension.getName(), extension));
+        }
+        directoryExtensions.forEach(extension -> merged.put(extension.getName(), extension));
+        return new ArrayList<>(merged.values());
+    }
 
-        } catch (Exception e) {
-            log.error("Error in dynamic class loading for extension: {}", extensionName, e);
-            return null;
-        } finally {
-            // 恢复原始的上下文类加载器
-            Thread.currentThread().setContextClassLoader(originalContextClassLoader);
-            if (customClassLoader != null) {
-                try {
-                    customClassLoader.close();
-                } catch (IOException e) {
-                    log.warn("Failed to close custom class loader for extension: {}", extensionName, e);
-                }
-            }
+    private Extension findExtension(String extensionName) {
+        List<Extension> extensions = extensions();
+        if (CollectionUtils.isEmpty(extensions)) {
+            log.warn("No extensions available.");
+            throw new IllegalArgumentException("There are no extensions available. Please re-search the extension list.");
         }
+        return extensions.stream()
+                .filter(f -> f.getName().equals(extensionName))
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.error("Extension not found: {}", extensionName);
+                    return new IllegalArgumentException("Extension not found: " + extensionName);
+                });
     }
 
     /**
      * 执行 Groovy 脚本的核心逻辑
+     * 脚本类由 {@link GroovyScriptCache} 编译并缓存，每次调用只创建新的脚本实例和 Binding
      */
-    private Object executeGroovyScriptWithEngine(Extension extension, String extensionName, ScriptEngineManager scriptEngineManager, String input) {
+    private Object executeCompiledScript(Extension extension, String extensionName, ClassLoader scriptParent, Binding binding) {
+        // 依赖库可能通过上下文类加载器查找类和资源
+        ClassLoader originalContextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(scriptParent);
         try {
-            String groovyBasePath = "groovy/" + extension.getName();
-            String scriptPath = groovyBasePath + "/script/" + extension.getMainFileName();
-
-            ScriptEngine groovyEngine = scriptEngineManager.getEngineByName("groovy");
-
-            if (groovyEngine == null) {
-                log.error("Groovy ScriptEngine not found. Ensure Groovy runtime is available.");
-                throw new RuntimeException("Groovy ScriptEngine not found.");
-            }
+            Class<? extends Script> scriptClass = groovyScriptCache.getScriptClass(extension, scriptParent);
 
-            URL scriptUrl = GroovyService.class.getClassLoader().getResource(scriptPath);
-            if (scriptUrl == null) {
-                log.error("Groovy script not found at classpath: {}", scriptPath);
-                throw new RuntimeException("Groovy script not found: " + scriptPath);
-            }
-
-            String scriptContent;
-            try (InputStream inputStream = scriptUrl.openStream()) {
-                scriptContent = new String(inputStream.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-            }
-
-            log.info("Executing Groovy script for extension: {}", extensionName);
-            groovyEngine.put("inputString", input);
-            Object result = groovyEngine.eval(scriptContent);
-            log.info("Groovy script executed successfully for extension: {}", extensionName);
+            log.debug("Executing Groovy script for extension: {}", extensionName);
+            Object result = InvokerHelper.createScript(scriptClass, binding).run();
+            log.debug("Groovy script executed successfully for extension: {}", extensionName);
             return result;
 
         } catch (Exception e) {
             log.error("Error executing Groovy script for extension: {}", extensionName, e);
             throw new RuntimeException("Error executing Groovy script: " + e.getMessage(), e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalContextClassLoader);
         }
     }
 }
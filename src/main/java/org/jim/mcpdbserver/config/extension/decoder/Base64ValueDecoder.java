@@ -0,0 +1,33 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Base64 解码器
+ * @author James Smith
+ */
+@Component
+public class Base64ValueDecoder implements ValueDecoder {
+
+    @Override
+    public String name() {
+        return "base64";
+    }
+
+    @Override
+    public String description() {
+        return "Base64 解码（标准字母表）";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+        try (InputStream in = Base64.getDecoder().wrap(new ByteBufferInputStream(input))) {
+            output.readFrom(in);
+        }
+    }
+}
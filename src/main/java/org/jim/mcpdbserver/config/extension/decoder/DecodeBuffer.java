@@ -0,0 +1,126 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.jim.mcpdbserver.config.extension.ExtensionSandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 解码输出缓冲区，底层数组从 {@link DecodeBufferPool} 借用，关闭时归还
+ * 写入超过最大输出字节数时抛出 IllegalStateException，避免异常数据（例如解压炸弹）耗尽内存
+ * <p>
+ * 非线程安全，只在一次解码中使用
+ * @author James Smith
+ */
+public final class DecodeBuffer extends OutputStream {
+
+    private static final int READ_CHUNK = 8192;
+
+    private final DecodeBufferPool pool;
+    private final int maxBytes;
+    private byte[] buf;
+    private int count;
+
+    DecodeBuffer(DecodeBufferPool pool, byte[] buf, int maxBytes) {
+        this.pool = pool;
+        this.buf = buf;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * 从输入流读取全部数据，超过上限时在读到超出部分的第一个字节时失败，不会先读完整个流
+     */
+    public void readFrom(InputStream in) throws IOException {
+        while (true) {
+            // 解压等长时间读取时响应沙箱的取消
+            ExtensionSandbox.checkCancelled();
+            int chunk = Math.min(READ_CHUNK, maxBytes - count);
+            if (chunk == 0) {
+                if (in.read() != -1) {
+                    throw limitExceeded();
+                }
+                return;
+            }
+            ensureCapacity(count + chunk);
+            int n = in.read(buf, count, chunk);
+            if (n < 0) {
+                return;
+            }
+            count += n;
+        }
+    }
+
+    /**
+     * 预留 len 字节用于直接写入，返回底层数组；写入从 {@link #size()} 位置开始，完成后调用 {@link #advance(int)}
+     */
+    public byte[] reserve(int len) {
+        ensureCapacity(count + len);
+        return buf;
+    }
+
+    public void advance(int len) {
+        if (len < 0 || count + len > buf.length) {
+            throw new IndexOutOfBoundsException("Invalid advance: " + len);
+        }
+        count += len;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 已写入内容的只读视图，作为解码器链中下一个解码器的输入
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer();
+    }
+
+    public String toString(Charset charset) {
+        return new String(buf, 0, count, charset);
+    }
+
+    /**
+     * 归还底层数组，之后不能再使用
+     */
+    @Override
+    public void close() {
+        if (buf != null) {
+            pool.release(buf);
+            buf = null;
+        }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > maxBytes) {
+            throw limitExceeded();
+        }
+        if (minCapacity > buf.length) {
+            int newCapacity = (int) Math.min(maxBytes, Math.max((long) buf.length * 2, minCapacity));
+            byte[] grown = new byte[newCapacity];
+            System.arraycopy(buf, 0, grown, 0, count);
+            pool.release(buf);
+            buf = grown;
+        }
+    }
+
+    private IllegalStateException limitExceeded() {
+        return new IllegalStateException("Decoded value exceeds the limit of " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,40 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 解码缓冲区池，复用固定大小的字节数组，减少整列解码时的内存分配
+ * 只回收标准大小的数组，扩容后的数组用完直接丢弃；池满时多余的数组也直接丢弃。
+ * 不使用 ThreadLocal，解码在虚拟线程上执行，线程不会复用
+ * @author James Smith
+ */
+@Component
+public class DecodeBufferPool {
+
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+    private final int maxOutputBytes;
+
+    public DecodeBufferPool(ValueDecoderConfig config) {
+        this.maxOutputBytes = (int) Math.min(Integer.MAX_VALUE - 8, config.getMaxOutputBytes().toBytes());
+        this.bufferSize = (int) Math.min(maxOutputBytes, config.getBufferSize().toBytes());
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, config.getPoolSize()));
+    }
+
+    /**
+     * 借用一个输出缓冲区，使用完必须关闭
+     */
+    public DecodeBuffer acquire() {
+        byte[] buf = buffers.poll();
+        return new DecodeBuffer(this, buf != null ? buf : new byte[bufferSize], maxOutputBytes);
+    }
+
+    void release(byte[] buf) {
+        if (buf.length == bufferSize) {
+            buffers.offer(buf);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * gzip 流式解压
+ * @author James Smith
+ */
+@Component
+public class GzipValueDecoder implements ValueDecoder {
+
+    @Override
+    public String name() {
+        return "gzip";
+    }
+
+    @Override
+    public String description() {
+        return "gzip 流式解压，输出受 max-output-bytes 限制";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteBufferInputStream(input), 8192)) {
+            output.readFrom(in);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 十六进制解码器，兼容 0x 前缀和 PostgreSQL bytea 的 \x 前缀
+ * @author James Smith
+ */
+@Component
+public class HexValueDecoder implements ValueDecoder {
+
+    @Override
+    public String name() {
+        return "hex";
+    }
+
+    @Override
+    public String description() {
+        return "十六进制字符串解码，兼容 0x 和 \\x 前缀";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+        int pos = input.position();
+        int end = input.limit();
+        if (end - pos >= 2 && (input.get(pos) == '0' || input.get(pos) == '\\')
+                && (input.get(pos + 1) == 'x' || input.get(pos + 1) == 'X')) {
+            pos += 2;
+        }
+        if ((end - pos) % 2 != 0) {
+            throw new IOException("Hex input has an odd number of digits");
+        }
+
+        int len = (end - pos) / 2;
+        byte[] out = output.reserve(len);
+        int offset = output.size();
+        for (int i = 0; i < len; i++, pos += 2) {
+            int high = Character.digit(input.get(pos), 16);
+            int low = Character.digit(input.get(pos + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Invalid hex digit at offset " + (pos - input.position()));
+            }
+            out[offset + i] = (byte) ((high << 4) | low);
+        }
+        output.advance(len);
+        input.position(end);
+    }
+}
@@ -0,0 +1,153 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SM4 解密（ECB 模式，PKCS#7 填充），与 hutool SmUtil.sm4(key) 的默认模式一致
+ * 纯 Java 实现（GB/T 32907-2016），不依赖 BouncyCastle；轮密钥在创建时根据配置的密钥计算一次，之后所有调用共用
+ * @author James Smith
+ */
+@Component
+public class Sm4ValueDecoder implements ValueDecoder {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final int[] FK = {0xa3b1bac6, 0x56aa3350, 0x677d9197, 0xb27022dc};
+
+    private static final byte[] SBOX = toBytes(
+            "d690e9fecce13db716b614c228fb2c052b679a762abe04c3aa441326498606999c4250f491ef987a33540b43edcfac62"
+            + "e4b31ca9c908e89580df94fa758f3fa64707a7fcf37317ba83593c19e6854fa8686b81b27164da8bf8eb0f4b70569d35"
+            + "1e240e5e6358d1a225227c3b01217887d40046579fd327524c3602e7a0c4c89eeabf8ad240c738b5a3f7f2cef96115a1"
+            + "e0ae5da49b341a55ad933230f58cb1e31df6e22e8266ca60c02923ab0d534e6fd5db3745defd8e2f03ff6a726d6c5b51"
+            + "8d1baf92bbddbc7f11d95c411f105ad80ac13188a5cd7bbd2d74d012b8e5b4b08969974a0c96777e65b9f109c56ec684"
+            + "18f07dec3adc4d2079ee5f3ed7cb3948");
+
+    private final int[] decryptRoundKeys;
+
+    public Sm4ValueDecoder(ValueDecoderConfig config) {
+        this.decryptRoundKeys = StringUtils.isEmpty(config.getSm4Key())
+                ? null
+                : expandDecryptKey(config.getSm4Key().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String name() {
+        return "sm4";
+    }
+
+    @Override
+    public String description() {
+        return "SM4 解密（ECB/PKCS7），密钥为 extension.decoder.sm4-key，输入为密文原始字节，通常与 base64 或 hex 组合使用";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+        if (decryptRoundKeys == null) {
+            throw new IllegalStateException("SM4 key is not configured, set extension.decoder.sm4-key");
+        }
+        int len = input.remaining();
+        if (len == 0 || len % BLOCK_SIZE != 0) {
+            throw new IOException("SM4 ciphertext length must be a positive multiple of 16, got " + len);
+        }
+
+        byte[] out = output.reserve(len);
+        int offset = output.size();
+        int[] x = new int[4];
+        for (int block = 0; block < len; block += BLOCK_SIZE) {
+            for (int i = 0; i < 4; i++) {
+                x[i] = input.getInt();
+            }
+            crypt(x, decryptRoundKeys, out, offset + block);
+        }
+
+        int pad = out[offset + len - 1] & 0xFF;
+        if (pad < 1 || pad > BLOCK_SIZE) {
+            throw new IOException("Invalid SM4 padding, the key may be wrong");
+        }
+        for (int i = len - pad; i < len; i++) {
+            if ((out[offset + i] & 0xFF) != pad) {
+                throw new IOException("Invalid SM4 padding, the key may be wrong");
+            }
+        }
+        output.advance(len - pad);
+    }
+
+    private static void crypt(int[] x, int[] roundKeys, byte[] out, int offset) {
+        int x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3];
+        for (int i = 0; i < 32; i += 4) {
+            x0 ^= t(x1 ^ x2 ^ x3 ^ roundKeys[i]);
+            x1 ^= t(x2 ^ x3 ^ x0 ^ roundKeys[i + 1]);
+            x2 ^= t(x3 ^ x0 ^ x1 ^ roundKeys[i + 2]);
+            x3 ^= t(x0 ^ x1 ^ x2 ^ roundKeys[i + 3]);
+        }
+        // 反序变换
+        putInt(out, offset, x3);
+        putInt(out, offset + 4, x2);
+        putInt(out, offset + 8, x1);
+        putInt(out, offset + 12, x0);
+    }
+
+    /**
+     * 解密轮密钥为加密轮密钥的逆序
+     */
+    private static int[] expandDecryptKey(byte[] key) {
+        if (key.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("SM4 key must be 16 bytes, got " + key.length);
+        }
+        int[] k = new int[36];
+        for (int i = 0; i < 4; i++) {
+            k[i] = ByteBuffer.wrap(key, i * 4, 4).getInt() ^ FK[i];
+        }
+        int[] roundKeys = new int[32];
+        for (int i = 0; i < 32; i++) {
+            k[i + 4] = k[i] ^ tPrime(k[i + 1] ^ k[i + 2] ^ k[i + 3] ^ ck(i));
+            roundKeys[31 - i] = k[i + 4];
+        }
+        return roundKeys;
+    }
+
+    private static int ck(int i) {
+        int ck = 0;
+        for (int j = 0; j < 4; j++) {
+            ck = (ck << 8) | (((4 * i + j) * 7) & 0xFF);
+        }
+        return ck;
+    }
+
+    private static int tau(int a) {
+        return (SBOX[a >>> 24] & 0xFF) << 24
+                | (SBOX[(a >>> 16) & 0xFF] & 0xFF) << 16
+                | (SBOX[(a >>> 8) & 0xFF] & 0xFF) << 8
+                | (SBOX[a & 0xFF] & 0xFF);
+    }
+
+    private static int t(int a) {
+        int b = tau(a);
+        return b ^ Integer.rotateLeft(b, 2) ^ Integer.rotateLeft(b, 10) ^ Integer.rotateLeft(b, 18) ^ Integer.rotateLeft(b, 24);
+    }
+
+    private static int tPrime(int a) {
+        int b = tau(a);
+        return b ^ Integer.rotateLeft(b, 13) ^ Integer.rotateLeft(b, 23);
+    }
+
+    private static void putInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private static byte[] toBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, i * 2, i * 2 + 2, 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 原生值解码器 SPI，用于处理频繁调用的编码、压缩、加密字段，替代逐个值执行 Groovy 脚本
+ * <p>
+ * 内置解码器注册为 Spring Bean；第三方解码器可以放在 classpath 中，通过
+ * META-INF/services/org.jim.mcpdbserver.config.extension.decoder.ValueDecoder 由 {@link java.util.ServiceLoader} 加载。
+ * 扩展在 extension.yml 中通过 decoder 配置解码器链（例如 base64,zstd），按顺序执行，最后按 UTF-8 转换为字符串。
+ * <p>
+ * 实现必须是线程安全的，同一个实例会被并发调用
+ * @author James Smith
+ */
+public interface ValueDecoder {
+
+    /**
+     * 解码器名称，在 decoder 配置中引用，不区分大小写
+     */
+    String name();
+
+    /**
+     * 解码器说明
+     */
+    String description();
+
+    /**
+     * 解码 input 中 position 到 limit 之间的字节，结果追加写入 output
+     * 输出超过 {@link DecodeBuffer} 的上限时抛出 IllegalStateException，解压类解码器应当流式写入，不要依赖数据中声明的原始大小
+     *
+     * @param input 输入字节
+     * @param output 输出缓冲区，来自缓冲池
+     * @throws IOException 输入数据格式错误
+     */
+    void decode(ByteBuffer input, DecodeBuffer output) throws IOException;
+}
@@ -0,0 +1,36 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 原生值解码器配置
+ * @author James Smith
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "extension.decoder")
+public class ValueDecoderConfig {
+
+    /**
+     * 单个值解码后的最大字节数，解码器链中每一步的输出都受此限制
+     */
+    private DataSize maxOutputBytes = DataSize.ofMegabytes(16);
+
+    /**
+     * 缓冲池中缓冲区的初始大小，较大的值会按需扩容
+     */
+    private DataSize bufferSize = DataSize.ofKilobytes(64);
+
+    /**
+     * 缓冲池最多保留的缓冲区个数
+     */
+    private int poolSize = 64;
+
+    /**
+     * sm4 解码器使用的密钥，16 字节。未配置时 sm4 解码器不可用
+     */
+    private String sm4Key;
+}
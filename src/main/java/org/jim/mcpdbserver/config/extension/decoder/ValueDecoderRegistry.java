@@ -0,0 +1,168 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jim.mcpdbserver.config.extension.Extension;
+import org.jim.mcpdbserver.config.extension.ExtensionConfig;
+import org.jim.mcpdbserver.config.extension.ExtensionSandbox;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 原生值解码器注册表，按扩展配置的解码器链解码字符串
+ * 内置解码器来自 Spring 容器，第三方解码器通过 {@link ServiceLoader} 加载，同名时内置解码器优先
+ * @author James Smith
+ */
+@Component
+@Slf4j
+public class ValueDecoderRegistry {
+
+    private static final String ERROR_KEY = "error";
+
+    private final Map<String, ValueDecoder> decoders = new LinkedHashMap<>();
+    private final Map<String, List<ValueDecoder>> chains = new ConcurrentHashMap<>();
+    private final DecodeBufferPool bufferPool;
+    private final ExtensionConfig extensionConfig;
+
+    public ValueDecoderRegistry(List<ValueDecoder> builtInDecoders, DecodeBufferPool bufferPool, ExtensionConfig extensionConfig) {
+        this.bufferPool = bufferPool;
+        this.extensionConfig = extensionConfig;
+        builtInDecoders.forEach(this::register);
+        ServiceLoader.load(ValueDecoder.class, ValueDecoder.class.getClassLoader()).forEach(this::register);
+        log.info("Registered value decoders: {}", decoders.keySet());
+    }
+
+    /**
+     * 启动时检查扩展配置的解码器链，尽早发现拼写错误
+     */
+    @PostConstruct
+    public void init() {
+        List<Extension> extensions = extensionConfig.getExtensions();
+        if (CollectionUtils.isEmpty(extensions)) {
+            return;
+        }
+        for (Extension extension : extensions) {
+            if (StringUtils.isBlank(extension.getDecoder())) {
+                continue;
+            }
+            try {
+                resolveChain(extension.getDecoder());
+                log.info("Extension [{}] uses native decoders: {}", extension.getName(), extension.getDecoder());
+            } catch (IllegalArgumentException e) {
+                log.warn("Extension [{}] has an invalid decoder chain: {}", extension.getName(), e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, ValueDecoder> getDecoders() {
+        return Collections.unmodifiableMap(decoders);
+    }
+
+    /**
+     * 按解码器链解码一个值，输入按 UTF-8 转为字节，最终输出按 UTF-8 转为字符串
+     *
+     * @param chain 逗号分隔的解码器名称，例如 base64,zstd
+     * @param input 输入字符串
+     * @return 解码结果，输入为空时返回null
+     */
+    public String decode(String chain, String input) {
+        if (StringUtils.isEmpty(input)) {
+            return null;
+        }
+        List<ValueDecoder> steps = resolveChain(chain);
+        ByteBuffer current = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        DecodeBuffer previous = null;
+        try {
+            for (ValueDecoder step : steps) {
+                DecodeBuffer output = bufferPool.acquire();
+                try {
+                    step.decode(current, output);
+                } catch (CancellationException e) {
+                    output.close();
+                    throw e;
+                } catch (Exception e) {
+                    output.close();
+                    throw new IllegalStateException(step.name() + " decode failed: " + e.getMessage(), e);
+                }
+                if (previous != null) {
+                    previous.close();
+                }
+                previous = output;
+                current = output.toByteBuffer();
+            }
+            return previous.toString(StandardCharsets.UTF_8);
+        } finally {
+            if (previous != null) {
+                previous.close();
+            }
+        }
+    }
+
+    /**
+     * 批量解码，返回与输入等长的结果列表，单个值解码失败时对应位置为包含 error 字段的Map，不影响其他值；
+     * 沙箱取消调用时整批失败，不会把剩余的值都变成错误结果
+     */
+    public List<Object> decodeAll(String chain, List<String> inputs) {
+        resolveChain(chain);
+        List<Object> results = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            ExtensionSandbox.checkCancelled();
+            try {
+                results.add(decode(chain, input));
+            } catch (CancellationException e) {
+                throw e;
+            } catch (IllegalStateException e) {
+                results.add(Map.of(ERROR_KEY, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 是否为 {@link #decodeAll} 中单个值解码失败时的错误结果
+     */
+    public static boolean isError(Object result) {
+        return result instanceof Map<?, ?> map && map.size() == 1 && map.containsKey(ERROR_KEY);
+    }
+
+    private List<ValueDecoder> resolveChain(String chain) {
+        return chains.computeIfAbsent(chain, key -> {
+            List<ValueDecoder> steps = Arrays.stream(key.split(","))
+                    .map(String::trim)
+                    .filter(StringUtils::isNotEmpty)
+                    .map(name -> {
+                        ValueDecoder decoder = decoders.get(name.toLowerCase(Locale.ROOT));
+                        if (decoder == null) {
+                            throw new IllegalArgumentException("Unknown decoder: " + name + ", available decoders: " + decoders.keySet());
+                        }
+                        return decoder;
+                    })
+                    .toList();
+            if (steps.isEmpty()) {
+                throw new IllegalArgumentException("Empty decoder chain");
+            }
+            return steps;
+        });
+    }
+
+    private void register(ValueDecoder decoder) {
+        String name = decoder.name().toLowerCase(Locale.ROOT);
+        if (decoders.putIfAbsent(name, decoder) != null) {
+            log.warn("Duplicate value decoder [{}] from {} ignored", name, decoder.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * zstd 流式解压
+ * 不使用帧头中声明的原始大小分配数组，按实际解压出的数据写入，输出受 max-output-bytes 限制
+ * @author James Smith
+ */
+@Component
+public class ZstdValueDecoder implements ValueDecoder {
+
+    @Override
+    public String name() {
+        return "zstd";
+    }
+
+    @Override
+    public String description() {
+        return "zstd 流式解压，输出受 max-output-bytes 限制";
+    }
+
+    @Override
+    public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+        try (InputStream in = new ZstdInputStreamNoFinalizer(new ByteBufferInputStream(input))) {
+            output.readFrom(in);
+        }
+    }
+}
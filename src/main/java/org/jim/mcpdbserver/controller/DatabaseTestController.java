@@ -3,7 +3,10 @@ package org.jim.mcpdbserver.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.jim.mcpdbserver.config.extension.Extension;
+import org.jim.mcpdbserver.config.extension.ExtensionMetrics;
+import org.jim.mcpdbserver.config.extension.GroovyService;
 import org.jim.mcpdbserver.mcp.DatabaseOperationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -30,16 +33,19 @@ import java.util.Map;
 public class DatabaseTestController {
 
     private final DatabaseOperationService databaseOperationService;
+    private final GroovyService groovyService;
 
     /**
      * 测试在默认数据源上执行SQL
-     * GET /api/test/database/default?sql=SELECT 1
+     * GET /api/test/database/default?sql=SELECT 1&maxRows=10&format=csv
      */
     @GetMapping("/default")
-    public ResponseEntity<JsonNode> testExecuteSqlOnDefault(@RequestParam String sql) {
+    public ResponseEntity<JsonNode> testExecuteSqlOnDefault(@RequestParam String sql,
+                                                            @RequestParam(required = false) Integer maxRows,
+                                                            @RequestParam(required = false) String format) {
         log.info("Testing executeSqlOnDefault with SQL: {}", sql);
         try {
-            JsonNode result = databaseOperationService.executeSqlOnDefault(sql);
+            JsonNode result = databaseOperationService.executeSqlOnDefault(sql, maxRows, format);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             log.error("Error testing executeSqlOnDefault: {}", e.getMessage(), e);
@@ -50,14 +56,15 @@ public class DatabaseTestController {
     /**
      * 测试在所有数据源上执行SQL
      * POST /api/test/database/all
-     * Body: {"sql": "SELECT 1"}
+     * Body: {"sql": "SELECT 1", "maxRows": "10", "format": "csv"}
      */
     @PostMapping("/all")
     public ResponseEntity<Map<String, Object>> testExecuteSqlOnAll(@RequestBody Map<String, String> request) {
         String sql = request.get("sql");
         log.info("Testing executeSql on all datasources with SQL: {}", sql);
         try {
-            Map<String, Object> result = databaseOperationService.executeSql(sql);
+            Map<String, Object> result = databaseOperationService.executeSql(sql, NumberUtils.createInteger(request.get("maxRows")),
+                    request.get("format"));
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             log.error("Error testing executeSql on all datasources: {}", e.getMessage(), e);
@@ -68,7 +75,7 @@ public class DatabaseTestController {
     /**
      * 测试在指定数据源上执行SQL
      * POST /api/test/database/datasource/{dataSourceName}
-     * Body: {"sql": "SELECT 1"}
+     * Body: {"sql": "SELECT 1", "maxRows": "10", "format": "csv"}
      */
     @PostMapping("/datasource/{dataSourceName}")
     public ResponseEntity<Map<String, Object>> testExecuteSqlWithDataSource(
@@ -77,7 +84,8 @@ public class DatabaseTestController {
         String sql = request.get("sql");
         log.info("Testing executeSqlWithDataSource on [{}] with SQL: {}", dataSourceName, sql);
         try {
-            Map<String, Object> result = databaseOperationService.executeSqlWithDataSource(dataSourceName, sql);
+            Map<String, Object> result = databaseOperationService.executeSqlWithDataSource(dataSourceName, sql,
+                    NumberUtils.createInteger(request.get("maxRows")), request.get("format"));
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             log.error("Error testing executeSqlWithDataSource: {}", e.getMessage(), e);
@@ -85,6 +93,27 @@ public class DatabaseTestController {
         }
     }
 
+    /**
+     * 测试执行SQL并用扩展处理整列结果
+     * POST /api/test/database/transform/{extensionName}
+     * Body: {"dataSourceName": "h2", "sql": "SELECT 1", "columns": "phone,id_card", "maxRows": "10", "format": "csv"}
+     */
+    @PostMapping("/transform/{extensionName}")
+    public ResponseEntity<Map<String, Object>> testExecuteSqlWithTransform(
+            @PathVariable String extensionName,
+            @RequestBody Map<String, String> request) {
+        String sql = request.get("sql");
+        log.info("Testing executeSqlWithTransform with extension [{}] and SQL: {}", extensionName, sql);
+        try {
+            Map<String, Object> result = databaseOperationService.executeSqlWithTransform(request.get("dataSourceName"), sql,
+                    request.get("columns"), extensionName, NumberUtils.createInteger(request.get("maxRows")), request.get("format"));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("Error testing executeSqlWithTransform: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 获取所有数据源信息
      * GET /api/test/database/datasources
@@ -134,6 +163,34 @@ public class DatabaseTestController {
         }
     }
 
+    /**
+     * 获取扩展统计（执行次数、超时、结果缓存命中率等）
+     * GET /api/test/database/extensions/metrics
+     */
+    @GetMapping("/extensions/metrics")
+    public ResponseEntity<Map<String, ExtensionMetrics>> testGetExtensionMetrics() {
+        return ResponseEntity.ok(groovyService.getExtensionMetrics());
+    }
+
+    /**
+     * 获取服务运行指标（工具和数据源的耗时分布、连接池状态等）
+     * GET /api/test/database/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> testGetServerStats() {
+        return ResponseEntity.ok(databaseOperationService.getServerStats());
+    }
+
+    /**
+     * 获取慢查询统计
+     * GET /api/test/database/slow-queries?dataSourceName=h2&limit=10
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> testGetSlowQueries(@RequestParam(required = false) String dataSourceName,
+                                                                  @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(databaseOperationService.getSlowQueries(dataSourceName, limit));
+    }
+
     /**
      * 测试执行Groovy脚本
      * POST /api/test/database/groovy/{extensionName}
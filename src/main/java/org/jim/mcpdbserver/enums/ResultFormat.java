@@ -0,0 +1,64 @@
+package org.jim.mcpdbserver.enums;
+
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * 查询结果的输出格式
+ * @author yangxin
+ */
+public enum ResultFormat {
+
+    /**
+     * JSON 对象数组，保留值的类型，token 消耗最多
+     */
+    JSON("json"),
+
+    /**
+     * 逗号分隔，RFC 4180 转义
+     */
+    CSV("csv"),
+
+    /**
+     * 制表符分隔，单元格中的制表符和换行转义为 \t、\n
+     */
+    TSV("tsv"),
+
+    /**
+     * 列宽对齐的 Markdown 表格
+     */
+    MARKDOWN("markdown");
+
+    private final String value;
+
+    ResultFormat(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 根据名称获取输出格式，不区分大小写，md 等同于 markdown
+     * @param value 格式名称
+     * @return 输出格式，名称为空时返回null
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static ResultFormat fromValue(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase();
+        if ("md".equals(normalized)) {
+            return MARKDOWN;
+        }
+        return Arrays.stream(values())
+                .filter(format -> format.value.equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported result format [" + value + "], expected one of: "
+                        + Arrays.stream(values()).map(ResultFormat::getValue).collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,76 @@
+package org.jim.mcpdbserver.format;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 把单元格的值转换为文本，超长时截断；每次渲染创建一个实例，统计被截断的单元格数
+ * @author yangxin
+ */
+public final class CellFormatter {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final char ELLIPSIS = '…';
+
+    private final int maxChars;
+    private int truncated;
+
+    CellFormatter(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * @param value 单元格的值，数据库 NULL 在结果中已经是字符串 "NULL"
+     * @return 单元格文本
+     */
+    public String format(Object value) {
+        return truncate(toText(value));
+    }
+
+    public int getTruncated() {
+        return truncated;
+    }
+
+    private static String toText(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof String text) {
+            return text;
+        }
+        if (value instanceof byte[] bytes) {
+            // 与 JSON 输出一致，二进制按 Base64 输出
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        if (value instanceof JsonNode node) {
+            return node.isTextual() ? node.textValue() : node.toString();
+        }
+        if (value instanceof Map<?, ?> || value instanceof Collection<?>) {
+            try {
+                return OBJECT_MAPPER.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                return String.valueOf(value);
+            }
+        }
+        return String.valueOf(value);
+    }
+
+    private String truncate(String text) {
+        if (maxChars <= 0 || text.length() <= maxChars) {
+            return text;
+        }
+        int end = maxChars - 1;
+        // 不在代理对中间截断
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        truncated++;
+        return text.substring(0, end) + ELLIPSIS;
+    }
+}
@@ -0,0 +1,106 @@
+package org.jim.mcpdbserver.format;
+
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分隔符表格渲染器：CSV 按 RFC 4180 给包含分隔符、引号或换行的单元格加引号；
+ * TSV 不加引号，单元格中的反斜杠、制表符和换行转义为 \\、\t、\n
+ * @author yangxin
+ */
+public abstract class DelimitedTableRenderer implements TableRenderer {
+
+    private final ResultFormat format;
+
+    protected DelimitedTableRenderer(ResultFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public ResultFormat format() {
+        return format;
+    }
+
+    @Override
+    public void render(List<String> columns, List<? extends Map<?, ?>> rows, CellFormatter cells, StringBuilder out) {
+        for (int i = 0; i < columns.size(); i++) {
+            appendSeparator(out, i);
+            appendCell(out, columns.get(i));
+        }
+        out.append('\n');
+        for (Map<?, ?> row : rows) {
+            for (int i = 0; i < columns.size(); i++) {
+                appendSeparator(out, i);
+                appendCell(out, cells.format(row.get(columns.get(i))));
+            }
+            out.append('\n');
+        }
+    }
+
+    private void appendSeparator(StringBuilder out, int column) {
+        if (column > 0) {
+            out.append(format == ResultFormat.CSV ? ',' : '\t');
+        }
+    }
+
+    private void appendCell(StringBuilder out, String text) {
+        if (format == ResultFormat.CSV) {
+            appendCsv(out, text);
+        } else {
+            appendTsv(out, text);
+        }
+    }
+
+    private static void appendCsv(StringBuilder out, String text) {
+        boolean quote = !text.isEmpty() && (text.charAt(0) == ' ' || text.charAt(text.length() - 1) == ' ');
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendTsv(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    @Component
+    public static class Csv extends DelimitedTableRenderer {
+
+        public Csv() {
+            super(ResultFormat.CSV);
+        }
+    }
+
+    @Component
+    public static class Tsv extends DelimitedTableRenderer {
+
+        public Tsv() {
+            super(ResultFormat.TSV);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.jim.mcpdbserver.format;
+
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Markdown 表格渲染器，按每列最长的单元格对齐
+ * 对齐需要先知道列宽，单元格文本先转换一遍保存下来，单元格已按 max-cell-chars 截断，列宽有上限
+ * @author yangxin
+ */
+@Component
+public class MarkdownTableRenderer implements TableRenderer {
+
+    @Override
+    public ResultFormat format() {
+        return ResultFormat.MARKDOWN;
+    }
+
+    @Override
+    public void render(List<String> columns, List<? extends Map<?, ?>> rows, CellFormatter cells, StringBuilder out) {
+        int columnCount = columns.size();
+        String[][] texts = new String[rows.size()][columnCount];
+        int[] widths = new int[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            widths[c] = Math.max(3, width(escape(columns.get(c))));
+        }
+        for (int r = 0; r < rows.size(); r++) {
+            Map<?, ?> row = rows.get(r);
+            for (int c = 0; c < columnCount; c++) {
+                String text = escape(cells.format(row.get(columns.get(c))));
+                texts[r][c] = text;
+                widths[c] = Math.max(widths[c], width(text));
+            }
+        }
+
+        out.append('|');
+        for (int c = 0; c < columnCount; c++) {
+            appendPadded(out, escape(columns.get(c)), widths[c]);
+        }
+        out.append("\n|");
+        for (int c = 0; c < columnCount; c++) {
+            out.append(' ').append("-".repeat(widths[c])).append(" |");
+        }
+        out.append('\n');
+        for (String[] row : texts) {
+            out.append('|');
+            for (int c = 0; c < columnCount; c++) {
+                appendPadded(out, row[c], widths[c]);
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void appendPadded(StringBuilder out, String text, int width) {
+        out.append(' ').append(text);
+        for (int i = width(text); i < width; i++) {
+            out.append(' ');
+        }
+        out.append(" |");
+    }
+
+    /**
+     * 竖线会被当作列分隔符，换行会结束表格行
+     */
+    private static String escape(String text) {
+        boolean plain = true;
+        for (int i = 0; i < text.length() && plain; i++) {
+            char c = text.charAt(i);
+            plain = c != '|' && c != '\n' && c != '\r';
+        }
+        if (plain) {
+            return text;
+        }
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '|' -> escaped.append("\\|");
+                case '\n' -> escaped.append("<br>");
+                case '\r' -> {
+                }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static int width(String text) {
+        return text.codePointCount(0, text.length());
+    }
+}
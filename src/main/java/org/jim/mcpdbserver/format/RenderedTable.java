@@ -0,0 +1,40 @@
+package org.jim.mcpdbserver.format;
+
+import org.jim.mcpdbserver.enums.ResultFormat;
+
+/**
+ * 渲染为文本的查询结果，工具返回给模型时由 {@link TabularResultConverter} 直接输出文本，不再序列化为 JSON
+ * @param format 输出格式
+ * @param rows 行数
+ * @param columns 列数
+ * @param truncatedCells 被截断的单元格数
+ * @param bytes 表格文本的 UTF-8 字节数
+ * @param estimatedTokens 表格文本估算的 token 数
+ * @param warning 代价检查的警告，没有时为null
+ * @param rowLimitApplied 结果被自动加上的行数限制截断时为该限制，否则为null
+ * @param text 表格文本
+ * @param summary 附加在表格后的统计信息，关闭时为null
+ * @author yangxin
+ */
+public record RenderedTable(ResultFormat format, int rows, int columns, int truncatedCells, long bytes,
+                            long estimatedTokens, String warning, Integer rowLimitApplied, String text,
+                            String summary) {
+
+    /**
+     * @return 返回给模型的完整文本
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder(text.length() + 128);
+        if (warning != null) {
+            out.append("warning: ").append(warning).append('\n');
+        }
+        if (rowLimitApplied != null) {
+            out.append("row_limit_applied: ").append(rowLimitApplied).append(", truncated: true\n");
+        }
+        out.append(text);
+        if (summary != null) {
+            out.append(summary).append('\n');
+        }
+        return out.toString();
+    }
+}
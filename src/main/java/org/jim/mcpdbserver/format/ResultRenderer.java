@@ -0,0 +1,130 @@
+package org.jim.mcpdbserver.format;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.SqlResultFormatConfig;
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询结果渲染服务
+ * 按工具调用的 format 参数、数据源的 result-format 配置、sql.result-format.default-format 的顺序确定输出格式，
+ * 非 JSON 格式时把表格型结果渲染为文本，更新计数、错误信息等非表格结果保持不变
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class ResultRenderer {
+
+    private final SqlResultFormatConfig config;
+    private final Map<ResultFormat, TableRenderer> renderers = new EnumMap<>(ResultFormat.class);
+
+    public ResultRenderer(SqlResultFormatConfig config, List<TableRenderer> renderers) {
+        this.config = config;
+        renderers.forEach(renderer -> this.renderers.put(renderer.format(), renderer));
+    }
+
+    /**
+     * 确定输出格式
+     * @param requested 工具调用指定的格式，未指定时为null
+     * @param dataSourceFormat 数据源配置的格式，未配置时为null
+     * @return 输出格式
+     */
+    public ResultFormat resolve(ResultFormat requested, ResultFormat dataSourceFormat) {
+        if (requested != null) {
+            return requested;
+        }
+        return dataSourceFormat != null ? dataSourceFormat : config.getDefaultFormat();
+    }
+
+    /**
+     * 按输出格式渲染查询结果
+     * @param data 查询结果：行列表、更新计数、错误信息，或代价检查给出警告、结果被行数限制截断时
+     *             包含 result 以及 warning 或 row_limit_applied 字段的Map
+     * @param format 输出格式
+     * @return 表格型结果渲染后的 {@link RenderedTable}，其他结果原样返回
+     */
+    public Object render(Object data, ResultFormat format) {
+        TableRenderer renderer = format == null ? null : renderers.get(format);
+        if (renderer == null) {
+            return data;
+        }
+        String warning = null;
+        Integer rowLimitApplied = null;
+        Object rows = data;
+        if (data instanceof Map<?, ?> annotated && annotated.containsKey("result")
+                && (annotated.containsKey("warning") || annotated.containsKey("row_limit_applied"))) {
+            warning = annotated.containsKey("warning") ? String.valueOf(annotated.get("warning")) : null;
+            rowLimitApplied = annotated.get("row_limit_applied") instanceof Integer limit ? limit : null;
+            rows = annotated.get("result");
+        }
+        if (!(rows instanceof List<?> list) || !list.stream().allMatch(row -> row instanceof Map<?, ?>)) {
+            return data;
+        }
+        @SuppressWarnings("unchecked")
+        List<? extends Map<?, ?>> table = (List<? extends Map<?, ?>>) list;
+        return render(table, renderer, warning, rowLimitApplied);
+    }
+
+    private RenderedTable render(List<? extends Map<?, ?>> rows, TableRenderer renderer, String warning, Integer rowLimitApplied) {
+        List<String> columns = columns(rows);
+        CellFormatter cells = new CellFormatter(config.getMaxCellChars());
+        StringBuilder out = new StringBuilder(64 + rows.size() * Math.max(1, columns.size()) * 16);
+        if (rows.isEmpty()) {
+            out.append("(no rows)\n");
+        } else {
+            renderer.render(columns, rows, cells, out);
+        }
+        String text = out.toString();
+
+        long bytes = 0;
+        long asciiChars = 0;
+        long otherCodePoints = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+                asciiChars++;
+            } else if (c < 0x800) {
+                bytes += 2;
+                otherCodePoints++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                otherCodePoints++;
+                i++;
+            } else {
+                bytes += 3;
+                otherCodePoints++;
+            }
+        }
+        // 粗略估算：英文、数字和符号约 4 个字符一个 token，中文等非 ASCII 字符约一个字符一个 token
+        long estimatedTokens = (asciiChars + 3) / 4 + otherCodePoints;
+
+        String summary = null;
+        if (config.isIncludeSummary()) {
+            summary = "-- %d rows, %d columns, %s, %d bytes, ~%d tokens".formatted(rows.size(), columns.size(),
+                    renderer.format().getValue(), bytes, estimatedTokens)
+                    + (cells.getTruncated() > 0 ? ", %d cells truncated to %d chars".formatted(cells.getTruncated(), config.getMaxCellChars()) : "")
+                    + (rowLimitApplied != null ? ", truncated at row limit %d".formatted(rowLimitApplied) : "");
+        }
+        log.debug("Rendered {} rows as {}: {} bytes, ~{} tokens", rows.size(), renderer.format().getValue(), bytes, estimatedTokens);
+        return new RenderedTable(renderer.format(), rows.size(), columns.size(), cells.getTruncated(), bytes, estimatedTokens,
+                warning, rowLimitApplied, text, summary);
+    }
+
+    /**
+     * 列名取自第一行，查询结果的每一行包含相同的列
+     */
+    private static List<String> columns(List<? extends Map<?, ?>> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<String> columns = new ArrayList<>();
+        rows.get(0).keySet().forEach(column -> columns.add(String.valueOf(column)));
+        return columns;
+    }
+}
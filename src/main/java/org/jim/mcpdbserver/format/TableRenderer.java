@@ -0,0 +1,27 @@
+package org.jim.mcpdbserver.format;
+
+import org.jim.mcpdbserver.enums.ResultFormat;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表格型查询结果的文本渲染器，实现类注册为 Spring Bean 后按 {@link #format()} 选用
+ * @author yangxin
+ */
+public interface TableRenderer {
+
+    /**
+     * @return 渲染器对应的输出格式
+     */
+    ResultFormat format();
+
+    /**
+     * 按行把查询结果写入输出，不生成中间的 JSON 结构
+     * @param columns 列名，按查询结果的列顺序
+     * @param rows 查询结果的行
+     * @param cells 单元格文本转换
+     * @param out 输出
+     */
+    void render(List<String> columns, List<? extends Map<?, ?>> rows, CellFormatter cells, StringBuilder out);
+}
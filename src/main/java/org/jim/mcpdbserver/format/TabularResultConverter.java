@@ -0,0 +1,49 @@
+package org.jim.mcpdbserver.format;
+
+import com.fasterxml.jackson.databind.node.POJONode;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * SQL 工具的返回值转换器：渲染为文本的结果直接输出表格文本，其他结果仍按默认方式序列化为 JSON
+ * 多个数据源的结果按 [数据源名称] 分段输出
+ * 由 Spring AI 通过无参构造器创建，不是 Spring Bean
+ * @author yangxin
+ */
+public class TabularResultConverter implements ToolCallResultConverter {
+
+    private final DefaultToolCallResultConverter jsonConverter = new DefaultToolCallResultConverter();
+
+    @Override
+    public String convert(Object result, Type returnType) {
+        RenderedTable table = asRenderedTable(result);
+        if (table != null) {
+            return table.toText();
+        }
+        if (!(result instanceof Map<?, ?> map) || map.values().stream().noneMatch(value -> asRenderedTable(value) != null)) {
+            return jsonConverter.convert(result, returnType);
+        }
+
+        StringBuilder out = new StringBuilder();
+        map.forEach((name, value) -> {
+            out.append('[').append(name).append("]\n");
+            RenderedTable rendered = asRenderedTable(value);
+            out.append(rendered != null ? rendered.toText() : jsonConverter.convert(value, null) + "\n");
+        });
+        return out.toString();
+    }
+
+    private static RenderedTable asRenderedTable(Object value) {
+        if (value instanceof RenderedTable table) {
+            return table;
+        }
+        // executeSqlOnDefault 的返回类型是 JsonNode，渲染结果包装在 POJONode 中
+        if (value instanceof POJONode node && node.getPojo() instanceof RenderedTable table) {
+            return table;
+        }
+        return null;
+    }
+}
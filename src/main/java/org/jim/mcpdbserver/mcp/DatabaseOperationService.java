@@ -4,14 +4,31 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jim.mcpdbserver.audit.AuditContext;
+import org.jim.mcpdbserver.audit.AuditLog;
 import org.jim.mcpdbserver.config.extension.Extension;
+import org.jim.mcpdbserver.config.extension.ExtensionBatchConfig;
 import org.jim.mcpdbserver.config.extension.GroovyService;
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.jim.mcpdbserver.format.RenderedTable;
+import org.jim.mcpdbserver.format.ResultRenderer;
+import org.jim.mcpdbserver.format.TabularResultConverter;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.jim.mcpdbserver.metrics.jfr.FanOutEvent;
+import org.jim.mcpdbserver.service.DataSourceHealthService;
+import org.jim.mcpdbserver.service.DataSourceRegistry;
 import org.jim.mcpdbserver.service.DataSourceService;
 import org.jim.mcpdbserver.service.DatabaseAdapterService;
 import org.jim.mcpdbserver.service.JdbcExecutor;
+import org.jim.mcpdbserver.service.QueryCostGuard;
+import org.jim.mcpdbserver.service.SlowQueryLog;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.sql.RowLimitRewriter;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
 import org.jim.mcpdbserver.validator.SqlSecurityValidator;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -19,10 +36,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -44,35 +66,65 @@ public class DatabaseOperationService {
     private final SqlSecurityValidator sqlSecurityValidator;
     private final JdbcExecutor jdbcExecutor;
     private final DatabaseAdapterService databaseAdapterService;
+    private final DataSourceHealthService dataSourceHealthService;
+    private final SqlStatementParser sqlStatementParser;
+    private final RowLimitRewriter rowLimitRewriter;
+    private final QueryCostGuard queryCostGuard;
+    private final ResultRenderer resultRenderer;
+    private final ServerMetrics serverMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final AuditLog auditLog;
 
-    // 非CPU密集型任务，尝试使用虚拟线程
-    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 非CPU密集型任务，尝试使用虚拟线程；每次调用共用，服务关闭时才关闭
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Resource
     private GroovyService groovyService;
 
+    @Resource
+    private ExtensionBatchConfig extensionBatchConfig;
+
     public DatabaseOperationService(DataSourceService dataSourceService, SqlSecurityValidator sqlSecurityValidator,
-                                    JdbcExecutor jdbcExecutor, DatabaseAdapterService databaseAdapterService) {
+                                    JdbcExecutor jdbcExecutor, DatabaseAdapterService databaseAdapterService,
+                                    DataSourceHealthService dataSourceHealthService, SqlStatementParser sqlStatementParser,
+                                    RowLimitRewriter rowLimitRewriter, QueryCostGuard queryCostGuard,
+                                    ResultRenderer resultRenderer, ServerMetrics serverMetrics, SlowQueryLog slowQueryLog,
+                                    AuditLog auditLog) {
         this.dataSourceService = dataSourceService;
         this.sqlSecurityValidator = sqlSecurityValidator;
         this.jdbcExecutor = jdbcExecutor;
         this.databaseAdapterService = databaseAdapterService;
+        this.dataSourceHealthService = dataSourceHealthService;
+        this.sqlStatementParser = sqlStatementParser;
+        this.rowLimitRewriter = rowLimitRewriter;
+        this.queryCostGuard = queryCostGuard;
+        this.resultRenderer = resultRenderer;
+        this.serverMetrics = serverMetrics;
+        this.slowQueryLog = slowQueryLog;
+        this.auditLog = auditLog;
         this.objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         log.info("DatabaseOperationService initialized with DataSourceService, SqlSecurityValidator and JdbcExecutor");
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * 执行任意SQL语句，不做限制，直接透传数据库服务器的返回值。该工具会查询所有可用的数据源，并执行相同的SQL查询。如果考虑性能，更建议使用executeSqlWithDataSource
      * 在所有可用的数据源上执行相同的SQL查询
-     * 使用异步多线程方式执行，最多5个线程同时执行
+     * 每个数据源在虚拟线程上并行执行，熔断打开的数据源直接返回不可用，不等待连接超时
      * <p>
      * 重要提示：返回的查询结果可能包含加密、编码或其他需要处理的数据字段。如果发现数据看起来像是加密的、编码的或需要特殊处理的（如Base64、十六进制字符串、密文等），
      * 请主动调用getAllExtensions()查看可用的数据处理扩展工具，然后使用executeGroovyScript()调用相应的解密、解码或数据转换扩展来处理这些字段。
      * 常见需要处理的数据类型包括：加密字段、Base64编码、URL编码、JSON字符串、时间戳转换等。
      *
      * @param sql 要执行的SQL语句，支持各种数据库的SQL方言
+     * @param maxRows 可选，没有行数限制的只读查询最多返回的行数，只能收紧配置的上限
+     * @param format 可选，输出格式 json/csv/tsv/markdown，未指定时使用数据源的 result-format 或全局默认格式
      * @return 所有成功的数据源的查询结果，格式为 {"datasourceName": result, ...}
      */
     @Tool(description = """
@@ -85,84 +137,112 @@ public class DatabaseOperationService {
             - Format: Map<String, Object> with datasource names as keys and query results as values
             - Success: Each datasource's result under its name
             - Failure: Error message for failed datasources
+            - Unhealthy datasources (open circuit breaker) are reported as unavailable immediately
+            - With format=csv/tsv/markdown: one [datasourceName] section per datasource with the rows as text,
+              followed by a summary line (rows, columns, bytes, estimated tokens); long cells end with "…"
             
             Data Processing:
             - If results contain encrypted/encoded data (Base64, hex, encrypted fields):
               1. Call getAllExtensions() to discover processing tools
               2. Use executeGroovyScript() to decrypt/decode the data
+              3. To process a whole column of many rows, use executeSqlWithTransform() instead
+            
+            Read Replicas:
+            - Read-only queries may be served by a replica of the datasource (see replicas in getDataSourcesInfo())
+            - Add the comment /*+ PRIMARY */ to the SQL when the read must see the latest writes
+            
+            Row Limit:
+            - Read queries without LIMIT/TOP/FETCH FIRST/ROWNUM are capped automatically (see max_rows in getDataSourcesInfo())
+            - Write an explicit limit in the SQL when more rows are really needed
+            - When the automatic cap cuts the result, it is returned as {"row_limit_applied": N, "truncated": true, "result": ...}
+              (text formats add a "row_limit_applied" line); a result without this marker is complete
+            - If the cost guard is enabled, queries with a very large estimated scan may be rejected, limited,
+              or return {"warning": "...", "result": ...}; narrow the WHERE conditions in that case
             
             Performance Note:
             - For single datasource operations, consider executeSqlWithDataSource() for better performance
-            """)
+            """, resultConverter = TabularResultConverter.class)
     public Map<String, Object> executeSql(@ToolParam(description = """
             Valid SQL statement compatible with target database dialect
             Examples:
             - MySQL/PostgreSQL: SELECT id, name FROM users WHERE status = "active"
             - SQL Server: SELECT id, name FROM users WHERE status = 'active'
             - Oracle: SELECT id, name FROM users WHERE status = 'active' AND ROWNUM <= 10
-            """) String sql) {
-        log.info("Executing SQL on all available datasources: {}", sql);
+            """) String sql,
+            @ToolParam(required = false, description = """
+                    Optional row cap for read queries without an explicit limit, e.g. 10 when only a sample is needed
+                    Can only lower the configured limit
+                    """) Integer maxRows,
+            @ToolParam(required = false, description = """
+                    Optional output format: json (default), csv, tsv or markdown
+                    csv/tsv return the rows as plain text and use far fewer tokens for wide or long results
+                    """) String format) {
+        log.debug("Executing SQL on all available datasources: {}", sql);
+        ParsedStatement statement = sqlStatementParser.parse(sql);
 
         // SQL安全验证
-        Map<String, Object> errorResult = validateSqlAndGetErrorResult(sql);
+        Map<String, Object> errorResult = validateSqlAndGetErrorResult("executeSql", statement);
         if (errorResult != null) {
             return errorResult;
         }
 
+        ResultFormat resultFormat;
+        try {
+            resultFormat = ResultFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            return Map.of("error", e.getMessage());
+        }
+
         // 获取所有可用的数据源名称
         List<String> dataSourceNames = dataSourceService.getDataSourceNames();
-        log.info("Found {} available datasources", dataSourceNames.size());
+        log.debug("Found {} available datasources", dataSourceNames.size());
 
         // 存储每个数据源的查询结果，使用线程安全的ConcurrentHashMap
         Map<String, Object> successResults = new ConcurrentHashMap<>();
+        FanOutEvent event = new FanOutEvent();
+        event.begin();
 
         try {
-            // 等待所有任务完成
+            // 等待所有任务完成，熔断打开的数据源立即返回不可用
             CompletableFuture<Void> allFutures = CompletableFuture.allOf(dataSourceNames.stream()
-                    .map(dsName -> CompletableFuture.runAsync(() -> {
-                        log.info("Executing SQL on datasource [{}]", dsName);
-
-                        // 获取指定的数据源
-                        DataSource targetDataSource = dataSourceService.getDataSource(dsName);
-                        if (targetDataSource == null) {
-                            log.warn("Datasource [{}] not found, skipping", dsName);
-                            return;
-                        }
-
-                        // 使用JdbcExecutor执行SQL
-                        JdbcExecutor.SqlResult result = jdbcExecutor.executeSql(targetDataSource, sql);
-                        if (result.success()) {
-                            successResults.put(dsName, result.data());
-                            log.info("Query executed successfully on datasource [{}]", dsName);
-                            return;
-                        }
-
-                        // 将错误信息放入结果中
-                        Map<String, String> errorInfo = new HashMap<>();
-                        errorInfo.put("error", result.errorMessage());
-                        successResults.put(dsName, errorInfo);
-                        log.error("SQL execution error on datasource [{}]: {}", dsName, result.errorMessage());
-                    }, executor)).toArray(CompletableFuture[]::new)
+                    .map(dsName -> CompletableFuture.runAsync(AuditContext.wrap(() -> {
+                        log.debug("Executing SQL on datasource [{}]", dsName);
+                        successResults.put(dsName, renderResult(dsName,
+                                toResultData(dsName, executeOnDataSource(dsName, statement, maxRows)), resultFormat));
+                    }), executor).exceptionally(e -> {
+                        // 单个数据源执行失败时报告实际错误，不影响其他数据源
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("Error executing SQL on datasource [{}]: {}", dsName, cause.getMessage(), cause);
+                        successResults.put(dsName, Map.of("error", "Datasource [" + dsName + "] failed: " + cause.getMessage()));
+                        return null;
+                    })).toArray(CompletableFuture[]::new)
             );
 
             // 设置超时时间，避免长时间等待
             allFutures.get(60, TimeUnit.SECONDS);
 
-        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+        } catch (ExecutionException | TimeoutException e) {
             log.error("Error executing SQL on all datasources: {}", e.getMessage(), e);
-        } finally {
-            // 关闭线程池
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-                log.error("Thread pool termination interrupted: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while executing SQL on all datasources: {}", e.getMessage(), e);
+        }
+
+        // 超时未返回的数据源也在结果中说明，避免被误认为没有数据
+        int stragglers = 0;
+        for (String dsName : dataSourceNames) {
+            if (!successResults.containsKey(dsName)) {
+                successResults.put(dsName, Map.of("error", "Datasource [" + dsName + "] did not respond within 60 seconds"));
+                stragglers++;
             }
         }
+        serverMetrics.recordFanOut(dataSourceNames.size(), stragglers);
+        if (event.shouldCommit()) {
+            event.fingerprint = statement.fingerprint();
+            event.width = dataSourceNames.size();
+            event.stragglers = stragglers;
+            event.commit();
+        }
 
         return successResults;
     }
@@ -176,6 +256,8 @@ public class DatabaseOperationService {
      * 常见需要处理的数据类型包括：加密字段、Base64编码、URL编码、JSON字符串、时间戳转换等。
      *
      * @param sql 要执行的SQL语句，需要兼容目标数据库的SQL方言
+     * @param maxRows 可选，没有行数限制的只读查询最多返回的行数，只能收紧配置的上限
+     * @param format 可选，输出格式 json/csv/tsv/markdown，未指定时使用数据源的 result-format 或全局默认格式
      * @return 默认数据源的查询结果，格式为 {"defaultDataSourceName": result}
      */
     @Tool(description = """
@@ -196,27 +278,54 @@ public class DatabaseOperationService {
             - Success: Returns query results (array of objects or update count)
             - Error: Returns {"error": "detailed error message"} with the actual database error
             - Empty result: Returns message only when query succeeds but returns no rows
+            - With format=csv/tsv/markdown: the rows as text followed by a summary line (rows, columns, bytes,
+              estimated tokens); long cells end with "…"
+            
+            Row Limit:
+            - Read queries without LIMIT/TOP/FETCH FIRST/ROWNUM are capped automatically (see max_rows in getDataSourcesInfo())
+            - Write an explicit limit in the SQL when more rows are really needed
+            - When the automatic cap cuts the result, it is returned as {"row_limit_applied": N, "truncated": true, "result": ...}
+              (text formats add a "row_limit_applied" line); a result without this marker is complete
+            - If the cost guard is enabled, queries with a very large estimated scan may be rejected, limited,
+              or return {"warning": "...", "result": ...}; narrow the WHERE conditions in that case
             
             Data Processing:
             - If results contain encrypted/encoded data (Base64, hex, encrypted fields):
               1. Call getAllExtensions() to discover processing tools
               2. Use executeGroovyScript() to decrypt/decode the data
-            """)
+              3. To process a whole column of many rows, use executeSqlWithTransform() instead
+            """, resultConverter = TabularResultConverter.class)
     public JsonNode executeSqlOnDefault(@ToolParam(description = """
             Valid SQL statement compatible with default datasource dialect
             Examples:
             - MySQL/PostgreSQL: SELECT * FROM users LIMIT 10
             - SQL Server: SELECT TOP 10 * FROM users
             - Oracle: SELECT * FROM users WHERE ROWNUM <= 10
-            """) String sql) {
-        log.info("Executing SQL on default datasource: {}", sql);
+            """) String sql,
+            @ToolParam(required = false, description = """
+                    Optional row cap for read queries without an explicit limit, e.g. 10 when only a sample is needed
+                    Can only lower the configured limit
+                    """) Integer maxRows,
+            @ToolParam(required = false, description = """
+                    Optional output format: json (default), csv, tsv or markdown
+                    csv/tsv return the rows as plain text and use far fewer tokens for wide or long results
+                    """) String format) {
+        log.debug("Executing SQL on default datasource: {}", sql);
+        ParsedStatement statement = sqlStatementParser.parse(sql);
 
         // SQL安全验证
-        Object errorResult1 = validateSqlAndGetErrorResult(sql);
+        Object errorResult1 = validateSqlAndGetErrorResult("executeSqlOnDefault", statement);
         if (errorResult1 != null) {
             return objectMapper.valueToTree(errorResult1);
         }
 
+        ResultFormat resultFormat;
+        try {
+            resultFormat = ResultFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            return objectMapper.valueToTree(Map.of("error", e.getMessage()));
+        }
+
         // 获取默认数据源名称
         String defaultDataSourceName = dataSourceService.getDefaultDataSourceName();
         if (StringUtils.isBlank(defaultDataSourceName)) {
@@ -227,7 +336,8 @@ public class DatabaseOperationService {
             return objectMapper.valueToTree(errorResult);
         }
 
-        Map<String, Object> stringObjectMap = executeSqlWithDataSource(defaultDataSourceName, sql);
+        Map<String, Object> stringObjectMap = new HashMap<>();
+        stringObjectMap.put(defaultDataSourceName, toResultData(defaultDataSourceName, executeOnDataSource(defaultDataSourceName, statement, maxRows)));
         if (CollectionUtils.isEmpty(stringObjectMap)) {
             log.warn("No results returned from SQL execution on default datasource [{}]", defaultDataSourceName);
             Map<String, Object> emptyResult = new HashMap<>();
@@ -253,6 +363,12 @@ public class DatabaseOperationService {
             }
         }
 
+        // 文本格式的结果包装为 POJONode，由 TabularResultConverter 直接输出文本
+        Object rendered = renderResult(defaultDataSourceName, resultData, resultFormat);
+        if (rendered instanceof RenderedTable) {
+            return objectMapper.getNodeFactory().pojoNode(rendered);
+        }
+
         // to JsonNode
         try {
             String o = objectMapper.writeValueAsString(resultData);
@@ -265,13 +381,101 @@ public class DatabaseOperationService {
         }
     }
 
-    private Map<String, Object> validateSqlAndGetErrorResult(String sql) {
-        SqlSecurityValidator.SqlValidationResult validationResult = sqlSecurityValidator.validateSql(sql);
+    /**
+     * 在指定数据源上执行SQL：选择主库或只读副本，在熔断器和并发隔离的保护下检查估算代价、按数据源方言加上行数限制后执行
+     * @param dsName 数据源名称
+     * @param parsed SQL语句的解析结果
+     * @param maxRows 调用时指定的行数上限，未指定时为null
+     * @return 执行结果，数据源不可用时返回错误；代价检查给出警告或自动加上的行数限制被用满时，
+     * 结果为包含 result 字段以及 warning 或 row_limit_applied、truncated 字段的Map
+     */
+    private JdbcExecutor.SqlResult executeOnDataSource(String dsName, ParsedStatement parsed, Integer maxRows) {
+        DataSource targetDataSource = dataSourceService.getDataSource(dsName, parsed);
+        if (targetDataSource == null) {
+            JdbcExecutor.SqlResult unavailable = JdbcExecutor.SqlResult.error("Datasource [" + dsName + "] is unavailable: "
+                    + dataSourceService.getStatus(dsName));
+            auditLog.recordQuery(dsName, parsed, false, unavailable.errorMessage(), -1, -1);
+            return unavailable;
+        }
+        int rowLimit = rowLimitRewriter.resolveMaxRows(dataSourceService.getMaxRows(dsName), maxRows);
+        long start = System.nanoTime();
+        JdbcExecutor.SqlResult result = dataSourceHealthService.execute(dsName, () -> {
+            long validateStart = System.nanoTime();
+            QueryCostGuard.Verdict verdict = queryCostGuard.evaluate(dsName, targetDataSource, parsed);
+            serverMetrics.recordQueryPhase(dsName, ServerMetrics.Phase.VALIDATE, System.nanoTime() - validateStart);
+            if (verdict.rejected()) {
+                return JdbcExecutor.SqlResult.error(verdict.message());
+            }
+            int effectiveLimit = verdict.limitRows() > 0 && (rowLimit <= 0 || verdict.limitRows() < rowLimit)
+                    ? verdict.limitRows()
+                    : rowLimit;
+            ParsedStatement statement = rowLimitRewriter.apply(parsed, dataSourceService.getDatabaseType(dsName), effectiveLimit);
+            JdbcExecutor.SqlResult sqlResult = jdbcExecutor.executeSql(dsName, targetDataSource, statement);
+            // 自动加上的限制被用满时结果可能不完整，需要在结果中说明，否则调用方无法区分完整结果和被截断的结果
+            boolean truncated = statement != parsed && sqlResult.data() instanceof List<?> rows && rows.size() >= effectiveLimit;
+            if ((verdict.message() == null && !truncated) || !sqlResult.success()) {
+                return sqlResult;
+            }
+            Map<String, Object> annotated = new LinkedHashMap<>();
+            if (verdict.message() != null) {
+                annotated.put("warning", verdict.message());
+            }
+            if (truncated) {
+                annotated.put("row_limit_applied", effectiveLimit);
+                annotated.put("truncated", true);
+            }
+            annotated.put("result", sqlResult.data());
+            return JdbcExecutor.SqlResult.success(annotated);
+        });
+        long elapsed = System.nanoTime() - start;
+        serverMetrics.recordQuery(dsName, elapsed, result.success());
+        auditLog.recordQuery(dsName, parsed, result.success(), result.errorMessage(), elapsed, rows(result));
+        return result;
+    }
+
+    /**
+     * 查询返回的行数或更新影响的行数，失败或无法确定时为-1
+     */
+    private static long rows(JdbcExecutor.SqlResult result) {
+        Object data = result.success() ? result.data() : null;
+        if (data instanceof Map<?, ?> warned && warned.containsKey("result")) {
+            data = warned.get("result");
+        }
+        return data instanceof List<?> rows ? rows.size() : data instanceof Integer updateCount ? updateCount : -1;
+    }
+
+    /**
+     * 将执行结果转换为工具返回值：成功时为查询结果，失败时为包含error字段的Map，让AI能够看到具体的错误原因
+     */
+    private Object toResultData(String dsName, JdbcExecutor.SqlResult sqlResult) {
+        if (sqlResult.success()) {
+            log.debug("Query executed successfully on datasource [{}]", dsName);
+            return sqlResult.data();
+        }
+
+        log.error("SQL execution error on datasource [{}]: {}", dsName, sqlResult.errorMessage());
+        Map<String, String> errorInfo = new HashMap<>();
+        errorInfo.put("error", sqlResult.errorMessage());
+        return errorInfo;
+    }
+
+    /**
+     * 按调用指定的格式或数据源配置的格式渲染查询结果，错误信息和更新计数保持不变
+     */
+    private Object renderResult(String dsName, Object data, ResultFormat requested) {
+        return resultRenderer.render(data, resultRenderer.resolve(requested, dataSourceService.getResultFormat(dsName)));
+    }
+
+    private Map<String, Object> validateSqlAndGetErrorResult(String tool, ParsedStatement statement) {
+        long start = System.nanoTime();
+        SqlSecurityValidator.SqlValidationResult validationResult = sqlSecurityValidator.validateSql(statement);
+        serverMetrics.recordToolPhase(tool, ServerMetrics.Phase.VALIDATE, System.nanoTime() - start);
         if (validationResult.valid()) {
             return null;
         }
 
         log.warn("SQL validation failed: {}", validationResult.errorMessage());
+        auditLog.recordRejected(tool, statement, validationResult.errorMessage());
         Map<String, Object> errorResult = new HashMap<>();
         errorResult.put("error", validationResult.errorMessage());
         errorResult.put("detected_keyword", validationResult.detectedKeyword());
@@ -291,6 +495,8 @@ public class DatabaseOperationService {
      *
      * @param dataSourceName 数据源名称，来自getDataSourcesInfo的返回值
      * @param sql 要执行的SQL语句，需要兼容目标数据库的SQL方言
+     * @param maxRows 可选，没有行数限制的只读查询最多返回的行数，只能收紧配置的上限
+     * @param format 可选，输出格式 json/csv/tsv/markdown，未指定时使用数据源的 result-format 或全局默认格式
      * @return 查询结果，格式为 {"datasourceName": result}
      */
     @Tool(description = """
@@ -307,12 +513,27 @@ public class DatabaseOperationService {
             - Format: Map<String, Object> with single entry {datasourceName: result}
             - Success: Query results under datasource name key
             - Error: Error message if datasource not found or query fails
+            - With format=csv/tsv/markdown: the rows as text followed by a summary line (rows, columns, bytes,
+              estimated tokens); long cells end with "…"
+            
+            Read Replicas:
+            - Read-only queries may be served by a replica of the datasource (see replicas in getDataSourcesInfo())
+            - Add the comment /*+ PRIMARY */ to the SQL when the read must see the latest writes
+            
+            Row Limit:
+            - Read queries without LIMIT/TOP/FETCH FIRST/ROWNUM are capped automatically (see max_rows in getDataSourcesInfo())
+            - Write an explicit limit in the SQL when more rows are really needed
+            - When the automatic cap cuts the result, it is returned as {"row_limit_applied": N, "truncated": true, "result": ...}
+              (text formats add a "row_limit_applied" line); a result without this marker is complete
+            - If the cost guard is enabled, queries with a very large estimated scan may be rejected, limited,
+              or return {"warning": "...", "result": ...}; narrow the WHERE conditions in that case
             
             Data Processing:
             - If results contain encrypted/encoded data (Base64, hex, encrypted fields):
               1. Call getAllExtensions() to discover processing tools
               2. Use executeGroovyScript() to decrypt/decode the data
-            """)
+              3. To process a whole column of many rows, use executeSqlWithTransform() instead
+            """, resultConverter = TabularResultConverter.class)
     public Map<String, Object> executeSqlWithDataSource(@ToolParam(description = """
                                                                 Target datasource name (MUST match a name from getDataSourcesInfo() response)
                                                                 """) String dataSourceName,
@@ -322,43 +543,267 @@ public class DatabaseOperationService {
                                                                 - MySQL/PostgreSQL: SELECT * FROM users LIMIT 10
                                                                 - SQL Server: SELECT TOP 10 * FROM users
                                                                 - Oracle: SELECT * FROM users WHERE ROWNUM <= 10
-                                                                """) String sql) {
-        log.info("Executing SQL on datasource [{}]: {}", dataSourceName, sql);
+                                                                """) String sql,
+                                                        @ToolParam(required = false, description = """
+                                                                Optional row cap for read queries without an explicit limit, e.g. 10 when only a sample is needed
+                                                                Can only lower the configured limit
+                                                                """) Integer maxRows,
+                                                        @ToolParam(required = false, description = """
+                                                                Optional output format: json (default), csv, tsv or markdown
+                                                                csv/tsv return the rows as plain text and use far fewer tokens for wide or long results
+                                                                """) String format) {
+        log.debug("Executing SQL on datasource [{}]: {}", dataSourceName, sql);
+        ParsedStatement statement = sqlStatementParser.parse(sql);
 
         // SQL安全验证
-        Map<String, Object> errorResult = validateSqlAndGetErrorResult(sql);
+        Map<String, Object> errorResult = validateSqlAndGetErrorResult("executeSqlWithDataSource", statement);
         if (errorResult != null) {
             return errorResult;
         }
 
-        // 存储查询结果
+        ResultFormat resultFormat;
+        try {
+            resultFormat = ResultFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            return Map.of("error", e.getMessage());
+        }
+
         Map<String, Object> result = new HashMap<>();
+        result.put(dataSourceName, renderResult(dataSourceName,
+                toResultData(dataSourceName, executeOnDataSource(dataSourceName, statement, maxRows)), resultFormat));
+        return result;
+    }
 
-        // 获取指定的数据源
-        DataSource targetDataSource = dataSourceService.getDataSource(dataSourceName);
-        if (targetDataSource == null) {
-            String errorMsg = "Datasource [" + dataSourceName + "] not found";
-            log.error(errorMsg);
-            result.put(dataSourceName, errorMsg);
-            return result;
+    /**
+     * 执行SQL查询，并在服务端用扩展处理结果中的整列数据，替代逐个值调用executeGroovyScript
+     * 指定列的非空值按批交给扩展，各批在虚拟线程上并行执行，处理结果原位替换对应的值
+     *
+     * @param dataSourceName 可选，数据源名称，未指定时使用默认数据源
+     * @param sql 要执行的SQL语句
+     * @param columns 需要处理的列名，多个列用逗号分隔，不区分大小写
+     * @param extensionName 扩展名称，来自getAllExtensions的返回值
+     * @param maxRows 可选，没有行数限制的只读查询最多返回的行数，只能收紧配置的上限
+     * @param format 可选，输出格式 json/csv/tsv/markdown，未指定时使用数据源的 result-format 或全局默认格式
+     * @return 查询结果，格式为 {"datasourceName": result}
+     */
+    @Tool(description = """
+            Purpose: Execute SQL query and process whole result columns with an extension on the server
+            
+            When to Use:
+            - Instead of calling executeGroovyScript() once per value when a column is encrypted/encoded
+            - Example: decrypt the phone column of every returned row with SM4Decrypt
+            
+            Prerequisites:
+            - MUST call getAllExtensions() first to identify available extensions
+            
+            Returns:
+            - Format: Map<String, Object> with single entry {datasourceName: result}
+            - Values of the given columns are replaced with the extension output; NULL values are left unchanged
+            - A value the extension failed to process is replaced with {"error": "..."}
+            - Error: {"error": "..."} if a column or the extension is not found, or the query fails
+            - With format=csv/tsv/markdown: the processed rows as text, as in executeSqlWithDataSource()
+            
+            Row Limit:
+            - Same automatic row limit and cost guard as executeSqlWithDataSource()
+            """, resultConverter = TabularResultConverter.class)
+    public Map<String, Object> executeSqlWithTransform(@ToolParam(required = false, description = """
+                                                               Target datasource name from getDataSourcesInfo(); the default datasource when omitted
+                                                               """) String dataSourceName,
+                                                       @ToolParam(description = """
+                                                               Valid SQL query compatible with target datasource dialect
+                                                               """) String sql,
+                                                       @ToolParam(description = """
+                                                               Result column names to process, comma separated, case insensitive, e.g. phone,id_card
+                                                               """) String columns,
+                                                       @ToolParam(description = """
+                                                               Extension name (MUST match a name from getAllExtensions() response)
+                                                               """) String extensionName,
+                                                       @ToolParam(required = false, description = """
+                                                               Optional row cap for read queries without an explicit limit
+                                                               Can only lower the configured limit
+                                                               """) Integer maxRows,
+                                                       @ToolParam(required = false, description = """
+                                                               Optional output format: json (default), csv, tsv or markdown
+                                                               """) String format) {
+        String dsName = StringUtils.isBlank(dataSourceName) ? dataSourceService.getDefaultDataSourceName() : dataSourceName;
+        log.debug("Executing SQL on datasource [{}] with extension [{}] on columns [{}]: {}", dsName, extensionName, columns, sql);
+        ParsedStatement statement = sqlStatementParser.parse(sql);
+
+        // SQL安全验证
+        Map<String, Object> errorResult = validateSqlAndGetErrorResult("executeSqlWithTransform", statement);
+        if (errorResult != null) {
+            return errorResult;
         }
 
-        // 使用JdbcExecutor执行SQL
-        JdbcExecutor.SqlResult sqlResult = jdbcExecutor.executeSql(targetDataSource, sql);
+        ResultFormat resultFormat;
+        try {
+            resultFormat = ResultFormat.fromValue(format);
+        } catch (IllegalArgumentException e) {
+            return Map.of("error", e.getMessage());
+        }
 
+        JdbcExecutor.SqlResult sqlResult = executeOnDataSource(dsName, statement, maxRows);
+        Map<String, Object> result = new HashMap<>();
         if (sqlResult.success()) {
-            result.put(dataSourceName, sqlResult.data());
-            log.info("executeSqlWithDataSource Query executed successfully on datasource [{}]", dataSourceName);
-            return result;
+            try {
+                transformColumns(sqlResult.data(), columns, extensionName);
+            } catch (IllegalArgumentException e) {
+                log.warn("Column transform rejected on datasource [{}]: {}", dsName, e.getMessage());
+                result.put("error", e.getMessage());
+                return result;
+            }
         }
+        result.put(dsName, renderResult(dsName, toResultData(dsName, sqlResult), resultFormat));
+        return result;
+    }
 
-        // 将错误信息放入结果中，让AI能够看到具体的错误原因
-        Map<String, String> errorInfo = new HashMap<>();
-        errorInfo.put("error", sqlResult.errorMessage());
-        result.put(dataSourceName, errorInfo);
-        log.error("executeSqlWithDataSource SQL execution error on datasource [{}]: {}", dataSourceName, sqlResult.errorMessage());
+    /**
+     * 用扩展原位处理查询结果中指定列的值
+     * 收集所有需要处理的单元格后按 batch-size 切分，每批在虚拟线程上调用一次扩展的批量接口，
+     * 同时执行的批次数不超过扩展的并发上限
+     * @param data 查询结果，代价检查给出警告或结果被行数限制截断时为包含 result 字段的Map
+     * @param columns 逗号分隔的列名
+     * @param extensionName 扩展名称
+     */
+    @SuppressWarnings("unchecked")
+    private void transformColumns(Object data, String columns, String extensionName) {
+        if (data instanceof Map<?, ?> warned && warned.containsKey("result")) {
+            data = warned.get("result");
+        }
+        if (!(data instanceof List<?> rows) || rows.isEmpty()) {
+            return;
+        }
+        List<String> requested = Arrays.stream(StringUtils.defaultString(columns).split(","))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .toList();
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No columns specified");
+        }
 
-        return result;
+        // 结果列名大小写取决于数据库，按第一行的实际列名匹配
+        Map<String, Object> firstRow = (Map<String, Object>) rows.get(0);
+        List<String> keys = new ArrayList<>();
+        for (String column : requested) {
+            String key = firstRow.keySet().stream()
+                    .filter(column::equalsIgnoreCase)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Column not found: " + column
+                            + ", available columns: " + firstRow.keySet()));
+            keys.add(key);
+        }
+
+        // 收集需要处理的单元格，NULL 值保持不变
+        List<Map<String, Object>> cellRows = new ArrayList<>();
+        List<String> cellKeys = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        for (Object row : rows) {
+            Map<String, Object> rowMap = (Map<String, Object>) row;
+            for (String key : keys) {
+                String input = toExtensionInput(rowMap.get(key));
+                if (input != null) {
+                    cellRows.add(rowMap);
+                    cellKeys.add(key);
+                    inputs.add(input);
+                }
+            }
+        }
+        if (inputs.isEmpty()) {
+            return;
+        }
+
+        int batchSize = Math.max(1, extensionBatchConfig.getBatchSize());
+        int batches = (inputs.size() + batchSize - 1) / batchSize;
+        // 同时执行的批次不超过扩展在沙箱中的并发上限，前面的批次完成后再提交后面的，
+        // 否则超出上限的批次等待并发名额超时（sandbox max-wait）后被拒绝为繁忙
+        int window = Math.min(batches, Math.max(1, groovyService.getMaxConcurrency(extensionName)));
+        log.debug("Transforming {} values with extension [{}] in {} batches, {} at a time",
+                inputs.size(), extensionName, batches, window);
+
+        long deadline = System.nanoTime() + extensionBatchConfig.getTimeout().toNanos();
+        List<CompletableFuture<List<Object>>> futures = new ArrayList<>(batches);
+        for (int i = 0; i < window; i++) {
+            futures.add(submitBatch(extensionName, inputs, i, batchSize));
+        }
+        for (int i = 0; i < batches; i++) {
+            List<Object> outputs;
+            String error = null;
+            if (i >= futures.size()) {
+                // 整列处理已超时，剩余的批次不再提交
+                outputs = null;
+                error = "Extension timed out after " + extensionBatchConfig.getTimeout();
+            } else {
+                CompletableFuture<List<Object>> future = futures.get(i);
+                try {
+                    outputs = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof IllegalArgumentException illegalArgument) {
+                        // 扩展不存在时所有批次都会失败，直接返回错误
+                        futures.forEach(f -> f.cancel(true));
+                        throw illegalArgument;
+                    }
+                    outputs = null;
+                    error = cause.getMessage();
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    outputs = null;
+                    error = "Extension timed out after " + extensionBatchConfig.getTimeout();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(f -> f.cancel(true));
+                    throw new IllegalStateException("Interrupted while transforming columns", e);
+                }
+                if (futures.size() < batches && deadline - System.nanoTime() > 0) {
+                    futures.add(submitBatch(extensionName, inputs, futures.size(), batchSize));
+                }
+            }
+
+            int from = i * batchSize;
+            int size = Math.min(batchSize, inputs.size() - from);
+            for (int j = 0; j < size; j++) {
+                int index = from + j;
+                Object value = outputs != null ? toTransformedValue(outputs.get(j)) : Map.of("error", String.valueOf(error));
+                cellRows.get(index).put(cellKeys.get(index), value);
+            }
+        }
+    }
+
+    private CompletableFuture<List<Object>> submitBatch(String extensionName, List<String> inputs, int batch, int batchSize) {
+        int from = batch * batchSize;
+        List<String> values = inputs.subList(from, Math.min(from + batchSize, inputs.size()));
+        return CompletableFuture.supplyAsync(() -> groovyService.executeGroovyScriptBatch(extensionName, values), executor);
+    }
+
+    /**
+     * 转换为扩展的输入字符串，二进制值按Base64编码；数据库NULL值返回null，表示不处理
+     */
+    private static String toExtensionInput(Object value) {
+        if (value == null || "NULL".equals(value)) {
+            return null;
+        }
+        if (value instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        String input = value.toString();
+        return input.isEmpty() ? null : input;
+    }
+
+    /**
+     * 扩展返回的JSON字符串转换为JsonNode，与executeGroovyScript的返回值保持一致；其他值原样返回
+     */
+    private Object toTransformedValue(Object output) {
+        if (output instanceof String text) {
+            String trimmed = text.trim();
+            if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+                try {
+                    return objectMapper.readTree(trimmed);
+                } catch (Exception e) {
+                    return text;
+                }
+            }
+        }
+        return output;
     }
 
     /**
@@ -454,6 +899,11 @@ public class DatabaseOperationService {
               * database_version: Version information
               * driver_name: JDBC driver being used
               * is_default: Whether this is the default datasource
+              * status: Only present for unavailable datasources (INITIALIZING or FAILED)
+              * health: circuit_state (CLOSED/OPEN/HALF_OPEN), health_score (0-100), failure_rate, avg_latency_ms, active_queries
+              * replicas: Only present when read replicas are configured; status, lag_seconds and outstanding_requests per replica
+              * max_rows: Row cap applied to read queries without an explicit limit (0 = no cap)
+              * result_format: Output format used when a SQL tool is called without format (json/csv/tsv/markdown)
             
             Use this information to:
             - Write SQL compatible with target database dialect
@@ -487,6 +937,13 @@ public class DatabaseOperationService {
                     dsInfo.put("driver_version", dbInfo.driverVersion());
                     dsInfo.put("connection_url", dbInfo.url());
                     dsInfo.put("is_default", dsName.equals(defaultDataSourceName));
+                    dsInfo.put("health", dataSourceHealthService.describe(dsName));
+                    dsInfo.put("max_rows", rowLimitRewriter.resolveMaxRows(dataSourceService.getMaxRows(dsName), null));
+                    dsInfo.put("result_format", resultRenderer.resolve(null, dataSourceService.getResultFormat(dsName)).getValue());
+                    Map<String, Object> replicaInfo = dataSourceService.getReplicaInfo(dsName);
+                    if (!replicaInfo.isEmpty()) {
+                        dsInfo.put("replicas", replicaInfo);
+                    }
 
                     datasourcesInfo.put(dsName, dsInfo);
 
@@ -496,6 +953,12 @@ public class DatabaseOperationService {
                     errorInfo.put("error", "Failed to retrieve database information: " + e.getMessage());
                     datasourcesInfo.put(dsName, errorInfo);
                 }
+            } else {
+                // 仍在后台初始化或初始化失败的数据源
+                Map<String, Object> statusInfo = new HashMap<>();
+                statusInfo.put("status", dataSourceService.getStatus(dsName));
+                statusInfo.put("is_default", dsName.equals(defaultDataSourceName));
+                datasourcesInfo.put(dsName, statusInfo);
             }
         }
 
@@ -504,4 +967,92 @@ public class DatabaseOperationService {
         return result;
     }
 
+    /**
+     * 重新加载数据源配置文件，无需重启服务即可新增、移除数据源或更新连接信息（如轮换密码）
+     * @return 本次加载新增、更新、移除和未变化的数据源
+     */
+    @Tool(description = """
+            Purpose: Reload the datasource configuration file without restarting the server
+            
+            When to Call:
+            - ONLY when the user explicitly asks to reload/refresh datasources (e.g. after adding a shard or rotating a password)
+            
+            Returns:
+            - default_datasource: Default datasource after reload
+            - added / updated / removed / unchanged: Datasource names grouped by change type
+            - Error: {"error": "..."} if the configuration is invalid; current datasources stay in use
+            """)
+    public Map<String, Object> reloadDataSources() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            DataSourceRegistry.ReloadResult reloadResult = dataSourceService.reloadDataSources();
+            result.put("default_datasource", reloadResult.defaultDataSource());
+            result.put("added", reloadResult.added());
+            result.put("updated", reloadResult.updated());
+            result.put("removed", reloadResult.removed());
+            result.put("unchanged", reloadResult.unchanged());
+        } catch (Exception e) {
+            log.error("Failed to reload datasources: {}", e.getMessage(), e);
+            result.put("error", "Failed to reload datasources: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 获取服务的运行指标：工具调用和各数据源查询的耗时分布、各阶段耗时、返回的行数和字节数、连接池状态、扇出查询和扩展执行情况
+     * 与 /actuator/prometheus 暴露的是同一组指标，便于在没有接入监控时直接查看
+     * @return 服务运行指标
+     */
+    @Tool(description = """
+            Purpose: Get runtime statistics of this MCP server
+            
+            When to Call:
+            - ONLY when the user asks about server performance or connection pool usage
+            - For individual slow SQL statements, call getSlowQueries() instead
+            
+            Returns:
+            - tools: Per tool calls, errors, latency (mean/max/p50/p95/p99 ms), validate/serialize phases, response bytes
+            - datasources: Per datasource queries, errors, latency, validate/acquire/execute/fetch phases, rows returned
+            - pools: Connection pool active/idle/pending/total/max connections and acquire latency
+            - fan_out: executeSql() calls, datasources queried per call and datasources that did not respond in time
+            - extensions: Per extension calls, errors, execution latency and compile latency
+            - audit: Audit log events written, dropped (buffer full), sampled out and write errors
+            - Latencies are in milliseconds; percentiles are approximate
+            """)
+    public Map<String, Object> getServerStats() {
+        Map<String, Object> stats = serverMetrics.getStats();
+        stats.put("audit", auditLog.getStats());
+        return stats;
+    }
+
+    /**
+     * 获取慢查询统计：超过慢查询阈值的SQL按数据源和指纹（字面量替换为 ?）聚合的次数、耗时、p95、行数，
+     * 最近一次的耗时分解，以及开启 explain 时采集的执行计划
+     * @param dataSourceName 可选，只返回该数据源的慢查询
+     * @param limit 可选，最多返回的指纹数
+     * @return 按总耗时从大到小排列的慢查询统计
+     */
+    @Tool(description = """
+            Purpose: List the slowest SQL statements seen by this server, grouped by datasource and SQL fingerprint
+            
+            When to Call:
+            - ONLY when the user asks which queries are slow, or why a query or datasource is slow
+            
+            Returns:
+            - threshold_ms: Global slow query threshold (datasources may override it)
+            - recorded / dropped / evicted: Slow queries recorded, dropped because the log queue was full,
+              and fingerprints evicted to keep only the top ones
+            - queries: Sorted by total time, each with datasource, fingerprint (literals replaced by ?), count, errors,
+              total_ms, mean_ms, p95_ms, max_ms, rows_total, rows_mean, last (time and acquire/execute/fetch breakdown),
+              last_error, and plan (EXPLAIN output, only when plan capture is enabled)
+            """)
+    public Map<String, Object> getSlowQueries(@ToolParam(required = false, description = """
+                                                      Only return slow queries of this datasource
+                                                      """) String dataSourceName,
+                                              @ToolParam(required = false, description = """
+                                                      Maximum number of fingerprints to return, slowest first
+                                                      """) Integer limit) {
+        return slowQueryLog.getStats(StringUtils.isNotBlank(dataSourceName) ? dataSourceName : null, limit);
+    }
+
 }
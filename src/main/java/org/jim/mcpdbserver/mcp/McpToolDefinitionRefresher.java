@@ -0,0 +1,67 @@
+package org.jim.mcpdbserver.mcp;
+
+import io.modelcontextprotocol.server.McpSyncServer;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.MethodToolCallbackProviderCustom;
+import org.jim.mcpdbserver.service.DataSourceRegistry;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.mcp.server.common.autoconfigure.properties.McpServerProperties;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+/**
+ * 数据源热加载后重新生成工具定义（executeSqlOnDefault 的描述包含默认数据源的数据库类型），
+ * 并替换 MCP 服务中定义发生变化的工具，替换时 MCP 服务向已连接的客户端发送 notifications/tools/list_changed
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class McpToolDefinitionRefresher {
+
+    private final MethodToolCallbackProviderCustom toolCallbackProvider;
+    private final ObjectProvider<McpSyncServer> mcpSyncServer;
+    private final McpServerProperties mcpServerProperties;
+
+    public McpToolDefinitionRefresher(MethodToolCallbackProviderCustom toolCallbackProvider,
+                                      ObjectProvider<McpSyncServer> mcpSyncServer,
+                                      McpServerProperties mcpServerProperties) {
+        this.toolCallbackProvider = toolCallbackProvider;
+        this.mcpSyncServer = mcpSyncServer;
+        this.mcpServerProperties = mcpServerProperties;
+    }
+
+    @EventListener
+    public void onDataSourcesReloaded(DataSourceRegistry.ReloadedEvent event) {
+        List<ToolCallback> changed = toolCallbackProvider.refresh();
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        McpSyncServer server = mcpSyncServer.getIfAvailable();
+        if (server == null) {
+            log.info("Tool definitions refreshed for {} tools, no MCP server to notify", changed.size());
+            return;
+        }
+        for (ToolCallback toolCallback : changed) {
+            String toolName = toolCallback.getToolDefinition().name();
+            try {
+                // MCP 服务不支持直接替换同名工具，先移除再添加
+                server.removeTool(toolName);
+                server.addTool(McpToolUtils.toSyncToolSpecification(toolCallback, responseMimeType(toolName)));
+                log.info("Tool [{}] definition updated after datasource reload", toolName);
+            } catch (Exception e) {
+                log.error("Failed to update tool [{}] definition: {}", toolName, e.getMessage(), e);
+            }
+        }
+    }
+
+    private MimeType responseMimeType(String toolName) {
+        String mimeType = mcpServerProperties.getToolResponseMimeType().get(toolName);
+        return mimeType != null ? MimeType.valueOf(mimeType) : null;
+    }
+}
@@ -0,0 +1,315 @@
+package org.jim.mcpdbserver.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 服务指标，统一记录工具调用、数据源查询、扇出查询和扩展执行的耗时与数据量
+ * 使用 Spring 容器中的 MeterRegistry（引入 actuator 和 Prometheus 时由 /actuator/prometheus 暴露），
+ * 没有 MeterRegistry 时在内存中统计，getServerStats 工具仍然可以查看
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class ServerMetrics {
+
+    public static final String TOOL_DURATION = "mcp.tool.duration";
+    public static final String TOOL_PHASE = "mcp.tool.phase";
+    public static final String TOOL_RESPONSE_BYTES = "mcp.tool.response.bytes";
+    public static final String QUERY_DURATION = "mcp.datasource.query.duration";
+    public static final String QUERY_PHASE = "mcp.datasource.query.phase";
+    public static final String QUERY_ROWS = "mcp.datasource.query.rows";
+    public static final String FAN_OUT_WIDTH = "mcp.fanout.width";
+    public static final String FAN_OUT_STRAGGLERS = "mcp.fanout.stragglers";
+    public static final String EXTENSION_COMPILE = "mcp.extension.compile";
+    public static final String EXTENSION_EXECUTE = "mcp.extension.execute";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+
+    /**
+     * 按名称和标签缓存已注册的指标，热点路径上不再重复构建 Meter.Id
+     */
+    private final Map<MeterKey, Meter> meters = new ConcurrentHashMap<>();
+
+    public ServerMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.registry = meterRegistry.getIfAvailable(() -> {
+            log.info("No MeterRegistry available, server metrics are kept in memory for getServerStats only");
+            return new SimpleMeterRegistry();
+        });
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 记录一次工具调用，包括方法执行和结果序列化
+     */
+    public void recordToolCall(String tool, long nanos, boolean success) {
+        timer(TOOL_DURATION, "tool", tool, "outcome", outcome(success)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordToolPhase(String tool, Phase phase, long nanos) {
+        timer(TOOL_PHASE, "tool", tool, "phase", phase.tag()).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordResponseBytes(String tool, long bytes) {
+        summary(TOOL_RESPONSE_BYTES, "bytes", "tool", tool).record(bytes);
+    }
+
+    /**
+     * 记录在单个数据源上的一次查询，包括代价检查、获取连接、执行和读取结果
+     */
+    public void recordQuery(String dataSource, long nanos, boolean success) {
+        timer(QUERY_DURATION, "datasource", dataSource, "outcome", outcome(success)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueryPhase(String dataSource, Phase phase, long nanos) {
+        timer(QUERY_PHASE, "datasource", dataSource, "phase", phase.tag()).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRows(String dataSource, long rows) {
+        summary(QUERY_ROWS, "rows", "datasource", dataSource).record(rows);
+    }
+
+    /**
+     * 记录一次多数据源扇出查询
+     * @param width 查询的数据源数
+     * @param stragglers 超时未返回的数据源数
+     */
+    public void recordFanOut(int width, int stragglers) {
+        summary(FAN_OUT_WIDTH, null, null, null).record(width);
+        if (stragglers > 0) {
+            counter(FAN_OUT_STRAGGLERS).increment(stragglers);
+        }
+    }
+
+    public void recordExtensionCompile(String extension, long nanos) {
+        timer(EXTENSION_COMPILE, "extension", extension, null, null).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordExtensionExecute(String extension, long nanos, boolean success) {
+        timer(EXTENSION_EXECUTE, "extension", extension, "outcome", outcome(success)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 汇总当前的指标，供 getServerStats 工具返回；耗时单位为毫秒，p50/p95/p99 为客户端计算的近似分位数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tools", group(TOOL_DURATION, "tool", "calls"));
+        putPhases(stats, "tools", TOOL_PHASE, "tool");
+        putSummaries(stats, "tools", TOOL_RESPONSE_BYTES, "tool", "response_bytes");
+        stats.put("datasources", group(QUERY_DURATION, "datasource", "queries"));
+        putPhases(stats, "datasources", QUERY_PHASE, "datasource");
+        putSummaries(stats, "datasources", QUERY_ROWS, "datasource", "rows");
+        stats.put("pools", pools());
+
+        Map<String, Object> fanOut = new LinkedHashMap<>();
+        DistributionSummary width = registry.find(FAN_OUT_WIDTH).summary();
+        Counter stragglers = registry.find(FAN_OUT_STRAGGLERS).counter();
+        fanOut.put("calls", width != null ? width.count() : 0);
+        fanOut.put("mean_width", width != null ? round(width.mean()) : 0);
+        fanOut.put("max_width", width != null ? round(width.max()) : 0);
+        fanOut.put("stragglers", stragglers != null ? (long) stragglers.count() : 0);
+        stats.put("fan_out", fanOut);
+
+        Map<String, Map<String, Object>> extensions = group(EXTENSION_EXECUTE, "extension", "calls");
+        registry.find(EXTENSION_COMPILE).timers().forEach(timer -> {
+            Map<String, Object> compile = new LinkedHashMap<>();
+            compile.put("count", timer.count());
+            compile.put("mean_ms", round(timer.mean(TimeUnit.MILLISECONDS)));
+            compile.put("max_ms", round(timer.max(TimeUnit.MILLISECONDS)));
+            extensions.computeIfAbsent(timer.getId().getTag("extension"), key -> new LinkedHashMap<>()).put("compile", compile);
+        });
+        stats.put("extensions", extensions);
+        return stats;
+    }
+
+    /**
+     * 按标签汇总同名计时器的各个 outcome：调用次数、失败次数和所有调用合并的耗时分布
+     */
+    private Map<String, Map<String, Object>> group(String name, String tag, String countKey) {
+        Map<String, Map<String, Object>> grouped = new TreeMap<>();
+        Map<String, List<Timer>> byTag = new TreeMap<>();
+        registry.find(name).timers().forEach(timer ->
+                byTag.computeIfAbsent(timer.getId().getTag(tag), key -> new ArrayList<>()).add(timer));
+        byTag.forEach((value, timers) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            long count = timers.stream().mapToLong(Timer::count).sum();
+            long errors = timers.stream().filter(timer -> "error".equals(timer.getId().getTag("outcome")))
+                    .mapToLong(Timer::count).sum();
+            entry.put(countKey, count);
+            entry.put("errors", errors);
+            Timer success = timers.stream().filter(timer -> "success".equals(timer.getId().getTag("outcome")))
+                    .findFirst().orElse(timers.get(0));
+            entry.putAll(describe(success));
+            grouped.put(value, entry);
+        });
+        return grouped;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putPhases(Map<String, Object> stats, String section, String name, String tag) {
+        Map<String, Map<String, Object>> grouped = (Map<String, Map<String, Object>>) stats.get(section);
+        registry.find(name).timers().forEach(timer -> {
+            Map<String, Object> entry = grouped.computeIfAbsent(timer.getId().getTag(tag), key -> new LinkedHashMap<>());
+            Map<String, Object> phases = (Map<String, Object>) entry.computeIfAbsent("phases", key -> new TreeMap<>());
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("count", timer.count());
+            phase.putAll(describe(timer));
+            phases.put(timer.getId().getTag("phase"), phase);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putSummaries(Map<String, Object> stats, String section, String name, String tag, String prefix) {
+        Map<String, Map<String, Object>> grouped = (Map<String, Map<String, Object>>) stats.get(section);
+        registry.find(name).summaries().forEach(summary -> {
+            Map<String, Object> entry = grouped.computeIfAbsent(summary.getId().getTag(tag), key -> new LinkedHashMap<>());
+            entry.put(prefix + "_total", (long) summary.totalAmount());
+            entry.put(prefix + "_mean", round(summary.mean()));
+            entry.put(prefix + "_max", (long) summary.max());
+        });
+    }
+
+    /**
+     * Hikari 连接池指标，连接池名称为数据源名称加 HikariCP 后缀
+     */
+    private Map<String, Map<String, Object>> pools() {
+        Map<String, Map<String, Object>> pools = new TreeMap<>();
+        Function<Gauge, Map<String, Object>> entry = gauge -> pools.computeIfAbsent(gauge.getId().getTag("pool"), key -> new LinkedHashMap<>());
+        registry.find("hikaricp.connections.active").gauges().forEach(gauge -> entry.apply(gauge).put("active", (long) gauge.value()));
+        registry.find("hikaricp.connections.idle").gauges().forEach(gauge -> entry.apply(gauge).put("idle", (long) gauge.value()));
+        registry.find("hikaricp.connections.pending").gauges().forEach(gauge -> entry.apply(gauge).put("pending", (long) gauge.value()));
+        registry.find("hikaricp.connections").gauges().forEach(gauge -> entry.apply(gauge).put("total", (long) gauge.value()));
+        registry.find("hikaricp.connections.max").gauges().forEach(gauge -> entry.apply(gauge).put("max", (long) gauge.value()));
+        registry.find("hikaricp.connections.acquire").timers().forEach(timer -> {
+            Map<String, Object> pool = pools.computeIfAbsent(timer.getId().getTag("pool"), key -> new LinkedHashMap<>());
+            pool.put("acquire_mean_ms", round(timer.mean(TimeUnit.MILLISECONDS)));
+            pool.put("acquire_max_ms", round(timer.max(TimeUnit.MILLISECONDS)));
+        });
+        return pools;
+    }
+
+    private static Map<String, Object> describe(Timer timer) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        description.put("mean_ms", round(snapshot.mean(TimeUnit.MILLISECONDS)));
+        description.put("max_ms", round(snapshot.max(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            description.put("p" + Math.round(percentile.percentile() * 100) + "_ms", round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return description;
+    }
+
+    private Timer timer(String name, String tag1, String value1, String tag2, String value2) {
+        return (Timer) meters.computeIfAbsent(new MeterKey(name, value1, value2), key -> {
+            Timer.Builder builder = Timer.builder(name)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .tag(tag1, value1);
+            if (tag2 != null) {
+                builder.tag(tag2, value2);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private DistributionSummary summary(String name, String unit, String tag, String value) {
+        return (DistributionSummary) meters.computeIfAbsent(new MeterKey(name, value, null), key -> {
+            DistributionSummary.Builder builder = DistributionSummary.builder(name).baseUnit(unit);
+            if (tag != null) {
+                builder.tag(tag, value);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private Counter counter(String name) {
+        return (Counter) meters.computeIfAbsent(new MeterKey(name, null, null), key -> Counter.builder(name).register(registry));
+    }
+
+    /**
+     * 计算 UTF-8 编码后的字节数，不创建字节数组
+     */
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * 指标的阶段标签
+     */
+    public enum Phase {
+        /**
+         * 从连接池获取连接
+         */
+        ACQUIRE,
+        /**
+         * 执行前的检查：工具级为 SQL 安全检查，数据源级为执行计划代价检查
+         */
+        VALIDATE,
+        /**
+         * 执行 SQL
+         */
+        EXECUTE,
+        /**
+         * 读取结果集
+         */
+        FETCH,
+        /**
+         * 把工具返回值转换为返回给模型的文本
+         */
+        SERIALIZE;
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private record MeterKey(String name, String value1, String value2) {
+    }
+}
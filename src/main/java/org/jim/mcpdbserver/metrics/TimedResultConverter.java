@@ -0,0 +1,34 @@
+package org.jim.mcpdbserver.metrics;
+
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Type;
+
+/**
+ * 记录工具返回值转换（序列化为 JSON 或渲染为文本）的耗时和返回给模型的字节数
+ * @author yangxin
+ */
+public class TimedResultConverter implements ToolCallResultConverter {
+
+    private final ToolCallResultConverter delegate;
+    private final ServerMetrics serverMetrics;
+    private final String toolName;
+
+    public TimedResultConverter(String toolName, ToolCallResultConverter delegate, ServerMetrics serverMetrics) {
+        this.toolName = toolName;
+        this.delegate = delegate;
+        this.serverMetrics = serverMetrics;
+    }
+
+    @Override
+    @NonNull
+    public String convert(@Nullable Object result, @Nullable Type returnType) {
+        long start = System.nanoTime();
+        String converted = delegate.convert(result, returnType);
+        serverMetrics.recordToolPhase(toolName, ServerMetrics.Phase.SERIALIZE, System.nanoTime() - start);
+        serverMetrics.recordResponseBytes(toolName, ServerMetrics.utf8Length(converted));
+        return converted;
+    }
+}
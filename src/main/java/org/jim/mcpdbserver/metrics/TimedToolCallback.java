@@ -0,0 +1,65 @@
+package org.jim.mcpdbserver.metrics;
+
+import org.jim.mcpdbserver.metrics.jfr.ToolCallEvent;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * 记录工具调用总耗时的 ToolCallback，包括参数解析、方法执行和结果转换，并提交 {@link ToolCallEvent}
+ * @author yangxin
+ */
+public class TimedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final ServerMetrics serverMetrics;
+    private final String toolName;
+
+    public TimedToolCallback(ToolCallback delegate, ServerMetrics serverMetrics) {
+        this.delegate = delegate;
+        this.serverMetrics = serverMetrics;
+        this.toolName = delegate.getToolDefinition().name();
+    }
+
+    @Override
+    @NonNull
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    @NonNull
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    @NonNull
+    public String call(@NonNull String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    @NonNull
+    public String call(@NonNull String toolInput, @Nullable ToolContext toolContext) {
+        ToolCallEvent event = new ToolCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String result = null;
+        try {
+            result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+            return result;
+        } finally {
+            serverMetrics.recordToolCall(toolName, System.nanoTime() - start, result != null);
+            if (event.shouldCommit()) {
+                event.tool = toolName;
+                event.success = result != null;
+                event.responseBytes = result != null ? ServerMetrics.utf8Length(result) : 0;
+                event.commit();
+            }
+        }
+    }
+}
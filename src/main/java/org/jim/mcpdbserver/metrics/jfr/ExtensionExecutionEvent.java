@@ -0,0 +1,32 @@
+package org.jim.mcpdbserver.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 调用扩展处理一个或一批值的 JFR 事件，包括查结果缓存和在沙箱中等待执行的时间
+ * @author yangxin
+ */
+@Name("org.jim.mcpdbserver.ExtensionExecution")
+@Label("Extension Execution")
+@Category({"MCP DB Server", "Extension"})
+@Description("Groovy script or native decoder extension processing one or more values")
+@StackTrace(false)
+public class ExtensionExecutionEvent extends jdk.jfr.Event {
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Values")
+    public int values;
+
+    @Label("Cached Values")
+    @Description("Values served from the extension result cache")
+    public int cachedValues;
+
+    @Label("Success")
+    public boolean success;
+}
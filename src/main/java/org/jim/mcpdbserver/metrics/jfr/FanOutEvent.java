@@ -0,0 +1,30 @@
+package org.jim.mcpdbserver.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * executeSql 在所有数据源上并行执行同一条 SQL 的 JFR 事件，各数据源的执行见 {@link SqlExecutionEvent}
+ * @author yangxin
+ */
+@Name("org.jim.mcpdbserver.FanOut")
+@Label("SQL Fan-Out")
+@Category({"MCP DB Server", "SQL"})
+@Description("Same SQL executed on all datasources in parallel")
+@StackTrace(false)
+public class FanOutEvent extends jdk.jfr.Event {
+
+    @Label("Fingerprint")
+    public String fingerprint;
+
+    @Label("Width")
+    @Description("Number of datasources queried")
+    public int width;
+
+    @Label("Stragglers")
+    @Description("Datasources that did not respond in time")
+    public int stragglers;
+}
@@ -0,0 +1,52 @@
+package org.jim.mcpdbserver.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 在单个数据源上执行一条 SQL 的 JFR 事件，事件持续时间覆盖获取连接到读取完结果集
+ * @author yangxin
+ */
+@Name("org.jim.mcpdbserver.SqlExecution")
+@Label("SQL Execution")
+@Category({"MCP DB Server", "SQL"})
+@Description("SQL statement executed on a datasource, with pool acquire, execute and fetch phases")
+@StackTrace(false)
+public class SqlExecutionEvent extends jdk.jfr.Event {
+
+    @Label("Datasource")
+    public String dataSource;
+
+    @Label("Fingerprint")
+    @Description("Normalized SQL with literals replaced by ?")
+    public String fingerprint;
+
+    @Label("Statement Type")
+    public String statementType;
+
+    @Label("Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long acquireTime;
+
+    @Label("Execute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long executeTime;
+
+    @Label("Fetch Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long fetchTime;
+
+    @Label("Rows")
+    @Description("Rows returned, or rows affected for updates")
+    public long rows;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,35 @@
+package org.jim.mcpdbserver.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SQL 安全检查的 JFR 事件
+ * @author yangxin
+ */
+@Name("org.jim.mcpdbserver.SqlValidation")
+@Label("SQL Validation")
+@Category({"MCP DB Server", "SQL"})
+@Description("SQL security check against the dangerous keyword list")
+@StackTrace(false)
+public class SqlValidationEvent extends jdk.jfr.Event {
+
+    @Label("Fingerprint")
+    public String fingerprint;
+
+    @Label("Statement Type")
+    public String statementType;
+
+    @Label("SQL Length")
+    @Description("Length of the SQL text in characters")
+    public int sqlLength;
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Detected Keyword")
+    public String detectedKeyword;
+}
@@ -0,0 +1,30 @@
+package org.jim.mcpdbserver.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MCP 工具调用的 JFR 事件，包括参数解析、方法执行和结果转换
+ * @author yangxin
+ */
+@Name("org.jim.mcpdbserver.ToolCall")
+@Label("Tool Call")
+@Category({"MCP DB Server", "Tool"})
+@Description("MCP tool call from argument parsing to the text returned to the model")
+@StackTrace(false)
+public class ToolCallEvent extends jdk.jfr.Event {
+
+    @Label("Tool")
+    public String tool;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    public long responseBytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,74 @@
+package org.jim.mcpdbserver.service;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 共享连接池上的逻辑数据源
+ * 从共享连接池获取连接时切换到该数据源对应的库（catalog）或schema；
+ * 共享连接池配置了基准 catalog/schema，连接归还时由 Hikari 检测到状态变更并自动重置
+ * @author yangxin
+ */
+public class CatalogSwitchingDataSource extends DelegatingDataSource {
+
+    /**
+     * 切换方式
+     */
+    public enum Mode {
+        /**
+         * Connection.setCatalog，适用于 MySQL、MariaDB、SQL Server（驱动内部执行 USE）
+         */
+        CATALOG,
+        /**
+         * Connection.setSchema，适用于 PostgreSQL
+         */
+        SCHEMA
+    }
+
+    private final Mode mode;
+    private final String target;
+
+    public CatalogSwitchingDataSource(DataSource sharedPool, Mode mode, String target) {
+        super(sharedPool);
+        this.mode = mode;
+        this.target = target;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return switchTo(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return switchTo(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * 每次获取连接都重新设置，避免上一次使用中执行的 USE 语句影响本次查询
+     */
+    private Connection switchTo(Connection connection) throws SQLException {
+        try {
+            if (mode == Mode.CATALOG) {
+                connection.setCatalog(target);
+            } else {
+                connection.setSchema(target);
+            }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+}
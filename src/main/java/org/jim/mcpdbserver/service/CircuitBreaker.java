@@ -0,0 +1,191 @@
+package org.jim.mcpdbserver.service;
+
+import org.jim.mcpdbserver.config.DataSourceResilienceConfig;
+
+/**
+ * 单个数据源的熔断器
+ * 在最近 windowSize 次调用中失败（含慢调用）比例达到阈值时打开，打开期间直接拒绝调用；
+ * 经过 openDuration 或后台健康检测成功后进入半开状态，试探调用全部成功后关闭，任一失败则重新打开
+ * @author yangxin
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * 平均耗时的指数加权系数
+     */
+    private static final double LATENCY_EWMA_WEIGHT = 0.2;
+
+    private final DataSourceResilienceConfig.CircuitBreaker config;
+
+    // 环形窗口，true 表示失败或慢调用
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private double averageLatencyMillis = -1;
+
+    public CircuitBreaker(DataSourceResilienceConfig.CircuitBreaker config) {
+        this.config = config;
+        this.window = new boolean[Math.max(1, config.getWindowSize())];
+    }
+
+    /**
+     * 判断熔断器是否处于打开期间，不申请许可，用于在占用并发许可前快速拒绝
+     * @return 是否拒绝调用
+     */
+    public synchronized boolean isOpen() {
+        return config.isEnabled() && state == State.OPEN
+                && System.nanoTime() - openedAtNanos < config.getOpenDuration().toNanos();
+    }
+
+    /**
+     * 申请调用许可，半开状态下只允许有限的试探调用
+     * @return 是否允许调用
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < config.getOpenDuration().toNanos()) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight + halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次已获得许可的调用结果
+     * @param failure 是否为数据源故障（连接失败、超时等，SQL本身的错误不算）
+     * @param elapsedNanos 调用耗时
+     */
+    public synchronized void onCallComplete(boolean failure, long elapsedNanos) {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+        record(failure, elapsedNanos);
+    }
+
+    /**
+     * 记录一次后台健康检测结果，熔断打开时检测成功直接进入半开状态
+     * @param healthy 是否健康
+     * @param elapsedNanos 检测耗时
+     */
+    public synchronized void onProbe(boolean healthy, long elapsedNanos) {
+        if (state == State.OPEN) {
+            if (healthy) {
+                transitionTo(State.HALF_OPEN);
+            }
+            return;
+        }
+        record(!healthy, elapsedNanos);
+    }
+
+    private void record(boolean failure, long elapsedNanos) {
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+        averageLatencyMillis = averageLatencyMillis < 0
+                ? elapsedMillis
+                : averageLatencyMillis + LATENCY_EWMA_WEIGHT * (elapsedMillis - averageLatencyMillis);
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        boolean bad = failure || elapsedNanos > config.getSlowCallThreshold().toNanos();
+        switch (state) {
+            case HALF_OPEN -> {
+                if (bad) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                if (windowCount == window.length) {
+                    if (window[windowIndex]) {
+                        windowFailures--;
+                    }
+                } else {
+                    windowCount++;
+                }
+                window[windowIndex] = bad;
+                if (bad) {
+                    windowFailures++;
+                }
+                windowIndex = (windowIndex + 1) % window.length;
+
+                if (windowCount >= config.getMinimumCalls()
+                        && windowFailures * 100 >= config.getFailureRateThreshold() * windowCount) {
+                    transitionTo(State.OPEN);
+                }
+            }
+            case OPEN -> {
+                // 打开期间的调用在申请许可时已被拒绝，这里只会收到打开前已开始的调用
+            }
+        }
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /**
+     * 获取熔断器当前状态和健康评分
+     * @return 熔断器快照
+     */
+    public synchronized Snapshot snapshot() {
+        double failureRate = windowCount == 0 ? 0 : (double) windowFailures / windowCount;
+        int healthScore;
+        if (state == State.OPEN) {
+            healthScore = 0;
+        } else {
+            // 失败率决定基础分，平均耗时接近慢调用阈值时最多扣25分，半开状态最高50分
+            double latencyPenalty = averageLatencyMillis <= 0 ? 0
+                    : Math.min(1, averageLatencyMillis / config.getSlowCallThreshold().toMillis()) * 25;
+            healthScore = (int) Math.round(Math.max(0, 100 * (1 - failureRate) - latencyPenalty));
+            if (state == State.HALF_OPEN) {
+                healthScore = Math.min(healthScore, 50);
+            }
+        }
+        return new Snapshot(state, healthScore, failureRate, averageLatencyMillis < 0 ? null : averageLatencyMillis);
+    }
+
+    /**
+     * 熔断器快照
+     * @param state 熔断器状态
+     * @param healthScore 健康评分，0-100
+     * @param failureRate 最近窗口内的失败（含慢调用）比例
+     * @param averageLatencyMillis 调用和健康检测的指数加权平均耗时，尚无数据时为null
+     */
+    public record Snapshot(State state, int healthScore, double failureRate, Double averageLatencyMillis) {
+    }
+}
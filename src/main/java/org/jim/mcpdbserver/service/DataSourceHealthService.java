@@ -0,0 +1,223 @@
+package org.jim.mcpdbserver.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.DataSourceResilienceConfig;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 数据源健康服务
+ * 为每个数据源维护熔断器和并发隔离（bulkhead），查询结果和后台健康检测结果共同驱动熔断器；
+ * 熔断打开的数据源直接返回不可用，不再等待连接超时，单个慢数据源最多占用固定数量的并发许可和全局连接预算
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class DataSourceHealthService {
+
+    private final DataSourceRegistry dataSourceRegistry;
+    private final DataSourceResilienceConfig resilienceConfig;
+
+    private final Map<String, DataSourceGuard> guards = new ConcurrentHashMap<>();
+    private final Semaphore globalBulkhead;
+    private volatile Thread probeThread;
+
+    public DataSourceHealthService(DataSourceRegistry dataSourceRegistry, DataSourceResilienceConfig resilienceConfig) {
+        this.dataSourceRegistry = dataSourceRegistry;
+        this.resilienceConfig = resilienceConfig;
+        this.globalBulkhead = new Semaphore(resilienceConfig.getBulkhead().getMaxConcurrentCalls(), true);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!resilienceConfig.getHealthCheck().isEnabled()) {
+            log.info("Datasource health check is disabled");
+            return;
+        }
+        probeThread = Thread.ofVirtual().name("datasource-health-probe").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    probeAll();
+                    Thread.sleep(resilienceConfig.getHealthCheck().getInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Datasource health probe failed: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = probeThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 在熔断器和并发隔离的保护下执行一次查询
+     * @param dsName 数据源名称
+     * @param call 实际执行查询的调用
+     * @return 查询结果；熔断打开或并发许可耗尽时直接返回错误，不执行查询
+     */
+    public JdbcExecutor.SqlResult execute(String dsName, Supplier<JdbcExecutor.SqlResult> call) {
+        DataSourceGuard guard = guard(dsName);
+        // 熔断打开时立即返回，不占用并发许可
+        if (guard.circuitBreaker().isOpen()) {
+            return JdbcExecutor.SqlResult.error("Datasource [" + dsName + "] is unavailable: circuit breaker OPEN");
+        }
+
+        long maxWaitNanos = resilienceConfig.getBulkhead().getMaxWait().toNanos();
+        long waitStart = System.nanoTime();
+        boolean globalAcquired = false;
+        boolean localAcquired = false;
+        try {
+            // 先取数据源自己的许可：排队等待慢数据源的调用不占用全局许可，不会挤占其他数据源的查询
+            localAcquired = guard.bulkhead().tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            if (!localAcquired) {
+                log.warn("Concurrent query limit of datasource [{}] reached, rejecting query", dsName);
+                return JdbcExecutor.SqlResult.error("Datasource [" + dsName + "] is busy: concurrent query limit reached");
+            }
+            long remainingNanos = Math.max(0, maxWaitNanos - (System.nanoTime() - waitStart));
+            globalAcquired = globalBulkhead.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS);
+            if (!globalAcquired) {
+                log.warn("Global query budget exhausted, rejecting query on datasource [{}]", dsName);
+                return JdbcExecutor.SqlResult.error("Datasource [" + dsName + "] is busy: server-wide concurrent query limit reached");
+            }
+            if (!guard.circuitBreaker().tryAcquirePermission()) {
+                return JdbcExecutor.SqlResult.error("Datasource [" + dsName + "] is unavailable: circuit breaker "
+                        + guard.circuitBreaker().snapshot().state());
+            }
+
+            long start = System.nanoTime();
+            JdbcExecutor.SqlResult result;
+            try {
+                result = call.get();
+            } catch (RuntimeException | Error e) {
+                // 调用抛出异常时同样要结束本次调用，否则 HALF_OPEN 状态的试探名额不会归还
+                onCallComplete(dsName, guard, true, start);
+                throw e;
+            }
+            onCallComplete(dsName, guard, result.dataSourceFailure(), start);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return JdbcExecutor.SqlResult.error("Interrupted while waiting to query datasource [" + dsName + "]");
+        } finally {
+            if (globalAcquired) {
+                globalBulkhead.release();
+            }
+            if (localAcquired) {
+                guard.bulkhead().release();
+            }
+        }
+    }
+
+    private void onCallComplete(String dsName, DataSourceGuard guard, boolean failure, long start) {
+        CircuitBreaker.State before = guard.circuitBreaker().snapshot().state();
+        guard.circuitBreaker().onCallComplete(failure, System.nanoTime() - start);
+        logTransition(dsName, before, guard.circuitBreaker().snapshot().state());
+    }
+
+    /**
+     * 获取数据源的熔断状态和健康评分，用于 getDataSourcesInfo 展示
+     * @param dsName 数据源名称
+     * @return 健康信息
+     */
+    public Map<String, Object> describe(String dsName) {
+        DataSourceGuard guard = guard(dsName);
+        CircuitBreaker.Snapshot snapshot = guard.circuitBreaker().snapshot();
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("circuit_state", snapshot.state());
+        health.put("health_score", snapshot.healthScore());
+        health.put("failure_rate", Math.round(snapshot.failureRate() * 100) / 100.0);
+        if (snapshot.averageLatencyMillis() != null) {
+            health.put("avg_latency_ms", Math.round(snapshot.averageLatencyMillis()));
+        }
+        health.put("active_queries", resilienceConfig.getBulkhead().getMaxConcurrentCallsPerDataSource()
+                - guard.bulkhead().availablePermits());
+        return health;
+    }
+
+    private DataSourceGuard guard(String dsName) {
+        return guards.computeIfAbsent(dsName, name -> new DataSourceGuard(
+                new CircuitBreaker(resilienceConfig.getCircuitBreaker()),
+                new Semaphore(resilienceConfig.getBulkhead().getMaxConcurrentCallsPerDataSource(), true),
+                new AtomicBoolean()));
+    }
+
+    /**
+     * 对所有已就绪的数据源发起一次健康检测，每个数据源在独立的虚拟线程上检测，上一次检测未结束时跳过；
+     * 同时清除已被移除的数据源的状态
+     */
+    private void probeAll() {
+        Set<String> names = new HashSet<>(dataSourceRegistry.getDataSourceNames());
+        guards.keySet().retainAll(names);
+
+        for (String dsName : names) {
+            DataSource dataSource = dataSourceRegistry.getDataSource(dsName);
+            DataSourceGuard guard = guard(dsName);
+            if (dataSource == null || !guard.probing().compareAndSet(false, true)) {
+                continue;
+            }
+            Thread.ofVirtual().name("datasource-health-probe-" + dsName).start(() -> {
+                try {
+                    probe(dsName, dataSource, guard.circuitBreaker());
+                } finally {
+                    guard.probing().set(false);
+                }
+            });
+        }
+    }
+
+    private void probe(String dsName, DataSource dataSource, CircuitBreaker circuitBreaker) {
+        int timeoutSeconds = (int) Math.max(1, resilienceConfig.getHealthCheck().getTimeout().toSeconds());
+        long start = System.nanoTime();
+        boolean healthy;
+        try (Connection connection = dataSource.getConnection()) {
+            healthy = connection.isValid(timeoutSeconds);
+        } catch (Exception e) {
+            log.debug("Health probe of datasource [{}] failed: {}", dsName, e.getMessage());
+            healthy = false;
+        }
+
+        CircuitBreaker.State before = circuitBreaker.snapshot().state();
+        circuitBreaker.onProbe(healthy, System.nanoTime() - start);
+        logTransition(dsName, before, circuitBreaker.snapshot().state());
+    }
+
+    private static void logTransition(String dsName, CircuitBreaker.State before, CircuitBreaker.State after) {
+        if (before == after) {
+            return;
+        }
+        if (after == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit breaker of datasource [{}] opened ({} -> {})", dsName, before, after);
+        } else {
+            log.info("Circuit breaker of datasource [{}] changed {} -> {}", dsName, before, after);
+        }
+    }
+
+    /**
+     * 单个数据源的保护状态
+     * @param circuitBreaker 熔断器
+     * @param bulkhead 数据源级别的并发许可
+     * @param probing 是否有健康检测正在进行
+     */
+    private record DataSourceGuard(CircuitBreaker circuitBreaker, Semaphore bulkhead, AtomicBoolean probing) {
+    }
+}
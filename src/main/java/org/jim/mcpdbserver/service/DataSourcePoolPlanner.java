@@ -0,0 +1,324 @@
+package org.jim.mcpdbserver.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.DataSourcePoolSharingConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 连接池规划器
+ * 根据数据源配置决定需要创建哪些物理连接池，以及每个逻辑数据源使用哪个连接池：
+ * 指向同一服务器、账号和连接池参数相同、仅库名或schema不同的数据源共享一个连接池（显式配置 shared-pool 或开启自动识别），
+ * 其余数据源各自使用独立的连接池；数据源配置的只读副本（replicas）各自使用独立的连接池
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class DataSourcePoolPlanner {
+
+    /**
+     * 只影响逻辑数据源、不影响物理连接池的配置项，比较连接池配置是否变化时忽略
+     */
+    static final Set<String> LOGICAL_KEYS = Set.of("default", "shared-pool", "replicas", "max-rows", "cost-guard",
+            "result-format", "slow-query");
+
+    /**
+     * 只读副本未配置时从主库继承的配置项
+     */
+    private static final List<String> REPLICA_INHERITED_KEYS = List.of("username", "password", "driver-class-name", "hikari");
+
+    /**
+     * 共享连接池时允许各数据源不同的 Hikari 配置项（取最大值或重新命名）
+     */
+    private static final Set<String> POOL_SIZING_KEYS = Set.of("poolname", "maximumpoolsize", "minimumidle");
+
+    private static final Pattern MYSQL_URL = Pattern.compile(
+            "^(jdbc:(?:mysql|mariadb)(?::[a-z:+]+)?://[^/?]*)(?:/([^?]*))?(\\?.*)?$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern POSTGRESQL_URL = Pattern.compile("^(jdbc:postgresql:[^?]*)(?:\\?(.*))?$", Pattern.CASE_INSENSITIVE);
+
+    private final DataSourcePoolSharingConfig sharingConfig;
+
+    public DataSourcePoolPlanner(DataSourcePoolSharingConfig sharingConfig) {
+        this.sharingConfig = sharingConfig;
+    }
+
+    /**
+     * 规划连接池
+     * @param datasources 数据源名称到数据源属性的映射
+     * @return 连接池规划
+     */
+    public PoolPlan plan(Map<String, Map<String, Object>> datasources) {
+        Map<String, PoolBinding> bindings = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> pools = new LinkedHashMap<>();
+        Map<String, List<Member>> groups = new LinkedHashMap<>();
+        Map<String, Map<String, String>> replicas = new LinkedHashMap<>();
+
+        datasources.forEach((dsName, dsProperties) -> {
+            planReplicas(dsName, dsProperties, pools, replicas);
+            String declaredGroup = stringValue(dsProperties.get("shared-pool"));
+            ServerLocation location = ServerLocation.parse(stringValue(dsProperties.get("url")));
+
+            if (StringUtils.hasText(declaredGroup) && location == null) {
+                log.warn("Datasource [{}] declares shared-pool [{}] but its url does not select a database/schema that can be switched per connection, using a dedicated pool",
+                        dsName, declaredGroup);
+            }
+            if (location != null && StringUtils.hasText(declaredGroup)) {
+                groups.computeIfAbsent(declaredGroup, k -> new ArrayList<>()).add(new Member(dsName, dsProperties, location, true));
+            } else if (location != null && sharingConfig.isAutoDetect()) {
+                String group = "auto-" + Integer.toHexString(serverFingerprint(dsProperties, location).hashCode());
+                groups.computeIfAbsent(group, k -> new ArrayList<>()).add(new Member(dsName, dsProperties, location, false));
+            } else {
+                bindings.put(dsName, new PoolBinding(dsName, null, null));
+                pools.put(dsName, poolProperties(dsProperties));
+            }
+        });
+
+        groups.forEach((group, members) -> {
+            boolean sameServer = members.stream()
+                    .map(member -> serverFingerprint(member.properties(), member.location()))
+                    .distinct()
+                    .count() == 1;
+            if (members.size() == 1 || !sameServer) {
+                if (!sameServer && members.get(0).declared()) {
+                    log.error("Datasources {} declare shared-pool [{}] but do not point at the same server with the same credentials and pool settings, using dedicated pools",
+                            members.stream().map(Member::name).toList(), group);
+                }
+                members.forEach(member -> {
+                    bindings.put(member.name(), new PoolBinding(member.name(), null, null));
+                    pools.put(member.name(), poolProperties(member.properties()));
+                });
+                return;
+            }
+
+            String poolKey = "shared-" + group;
+            pools.put(poolKey, sharedPoolProperties(members));
+            members.forEach(member -> bindings.put(member.name(),
+                    new PoolBinding(poolKey, member.location().mode(), member.location().target())));
+            log.info("Datasources {} share connection pool [{}] on {}",
+                    members.stream().map(Member::name).toList(), poolKey, members.get(0).location().serverUrl());
+        });
+
+        return new PoolPlan(bindings, pools, replicas);
+    }
+
+    /**
+     * 规划只读副本的连接池，副本未配置的账号、驱动和 Hikari 配置从主库继承
+     */
+    @SuppressWarnings("unchecked")
+    private void planReplicas(String dsName, Map<String, Object> dsProperties, Map<String, Map<String, Object>> pools,
+                              Map<String, Map<String, String>> replicas) {
+        if (!(dsProperties.get("replicas") instanceof Map<?, ?> replicaConfigs) || replicaConfigs.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> replicaPools = new LinkedHashMap<>();
+        ((Map<String, Object>) replicaConfigs).forEach((replicaName, replicaConfig) -> {
+            if (!(replicaConfig instanceof Map<?, ?> replicaProperties)
+                    || !StringUtils.hasText(stringValue(replicaProperties.get("url")))) {
+                log.warn("Replica [{}] of datasource [{}] has no url, ignoring it", replicaName, dsName);
+                return;
+            }
+
+            Map<String, Object> properties = new LinkedHashMap<>();
+            REPLICA_INHERITED_KEYS.forEach(key -> {
+                if (dsProperties.containsKey(key)) {
+                    properties.put(key, dsProperties.get(key));
+                }
+            });
+            properties.putAll((Map<String, Object>) replicaProperties);
+
+            String poolKey = "replica-" + dsName + "-" + replicaName;
+            pools.put(poolKey, properties);
+            replicaPools.put(replicaName, poolKey);
+        });
+        if (!replicaPools.isEmpty()) {
+            replicas.put(dsName, replicaPools);
+        }
+    }
+
+    /**
+     * 独立连接池的配置：去掉只影响逻辑数据源的配置项
+     */
+    private Map<String, Object> poolProperties(Map<String, Object> dsProperties) {
+        Map<String, Object> properties = new LinkedHashMap<>(dsProperties);
+        LOGICAL_KEYS.forEach(properties::remove);
+        return properties;
+    }
+
+    /**
+     * 共享连接池的配置：使用不带库名的服务器URL，连接池大小取各数据源的最大值，
+     * 并以第一个数据源的库名/schema作为基准，连接归还时 Hikari 会将其重置为基准值
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> sharedPoolProperties(List<Member> members) {
+        Member first = members.get(0);
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (String key : List.of("username", "password", "driver-class-name")) {
+            if (first.properties().containsKey(key)) {
+                properties.put(key, first.properties().get(key));
+            }
+        }
+        properties.put("url", first.location().serverUrl());
+
+        Map<String, Object> hikari = new LinkedHashMap<>();
+        if (first.properties().get("hikari") instanceof Map<?, ?> firstHikari) {
+            ((Map<String, Object>) firstHikari).forEach((key, value) -> {
+                if (!POOL_SIZING_KEYS.contains(normalizeKey(key))) {
+                    hikari.put(key, value);
+                }
+            });
+        }
+        hikari.put("maximum-pool-size", members.stream()
+                .mapToInt(member -> hikariInt(member.properties(), "maximumpoolsize", 10)).max().orElse(10));
+        hikari.put("minimum-idle", members.stream()
+                .mapToInt(member -> hikariInt(member.properties(), "minimumidle", 5)).max().orElse(5));
+        hikari.put(first.location().mode() == CatalogSwitchingDataSource.Mode.CATALOG ? "catalog" : "schema",
+                first.location().target());
+        properties.put("hikari", hikari);
+        return properties;
+    }
+
+    /**
+     * 服务器标识：服务器URL、账号、驱动和除连接池大小以外的 Hikari 配置都相同的数据源才能共享连接池
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> serverFingerprint(Map<String, Object> dsProperties, ServerLocation location) {
+        Map<String, Object> hikari = new LinkedHashMap<>();
+        if (dsProperties.get("hikari") instanceof Map<?, ?> hikariProperties) {
+            ((Map<String, Object>) hikariProperties).forEach((key, value) -> {
+                if (!POOL_SIZING_KEYS.contains(normalizeKey(key))) {
+                    hikari.put(normalizeKey(key), value);
+                }
+            });
+        }
+        return Arrays.asList(location.serverUrl(), location.mode(), dsProperties.get("username"),
+                dsProperties.get("password"), dsProperties.get("driver-class-name"), hikari);
+    }
+
+    private static int hikariInt(Map<String, Object> dsProperties, String normalizedKey, int defaultValue) {
+        if (dsProperties.get("hikari") instanceof Map<?, ?> hikari) {
+            for (Map.Entry<?, ?> entry : hikari.entrySet()) {
+                if (normalizedKey.equals(normalizeKey(String.valueOf(entry.getKey())))) {
+                    try {
+                        return Integer.parseInt(String.valueOf(entry.getValue()).trim());
+                    } catch (NumberFormatException e) {
+                        return defaultValue;
+                    }
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static String normalizeKey(String key) {
+        return key.replace("-", "").replace("_", "").toLowerCase();
+    }
+
+    private static String stringValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private record Member(String name, Map<String, Object> properties, ServerLocation location, boolean declared) {
+    }
+
+    /**
+     * 连接池规划结果
+     * @param bindings 逻辑数据源名称到连接池的绑定
+     * @param pools 连接池标识到连接池配置的映射
+     * @param replicas 逻辑数据源名称到其只读副本（副本名称到连接池标识）的映射
+     */
+    public record PoolPlan(Map<String, PoolBinding> bindings, Map<String, Map<String, Object>> pools,
+                           Map<String, Map<String, String>> replicas) {
+    }
+
+    /**
+     * 逻辑数据源与物理连接池的绑定
+     * @param poolKey 连接池标识
+     * @param mode 切换方式，独立连接池为null
+     * @param target 切换的目标库名或schema
+     */
+    public record PoolBinding(String poolKey, CatalogSwitchingDataSource.Mode mode, String target) {
+
+        public boolean shared() {
+            return mode != null;
+        }
+    }
+
+    /**
+     * 从JDBC URL中拆分出的服务器地址和库名/schema
+     * @param serverUrl 不含库名/schema的服务器URL
+     * @param mode 切换方式
+     * @param target 库名或schema
+     */
+    record ServerLocation(String serverUrl, CatalogSwitchingDataSource.Mode mode, String target) {
+
+        /**
+         * 解析JDBC URL，只支持可以在连接上切换库或schema的数据库
+         * @return 服务器位置，URL未指定库名/schema或数据库不支持时返回null
+         */
+        static ServerLocation parse(String url) {
+            if (!StringUtils.hasText(url)) {
+                return null;
+            }
+
+            Matcher mysql = MYSQL_URL.matcher(url);
+            if (mysql.matches()) {
+                String database = mysql.group(2);
+                if (!StringUtils.hasText(database)) {
+                    return null;
+                }
+                String query = mysql.group(3) == null ? "" : mysql.group(3);
+                return new ServerLocation(mysql.group(1) + "/" + query, CatalogSwitchingDataSource.Mode.CATALOG, database);
+            }
+
+            Matcher postgresql = POSTGRESQL_URL.matcher(url);
+            if (postgresql.matches()) {
+                // PostgreSQL 的数据库在连接建立后不能切换，只能共享同一数据库下不同 currentSchema 的数据源
+                String schema = null;
+                List<String> params = new ArrayList<>();
+                if (postgresql.group(2) != null) {
+                    for (String param : postgresql.group(2).split("&")) {
+                        if (param.startsWith("currentSchema=")) {
+                            schema = param.substring("currentSchema=".length());
+                        } else if (!param.isEmpty()) {
+                            params.add(param);
+                        }
+                    }
+                }
+                if (!StringUtils.hasText(schema)) {
+                    return null;
+                }
+                String serverUrl = postgresql.group(1) + (params.isEmpty() ? "" : "?" + String.join("&", params));
+                return new ServerLocation(serverUrl, CatalogSwitchingDataSource.Mode.SCHEMA, schema);
+            }
+
+            if (url.regionMatches(true, 0, "jdbc:sqlserver:", 0, "jdbc:sqlserver:".length())) {
+                String database = null;
+                List<String> parts = new ArrayList<>();
+                for (String part : url.split(";")) {
+                    String lower = part.toLowerCase();
+                    if (lower.startsWith("databasename=") || lower.startsWith("database=")) {
+                        database = part.substring(part.indexOf('=') + 1);
+                    } else if (!part.isEmpty()) {
+                        parts.add(part);
+                    }
+                }
+                if (!StringUtils.hasText(database)) {
+                    return null;
+                }
+                return new ServerLocation(String.join(";", parts), CatalogSwitchingDataSource.Mode.CATALOG, database);
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package org.jim.mcpdbserver.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.DataSourceConfig;
+import org.jim.mcpdbserver.config.DataSourceConfigLoader;
+import org.jim.mcpdbserver.config.DataSourceFactory;
+import org.jim.mcpdbserver.config.DataSourceReloadConfig;
+import org.jim.mcpdbserver.config.DataSourceStartupConfig;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 数据源注册中心
+ * 持有所有数据源连接池的不可变快照，查询时直接从快照中按名称获取；
+ * 数据源配置变更时（监听配置文件或调用 reload）先创建新的连接池，再原子替换快照，最后排空并关闭旧连接池
+ * <p>
+ * 连接池的创建、驱动加载和预热在虚拟线程上并行执行，超过启动期限的数据源在后台继续初始化，完成前标记为不可用
+ * <p>
+ * 逻辑数据源（datasource.yml 中的每一项）与物理连接池分开管理，由 {@link DataSourcePoolPlanner} 决定对应关系，
+ * 同一服务器上仅库名不同的数据源可以共享一个连接池
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class DataSourceRegistry {
+
+    private final DataSourceConfig dataSourceConfig;
+    private final DataSourceConfigLoader dataSourceConfigLoader;
+    private final DataSourceFactory dataSourceFactory;
+    private final DataSourcePoolPlanner poolPlanner;
+    private final DataSourceReloadConfig reloadConfig;
+    private final DataSourceStartupConfig startupConfig;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 连接池创建与预热都是阻塞IO，使用虚拟线程并行执行
+    private final ExecutorService initExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile Thread watcherThread;
+
+    public DataSourceRegistry(DataSourceConfig dataSourceConfig, DataSourceConfigLoader dataSourceConfigLoader,
+                              DataSourceFactory dataSourceFactory, DataSourcePoolPlanner poolPlanner,
+                              DataSourceReloadConfig reloadConfig, DataSourceStartupConfig startupConfig,
+                              ApplicationEventPublisher eventPublisher) {
+        this.dataSourceConfig = dataSourceConfig;
+        this.dataSourceConfigLoader = dataSourceConfigLoader;
+        this.dataSourceFactory = dataSourceFactory;
+        this.poolPlanner = poolPlanner;
+        this.reloadConfig = reloadConfig;
+        this.startupConfig = startupConfig;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 根据启动时绑定的配置并行创建所有数据源
+     * 默认数据源创建失败时启动失败，其他数据源失败只记录日志
+     */
+    @PostConstruct
+    public void init() {
+        String defaultDsName = dataSourceConfig.getDefaultDataSourceName();
+        if (defaultDsName == null) {
+            throw new IllegalStateException("No datasource configured");
+        }
+
+        // 保存原始配置，用于热加载时比较差异（创建连接池时会补充默认驱动等属性）
+        Map<String, Map<String, Object>> properties = deepCopy(dataSourceConfig.getDatasources());
+        DataSourcePoolPlanner.PoolPlan plan = poolPlanner.plan(properties);
+
+        long start = System.nanoTime();
+        InitResult initResult = initializeAll(plan.pools());
+        initResult.failed().forEach((poolKey, e) -> {
+            List<String> dsNames = namesUsingPool(plan, poolKey);
+            if (dsNames.contains(defaultDsName)) {
+                // 启动失败时不会调用 shutdown()：关闭已创建的连接池，中断仍在创建的连接池
+                discard(initResult);
+                initExecutor.shutdownNow();
+                throw new IllegalStateException("Failed to initialize default datasource [" + defaultDsName + "]: " + e.getMessage(), e);
+            }
+            log.error("Failed to initialize datasource {}: {}", dsNames, e.getMessage(), e);
+        });
+
+        synchronized (this) {
+            snapshot = Snapshot.of(defaultDsName, plan, initResult.ready(), initResult.pending(), properties);
+            initResult.pending().forEach(this::completeInBackground);
+        }
+        log.info("Datasource initialization finished in {} ms: {} pools for {} datasources, {} ready, {} still initializing {}, {} failed {}",
+                elapsedMillis(start), plan.pools().size(), properties.size(), initResult.ready().size(),
+                initResult.pending().size(), initResult.pending().keySet(), initResult.failed().size(), initResult.failed().keySet());
+        startWatcher();
+    }
+
+    /**
+     * 获取指定名称的数据源
+     * @param name 数据源名称
+     * @return 数据源，不存在、仍在初始化或初始化失败时返回null
+     */
+    public DataSource getDataSource(String name) {
+        return snapshot.dataSources().get(name);
+    }
+
+    /**
+     * 获取数据源状态
+     * @param name 数据源名称
+     * @return 数据源状态
+     */
+    public Status getStatus(String name) {
+        Snapshot current = snapshot;
+        if (current.dataSources().containsKey(name)) {
+            return Status.AVAILABLE;
+        }
+        DataSourcePoolPlanner.PoolBinding binding = current.bindings().get(name);
+        if (binding != null && current.pending().containsKey(binding.poolKey())) {
+            return Status.INITIALIZING;
+        }
+        if (current.properties().containsKey(name)) {
+            return Status.FAILED;
+        }
+        return Status.UNKNOWN;
+    }
+
+    /**
+     * 获取数据源的配置属性
+     * @param name 数据源名称
+     * @return 配置文件中的原始属性，未配置时返回空映射
+     */
+    public Map<String, Object> getProperties(String name) {
+        return snapshot.properties().getOrDefault(name, Map.of());
+    }
+
+    /**
+     * 获取逻辑数据源与物理连接池的绑定
+     * @param name 数据源名称
+     * @return 绑定关系，未配置时返回null
+     */
+    public DataSourcePoolPlanner.PoolBinding getPoolBinding(String name) {
+        return snapshot.bindings().get(name);
+    }
+
+    /**
+     * 获取数据源已就绪的只读副本
+     * @param name 数据源名称
+     * @return 副本名称到副本数据源的映射，未配置副本时返回空映射
+     */
+    public Map<String, DataSource> getReplicas(String name) {
+        return snapshot.replicas().getOrDefault(name, Map.of());
+    }
+
+    /**
+     * 获取数据源配置的只读副本名称（包含仍在初始化或初始化失败的副本）
+     * @param name 数据源名称
+     * @return 副本名称列表
+     */
+    public List<String> getReplicaNames(String name) {
+        return new ArrayList<>(snapshot.plan().replicas().getOrDefault(name, Map.of()).keySet());
+    }
+
+    /**
+     * 获取默认数据源
+     * @return 默认数据源
+     */
+    public DataSource getDefaultDataSource() {
+        Snapshot current = snapshot;
+        DataSource dataSource = current.dataSources().get(current.defaultName());
+        if (dataSource == null) {
+            throw new IllegalStateException("Primary datasource [" + current.defaultName() + "] not available: "
+                    + getStatus(current.defaultName()));
+        }
+        return dataSource;
+    }
+
+    /**
+     * 获取默认数据源名称
+     * @return 默认数据源名称
+     */
+    public String getDefaultDataSourceName() {
+        return snapshot.defaultName();
+    }
+
+    /**
+     * 获取所有已配置的数据源名称（包含初始化失败的数据源），保持配置文件中的顺序
+     * @return 数据源名称列表
+     */
+    public List<String> getDataSourceNames() {
+        return new ArrayList<>(snapshot.properties().keySet());
+    }
+
+    /**
+     * 重新读取数据源配置文件并应用差异
+     * 新增或修改的数据源会先创建新的连接池，任一数据源创建失败则放弃本次加载，当前数据源保持不变；
+     * 全部创建成功后原子替换快照，被移除或替换的旧连接池在后台等待正在执行的查询归还连接后关闭
+     * @return 本次加载的差异
+     * @throws IOException 配置文件读取失败
+     */
+    public synchronized ReloadResult reload() throws IOException {
+        Map<String, Map<String, Object>> newProperties = dataSourceConfigLoader.reloadDataSourceProperties();
+        String newDefaultName = DataSourceConfig.resolveDefaultDataSourceName(newProperties);
+        if (newDefaultName == null) {
+            throw new IllegalStateException("Reloaded datasource configuration contains no datasources, keeping current datasources");
+        }
+
+        Snapshot current = snapshot;
+        DataSourcePoolPlanner.PoolPlan plan = poolPlanner.plan(newProperties);
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        Map<String, CompletableFuture<DataSource>> pending = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> toCreate = new LinkedHashMap<>();
+
+        // 连接池配置未变化时继续使用原连接池（包括仍在后台初始化的连接池）
+        plan.pools().forEach((poolKey, poolProperties) -> {
+            boolean samePool = Objects.equals(current.poolProperties().get(poolKey), poolProperties);
+            if (samePool && current.pools().containsKey(poolKey)) {
+                pools.put(poolKey, current.pools().get(poolKey));
+            } else if (samePool && current.pending().containsKey(poolKey)) {
+                pending.put(poolKey, current.pending().get(poolKey));
+            } else {
+                toCreate.put(poolKey, poolProperties);
+            }
+        });
+
+        InitResult initResult = initializeAll(toCreate);
+        if (!initResult.failed().isEmpty()) {
+            initResult.failed().forEach((poolKey, e) -> log.error("Failed to create datasource pool [{}] for reload: {}", poolKey, e.getMessage()));
+            log.error("Datasource reload aborted, keeping current datasources");
+            discard(initResult);
+            Map.Entry<String, Exception> firstFailure = initResult.failed().entrySet().iterator().next();
+            throw new IllegalStateException("Failed to create datasource pool [" + firstFailure.getKey() + "]: "
+                    + firstFailure.getValue().getMessage(), firstFailure.getValue());
+        }
+        pools.putAll(initResult.ready());
+        pending.putAll(initResult.pending());
+
+        List<String> added = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        newProperties.forEach((dsName, dsProperties) -> {
+            Map<String, Object> oldProperties = current.properties().get(dsName);
+            if (oldProperties == null) {
+                added.add(dsName);
+            } else if (oldProperties.equals(dsProperties) && toCreate.containsKey(plan.bindings().get(dsName).poolKey())) {
+                // 配置未变化，但所在的共享连接池被重建
+                updated.add(dsName);
+            } else {
+                (oldProperties.equals(dsProperties) ? unchanged : updated).add(dsName);
+            }
+        });
+        List<String> removed = current.properties().keySet().stream()
+                .filter(dsName -> !newProperties.containsKey(dsName))
+                .toList();
+
+        // 原子切换路由，之后的查询都会使用新的连接池
+        snapshot = Snapshot.of(newDefaultName, plan, pools, pending, deepCopy(newProperties));
+        dataSourceConfig.setDatasources(newProperties);
+        initResult.pending().forEach(this::completeInBackground);
+
+        // 排空被替换或移除的旧连接池，被替换的仍在初始化的连接池在初始化完成后关闭
+        current.pools().forEach((poolKey, ds) -> {
+            if (pools.get(poolKey) != ds) {
+                drain(poolKey, ds);
+            }
+        });
+
+        ReloadResult result = new ReloadResult(newDefaultName, added, updated, removed, unchanged);
+        log.info("Datasource configuration reloaded: {}", result);
+        eventPublisher.publishEvent(new ReloadedEvent(result));
+        return result;
+    }
+
+    /**
+     * 在虚拟线程上并行创建并预热连接池，最多等待启动期限
+     * @param toCreate 连接池标识到连接池配置的映射
+     * @return 期限内完成、仍在初始化和创建失败的连接池
+     */
+    private InitResult initializeAll(Map<String, Map<String, Object>> toCreate) {
+        Map<String, CompletableFuture<DataSource>> futures = new LinkedHashMap<>();
+        toCreate.forEach((poolKey, poolProperties) -> futures.put(poolKey,
+                CompletableFuture.supplyAsync(() -> initialize(poolKey, deepCopy(poolProperties)), initExecutor)));
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                    .get(startupConfig.getDeadline().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Datasource initialization deadline of {} exceeded, continuing in background", startupConfig.getDeadline());
+        } catch (ExecutionException e) {
+            // 单个数据源的失败在下面逐一处理
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, DataSource> ready = new LinkedHashMap<>();
+        Map<String, CompletableFuture<DataSource>> pending = new LinkedHashMap<>();
+        Map<String, Exception> failed = new LinkedHashMap<>();
+        futures.forEach((dsName, future) -> {
+            if (!future.isDone()) {
+                pending.put(dsName, future);
+                return;
+            }
+            try {
+                ready.put(dsName, future.join());
+            } catch (CompletionException | CancellationException e) {
+                failed.put(dsName, e.getCause() instanceof Exception cause ? cause : e);
+            }
+        });
+        return new InitResult(ready, pending, failed);
+    }
+
+    /**
+     * 放弃一批新建的连接池：关闭已就绪的连接池，仍在初始化的连接池在创建完成后关闭
+     */
+    private void discard(InitResult initResult) {
+        initResult.ready().forEach(this::closeQuietly);
+        initResult.pending().forEach((poolKey, future) -> future.thenAccept(ds -> closeQuietly(poolKey, ds)));
+    }
+
+    /**
+     * 创建单个数据源并按配置预热，预热失败只记录日志，数据源仍然可用
+     */
+    private DataSource initialize(String dsName, Map<String, Object> dsProperties) {
+        long start = System.nanoTime();
+        log.info("Initializing configured datasource: {}", dsName);
+        HikariDataSource dataSource = dataSourceFactory.createDataSource(dsName, dsProperties);
+        if (dataSource == null) {
+            throw new IllegalStateException("Datasource [" + dsName + "] has no properties");
+        }
+        long createMillis = elapsedMillis(start);
+
+        if (!startupConfig.isWarmUp()) {
+            log.info("Datasource [{}] initialized in {} ms (warm-up disabled)", dsName, createMillis);
+            return dataSource;
+        }
+
+        long warmUpStart = System.nanoTime();
+        try {
+            int connections = warmUp(dataSource);
+            log.info("Datasource [{}] initialized in {} ms (create {} ms, warm-up {} ms, {} connections)",
+                    dsName, elapsedMillis(start), createMillis, elapsedMillis(warmUpStart), connections);
+        } catch (Exception e) {
+            log.warn("Datasource [{}] created in {} ms but warm-up failed after {} ms: {}",
+                    dsName, createMillis, elapsedMillis(warmUpStart), e.getMessage());
+        }
+        return dataSource;
+    }
+
+    /**
+     * 预热连接池：建立连接并校验，按配置一次性建立 minimum-idle 个连接
+     * @return 预热建立的连接数
+     */
+    private int warmUp(HikariDataSource dataSource) throws SQLException {
+        int target = startupConfig.isPrefillMinimumIdle()
+                ? Math.max(1, Math.min(dataSource.getMinimumIdle(), dataSource.getMaximumPoolSize()))
+                : 1;
+
+        List<Connection> connections = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                if (i == 0) {
+                    validate(dataSource, connection);
+                }
+            }
+            return connections.size();
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Failed to return warm-up connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void validate(HikariDataSource dataSource, Connection connection) throws SQLException {
+        String testQuery = dataSource.getConnectionTestQuery();
+        if (testQuery == null || testQuery.isBlank()) {
+            int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(dataSource.getValidationTimeout()));
+            if (!connection.isValid(timeoutSeconds)) {
+                throw new SQLException("Connection validation failed");
+            }
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(testQuery);
+        }
+    }
+
+    /**
+     * 超过期限的连接池初始化完成后加入快照，期间如果连接池已被热加载替换或移除则直接关闭
+     */
+    private void completeInBackground(String poolKey, CompletableFuture<DataSource> future) {
+        long start = System.nanoTime();
+        future.whenComplete((dataSource, e) -> {
+            synchronized (this) {
+                Snapshot current = snapshot;
+                if (current.pending().get(poolKey) != future) {
+                    if (dataSource != null) {
+                        closeQuietly(poolKey, dataSource);
+                    }
+                    return;
+                }
+
+                Map<String, CompletableFuture<DataSource>> pending = new LinkedHashMap<>(current.pending());
+                pending.remove(poolKey);
+                Map<String, DataSource> pools = new LinkedHashMap<>(current.pools());
+                List<String> dsNames = namesUsingPool(current.plan(), poolKey);
+                if (dataSource != null) {
+                    pools.put(poolKey, dataSource);
+                    log.info("Datasource {} became available after background initialization ({} ms past the deadline)",
+                            dsNames, elapsedMillis(start));
+                } else {
+                    log.error("Background initialization of datasource {} failed: {}", dsNames, e.getMessage(), e);
+                }
+                snapshot = Snapshot.of(current.defaultName(), current.plan(), pools, pending, current.properties());
+            }
+        });
+    }
+
+    /**
+     * 使用指定连接池的数据源名称，只读副本的连接池显示为"数据源 replica 副本名称"
+     */
+    private static List<String> namesUsingPool(DataSourcePoolPlanner.PoolPlan plan, String poolKey) {
+        List<String> names = new ArrayList<>();
+        plan.bindings().forEach((dsName, binding) -> {
+            if (binding.poolKey().equals(poolKey)) {
+                names.add(dsName);
+            }
+        });
+        plan.replicas().forEach((dsName, replicaPools) -> replicaPools.forEach((replicaName, replicaPoolKey) -> {
+            if (replicaPoolKey.equals(poolKey)) {
+                names.add(dsName + " replica " + replicaName);
+            }
+        }));
+        return names;
+    }
+
+    /**
+     * 启动配置文件监听，仅对通过 --datasource.config 指定的外部配置文件生效
+     */
+    private void startWatcher() {
+        if (!reloadConfig.isWatchEnabled()) {
+            log.info("Datasource configuration file watching is disabled");
+            return;
+        }
+
+        Path configFile = dataSourceConfigLoader.getExternalConfigFile();
+        if (configFile == null) {
+            log.info("Datasource configuration is loaded from classpath, file watching is not available");
+            return;
+        }
+
+        watcherThread = Thread.ofVirtual()
+                .name("datasource-config-watcher")
+                .start(() -> watchConfigFile(configFile));
+        log.info("Watching datasource configuration file for changes: {}", configFile);
+    }
+
+    private void watchConfigFile(Path configFile) {
+        Path directory = configFile.getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = key.pollEvents().stream()
+                        .anyMatch(event -> configFile.getFileName().equals(event.context()));
+                if (!key.reset()) {
+                    log.warn("Datasource configuration directory is no longer accessible, stop watching: {}", directory);
+                    return;
+                }
+                if (!changed) {
+                    continue;
+                }
+
+                // 合并短时间内的多次写事件
+                Thread.sleep(reloadConfig.getWatchDebounce().toMillis());
+                WatchKey pending;
+                while ((pending = watchService.poll()) != null) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+
+                try {
+                    reload();
+                } catch (Exception e) {
+                    log.error("Failed to reload datasource configuration from {}: {}", configFile, e.getMessage(), e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to watch datasource configuration file {}: {}", configFile, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 排空旧连接池：空闲连接立即关闭，正在使用的连接在归还时关闭，超过排空时间后强制关闭连接池
+     */
+    private void drain(String poolKey, DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikariDataSource)) {
+            return;
+        }
+
+        Thread.ofVirtual().name("datasource-drain-" + poolKey).start(() -> {
+            long deadline = System.nanoTime() + reloadConfig.getDrainTimeout().toNanos();
+            try {
+                HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+                if (pool != null) {
+                    pool.softEvictConnections();
+                    while (pool.getActiveConnections() > 0 && System.nanoTime() < deadline) {
+                        Thread.sleep(100);
+                    }
+                    if (pool.getActiveConnections() > 0) {
+                        log.warn("Datasource pool [{}] still has {} active connections after drain timeout, closing anyway",
+                                poolKey, pool.getActiveConnections());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeQuietly(poolKey, hikariDataSource);
+                log.info("Retired datasource pool [{}] closed", poolKey);
+            }
+        });
+    }
+
+    private void closeQuietly(String poolKey, DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            try {
+                hikariDataSource.close();
+            } catch (Exception e) {
+                log.warn("Failed to close datasource pool [{}]: {}", poolKey, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread watcher = watcherThread;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        snapshot.pools().forEach(this::closeQuietly);
+        initExecutor.shutdownNow();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deepCopy(T value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, deepCopy(v)));
+            return (T) copy;
+        }
+        if (value instanceof List<?> list) {
+            return (T) new ArrayList<>(list.stream().map(DataSourceRegistry::deepCopy).toList());
+        }
+        return value;
+    }
+
+    /**
+     * 数据源不可变快照
+     * @param dataSources 可用的逻辑数据源
+     * @param replicas 逻辑数据源已就绪的只读副本（副本名称到副本数据源）
+     * @param pools 已就绪的物理连接池
+     * @param pending 仍在后台初始化的物理连接池
+     * @param properties 逻辑数据源的原始配置
+     */
+    private record Snapshot(String defaultName, DataSourcePoolPlanner.PoolPlan plan, Map<String, DataSource> dataSources,
+                            Map<String, Map<String, DataSource>> replicas, Map<String, DataSource> pools,
+                            Map<String, CompletableFuture<DataSource>> pending, Map<String, Map<String, Object>> properties) {
+
+        static final Snapshot EMPTY = new Snapshot(null, new DataSourcePoolPlanner.PoolPlan(Map.of(), Map.of(), Map.of()),
+                Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+        /**
+         * 根据连接池规划和已就绪的连接池构建逻辑数据源
+         */
+        static Snapshot of(String defaultName, DataSourcePoolPlanner.PoolPlan plan, Map<String, DataSource> pools,
+                           Map<String, CompletableFuture<DataSource>> pending, Map<String, Map<String, Object>> properties) {
+            Map<String, DataSource> dataSources = new LinkedHashMap<>();
+            plan.bindings().forEach((dsName, binding) -> {
+                DataSource pool = pools.get(binding.poolKey());
+                if (pool != null) {
+                    dataSources.put(dsName, binding.shared()
+                            ? new CatalogSwitchingDataSource(pool, binding.mode(), binding.target())
+                            : pool);
+                }
+            });
+            Map<String, Map<String, DataSource>> replicas = new LinkedHashMap<>();
+            plan.replicas().forEach((dsName, replicaPools) -> {
+                Map<String, DataSource> readyReplicas = new LinkedHashMap<>();
+                replicaPools.forEach((replicaName, poolKey) -> {
+                    DataSource pool = pools.get(poolKey);
+                    if (pool != null) {
+                        readyReplicas.put(replicaName, pool);
+                    }
+                });
+                replicas.put(dsName, Collections.unmodifiableMap(readyReplicas));
+            });
+            return new Snapshot(defaultName, plan, Collections.unmodifiableMap(dataSources), Collections.unmodifiableMap(replicas),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(pools)),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(pending)),
+                    Collections.unmodifiableMap(properties));
+        }
+
+        Map<String, DataSourcePoolPlanner.PoolBinding> bindings() {
+            return plan.bindings();
+        }
+
+        Map<String, Map<String, Object>> poolProperties() {
+            return plan.pools();
+        }
+    }
+
+    /**
+     * 一批连接池的初始化结果
+     */
+    private record InitResult(Map<String, DataSource> ready, Map<String, CompletableFuture<DataSource>> pending,
+                              Map<String, Exception> failed) {
+    }
+
+    /**
+     * 数据源状态
+     */
+    public enum Status {
+        /**
+         * 可用
+         */
+        AVAILABLE,
+        /**
+         * 超过启动期限，仍在后台初始化
+         */
+        INITIALIZING,
+        /**
+         * 已配置但创建失败
+         */
+        FAILED,
+        /**
+         * 未配置
+         */
+        UNKNOWN
+    }
+
+    /**
+     * 数据源热加载结果
+     */
+    public record ReloadResult(String defaultDataSource, List<String> added, List<String> updated,
+                               List<String> removed, List<String> unchanged) {
+    }
+
+    /**
+     * 数据源热加载完成事件，在新的数据源生效后发布
+     */
+    public record ReloadedEvent(ReloadResult result) {
+    }
+}
@@ -1,18 +1,17 @@
 package org.jim.mcpdbserver.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.jim.mcpdbserver.config.DataSourceConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.jim.mcpdbserver.sql.ParsedStatement;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 数据源管理服务
@@ -22,20 +21,20 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class DataSourceService {
 
-    private final DataSourceConfig dataSourceConfig;
-    private final ApplicationContext applicationContext;
+    private final DataSourceRegistry dataSourceRegistry;
+    private final ReplicaRouter replicaRouter;
 
     @Autowired
-    public DataSourceService(DataSourceConfig dataSourceConfig, ApplicationContext applicationContext) {
-        this.dataSourceConfig = dataSourceConfig;
-        this.applicationContext = applicationContext;
-        log.info("DataSourceService initialized with ApplicationContext");
+    public DataSourceService(DataSourceRegistry dataSourceRegistry, ReplicaRouter replicaRouter) {
+        this.dataSourceRegistry = dataSourceRegistry;
+        this.replicaRouter = replicaRouter;
+        log.info("DataSourceService initialized with DataSourceRegistry and ReplicaRouter");
     }
 
     /**
      * 获取数据源
      * @param name 数据源名称
-     * @return 数据源
+     * @return 数据源，数据源（或回退到的默认数据源）仍在初始化或初始化失败时返回null
      */
     public DataSource getDataSource(String name) {
         // 如果未指定数据源名称，返回默认数据源
@@ -50,46 +49,135 @@ public class DataSourceService {
             return getPrimaryDataSource();
         }
 
-        // 如果指定了默认数据源名称，返回默认数据源
-        String defaultDsName = dataSourceConfig.getDefaultDataSourceName();
-        if (name.equals(defaultDsName)) {
-            log.debug("Datasource name '{}' is the default datasource, returning primary datasource", name);
-            return getPrimaryDataSource();
-        }
-
-        // 从 Spring 容器中获取所有数据源
-        Map<String, DataSource> secondaryDataSources;
-        try {
-            secondaryDataSources = applicationContext.getBean("secondaryDataSources", Map.class);
-        } catch (Exception e) {
-            log.error("Failed to get secondaryDataSources bean: {}", e.getMessage());
-            log.warn("Datasource [{}] not found, using default datasource instead", name);
-            return getPrimaryDataSource();
-        }
-
-        // 从数据源集合中获取指定名称的数据源
-        DataSource dataSource = secondaryDataSources.get(name);
+        // 从注册中心的快照中获取指定名称的数据源
+        DataSource dataSource = dataSourceRegistry.getDataSource(name);
         if (dataSource != null) {
-            log.debug("Found datasource [{}] in Spring context", name);
+            log.debug("Found datasource [{}] in registry", name);
             return dataSource;
         }
 
+        // 已配置但仍在初始化或初始化失败的数据源不可用，不能回退到默认数据源
+        DataSourceRegistry.Status status = dataSourceRegistry.getStatus(name);
+        if (status != DataSourceRegistry.Status.UNKNOWN) {
+            log.warn("Datasource [{}] is not available: {}", name, status);
+            return null;
+        }
+
         // 如果无法找到，返回默认数据源
         log.warn("Datasource [{}] not found, using default datasource instead", name);
         return getPrimaryDataSource();
     }
 
+    /**
+     * 获取执行指定SQL语句的数据源，只读查询可能被路由到该数据源的只读副本
+     * @param name 数据源名称
+     * @param statement 要执行的SQL语句的解析结果
+     * @return 数据源，数据源不可用时返回null
+     */
+    public DataSource getDataSource(String name, ParsedStatement statement) {
+        DataSource primary = getDataSource(name);
+        if (primary == null) {
+            return null;
+        }
+
+        return replicaRouter.route(resolveName(name), primary, statement);
+    }
+
+    /**
+     * 获取数据源的数据库类型
+     * @param name 数据源名称
+     * @return 数据库类型，无法识别时返回null
+     */
+    public DatabaseType getDatabaseType(String name) {
+        Map<String, Object> properties = getProperties(name);
+        DatabaseType type = DatabaseType.fromDriverClassName((String) properties.get("driver-class-name"));
+        return type != null ? type : DatabaseType.fromUrl((String) properties.get("url"));
+    }
+
+    /**
+     * 获取数据源配置的查询行数上限（max-rows）
+     * @param name 数据源名称
+     * @return 行数上限，未配置或配置无效时返回null
+     */
+    public Integer getMaxRows(String name) {
+        Object maxRows = getProperties(name).get("max-rows");
+        if (maxRows == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(maxRows.toString().trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid max-rows [{}] for datasource [{}], using the default row limit", maxRows, resolveName(name));
+            return null;
+        }
+    }
+
+    /**
+     * 获取数据源配置的查询结果输出格式（result-format）
+     * @param name 数据源名称
+     * @return 输出格式，未配置或配置无效时返回null
+     */
+    public ResultFormat getResultFormat(String name) {
+        Object format = getProperties(name).get("result-format");
+        if (format == null) {
+            return null;
+        }
+        try {
+            return ResultFormat.fromValue(format.toString());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid result-format [{}] for datasource [{}], using the default format", format, resolveName(name));
+            return null;
+        }
+    }
+
+    /**
+     * 获取数据源的配置属性
+     * @param name 数据源名称
+     * @return 配置文件中的原始属性，未配置时返回空映射
+     */
+    public Map<String, Object> getProperties(String name) {
+        return dataSourceRegistry.getProperties(resolveName(name));
+    }
+
+    /**
+     * 与 getDataSource(name) 保持一致：未指定、primary 或未配置的名称都使用默认数据源
+     */
+    private String resolveName(String name) {
+        return name == null || name.isEmpty() || "primary".equals(name)
+                || dataSourceRegistry.getStatus(name) == DataSourceRegistry.Status.UNKNOWN
+                ? dataSourceRegistry.getDefaultDataSourceName()
+                : name;
+    }
+
+    /**
+     * 获取数据源只读副本的状态
+     * @param name 数据源名称
+     * @return 副本名称到副本状态的映射，未配置副本时返回空映射
+     */
+    public Map<String, Object> getReplicaInfo(String name) {
+        return replicaRouter.describeReplicas(name);
+    }
+
+    /**
+     * 获取数据源状态
+     * @param name 数据源名称
+     * @return 数据源状态
+     */
+    public DataSourceRegistry.Status getStatus(String name) {
+        return dataSourceRegistry.getStatus(resolveName(name));
+    }
+
     /**
      * 获取默认数据源
-     * @return 默认数据源
+     * @return 默认数据源，仍在初始化或初始化失败时返回null
      */
     private DataSource getPrimaryDataSource() {
-        try {
-            return applicationContext.getBean(DataSource.class);
-        } catch (Exception e) {
-            log.error("Failed to get primary datasource: {}", e.getMessage(), e);
-            throw new IllegalStateException("Primary datasource not available", e);
+        String defaultName = dataSourceRegistry.getDefaultDataSourceName();
+        DataSource dataSource = dataSourceRegistry.getDataSource(defaultName);
+        if (dataSource == null) {
+            log.warn("Default datasource [{}] is not available: {}", defaultName, dataSourceRegistry.getStatus(defaultName));
         }
+        return dataSource;
     }
 
     /**
@@ -97,11 +185,7 @@ public class DataSourceService {
      * @return 数据源名称列表
      */
     public List<String> getDataSourceNames() {
-        // 获取配置文件中的数据源名称
-        Set<String> configuredNames = dataSourceConfig.getDatasources().keySet();
-
-        // 创建结果列表
-        List<String> allNames = new ArrayList<>(configuredNames);
+        List<String> allNames = dataSourceRegistry.getDataSourceNames();
 
         // 排序后返回
         Collections.sort(allNames);
@@ -114,6 +198,15 @@ public class DataSourceService {
      * @return 默认数据源名称
      */
     public String getDefaultDataSourceName() {
-        return dataSourceConfig.getDefaultDataSourceName();
+        return dataSourceRegistry.getDefaultDataSourceName();
+    }
+
+    /**
+     * 重新加载数据源配置文件
+     * @return 本次加载的差异
+     * @throws IOException 配置文件读取失败
+     */
+    public DataSourceRegistry.ReloadResult reloadDataSources() throws IOException {
+        return dataSourceRegistry.reload();
     }
 }
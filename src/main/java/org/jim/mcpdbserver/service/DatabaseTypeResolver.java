@@ -3,7 +3,6 @@ package org.jim.mcpdbserver.service;
 import lombok.extern.slf4j.Slf4j;
 import org.jim.mcpdbserver.config.DataSourceConfig;
 import org.jim.mcpdbserver.enums.DatabaseType;
-import org.jim.mcpdbserver.util.SpringContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -17,18 +16,18 @@ import java.util.Map;
 @Slf4j
 public class DatabaseTypeResolver {
 
+    private final DataSourceConfig dataSourceConfig;
+
+    public DatabaseTypeResolver(DataSourceConfig dataSourceConfig) {
+        this.dataSourceConfig = dataSourceConfig;
+    }
+
     /**
      * 获取默认数据源的数据库类型
      * @return 数据库类型字符串
      */
     public String getDefaultDatabaseType() {
         try {
-            if (!SpringContextHolder.isApplicationContextAvailable()) {
-                log.warn("Spring ApplicationContext is not available");
-                return "Unknown Database";
-            }
-
-            DataSourceConfig dataSourceConfig = SpringContextHolder.getBean(DataSourceConfig.class);
             Map<String, Object> defaultDsProperties = dataSourceConfig.getDefaultDataSourceProperties();
             
             return determineDatabaseType(defaultDsProperties);
@@ -1,6 +1,10 @@
 package org.jim.mcpdbserver.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.jim.mcpdbserver.metrics.ServerMetrics.Phase;
+import org.jim.mcpdbserver.metrics.jfr.SqlExecutionEvent;
+import org.jim.mcpdbserver.sql.ParsedStatement;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
@@ -8,9 +12,12 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,42 +32,104 @@ import java.util.stream.IntStream;
 @Slf4j
 public class JdbcExecutor {
 
+    private final ServerMetrics serverMetrics;
+    private final SlowQueryLog slowQueryLog;
+
+    public JdbcExecutor(ServerMetrics serverMetrics, SlowQueryLog slowQueryLog) {
+        this.serverMetrics = serverMetrics;
+        this.slowQueryLog = slowQueryLog;
+    }
 
     /**
-     * 在指定数据源上执行SQL语句
+     * 在指定数据源上执行SQL语句，分别记录获取连接、执行和读取结果集的耗时，提交 {@link SqlExecutionEvent}，
+     * 超过慢查询阈值时交给 {@link SlowQueryLog}
      *
+     * @param dataSourceName 数据源名称，用作指标标签
      * @param dataSource 数据源
-     * @param sql SQL语句
+     * @param statement SQL语句的解析结果
      * @return SQL执行结果
      */
-    public SqlResult executeSql(DataSource dataSource, String sql) {
-        log.debug("Executing SQL: {}", sql);
-
+    public SqlResult executeSql(String dataSourceName, DataSource dataSource, ParsedStatement statement) {
+        String sql = statement.sql();
+        log.debug("Executing {} SQL [{}]: {}", statement.type(), statement.fingerprint(), sql);
+
+        SqlExecutionEvent event = new SqlExecutionEvent();
+        event.begin();
+        SqlResult result = null;
+        long start = System.nanoTime();
+        long acquired = 0;
+        long executed = 0;
+        long fetched = 0;
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
+            acquired = System.nanoTime();
+            serverMetrics.recordQueryPhase(dataSourceName, Phase.ACQUIRE, acquired - start);
 
             boolean hasResultSet = stmt.execute(sql);
+            executed = System.nanoTime();
+            serverMetrics.recordQueryPhase(dataSourceName, Phase.EXECUTE, executed - acquired);
 
             if (hasResultSet) {
                 // 处理查询结果
                 try (ResultSet rs = stmt.getResultSet()) {
                     List<Map<String, Object>> resultList = processResultSet(rs);
+                    fetched = System.nanoTime();
+                    serverMetrics.recordQueryPhase(dataSourceName, Phase.FETCH, fetched - executed);
+                    serverMetrics.recordRows(dataSourceName, resultList.size());
                     log.debug("Query executed successfully, returned {} rows", resultList.size());
-                    return SqlResult.success(resultList);
+                    result = SqlResult.success(resultList);
                 }
             } else {
                 // 处理更新结果
                 int updateCount = stmt.getUpdateCount();
                 log.debug("SQL execution completed, affected rows: {}", updateCount);
-                return SqlResult.success(updateCount);
+                result = SqlResult.success(updateCount);
             }
         } catch (SQLException e) {
             log.error("SQL execution error: {}", e.getMessage(), e);
-            return SqlResult.error(e.getMessage());
+            result = SqlResult.error(e.getMessage(), isDataSourceFailure(e));
         } catch (Exception e) {
             log.error("Unexpected error during SQL execution: {}", e.getMessage(), e);
-            return SqlResult.error(e.getMessage());
+            result = SqlResult.error(e.getMessage());
+        } finally {
+            // 失败时尚未结束的阶段算到失败发生为止，例如执行超时计入执行阶段
+            long end = System.nanoTime();
+            long acquireTime = (acquired > 0 ? acquired : end) - start;
+            long executeTime = acquired > 0 ? (executed > 0 ? executed : end) - acquired : 0;
+            long fetchTime = executed > 0 ? (fetched > 0 ? fetched : end) - executed : 0;
+            boolean success = result != null && result.success();
+            long rows = !success ? 0 : result.data() instanceof List<?> list ? list.size()
+                    : result.data() instanceof Integer updateCount ? updateCount : 0;
+            if (event.shouldCommit()) {
+                event.dataSource = dataSourceName;
+                event.fingerprint = statement.fingerprint();
+                event.statementType = String.valueOf(statement.type());
+                event.acquireTime = acquired > 0 ? acquired - start : 0;
+                event.executeTime = executed > 0 ? executed - acquired : 0;
+                event.fetchTime = fetched > 0 ? fetched - executed : 0;
+                event.success = success;
+                event.error = result != null ? result.errorMessage() : null;
+                event.rows = rows;
+                event.commit();
+            }
+            slowQueryLog.record(dataSourceName, dataSource, statement, acquireTime, executeTime, fetchTime, rows,
+                    success ? null : result != null ? result.errorMessage() : "unexpected error");
         }
+        return result;
+    }
+
+    /**
+     * 判断异常是否由数据源本身引起（连接失败、获取连接超时、查询超时），用于熔断统计；SQL语法、权限等错误不算
+     * @param e SQL异常
+     * @return 是否为数据源故障
+     */
+    private static boolean isDataSourceFailure(SQLException e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLTimeoutException) {
+            return true;
+        }
+        // SQLState 08 类为连接异常
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
     }
 
     /**
@@ -104,7 +173,8 @@ public class JdbcExecutor {
                                 }
                             },
                             (existing, replacement) -> existing,
-                            HashMap::new
+                            // 保持查询结果的列顺序，文本格式按该顺序输出列
+                            LinkedHashMap::new
                     ));
             resultList.add(row);
         }
@@ -114,15 +184,20 @@ public class JdbcExecutor {
 
     /**
      * SQL执行结果封装类
+     * @param dataSourceFailure 失败是否由数据源本身引起（连接失败、超时等）
      */
-    public record SqlResult(boolean success, Object data, String errorMessage) {
+    public record SqlResult(boolean success, Object data, String errorMessage, boolean dataSourceFailure) {
 
         public static SqlResult success(Object data) {
-            return new SqlResult(true, data, null);
+            return new SqlResult(true, data, null, false);
         }
 
         public static SqlResult error(String errorMessage) {
-            return new SqlResult(false, null, errorMessage);
+            return new SqlResult(false, null, errorMessage, false);
+        }
+
+        public static SqlResult error(String errorMessage, boolean dataSourceFailure) {
+            return new SqlResult(false, null, errorMessage, dataSourceFailure);
         }
 
     }
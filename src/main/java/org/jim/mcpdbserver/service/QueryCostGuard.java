@@ -0,0 +1,346 @@
+package org.jim.mcpdbserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.SqlCostGuardConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.sql.SqlLexer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 查询代价检查服务
+ * 执行只读查询前运行数据库的 EXPLAIN，估算扫描行数和代价，超过阈值时警告、拒绝或自动限制返回行数。
+ * 支持 MySQL/MariaDB（EXPLAIN FORMAT=JSON）、PostgreSQL（EXPLAIN (FORMAT JSON)）、Oracle（EXPLAIN PLAN）和 H2（EXPLAIN），
+ * 其他数据库不检查。执行计划按数据源和SQL指纹缓存，重复的查询不会重复 EXPLAIN
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class QueryCostGuard {
+
+    private static final Pattern QUERY_FINGERPRINT = Pattern.compile("^(select|with)\\b");
+
+    /**
+     * H2 执行计划中的全表扫描注释，例如 /* PUBLIC.EVENTS.tableScan *&#47;
+     */
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*([^\\s.*]+)\\.([^\\s.*]+)\\.tableScan\\s*\\*/");
+
+    private final SqlCostGuardConfig costGuardConfig;
+    private final DataSourceService dataSourceService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong oracleStatementIds = new AtomicLong();
+
+    private final Map<String, CachedPlan> planCache;
+    // 数据源的 cost-guard 配置绑定结果，数据源配置被热加载替换后重新绑定
+    private final Map<String, ResolvedConfig> resolvedConfigs = new ConcurrentHashMap<>();
+
+    public QueryCostGuard(SqlCostGuardConfig costGuardConfig, DataSourceService dataSourceService) {
+        this.costGuardConfig = costGuardConfig;
+        this.dataSourceService = dataSourceService;
+        this.planCache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+                return size() > costGuardConfig.getPlanCacheSize();
+            }
+        };
+    }
+
+    /**
+     * 检查查询的估算代价
+     * @param dsName 数据源名称
+     * @param dataSource 执行查询的数据源（主库或只读副本）
+     * @param statement SQL语句的解析结果
+     * @return 检查结果，无法估算时放行
+     */
+    public Verdict evaluate(String dsName, DataSource dataSource, ParsedStatement statement) {
+        SqlCostGuardConfig config = resolveConfig(dsName);
+        if (!config.isEnabled() || !statement.isRead() || statement.multiStatement()
+                || !QUERY_FINGERPRINT.matcher(statement.fingerprint()).find()) {
+            return Verdict.ALLOW;
+        }
+        DatabaseType type = dataSourceService.getDatabaseType(dsName);
+        if (type != DatabaseType.MYSQL && type != DatabaseType.MARIADB && type != DatabaseType.POSTGRESQL
+                && type != DatabaseType.ORACLE && type != DatabaseType.H2) {
+            return Verdict.ALLOW;
+        }
+
+        Plan plan = getPlan(dsName, type, dataSource, statement, config);
+        if (plan == null) {
+            return Verdict.ALLOW;
+        }
+
+        if (exceeds(plan.estimatedRows(), config.getMaxRows()) || exceeds(plan.cost(), config.getMaxCost())) {
+            String estimate = String.format("Estimated %s on datasource [%s] exceeds the cost guard limit (max rows %d, max cost %s)",
+                    plan.describe(), dsName, config.getMaxRows(), formatCost(config.getMaxCost()));
+            log.warn("{}: {}", estimate, statement.fingerprint());
+            return switch (config.getAction()) {
+                case REJECT -> Verdict.reject(estimate
+                        + ". The query was not executed; add selective WHERE conditions or narrow the time range and try again.");
+                case WARN -> Verdict.warn(estimate + ". The query may take a long time.");
+                case LIMIT -> Verdict.limit(estimate + ". Results were limited to " + config.getLimitRows() + " rows.",
+                        config.getLimitRows());
+            };
+        }
+        if (exceeds(plan.estimatedRows(), config.getWarnRows()) || exceeds(plan.cost(), config.getWarnCost())) {
+            return Verdict.warn(String.format("Estimated %s on datasource [%s]. The query may take a long time.", plan.describe(), dsName));
+        }
+        return Verdict.ALLOW;
+    }
+
+    private static boolean exceeds(Number estimate, Number threshold) {
+        return estimate != null && threshold.doubleValue() > 0 && estimate.doubleValue() > threshold.doubleValue();
+    }
+
+    private static String formatCost(double cost) {
+        return cost > 0 ? String.format("%.0f", cost) : "unlimited";
+    }
+
+    /**
+     * 全局配置叠加数据源的 cost-guard 配置
+     */
+    private SqlCostGuardConfig resolveConfig(String dsName) {
+        Object overrides = dataSourceService.getProperties(dsName).get("cost-guard");
+        if (!(overrides instanceof Map<?, ?> overrideMap) || overrideMap.isEmpty()) {
+            return costGuardConfig;
+        }
+        ResolvedConfig resolved = resolvedConfigs.get(dsName);
+        if (resolved == null || resolved.source() != overrideMap) {
+            SqlCostGuardConfig config = new SqlCostGuardConfig();
+            BeanUtils.copyProperties(costGuardConfig, config);
+            new Binder(new MapConfigurationPropertySource(overrideMap)).bind(ConfigurationPropertyName.EMPTY, Bindable.ofInstance(config));
+            resolved = new ResolvedConfig(overrideMap, config);
+            resolvedConfigs.put(dsName, resolved);
+        }
+        return resolved.config();
+    }
+
+    private Plan getPlan(String dsName, DatabaseType type, DataSource dataSource, ParsedStatement statement, SqlCostGuardConfig config) {
+        String key = dsName + '\n' + statement.fingerprint();
+        long now = System.nanoTime();
+        synchronized (planCache) {
+            CachedPlan cached = planCache.get(key);
+            if (cached != null && now - cached.expiresAt() < 0) {
+                return cached.plan();
+            }
+        }
+
+        long start = System.nanoTime();
+        Plan plan;
+        try {
+            plan = explain(type, dataSource, withoutTrailingSemicolon(statement.sql()), config);
+        } catch (SQLException | RuntimeException e) {
+            // 语法错误等情况由正式执行返回给调用方，这里只放行
+            log.debug("EXPLAIN failed on datasource [{}], skipping cost guard: {}", dsName, e.getMessage());
+            return null;
+        }
+        log.debug("EXPLAIN on datasource [{}] took {} ms: {} for {}", dsName, (System.nanoTime() - start) / 1_000_000,
+                plan.describe(), statement.fingerprint());
+
+        synchronized (planCache) {
+            planCache.put(key, new CachedPlan(plan, now + config.getPlanCacheTtl().toNanos()));
+        }
+        return plan;
+    }
+
+    private Plan explain(DatabaseType type, DataSource dataSource, String sql, SqlCostGuardConfig config) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.setQueryTimeout((int) Math.max(1, config.getExplainTimeout().toSeconds()));
+            return switch (type) {
+                case MYSQL, MARIADB -> mysqlPlan(readJson(stmt, "EXPLAIN FORMAT=JSON " + sql));
+                case POSTGRESQL -> postgresqlPlan(readJson(stmt, "EXPLAIN (FORMAT JSON) " + sql));
+                case ORACLE -> oraclePlan(connection, stmt, sql);
+                case H2 -> h2Plan(connection, stmt, sql);
+                default -> throw new IllegalStateException("Cost guard does not support " + type.getDisplayName());
+            };
+        }
+    }
+
+    private JsonNode readJson(Statement stmt, String explainSql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(explainSql)) {
+            if (!rs.next()) {
+                throw new SQLException("EXPLAIN returned no plan");
+            }
+            return objectMapper.readTree(rs.getString(1));
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new SQLException("Unreadable EXPLAIN output: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * MySQL：query_block.cost_info.query_cost 为总代价，各表的 rows_examined_per_scan 取最大值；
+     * MariaDB：query_block.cost 为总代价，各表的 rows 取最大值
+     */
+    private static Plan mysqlPlan(JsonNode root) {
+        JsonNode queryBlock = root.path("query_block");
+        JsonNode cost = queryBlock.path("cost_info").path("query_cost");
+        if (cost.isMissingNode()) {
+            cost = queryBlock.path("cost");
+        }
+        long rows = Math.max(maxLong(root, "rows_examined_per_scan"), maxLong(root, "rows"));
+        return new Plan(rows >= 0 ? rows : null, cost.isMissingNode() ? null : cost.asDouble());
+    }
+
+    /**
+     * PostgreSQL：顶层节点的 Total Cost 为总代价，各节点的 Plan Rows 取最大值（LIMIT 之下的扫描节点仍反映全表估算）
+     */
+    private static Plan postgresqlPlan(JsonNode root) {
+        JsonNode plan = root.path(0).path("Plan");
+        long rows = maxLong(plan, "Plan Rows");
+        JsonNode cost = plan.path("Total Cost");
+        return new Plan(rows >= 0 ? rows : null, cost.isMissingNode() ? null : cost.asDouble());
+    }
+
+    /**
+     * Oracle：EXPLAIN PLAN 写入 PLAN_TABLE 后读取最大的 CARDINALITY 和 COST（即根节点代价），读取后删除
+     */
+    private Plan oraclePlan(Connection connection, Statement stmt, String sql) throws SQLException {
+        String statementId = "mcp-cost-guard-" + oracleStatementIds.incrementAndGet();
+        stmt.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + statementId + "' FOR " + sql);
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT MAX(cardinality), MAX(cost) FROM plan_table WHERE statement_id = ?")) {
+            query.setString(1, statementId);
+            try (ResultSet rs = query.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("EXPLAIN PLAN returned no plan");
+                }
+                long rows = rs.getLong(1);
+                boolean rowsKnown = !rs.wasNull();
+                double cost = rs.getDouble(2);
+                boolean costKnown = !rs.wasNull();
+                return new Plan(rowsKnown ? rows : null, costKnown ? cost : null);
+            }
+        } finally {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM plan_table WHERE statement_id = ?")) {
+                delete.setString(1, statementId);
+                delete.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * H2：执行计划不包含估算值，对计划中全表扫描的表读取 INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE 取最大值
+     */
+    private static Plan h2Plan(Connection connection, Statement stmt, String sql) throws SQLException {
+        String planText;
+        try (ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            if (!rs.next()) {
+                throw new SQLException("EXPLAIN returned no plan");
+            }
+            planText = rs.getString(1);
+        }
+
+        Long rows = null;
+        Matcher matcher = H2_TABLE_SCAN.matcher(planText);
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+            while (matcher.find()) {
+                query.setString(1, matcher.group(1));
+                query.setString(2, matcher.group(2));
+                try (ResultSet rs = query.executeQuery()) {
+                    if (rs.next()) {
+                        rows = Math.max(rows == null ? 0 : rows, rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return new Plan(rows, null);
+    }
+
+    private static long maxLong(JsonNode node, String field) {
+        long max = -1;
+        if (node.isObject()) {
+            JsonNode value = node.get(field);
+            if (value != null && (value.isNumber() || value.isTextual())) {
+                max = (long) value.asDouble(-1);
+            }
+        }
+        for (JsonNode child : node) {
+            max = Math.max(max, maxLong(child, field));
+        }
+        return max;
+    }
+
+    /**
+     * 去掉语句末尾的分号，EXPLAIN 前缀之后不能再跟语句结束符（Oracle 等驱动会报错）
+     */
+    static String withoutTrailingSemicolon(String sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        int codeEnd = -1;
+        SqlLexer.TokenType type;
+        while ((type = lexer.next()) != SqlLexer.TokenType.EOF) {
+            if (type != SqlLexer.TokenType.PUNCTUATION || lexer.tokenChar() != ';') {
+                codeEnd = lexer.tokenEnd();
+            }
+        }
+        return codeEnd < 0 ? sql : sql.substring(0, codeEnd);
+    }
+
+    /**
+     * 估算的执行计划
+     * @param estimatedRows 最大的单表扫描行数估算，未知时为null
+     * @param cost 总代价估算，未知时为null
+     */
+    public record Plan(Long estimatedRows, Double cost) {
+
+        String describe() {
+            StringBuilder description = new StringBuilder();
+            if (estimatedRows != null) {
+                description.append(estimatedRows).append(" rows scanned");
+            }
+            if (cost != null) {
+                description.append(description.isEmpty() ? "" : ", ").append(String.format("cost %.0f", cost));
+            }
+            return description.isEmpty() ? "unknown cost" : description.toString();
+        }
+    }
+
+    /**
+     * 检查结果
+     * @param rejected 是否拒绝执行
+     * @param message 拒绝原因或警告，放行时为null
+     * @param limitRows 需要限制的返回行数，0 表示不额外限制
+     */
+    public record Verdict(boolean rejected, String message, int limitRows) {
+
+        public static final Verdict ALLOW = new Verdict(false, null, 0);
+
+        public static Verdict reject(String message) {
+            return new Verdict(true, message, 0);
+        }
+
+        public static Verdict warn(String message) {
+            return new Verdict(false, message, 0);
+        }
+
+        public static Verdict limit(String message, int limitRows) {
+            return new Verdict(false, message, limitRows);
+        }
+    }
+
+    private record CachedPlan(Plan plan, long expiresAt) {
+    }
+
+    private record ResolvedConfig(Map<?, ?> source, SqlCostGuardConfig config) {
+    }
+}
@@ -0,0 +1,317 @@
+package org.jim.mcpdbserver.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.DataSourceReplicaConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读副本路由服务
+ * 只读查询路由到复制延迟未超过阈值、未完成请求最少的副本；写操作、带 PRIMARY 一致性提示的查询
+ * 以及没有可用副本时仍然使用主库。复制延迟由后台线程按数据库方言定期检测，各副本在独立的虚拟线程上并行检测
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class ReplicaRouter {
+
+    private static final String POSTGRESQL_LAG_SQL = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                   END""";
+
+    private final DataSourceRegistry dataSourceRegistry;
+    private final DataSourceReplicaConfig replicaConfig;
+
+    // 以连接池实例为键，副本被热加载替换后旧连接池的检测结果在下一轮检测时清除
+    private final Map<DataSource, ReplicaLag> lags = new ConcurrentHashMap<>();
+    // 检测仍未结束的副本：上一次检测超时但没有响应中断时跳过，不重复检测
+    private final Set<DataSource> probing = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger rotation = new AtomicInteger();
+    private volatile Thread probeThread;
+
+    public ReplicaRouter(DataSourceRegistry dataSourceRegistry, DataSourceReplicaConfig replicaConfig) {
+        this.dataSourceRegistry = dataSourceRegistry;
+        this.replicaConfig = replicaConfig;
+    }
+
+    @PostConstruct
+    public void init() {
+        probeThread = Thread.ofVirtual().name("replica-lag-probe").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    probeAll();
+                    Thread.sleep(replicaConfig.getLagCheckInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Replica lag probe failed: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = probeThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 为SQL语句选择数据源
+     * @param dsName 逻辑数据源名称
+     * @param primary 逻辑数据源的主库
+     * @param statement 要执行的SQL语句的解析结果
+     * @return 选中的副本，不满足路由条件时返回主库
+     */
+    public DataSource route(String dsName, DataSource primary, ParsedStatement statement) {
+        if (!replicaConfig.isReadFromReplicas()) {
+            return primary;
+        }
+        Map<String, DataSource> replicas = dataSourceRegistry.getReplicas(dsName);
+        if (replicas.isEmpty() || statement.primaryHint() || !statement.isRead() || statement.multiStatement()) {
+            return primary;
+        }
+
+        List<Map.Entry<String, DataSource>> candidates = new ArrayList<>(replicas.entrySet());
+        // 轮换起点，未完成请求数相同时在副本间均匀分布
+        Collections.rotate(candidates, Math.floorMod(rotation.getAndIncrement(), candidates.size()));
+
+        Map.Entry<String, DataSource> selected = null;
+        int selectedOutstanding = Integer.MAX_VALUE;
+        for (Map.Entry<String, DataSource> candidate : candidates) {
+            if (!isWithinMaxLag(lags.get(candidate.getValue()))) {
+                continue;
+            }
+            int outstanding = outstandingRequests(candidate.getValue());
+            if (outstanding < selectedOutstanding) {
+                selected = candidate;
+                selectedOutstanding = outstanding;
+            }
+        }
+
+        if (selected == null) {
+            log.debug("No replica of datasource [{}] is within max lag, using primary", dsName);
+            return primary;
+        }
+        log.debug("Routing read on datasource [{}] to replica [{}] ({} outstanding requests)",
+                dsName, selected.getKey(), selectedOutstanding);
+        return selected.getValue();
+    }
+
+    /**
+     * 获取数据源各只读副本的状态，用于 getDataSourcesInfo 展示
+     * @param dsName 逻辑数据源名称
+     * @return 副本名称到副本状态的映射，未配置副本时返回空映射
+     */
+    public Map<String, Object> describeReplicas(String dsName) {
+        Map<String, DataSource> replicas = dataSourceRegistry.getReplicas(dsName);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String replicaName : dataSourceRegistry.getReplicaNames(dsName)) {
+            Map<String, Object> replicaInfo = new LinkedHashMap<>();
+            DataSource replica = replicas.get(replicaName);
+            if (replica == null) {
+                replicaInfo.put("status", "UNAVAILABLE");
+            } else {
+                ReplicaLag lag = lags.get(replica);
+                if (lag == null) {
+                    replicaInfo.put("status", "CHECKING");
+                } else if (lag.error() != null) {
+                    replicaInfo.put("status", "UNHEALTHY");
+                    replicaInfo.put("error", lag.error());
+                } else {
+                    replicaInfo.put("status", isWithinMaxLag(lag) ? "AVAILABLE" : "LAGGING");
+                    replicaInfo.put("lag_seconds", lag.seconds());
+                }
+                replicaInfo.put("outstanding_requests", outstandingRequests(replica));
+            }
+            result.put(replicaName, replicaInfo);
+        }
+        return result;
+    }
+
+    private boolean isWithinMaxLag(ReplicaLag lag) {
+        // 尚未检测或检测失败的副本不参与路由
+        return lag != null && lag.error() == null && lag.seconds() * 1000 <= replicaConfig.getMaxLag().toMillis();
+    }
+
+    /**
+     * 未完成请求数：正在使用的连接数加上等待连接的线程数
+     */
+    private static int outstandingRequests(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+            if (pool != null) {
+                return pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 并行检测所有已就绪副本的复制延迟，超时的副本记为检测失败，并清除已被替换或移除的副本的检测结果
+     */
+    private void probeAll() throws InterruptedException {
+        Set<DataSource> probed = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Probe> probes = new ArrayList<>();
+        for (String dsName : dataSourceRegistry.getDataSourceNames()) {
+            dataSourceRegistry.getReplicas(dsName).forEach((replicaName, replica) -> {
+                probed.add(replica);
+                if (probing.add(replica)) {
+                    probes.add(startProbe(dsName, replicaName, replica));
+                }
+            });
+        }
+
+        // 所有检测同时开始，共用一个截止时间
+        Duration timeout = replicaConfig.getLagCheckTimeout();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Probe probe : probes) {
+            ReplicaLag lag;
+            try {
+                lag = probe.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                probe.thread().interrupt();
+                lag = ReplicaLag.failed("lag check timed out after " + timeout);
+            } catch (ExecutionException e) {
+                lag = ReplicaLag.failed(e.getCause().getMessage());
+            }
+            update(probe.dsName(), probe.replicaName(), probe.replica(), lag);
+        }
+        lags.keySet().retainAll(probed);
+    }
+
+    private Probe startProbe(String dsName, String replicaName, DataSource replica) {
+        CompletableFuture<ReplicaLag> result = new CompletableFuture<>();
+        Thread thread = Thread.ofVirtual().name("replica-lag-probe-" + dsName + "-" + replicaName).start(() -> {
+            try {
+                result.complete(probe(replica));
+            } catch (RuntimeException e) {
+                result.complete(ReplicaLag.failed(e.getMessage()));
+            } finally {
+                probing.remove(replica);
+            }
+        });
+        return new Probe(dsName, replicaName, replica, thread, result);
+    }
+
+    private void update(String dsName, String replicaName, DataSource replica, ReplicaLag lag) {
+        ReplicaLag previous = lags.put(replica, lag);
+        if (lag.error() != null && (previous == null || previous.error() == null)) {
+            log.warn("Replica [{}] of datasource [{}] is unhealthy: {}", replicaName, dsName, lag.error());
+        } else if (previous != null && isWithinMaxLag(previous) != isWithinMaxLag(lag)) {
+            log.info("Replica [{}] of datasource [{}] {} (lag {} s)", replicaName, dsName,
+                    isWithinMaxLag(lag) ? "is back within max lag" : "exceeds max lag", lag.seconds());
+        }
+    }
+
+    private ReplicaLag probe(DataSource replica) {
+        String url = replica instanceof HikariDataSource hikariDataSource ? hikariDataSource.getJdbcUrl() : null;
+        DatabaseType type = DatabaseType.fromUrl(url);
+        int timeoutSeconds = (int) Math.max(1, replicaConfig.getLagCheckTimeout().toSeconds());
+
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeoutSeconds);
+            if (type == DatabaseType.MYSQL || type == DatabaseType.MARIADB) {
+                return probeMySql(statement);
+            }
+            if (type == DatabaseType.POSTGRESQL) {
+                try (ResultSet rs = statement.executeQuery(POSTGRESQL_LAG_SQL)) {
+                    return rs.next() ? ReplicaLag.of(rs.getDouble(1)) : ReplicaLag.of(0);
+                }
+            }
+            // 其他数据库无法检测复制延迟，只要连接可用即视为无延迟
+            return ReplicaLag.of(0);
+        } catch (SQLException e) {
+            return ReplicaLag.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * MySQL 8.0.22 起使用 SHOW REPLICA STATUS 和 Seconds_Behind_Source，更早的版本和 MariaDB 使用 SHOW SLAVE STATUS
+     */
+    private static ReplicaLag probeMySql(Statement statement) throws SQLException {
+        try (ResultSet rs = showReplicaStatus(statement)) {
+            if (!rs.next()) {
+                // 不是副本（例如配置成了主库），不存在复制延迟
+                return ReplicaLag.of(0);
+            }
+            String column = hasColumn(rs.getMetaData(), "Seconds_Behind_Source") ? "Seconds_Behind_Source" : "Seconds_Behind_Master";
+            long seconds = rs.getLong(column);
+            if (rs.wasNull()) {
+                return ReplicaLag.failed("replication is not running");
+            }
+            return ReplicaLag.of(seconds);
+        }
+    }
+
+    private static ResultSet showReplicaStatus(Statement statement) throws SQLException {
+        try {
+            return statement.executeQuery("SHOW REPLICA STATUS");
+        } catch (SQLException e) {
+            return statement.executeQuery("SHOW SLAVE STATUS");
+        }
+    }
+
+    private static boolean hasColumn(ResultSetMetaData metaData, String column) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (column.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一次进行中的副本检测
+     */
+    private record Probe(String dsName, String replicaName, DataSource replica, Thread thread,
+                         CompletableFuture<ReplicaLag> result) {
+    }
+
+    /**
+     * 副本复制延迟检测结果
+     * @param seconds 复制延迟（秒）
+     * @param error 检测失败或复制中断的原因，正常时为null
+     */
+    private record ReplicaLag(double seconds, String error) {
+
+        static ReplicaLag of(double seconds) {
+            return new ReplicaLag(seconds, null);
+        }
+
+        static ReplicaLag failed(String error) {
+            return new ReplicaLag(Double.NaN, error);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package org.jim.mcpdbserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.SqlSlowQueryConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.util.RollingFiles;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢查询日志服务
+ * 执行线程只做阈值比较，超过阈值的查询交给单个后台线程：记录日志、按需运行 EXPLAIN 采集执行计划，
+ * 并按数据源和SQL指纹聚合次数、耗时、p95 和行数。聚合最多保留 top-k 个指纹，满了按 Space-Saving 算法
+ * 用新指纹替换总耗时最小的指纹，新指纹继承被替换指纹的次数和总耗时作为误差上界，持续出现的慢查询不会被一次性的查询挤掉；
+ * 后台队列满时丢弃并计数，慢查询日志不会拖慢查询本身
+ * @author yangxin
+ */
+@Service
+@Slf4j
+public class SlowQueryLog {
+
+    private static final Comparator<FingerprintStats> BY_TOTAL = Comparator
+            .comparingLong((FingerprintStats stats) -> stats.totalNanos)
+            .thenComparingLong(stats -> stats.sequence);
+
+    private final SqlSlowQueryConfig slowQueryConfig;
+    private final DataSourceService dataSourceService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadPoolExecutor worker;
+    private final ScheduledExecutorService dumper;
+
+    // 只由后台线程修改，读取统计和转储时加锁复制
+    private final Map<String, FingerprintStats> fingerprints = new HashMap<>();
+    // 按总耗时排序的同一批统计，修改总耗时前先移出、修改后再放回
+    private final TreeSet<FingerprintStats> byTotal = new TreeSet<>(BY_TOTAL);
+    private long nextSequence;
+    private final Map<String, ResolvedConfig> resolvedConfigs = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private long dumpedChanges;
+
+    public SlowQueryLog(SqlSlowQueryConfig slowQueryConfig, DataSourceService dataSourceService) {
+        this.slowQueryConfig = slowQueryConfig;
+        this.dataSourceService = dataSourceService;
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, slowQueryConfig.getQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-log");
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> dropped.increment());
+        if (StringUtils.hasText(slowQueryConfig.getDumpFile())) {
+            this.dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1000, slowQueryConfig.getDumpInterval().toMillis());
+            dumper.scheduleWithFixedDelay(this::dump, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("Slow query stats will be dumped to {} every {} ms", slowQueryConfig.getDumpFile(), interval);
+        } else {
+            this.dumper = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker.shutdownNow();
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dump();
+        }
+    }
+
+    /**
+     * 记录一次SQL执行，未超过数据源的慢查询阈值时直接返回
+     * @param dsName 数据源名称
+     * @param dataSource 执行SQL的数据源，采集执行计划时使用
+     * @param statement 实际执行的SQL语句的解析结果
+     * @param acquireNanos 获取连接的耗时
+     * @param executeNanos 执行的耗时
+     * @param fetchNanos 读取结果集的耗时
+     * @param rows 返回或影响的行数
+     * @param error 失败时的错误信息，成功时为null
+     */
+    public void record(String dsName, DataSource dataSource, ParsedStatement statement,
+                       long acquireNanos, long executeNanos, long fetchNanos, long rows, String error) {
+        if (!slowQueryConfig.isEnabled()) {
+            return;
+        }
+        SqlSlowQueryConfig config = resolveConfig(dsName);
+        long totalNanos = acquireNanos + executeNanos + fetchNanos;
+        if (!config.isEnabled() || totalNanos < config.getThreshold().toNanos()) {
+            return;
+        }
+        SlowQuery query = new SlowQuery(dsName, dataSource, statement, totalNanos, acquireNanos, executeNanos, fetchNanos,
+                rows, error, Instant.now());
+        // 队列满或服务关闭后由拒绝策略计入 dropped
+        worker.execute(() -> process(query, config));
+    }
+
+    /**
+     * 获取按指纹聚合的慢查询统计，按总耗时从大到小排列
+     * @param dsName 只返回该数据源的统计，为null时返回全部
+     * @param limit 最多返回的指纹数，为null或不大于0时返回全部
+     * @return 慢查询统计
+     */
+    public Map<String, Object> getStats(String dsName, Integer limit) {
+        List<Map<String, Object>> queries;
+        synchronized (fingerprints) {
+            queries = byTotal.descendingSet().stream()
+                    .filter(stats -> dsName == null || dsName.equals(stats.dataSource))
+                    .limit(limit != null && limit > 0 ? limit : Long.MAX_VALUE)
+                    .map(FingerprintStats::toMap)
+                    .toList();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", slowQueryConfig.isEnabled());
+        result.put("threshold_ms", slowQueryConfig.getThreshold().toMillis());
+        result.put("recorded", recorded.sum());
+        result.put("dropped", dropped.sum());
+        result.put("evicted", evicted.get());
+        result.put("queries", queries);
+        return result;
+    }
+
+    private void process(SlowQuery query, SqlSlowQueryConfig config) {
+        log.warn("Slow query on datasource [{}] took {} ms (acquire {} ms, execute {} ms, fetch {} ms), {} rows{}: {}",
+                query.dataSource(), millis(query.totalNanos()), millis(query.acquireNanos()), millis(query.executeNanos()),
+                millis(query.fetchNanos()), query.rows(), query.error() != null ? ", failed" : "", query.statement().fingerprint());
+        recorded.increment();
+
+        String key = key(query.dataSource(), query.statement().fingerprint());
+        FingerprintStats stats;
+        boolean explain;
+        synchronized (fingerprints) {
+            stats = fingerprints.get(key);
+            if (stats == null) {
+                stats = new FingerprintStats(query.dataSource(), query.statement().fingerprint(),
+                        Math.max(1, slowQueryConfig.getSamplesPerFingerprint()), nextSequence++);
+                if (fingerprints.size() >= Math.max(1, slowQueryConfig.getTopK())) {
+                    stats.inherit(evictSmallest());
+                }
+                fingerprints.put(key, stats);
+            } else {
+                byTotal.remove(stats);
+            }
+            stats.add(query);
+            byTotal.add(stats);
+            long now = System.nanoTime();
+            explain = config.isExplain() && (stats.planCapturedAt == 0
+                    || now - stats.planCapturedAt >= config.getExplainInterval().toNanos());
+            if (explain) {
+                stats.planCapturedAt = now;
+            }
+        }
+        changes.incrementAndGet();
+
+        if (explain) {
+            String plan = explain(query, config);
+            if (plan != null) {
+                log.info("Plan of slow query on datasource [{}] for {}:\n{}", query.dataSource(), query.statement().fingerprint(), plan);
+                synchronized (fingerprints) {
+                    stats.plan = plan;
+                }
+            }
+        }
+    }
+
+    /**
+     * 淘汰总耗时最小的指纹，调用方持有锁
+     * @return 被淘汰的指纹统计
+     */
+    private FingerprintStats evictSmallest() {
+        FingerprintStats smallest = byTotal.pollFirst();
+        fingerprints.remove(key(smallest.dataSource, smallest.fingerprint));
+        evicted.incrementAndGet();
+        return smallest;
+    }
+
+    private static String key(String dataSource, String fingerprint) {
+        return dataSource + '\n' + fingerprint;
+    }
+
+    /**
+     * 在执行慢查询的数据源上运行 EXPLAIN，只对单条只读查询；不支持的数据库或失败时返回null
+     */
+    private String explain(SlowQuery query, SqlSlowQueryConfig config) {
+        ParsedStatement statement = query.statement();
+        if (!statement.isRead() || statement.multiStatement()) {
+            return null;
+        }
+        DatabaseType type = dataSourceService.getDatabaseType(query.dataSource());
+        String prefix = type == null ? null : switch (type) {
+            case MYSQL, MARIADB, POSTGRESQL, H2, CLICKHOUSE -> "EXPLAIN ";
+            case SQLITE -> "EXPLAIN QUERY PLAN ";
+            default -> null;
+        };
+        if (prefix == null) {
+            return null;
+        }
+        try (Connection connection = query.target().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.setQueryTimeout((int) Math.max(1, config.getExplainTimeout().toSeconds()));
+            try (ResultSet rs = stmt.executeQuery(prefix + QueryCostGuard.withoutTrailingSemicolon(statement.sql()))) {
+                int columns = rs.getMetaData().getColumnCount();
+                StringBuilder plan = new StringBuilder();
+                while (rs.next() && plan.length() < config.getMaxPlanChars()) {
+                    for (int i = 1; i <= columns; i++) {
+                        plan.append(i > 1 ? "\t" : "").append(rs.getString(i));
+                    }
+                    plan.append('\n');
+                }
+                int maxChars = Math.max(1, config.getMaxPlanChars());
+                return plan.length() > maxChars ? plan.substring(0, maxChars) + "…" : plan.toString().stripTrailing();
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.debug("EXPLAIN of slow query failed on datasource [{}]: {}", query.dataSource(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 转储聚合统计：追加一行 JSON，文件超过大小上限时先滚动；期间没有新的慢查询时跳过
+     */
+    private synchronized void dump() {
+        long current = changes.get();
+        if (current == dumpedChanges) {
+            return;
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", Instant.now().toString());
+        snapshot.putAll(getStats(null, null));
+        Path file = Path.of(slowQueryConfig.getDumpFile());
+        try {
+            byte[] line = (objectMapper.writeValueAsString(snapshot) + "\n").getBytes(StandardCharsets.UTF_8);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file) && Files.size(file) + line.length > slowQueryConfig.getDumpMaxFileSize().toBytes()) {
+                RollingFiles.roll(file, slowQueryConfig.getDumpMaxFiles());
+            }
+            Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            dumpedChanges = current;
+        } catch (IOException e) {
+            log.warn("Failed to dump slow query stats to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 全局配置叠加数据源的 slow-query 配置
+     */
+    private SqlSlowQueryConfig resolveConfig(String dsName) {
+        Object overrides = dataSourceService.getProperties(dsName).get("slow-query");
+        if (!(overrides instanceof Map<?, ?> overrideMap) || overrideMap.isEmpty()) {
+            return slowQueryConfig;
+        }
+        ResolvedConfig resolved = resolvedConfigs.get(dsName);
+        if (resolved == null || resolved.source() != overrideMap) {
+            SqlSlowQueryConfig config = new SqlSlowQueryConfig();
+            BeanUtils.copyProperties(slowQueryConfig, config);
+            new Binder(new MapConfigurationPropertySource(overrideMap)).bind(ConfigurationPropertyName.EMPTY, Bindable.ofInstance(config));
+            resolved = new ResolvedConfig(overrideMap, config);
+            resolvedConfigs.put(dsName, resolved);
+        }
+        return resolved.config();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * 一次慢查询
+     */
+    private record SlowQuery(String dataSource, DataSource target, ParsedStatement statement, long totalNanos,
+                             long acquireNanos, long executeNanos, long fetchNanos, long rows, String error, Instant time) {
+    }
+
+    /**
+     * 一个数据源上一个SQL指纹的聚合统计，p95 取最近 samples 个耗时样本计算
+     * 替换其他指纹得到的统计，count 和 totalNanos 包含继承的部分，是实际值的上界，误差不超过继承的部分；
+     * 平均值和 p95 只按本指纹实际记录的查询计算
+     */
+    private static final class FingerprintStats {
+
+        private final String dataSource;
+        private final String fingerprint;
+        private final long[] samples;
+        private final long sequence;
+        private long count;
+        private long countError;
+        private long totalNanosError;
+        private long errors;
+        private long totalNanos;
+        private long maxNanos;
+        private long totalRows;
+        private LastQuery last;
+        private String lastError;
+        private String plan;
+        private long planCapturedAt;
+
+        private FingerprintStats(String dataSource, String fingerprint, int samples, long sequence) {
+            this.dataSource = dataSource;
+            this.fingerprint = fingerprint;
+            this.samples = new long[samples];
+            this.sequence = sequence;
+        }
+
+        /**
+         * 继承被替换指纹的次数和总耗时作为误差
+         */
+        private void inherit(FingerprintStats replaced) {
+            count = countError = replaced.count;
+            totalNanos = totalNanosError = replaced.totalNanos;
+        }
+
+        private long observed() {
+            return count - countError;
+        }
+
+        private void add(SlowQuery query) {
+            samples[(int) (observed() % samples.length)] = query.totalNanos();
+            count++;
+            totalNanos += query.totalNanos();
+            maxNanos = Math.max(maxNanos, query.totalNanos());
+            totalRows += query.rows();
+            if (query.error() != null) {
+                errors++;
+                lastError = query.error();
+            }
+            // 只保留耗时和行数，不持有数据源和SQL的引用
+            last = new LastQuery(query.time(), query.totalNanos(), query.acquireNanos(), query.executeNanos(),
+                    query.fetchNanos(), query.rows());
+        }
+
+        private long p95() {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(observed(), samples.length));
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(sorted.length * 0.95) - 1)];
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("datasource", dataSource);
+            map.put("fingerprint", fingerprint);
+            map.put("count", count);
+            map.put("errors", errors);
+            map.put("total_ms", millis(totalNanos));
+            if (countError > 0) {
+                map.put("count_error", countError);
+                map.put("total_error_ms", millis(totalNanosError));
+            }
+            map.put("mean_ms", millis((totalNanos - totalNanosError) / observed()));
+            map.put("p95_ms", millis(p95()));
+            map.put("max_ms", millis(maxNanos));
+            map.put("rows_total", totalRows);
+            map.put("rows_mean", Math.round(totalRows * 100.0 / observed()) / 100.0);
+            Map<String, Object> lastQuery = new LinkedHashMap<>();
+            lastQuery.put("time", last.time().toString());
+            lastQuery.put("total_ms", millis(last.totalNanos()));
+            lastQuery.put("acquire_ms", millis(last.acquireNanos()));
+            lastQuery.put("execute_ms", millis(last.executeNanos()));
+            lastQuery.put("fetch_ms", millis(last.fetchNanos()));
+            lastQuery.put("rows", last.rows());
+            map.put("last", lastQuery);
+            if (lastError != null) {
+                map.put("last_error", lastError);
+            }
+            if (plan != null) {
+                map.put("plan", plan);
+            }
+            return map;
+        }
+    }
+
+    private record LastQuery(Instant time, long totalNanos, long acquireNanos, long executeNanos, long fetchNanos, long rows) {
+    }
+
+    private record ResolvedConfig(Map<?, ?> source, SqlSlowQueryConfig config) {
+    }
+}
@@ -0,0 +1,158 @@
+package org.jim.mcpdbserver.sql;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 关键字集合，用于在SQL原文中按位置查找单词，不创建子串
+ * 构建时搜索一个让所有关键字落在不同槽位的哈希种子（完美哈希），查找时只需计算一次哈希并比较一个候选，忽略大小写
+ * @author yangxin
+ */
+public final class KeywordSet {
+
+    private static final int MAX_SEED_ATTEMPTS = 10_000;
+
+    private final String[] keywords;
+    private final String[] slots;
+    private final int[] slotIndexes;
+    private final int mask;
+    private final int seed;
+    private final int maxLength;
+
+    private KeywordSet(String[] keywords, String[] slots, int[] slotIndexes, int seed) {
+        this.keywords = keywords;
+        this.slots = slots;
+        this.slotIndexes = slotIndexes;
+        this.mask = slots.length - 1;
+        this.seed = seed;
+        int longest = 0;
+        for (String keyword : keywords) {
+            longest = Math.max(longest, keyword.length());
+        }
+        this.maxLength = longest;
+    }
+
+    /**
+     * 构建关键字集合，关键字去除首尾空白后忽略大小写，空白关键字被忽略
+     * @param words 关键字，必须是单个单词
+     * @return 关键字集合
+     */
+    public static KeywordSet of(Collection<String> words) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String word : words) {
+            if (word != null && !word.isBlank()) {
+                String keyword = word.trim();
+                if (!isSingleWord(keyword)) {
+                    throw new IllegalArgumentException("Keyword must be a single word: " + keyword);
+                }
+                unique.add(keyword);
+            }
+        }
+        String[] keywords = unique.toArray(new String[0]);
+        String[] lowerCase = new String[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            lowerCase[i] = keywords[i].toLowerCase(Locale.ROOT);
+        }
+
+        int size = Integer.highestOneBit(Math.max(1, keywords.length * 2 - 1)) << 1;
+        while (true) {
+            for (int seed = 1; seed <= MAX_SEED_ATTEMPTS; seed++) {
+                String[] slots = new String[size];
+                int[] slotIndexes = new int[size];
+                if (place(lowerCase, slots, slotIndexes, seed)) {
+                    return new KeywordSet(keywords, slots, slotIndexes, seed);
+                }
+            }
+            size <<= 1;
+        }
+    }
+
+    public static KeywordSet of(String... words) {
+        return of(List.of(words));
+    }
+
+    /**
+     * 判断关键字是否只由单词字符组成，可以用 {@link KeywordSet} 匹配
+     */
+    public static boolean isSingleWord(String keyword) {
+        if (keyword.isEmpty() || !(Character.isLetter(keyword.charAt(0)) || keyword.charAt(0) == '_')) {
+            return false;
+        }
+        for (int i = 1; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '$')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean place(String[] lowerCase, String[] slots, int[] slotIndexes, int seed) {
+        int mask = slots.length - 1;
+        for (int i = 0; i < lowerCase.length; i++) {
+            int slot = hash(lowerCase[i], 0, lowerCase[i].length(), seed) & mask;
+            if (slots[slot] != null) {
+                return false;
+            }
+            slots[slot] = lowerCase[i];
+            slotIndexes[slot] = i;
+        }
+        return true;
+    }
+
+    /**
+     * 查找 text[start, end) 对应的关键字
+     * @return 关键字序号，不是关键字时返回-1
+     */
+    public int indexOf(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > maxLength || keywords.length == 0) {
+            return -1;
+        }
+        int slot = hash(text, start, end, seed) & mask;
+        String candidate = slots[slot];
+        if (candidate == null || candidate.length() != length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != candidate.charAt(i)) {
+                return -1;
+            }
+        }
+        return slotIndexes[slot];
+    }
+
+    /**
+     * 当前记号是否为关键字
+     * @return 关键字序号，不是关键字时返回-1
+     */
+    public int indexOf(SqlLexer lexer) {
+        return indexOf(lexer.getSql(), lexer.tokenStart(), lexer.tokenEnd());
+    }
+
+    public boolean contains(SqlLexer lexer) {
+        return indexOf(lexer) >= 0;
+    }
+
+    /**
+     * 按序号获取关键字（保留配置中的原始写法）
+     */
+    public String get(int index) {
+        return keywords[index];
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    private static int hash(CharSequence text, int start, int end, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            h = (h ^ Character.toLowerCase(text.charAt(i))) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,49 @@
+package org.jim.mcpdbserver.sql;
+
+import java.util.List;
+
+/**
+ * SQL语句的解析结果，每条SQL只解析一次，校验、路由和执行都使用同一个结果
+ * @param sql 原始SQL
+ * @param type 语句类型，多条语句时取影响最大的类型
+ * @param multiStatement 是否包含多条语句
+ * @param tables 引用的表（按出现顺序，去掉引号，保留 schema 前缀）
+ * @param fingerprint 规范化后的语句指纹：去掉注释，字面量替换为 ?，关键字和标识符小写，空白统一
+ * @param literals 字符串和数字字面量在原始SQL中的位置
+ * @param words 所有方言解释下出现在代码中的单词的位置，用于关键字检查
+ * @param primaryHint 是否带有要求读主库的 /*+ PRIMARY *&#47; 提示
+ * @author yangxin
+ */
+public record ParsedStatement(String sql, StatementType type, boolean multiStatement, List<String> tables,
+                              String fingerprint, List<Span> literals, WordSpans words, boolean primaryHint) {
+
+    /**
+     * 语句类型
+     */
+    public enum StatementType {
+        /**
+         * 只读查询：SELECT、WITH、SHOW、DESCRIBE、EXPLAIN、VALUES，且不含写入或加锁子句
+         */
+        READ,
+        /**
+         * 写入或其他有副作用的语句，包括无法识别的语句
+         */
+        WRITE,
+        /**
+         * 结构变更：CREATE、ALTER、DROP、TRUNCATE、RENAME、COMMENT
+         */
+        DDL
+    }
+
+    /**
+     * 原始SQL中的一段位置
+     * @param start 起始位置（包含）
+     * @param end 结束位置（不包含）
+     */
+    public record Span(int start, int end) {
+    }
+
+    public boolean isRead() {
+        return type == StatementType.READ;
+    }
+}
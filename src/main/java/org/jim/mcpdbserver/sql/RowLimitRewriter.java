@@ -0,0 +1,153 @@
+package org.jim.mcpdbserver.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.SqlRowLimitConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询行数限制改写器
+ * 为没有行数限制的只读查询按目标数据库的方言加上限制：MySQL、MariaDB、PostgreSQL、H2、SQLite、ClickHouse 使用 LIMIT，
+ * SQL Server 使用 TOP，Oracle 使用 FETCH FIRST 或 ROWNUM。已经带有限制、无法可靠改写或方言未知的语句保持不变
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class RowLimitRewriter {
+
+    /**
+     * 最外层出现这些关键字时视为已经限制了行数（OFFSET 单独出现时各方言对追加 LIMIT 的顺序要求不同，同样不改写）
+     */
+    private static final KeywordSet LIMIT_KEYWORDS = KeywordSet.of("limit", "top", "fetch", "rownum", "offset");
+
+    private static final KeywordSet SET_OPERATORS = KeywordSet.of("union", "intersect", "except", "minus");
+
+    /**
+     * ClickHouse 中必须写在 LIMIT 之后的子句
+     */
+    private static final KeywordSet CLICKHOUSE_TRAILING_CLAUSES = KeywordSet.of("settings", "format");
+
+    private final SqlRowLimitConfig rowLimitConfig;
+    private final SqlStatementParser sqlStatementParser;
+
+    public RowLimitRewriter(SqlRowLimitConfig rowLimitConfig, SqlStatementParser sqlStatementParser) {
+        this.rowLimitConfig = rowLimitConfig;
+        this.sqlStatementParser = sqlStatementParser;
+    }
+
+    /**
+     * 计算生效的行数上限
+     * 调用时指定的上限只能收紧配置的上限，不能放宽；确实需要更多行时在SQL中显式写出限制，显式限制不会被改写
+     * @param dataSourceMaxRows 数据源配置的上限，未配置时为null
+     * @param requestedMaxRows 调用时指定的上限，未指定时为null
+     * @return 生效的上限，0 表示不限制
+     */
+    public int resolveMaxRows(Integer dataSourceMaxRows, Integer requestedMaxRows) {
+        int configured = Math.max(dataSourceMaxRows != null ? dataSourceMaxRows : rowLimitConfig.getDefaultMaxRows(), 0);
+        if (requestedMaxRows == null || requestedMaxRows <= 0) {
+            return configured;
+        }
+        return configured > 0 ? Math.min(configured, requestedMaxRows) : requestedMaxRows;
+    }
+
+    /**
+     * 为没有行数限制的只读查询加上限制
+     * @param statement SQL语句的解析结果
+     * @param databaseType 目标数据库类型
+     * @param maxRows 行数上限，0 表示不限制
+     * @return 改写后语句的解析结果，不需要或无法改写时返回原语句
+     */
+    public ParsedStatement apply(ParsedStatement statement, DatabaseType databaseType, int maxRows) {
+        if (maxRows <= 0 || databaseType == null || !statement.isRead() || statement.multiStatement()) {
+            return statement;
+        }
+        String rewritten = rewrite(statement.sql(), databaseType, maxRows);
+        if (rewritten == null) {
+            return statement;
+        }
+        log.debug("Applied {} row limit of {} rows: {}", databaseType.getDisplayName(), maxRows, rewritten);
+        return sqlStatementParser.parse(rewritten);
+    }
+
+    /**
+     * 改写SQL，只处理以 SELECT 或 WITH 开头的单条语句
+     * @return 改写后的SQL，已有限制或无法可靠改写时返回null
+     */
+    private String rewrite(String sql, DatabaseType databaseType, int maxRows) {
+        SqlLexer lexer = new SqlLexer(sql);
+        boolean leading = true;
+        int depth = 0;
+        // 最外层第一个 SELECT（及其后的 DISTINCT/ALL）结束的位置，SQL Server 的 TOP 写在这里
+        int selectEnd = -1;
+        boolean afterSelect = false;
+        boolean setOperation = false;
+        // 最后一个代码记号结束的位置，尾部的分号和注释保留在限制之后
+        int codeEnd = -1;
+        int trailingClauseStart = -1;
+
+        SqlLexer.TokenType type;
+        while ((type = lexer.next()) != SqlLexer.TokenType.EOF) {
+            boolean word = type == SqlLexer.TokenType.WORD;
+            if (leading && !(word && (lexer.tokenIs("select") || lexer.tokenIs("with")))) {
+                return null;
+            }
+            leading = false;
+
+            if (type == SqlLexer.TokenType.PUNCTUATION) {
+                char c = lexer.tokenChar();
+                if (c == ';') {
+                    continue;
+                }
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && depth > 0) {
+                    depth--;
+                }
+            }
+            codeEnd = lexer.tokenEnd();
+
+            if (!word || depth > 0) {
+                afterSelect = false;
+                continue;
+            }
+            if (LIMIT_KEYWORDS.contains(lexer)) {
+                return null;
+            }
+            if (SET_OPERATORS.contains(lexer)) {
+                setOperation = true;
+            }
+            if (afterSelect && (lexer.tokenIs("distinct") || lexer.tokenIs("all"))) {
+                selectEnd = lexer.tokenEnd();
+            }
+            afterSelect = false;
+            if (selectEnd < 0 && lexer.tokenIs("select")) {
+                selectEnd = lexer.tokenEnd();
+                afterSelect = true;
+            }
+            if (trailingClauseStart < 0 && databaseType == DatabaseType.CLICKHOUSE && CLICKHOUSE_TRAILING_CLAUSES.contains(lexer)) {
+                trailingClauseStart = lexer.tokenStart();
+            }
+        }
+
+        // 词法存在方言歧义时无法确定语句结构，不改写
+        if (codeEnd < 0 || lexer.getAmbiguities() != 0) {
+            return null;
+        }
+
+        return switch (databaseType) {
+            case MYSQL, MARIADB, POSTGRESQL, H2, SQLITE -> insert(sql, codeEnd, " LIMIT " + maxRows);
+            case CLICKHOUSE -> trailingClauseStart < 0
+                    ? insert(sql, codeEnd, " LIMIT " + maxRows)
+                    : insert(sql, trailingClauseStart, "LIMIT " + maxRows + " ");
+            // TOP 只作用于 UNION 的第一个查询，这种语句不改写
+            case SQL_SERVER -> setOperation || selectEnd < 0 ? null : insert(sql, selectEnd, " TOP (" + maxRows + ")");
+            case ORACLE -> rowLimitConfig.getOracleSyntax() == SqlRowLimitConfig.OracleSyntax.ROWNUM
+                    ? "SELECT * FROM (" + sql.substring(0, codeEnd) + ") WHERE ROWNUM <= " + maxRows + sql.substring(codeEnd)
+                    : insert(sql, codeEnd, " FETCH FIRST " + maxRows + " ROWS ONLY");
+        };
+    }
+
+    private static String insert(String sql, int position, String clause) {
+        return sql.substring(0, position) + clause + sql.substring(position);
+    }
+}
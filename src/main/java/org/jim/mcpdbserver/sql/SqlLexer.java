@@ -0,0 +1,449 @@
+package org.jim.mcpdbserver.sql;
+
+/**
+ * 单趟SQL词法分析器
+ * 按顺序扫描SQL文本，跳过注释、字符串字面量和带引号的标识符，只输出单词、数字和标点，
+ * 每个记号只记录在原始SQL中的起止位置，扫描过程不创建字符串
+ * <p>
+ * 各数据库的引号和注释规则并不一致，单独一种解释可能把另一种解释下的代码当成字面量或注释。
+ * 分析器按默认解释扫描，并通过 {@link #getAmbiguities()} 报告遇到的歧义，调用方必须用对应的选项重新扫描，
+ * 合并所有解释下的结果：
+ * <ul>
+ *     <li>{@code --} 后必须跟空白才视为注释（MySQL 规则），其他数据库不要求空白，遇到时报告 {@link #DASH_COMMENTS}</li>
+ *     <li>{@code #} 默认不视为注释（PostgreSQL 中是运算符），MySQL 中是行注释，遇到时报告 {@link #HASH_COMMENTS}</li>
+ *     <li>块注释默认不嵌套，PostgreSQL 中可以嵌套，注释中出现 {@code /*} 时报告 {@link #NESTED_COMMENTS}；
+ *     MySQL/MariaDB 的可执行注释 {@code /*!}、{@code /*M!} 中的内容按代码处理</li>
+ *     <li>反斜杠默认不转义引号（标准SQL），遇到时报告 {@link #BACKSLASH_ESCAPES}</li>
+ *     <li>Oracle 的 q'[...]' 默认不识别，遇到时报告 {@link #ORACLE_Q_QUOTES}</li>
+ *     <li>方括号默认按 SQL Server 的带引号标识符处理，但在 H2、PostgreSQL 中是数组构造和下标，
+ *     遇到时报告 {@link #BRACKETS_AS_CODE}</li>
+ *     <li>PostgreSQL 的 $tag$ 字符串内容可能被 DO 语句执行，其中的单词照常输出</li>
+ *     <li>未闭合的字面量、标识符或注释从开始符号之后按代码重新扫描</li>
+ * </ul>
+ * @author yangxin
+ */
+public final class SqlLexer {
+
+    /**
+     * 字符串中的反斜杠转义后一个字符（MySQL 默认、PostgreSQL 的 E'' 字符串）
+     */
+    public static final int BACKSLASH_ESCAPES = 1;
+
+    /**
+     * 识别 Oracle 的 q'[...]' 字符串
+     */
+    public static final int ORACLE_Q_QUOTES = 1 << 1;
+
+    /**
+     * 把字符串字面量的内容按代码扫描，用于 DO、PREPARE、EXECUTE 等会执行字符串的语句
+     */
+    public static final int LITERALS_AS_CODE = 1 << 2;
+
+    /**
+     * 把方括号按标点处理，其中的内容按代码扫描（H2、PostgreSQL 的 ARRAY[...] 和下标）
+     */
+    public static final int BRACKETS_AS_CODE = 1 << 3;
+
+    /**
+     * 把 {@code #} 到行尾视为注释（MySQL）
+     */
+    public static final int HASH_COMMENTS = 1 << 4;
+
+    /**
+     * {@code --} 后不跟空白也视为注释（PostgreSQL、Oracle、SQL Server、H2 等）
+     */
+    public static final int DASH_COMMENTS = 1 << 5;
+
+    /**
+     * 块注释可以嵌套（PostgreSQL）
+     */
+    public static final int NESTED_COMMENTS = 1 << 6;
+
+    /**
+     * 选项组合的总数，调用方可以按位遍历所有组合
+     */
+    public static final int OPTION_COMBINATIONS = 1 << 7;
+
+    /**
+     * 记号类型
+     */
+    public enum TokenType {
+        /**
+         * 关键字或未加引号的标识符
+         */
+        WORD,
+        /**
+         * 数字
+         */
+        NUMBER,
+        /**
+         * 字符串字面量，起止位置包含引号
+         */
+        STRING,
+        /**
+         * 带引号的标识符（反引号、双引号、方括号），起止位置包含引号
+         */
+        QUOTED_IDENTIFIER,
+        /**
+         * 单个标点或运算符字符
+         */
+        PUNCTUATION,
+        /**
+         * 扫描结束
+         */
+        EOF
+    }
+
+    private final String sql;
+    private final int length;
+    private final int options;
+
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+    private int ambiguities;
+
+    // 正在扫描的 $tag$ 字符串：内容结束位置和标签长度（含两个$），不在其中时为-1
+    private int dollarBodyEnd = -1;
+    private int dollarTagLength;
+
+    public SqlLexer(String sql) {
+        this(sql, 0);
+    }
+
+    public SqlLexer(String sql, int options) {
+        this.sql = sql;
+        this.length = sql.length();
+        this.options = options;
+    }
+
+    /**
+     * 读取下一个记号
+     * @return 记号类型，扫描结束时返回 {@link TokenType#EOF}
+     */
+    public TokenType next() {
+        if (dollarBodyEnd >= 0) {
+            TokenType type = nextInDollarBody();
+            if (type != null) {
+                return type;
+            }
+        }
+
+        while (position < length) {
+            char c = sql.charAt(position);
+            int start = position;
+
+            if (Character.isWhitespace(c)) {
+                position++;
+                continue;
+            }
+
+            if (c == '-' && peek(1) == '-') {
+                if (position + 2 >= length || Character.isWhitespace(sql.charAt(position + 2))) {
+                    skipLineComment();
+                    continue;
+                }
+                ambiguities |= DASH_COMMENTS;
+                if ((options & DASH_COMMENTS) != 0) {
+                    skipLineComment();
+                    continue;
+                }
+            }
+
+            if (c == '#') {
+                ambiguities |= HASH_COMMENTS;
+                if ((options & HASH_COMMENTS) != 0) {
+                    skipLineComment();
+                    continue;
+                }
+            }
+
+            if (c == '/' && peek(1) == '*') {
+                if (peek(2) == '!' || (peek(2) == 'M' && peek(3) == '!')) {
+                    // MySQL/MariaDB 可执行注释：跳过开始符号和版本号，内容按代码扫描，结束的 */ 作为标点忽略
+                    position += peek(2) == '!' ? 3 : 4;
+                    while (position < length && Character.isDigit(sql.charAt(position))) {
+                        position++;
+                    }
+                    continue;
+                }
+                int end = blockCommentEnd();
+                // 未闭合的注释按代码重新扫描
+                position = end < 0 ? position + 2 : end;
+                continue;
+            }
+
+            if (c == '\'' || c == '"') {
+                if ((options & LITERALS_AS_CODE) != 0) {
+                    position++;
+                    continue;
+                }
+                if (scanQuoted(c, c, true)) {
+                    return token(c == '\'' ? TokenType.STRING : TokenType.QUOTED_IDENTIFIER, start);
+                }
+                continue;
+            }
+
+            if (c == '[') {
+                ambiguities |= BRACKETS_AS_CODE;
+                if ((options & BRACKETS_AS_CODE) != 0) {
+                    position++;
+                    return token(TokenType.PUNCTUATION, start);
+                }
+            }
+
+            if (c == '`' || c == '[') {
+                if (scanQuoted(c, c == '[' ? ']' : '`', false)) {
+                    return token(TokenType.QUOTED_IDENTIFIER, start);
+                }
+                continue;
+            }
+
+            if (c == '$' && startDollarBody()) {
+                TokenType type = nextInDollarBody();
+                if (type != null) {
+                    return type;
+                }
+                continue;
+            }
+
+            if (isWordStart(c)) {
+                if (isOracleQuotePrefix()) {
+                    ambiguities |= ORACLE_Q_QUOTES;
+                    if ((options & ORACLE_Q_QUOTES) != 0 && (options & LITERALS_AS_CODE) == 0 && scanOracleQuote()) {
+                        return token(TokenType.STRING, start);
+                    }
+                }
+                position++;
+                while (position < length && isWordPart(sql.charAt(position))) {
+                    position++;
+                }
+                return token(TokenType.WORD, start);
+            }
+
+            if (Character.isDigit(c)) {
+                position++;
+                while (position < length && (Character.isLetterOrDigit(sql.charAt(position)) || sql.charAt(position) == '.')) {
+                    position++;
+                }
+                return token(TokenType.NUMBER, start);
+            }
+
+            position++;
+            return token(TokenType.PUNCTUATION, start);
+        }
+
+        tokenStart = length;
+        tokenEnd = length;
+        return TokenType.EOF;
+    }
+
+    /**
+     * 当前记号在SQL中的起始位置（包含）
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * 当前记号在SQL中的结束位置（不包含）
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * 当前记号的第一个字符
+     */
+    public char tokenChar() {
+        return sql.charAt(tokenStart);
+    }
+
+    /**
+     * 当前记号是否为指定单词（忽略大小写）
+     * @param word 小写单词
+     */
+    public boolean tokenIs(String word) {
+        return tokenEnd - tokenStart == word.length() && sql.regionMatches(true, tokenStart, word, 0, word.length());
+    }
+
+    /**
+     * 扫描过程中遇到的、可能需要用其他选项重新扫描的歧义
+     * @return {@link #BACKSLASH_ESCAPES}、{@link #ORACLE_Q_QUOTES}、{@link #BRACKETS_AS_CODE}、{@link #HASH_COMMENTS}、
+     * {@link #DASH_COMMENTS}、{@link #NESTED_COMMENTS} 的组合
+     */
+    public int getAmbiguities() {
+        return ambiguities;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    private TokenType token(TokenType type, int start) {
+        tokenStart = start;
+        tokenEnd = position;
+        return type;
+    }
+
+    private char peek(int offset) {
+        int index = position + offset;
+        return index < length ? sql.charAt(index) : '\0';
+    }
+
+    private void skipLineComment() {
+        while (position < length && sql.charAt(position) != '\n' && sql.charAt(position) != '\r') {
+            position++;
+        }
+    }
+
+    /**
+     * 查找从当前位置开始的块注释的结束位置，注释中出现 /* 时报告 {@link #NESTED_COMMENTS}，
+     * 按嵌套规则扫描时每个 /* 都需要对应的 *&#47;
+     * @return 结束符号之后的位置，未闭合时返回-1
+     */
+    private int blockCommentEnd() {
+        int depth = 1;
+        int i = position + 2;
+        while (i + 1 < length) {
+            char c = sql.charAt(i);
+            if (c == '*' && sql.charAt(i + 1) == '/') {
+                if (--depth == 0) {
+                    return i + 2;
+                }
+                i += 2;
+            } else if (c == '/' && sql.charAt(i + 1) == '*') {
+                ambiguities |= NESTED_COMMENTS;
+                if ((options & NESTED_COMMENTS) != 0) {
+                    depth++;
+                }
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 扫描带引号的字面量或标识符，连续两个结束引号视为转义
+     * @return 是否找到结束引号；未找到时位置移到开始引号之后，内容按代码重新扫描
+     */
+    private boolean scanQuoted(char open, char close, boolean backslashAllowed) {
+        int start = position;
+        position++;
+        while (position < length) {
+            char c = sql.charAt(position);
+            if (c == '\\' && backslashAllowed) {
+                ambiguities |= BACKSLASH_ESCAPES;
+                if ((options & BACKSLASH_ESCAPES) != 0) {
+                    position += 2;
+                    continue;
+                }
+            }
+            if (c == close) {
+                if (peek(1) == close && open == close) {
+                    position += 2;
+                    continue;
+                }
+                position++;
+                return true;
+            }
+            position++;
+        }
+        position = start + 1;
+        return false;
+    }
+
+    /**
+     * 当前位置是否为 q' 或 nq'（忽略大小写）开头的 Oracle 字符串
+     */
+    private boolean isOracleQuotePrefix() {
+        char c = Character.toLowerCase(sql.charAt(position));
+        if (c == 'n') {
+            return Character.toLowerCase(peek(1)) == 'q' && peek(2) == '\'';
+        }
+        return c == 'q' && peek(1) == '\'';
+    }
+
+    private boolean scanOracleQuote() {
+        int start = position;
+        int quote = sql.indexOf('\'', position);
+        if (quote + 1 >= length) {
+            return false;
+        }
+        char open = sql.charAt(quote + 1);
+        char close = switch (open) {
+            case '[' -> ']';
+            case '{' -> '}';
+            case '(' -> ')';
+            case '<' -> '>';
+            default -> open;
+        };
+        for (int i = quote + 2; i + 1 < length; i++) {
+            if (sql.charAt(i) == close && sql.charAt(i + 1) == '\'') {
+                position = i + 2;
+                return true;
+            }
+        }
+        position = start;
+        return false;
+    }
+
+    /**
+     * 尝试识别 $tag$ 字符串的开始标签，找到匹配的结束标签时进入字符串内容
+     */
+    private boolean startDollarBody() {
+        int tagEnd = position + 1;
+        if (tagEnd < length && isWordStart(sql.charAt(tagEnd))) {
+            tagEnd++;
+            while (tagEnd < length && isWordPart(sql.charAt(tagEnd)) && sql.charAt(tagEnd) != '$') {
+                tagEnd++;
+            }
+        }
+        if (tagEnd >= length || sql.charAt(tagEnd) != '$') {
+            return false;
+        }
+
+        int tagLength = tagEnd - position + 1;
+        for (int i = tagEnd + 1; i + tagLength <= length; i++) {
+            if (sql.charAt(i) == '$' && sql.regionMatches(i, sql, position, tagLength)) {
+                position = tagEnd + 1;
+                dollarBodyEnd = i;
+                dollarTagLength = tagLength;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 输出 $tag$ 字符串内容中的单词，内容中的引号和注释都不处理
+     * @return 单词记号，内容扫描完时跳过结束标签并返回null
+     */
+    private TokenType nextInDollarBody() {
+        while (position < dollarBodyEnd) {
+            char c = sql.charAt(position);
+            if (isWordStart(c)) {
+                int start = position;
+                position++;
+                while (position < dollarBodyEnd && isWordPart(sql.charAt(position))) {
+                    position++;
+                }
+                return token(TokenType.WORD, start);
+            }
+            position++;
+        }
+        position = dollarBodyEnd + dollarTagLength;
+        dollarBodyEnd = -1;
+        return null;
+    }
+
+    private static boolean isWordStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,435 @@
+package org.jim.mcpdbserver.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * SQL语句解析器
+ * 基于 {@link SqlLexer} 一次扫描得到语句类型、引用的表、指纹和字面量位置，结果按SQL文本缓存，
+ * 智能体重复执行相同的SQL时直接复用解析结果。缓存按SQL的哈希分段，每段各自加锁并按最近使用淘汰，并发解析不会争用同一把锁
+ * <p>
+ * 词法分析遇到方言歧义或会执行字符串的语句时，按每种解释重新扫描：所有解释下出现的单词都记入结果，
+ * 语句类型取各解释中影响最大的一种
+ * @author yangxin
+ */
+@Component
+@Slf4j
+public class SqlStatementParser {
+
+    private static final KeywordSet READ_LEADING_KEYWORDS = KeywordSet.of("select", "with", "show", "describe", "desc", "explain", "values");
+
+    private static final KeywordSet DDL_LEADING_KEYWORDS = KeywordSet.of("create", "alter", "drop", "truncate", "rename", "comment");
+
+    /**
+     * 出现在只读起始关键字之后仍然会写入或加锁的关键字，例如 SELECT ... INTO、SELECT ... FOR UPDATE、WITH ... DELETE
+     */
+    private static final KeywordSet WRITE_KEYWORDS = KeywordSet.of("insert", "update", "delete", "merge", "replace", "upsert",
+            "create", "alter", "drop", "truncate", "grant", "revoke", "call", "exec", "execute", "into", "lock", "set");
+
+    /**
+     * 会把字符串当作SQL执行的关键字，出现时字符串字面量的内容也按代码扫描
+     * 例如 PostgreSQL 的 DO '...'、MySQL 的 PREPARE s FROM '...'、SQL Server 的 EXEC('...')
+     */
+    private static final KeywordSet EXECUTES_LITERALS = KeywordSet.of("do", "prepare", "exec", "execute", "immediate", "sp_executesql");
+
+    /**
+     * 其后跟随表名的关键字
+     */
+    private static final KeywordSet TABLE_KEYWORDS = KeywordSet.of("from", "join", "into", "update", "table", "describe", "desc");
+
+    /**
+     * 表名之前可能出现的修饰词
+     */
+    private static final KeywordSet TABLE_MODIFIERS = KeywordSet.of("if", "not", "exists", "only", "lateral", "ignore",
+            "low_priority", "high_priority", "delayed", "temporary");
+
+    /**
+     * 表名之后结束表引用的子句关键字，不会被当作别名
+     */
+    private static final KeywordSet CLAUSE_KEYWORDS = KeywordSet.of("where", "on", "using", "group", "order", "having", "limit",
+            "offset", "fetch", "union", "intersect", "except", "minus", "window", "for", "lock", "set", "values", "returning",
+            "inner", "left", "right", "full", "cross", "natural", "outer", "straight_join", "partition", "select", "outfile",
+            "dumpfile", "default", "with", "as", "use", "force", "tablesample", "sample", "final", "prewhere", "array", "global",
+            "any", "all");
+
+    private static final Pattern PRIMARY_HINT = Pattern.compile("/\\*\\+\\s*PRIMARY\\s*\\*/", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 缓存分段数，必须是2的幂
+     */
+    private static final int CACHE_STRIPES = 16;
+
+    private final SqlParseCacheConfig cacheConfig;
+    private final CacheStripe[] cache = new CacheStripe[CACHE_STRIPES];
+
+    public SqlStatementParser(SqlParseCacheConfig cacheConfig) {
+        this.cacheConfig = cacheConfig;
+        for (int i = 0; i < CACHE_STRIPES; i++) {
+            cache[i] = new CacheStripe(cacheConfig);
+        }
+    }
+
+    /**
+     * 解析SQL语句，优先使用缓存的解析结果
+     * @param sql SQL语句
+     * @return 解析结果
+     */
+    public ParsedStatement parse(String sql) {
+        String text = sql == null ? "" : sql;
+        if (text.length() > cacheConfig.getMaxSqlLength()) {
+            return doParse(text);
+        }
+
+        int hash = text.hashCode();
+        CacheStripe stripe = cache[(hash ^ (hash >>> 16)) & (CACHE_STRIPES - 1)];
+        ParsedStatement cached = stripe.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        ParsedStatement parsed = doParse(text);
+        stripe.put(text, parsed);
+        return parsed;
+    }
+
+    private ParsedStatement doParse(String sql) {
+        WordSpans words = new WordSpans(sql);
+        Analysis main = new Analysis(sql, words, true);
+        ParsedStatement.StatementType type = null;
+
+        BitSet scanned = new BitSet(SqlLexer.OPTION_COMBINATIONS);
+        int discovered = 0;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int options = 0; options < SqlLexer.OPTION_COMBINATIONS; options++) {
+                if (scanned.get(options) || (options & ~discovered) != 0) {
+                    continue;
+                }
+                scanned.set(options);
+                progress = true;
+
+                Analysis analysis = options == 0 ? main : new Analysis(sql, words, false);
+                SqlLexer lexer = new SqlLexer(sql, options);
+                analysis.scan(lexer);
+                type = type == null || analysis.type.compareTo(type) > 0 ? analysis.type : type;
+                discovered |= lexer.getAmbiguities() | (analysis.executesLiterals ? SqlLexer.LITERALS_AS_CODE : 0);
+            }
+        }
+
+        return new ParsedStatement(sql, type, main.statementCount > 1, List.copyOf(main.tables), main.fingerprint.toString(),
+                Collections.unmodifiableList(main.literals), words.trim(), PRIMARY_HINT.matcher(sql).find());
+    }
+
+    /**
+     * 缓存的一个分段：访问顺序的 LinkedHashMap，所有操作在自身锁内完成，容量为总容量按分段数均分
+     */
+    private static final class CacheStripe {
+
+        private final SqlParseCacheConfig cacheConfig;
+        private final LinkedHashMap<String, ParsedStatement> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        CacheStripe(SqlParseCacheConfig cacheConfig) {
+            this.cacheConfig = cacheConfig;
+        }
+
+        synchronized ParsedStatement get(String sql) {
+            return entries.get(sql);
+        }
+
+        synchronized void put(String sql, ParsedStatement parsed) {
+            entries.put(sql, parsed);
+            int capacity = Math.max(1, (cacheConfig.getMaxEntries() + CACHE_STRIPES - 1) / CACHE_STRIPES);
+            Iterator<ParsedStatement> eldest = entries.values().iterator();
+            while (entries.size() > capacity && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 单次扫描的分析状态
+     */
+    private static final class Analysis {
+
+        private enum TableState {
+            NONE, EXPECT_TABLE, IN_NAME, EXPECT_NAME_PART, AFTER_TABLE, EXPECT_ALIAS, AFTER_ALIAS
+        }
+
+        private final String sql;
+        private final WordSpans words;
+        // 只有标准解释的扫描需要提取表名、指纹和字面量
+        private final boolean full;
+
+        private ParsedStatement.StatementType type = ParsedStatement.StatementType.READ;
+        private ParsedStatement.StatementType current;
+        private int statementCount;
+        private boolean previousFor;
+        private boolean executesLiterals;
+
+        private final Set<String> tables = new LinkedHashSet<>();
+        private final StringBuilder fingerprint;
+        private final List<ParsedStatement.Span> literals = new ArrayList<>();
+
+        private TableState tableState = TableState.NONE;
+        private boolean tableList;
+        private final StringBuilder tableName = new StringBuilder();
+        // 括号嵌套：每一层是否为子查询，函数调用中的 FROM（如 EXTRACT(YEAR FROM d)）不是表引用
+        private int depth;
+        private long subqueryDepths;
+        private boolean parenthesisJustOpened;
+
+        Analysis(String sql, WordSpans words, boolean full) {
+            this.sql = sql;
+            this.words = words;
+            this.full = full;
+            // 指纹长度与原始SQL相当，预先分配避免扩容时反复复制
+            this.fingerprint = new StringBuilder(full ? sql.length() : 0);
+        }
+
+        void scan(SqlLexer lexer) {
+            SqlLexer.TokenType tokenType;
+            while ((tokenType = lexer.next()) != SqlLexer.TokenType.EOF) {
+                boolean leading = classify(lexer, tokenType);
+                if (full) {
+                    appendFingerprint(lexer, tokenType);
+                    trackTables(lexer, tokenType, leading);
+                }
+            }
+            finishStatement();
+            if (statementCount == 0) {
+                type = ParsedStatement.StatementType.WRITE;
+            }
+            if (full) {
+                finishTableName();
+            }
+        }
+
+        /**
+         * 按语句统计类型，返回当前记号是否为语句的第一个单词
+         */
+        private boolean classify(SqlLexer lexer, SqlLexer.TokenType tokenType) {
+            if (tokenType == SqlLexer.TokenType.PUNCTUATION && lexer.tokenChar() == ';') {
+                finishStatement();
+                return false;
+            }
+
+            boolean leading = false;
+            if (current == null) {
+                if (tokenType == SqlLexer.TokenType.PUNCTUATION && lexer.tokenChar() == '(') {
+                    return false;
+                }
+                statementCount++;
+                leading = true;
+                if (tokenType != SqlLexer.TokenType.WORD) {
+                    current = ParsedStatement.StatementType.WRITE;
+                } else if (READ_LEADING_KEYWORDS.contains(lexer)) {
+                    current = ParsedStatement.StatementType.READ;
+                } else if (DDL_LEADING_KEYWORDS.contains(lexer)) {
+                    current = ParsedStatement.StatementType.DDL;
+                } else {
+                    current = ParsedStatement.StatementType.WRITE;
+                }
+            }
+
+            if (tokenType == SqlLexer.TokenType.WORD) {
+                words.add(lexer.tokenStart(), lexer.tokenEnd());
+                if (!leading && current == ParsedStatement.StatementType.READ
+                        && (WRITE_KEYWORDS.contains(lexer) || (previousFor && lexer.tokenIs("share")))) {
+                    current = ParsedStatement.StatementType.WRITE;
+                }
+                if (EXECUTES_LITERALS.contains(lexer)) {
+                    executesLiterals = true;
+                }
+                previousFor = lexer.tokenIs("for");
+            } else {
+                previousFor = false;
+            }
+            return leading;
+        }
+
+        private void finishStatement() {
+            if (current != null) {
+                if (statementCount == 1 || current.compareTo(type) > 0) {
+                    type = current;
+                }
+                current = null;
+            }
+        }
+
+        /**
+         * 生成指纹：字面量替换为 ?，连续的 ?, ? 合并为一个 ?
+         */
+        private void appendFingerprint(SqlLexer lexer, SqlLexer.TokenType tokenType) {
+            boolean placeholder = tokenType == SqlLexer.TokenType.STRING || tokenType == SqlLexer.TokenType.NUMBER
+                    || (tokenType == SqlLexer.TokenType.PUNCTUATION && lexer.tokenChar() == '?');
+            if (tokenType == SqlLexer.TokenType.STRING || tokenType == SqlLexer.TokenType.NUMBER) {
+                literals.add(new ParsedStatement.Span(lexer.tokenStart(), lexer.tokenEnd()));
+            }
+
+            int length = fingerprint.length();
+            if (placeholder && length >= 2 && fingerprint.charAt(length - 1) == ',' && fingerprint.charAt(length - 2) == '?') {
+                fingerprint.setLength(length - 1);
+                return;
+            }
+
+            char first = lexer.tokenChar();
+            boolean attach = tokenType == SqlLexer.TokenType.PUNCTUATION && (first == ',' || first == ')' || first == '.' || first == ';');
+            if (length > 0 && !attach) {
+                char last = fingerprint.charAt(length - 1);
+                if (last != '(' && last != '.') {
+                    fingerprint.append(' ');
+                }
+            }
+
+            if (placeholder) {
+                fingerprint.append('?');
+            } else if (tokenType == SqlLexer.TokenType.WORD) {
+                for (int i = lexer.tokenStart(); i < lexer.tokenEnd(); i++) {
+                    fingerprint.append(Character.toLowerCase(sql.charAt(i)));
+                }
+            } else {
+                fingerprint.append(sql, lexer.tokenStart(), lexer.tokenEnd());
+            }
+        }
+
+        /**
+         * 提取 FROM、JOIN、INTO、UPDATE、TABLE 等关键字之后的表名
+         */
+        private void trackTables(SqlLexer lexer, SqlLexer.TokenType tokenType, boolean leading) {
+            boolean word = tokenType == SqlLexer.TokenType.WORD;
+            boolean name = (word && !CLAUSE_KEYWORDS.contains(lexer) && !TABLE_KEYWORDS.contains(lexer))
+                    || tokenType == SqlLexer.TokenType.QUOTED_IDENTIFIER;
+            char punctuation = tokenType == SqlLexer.TokenType.PUNCTUATION ? lexer.tokenChar() : '\0';
+
+            boolean reprocess = true;
+            while (reprocess) {
+                reprocess = false;
+                switch (tableState) {
+                    case EXPECT_TABLE -> {
+                        if (word && TABLE_MODIFIERS.contains(lexer)) {
+                            break;
+                        }
+                        if (name) {
+                            tableName.setLength(0);
+                            appendNamePart(lexer, tokenType);
+                            tableState = TableState.IN_NAME;
+                            break;
+                        }
+                        tableState = TableState.NONE;
+                        reprocess = true;
+                    }
+                    case IN_NAME -> {
+                        if (punctuation == '.') {
+                            tableState = TableState.EXPECT_NAME_PART;
+                            break;
+                        }
+                        finishTableName();
+                        tableState = TableState.AFTER_TABLE;
+                        reprocess = true;
+                    }
+                    case EXPECT_NAME_PART -> {
+                        if (word || tokenType == SqlLexer.TokenType.QUOTED_IDENTIFIER) {
+                            tableName.append('.');
+                            appendNamePart(lexer, tokenType);
+                            tableState = TableState.IN_NAME;
+                            break;
+                        }
+                        tableName.setLength(0);
+                        tableState = TableState.NONE;
+                        reprocess = true;
+                    }
+                    case AFTER_TABLE, AFTER_ALIAS -> {
+                        if (punctuation == ',' && tableList) {
+                            tableState = TableState.EXPECT_TABLE;
+                            break;
+                        }
+                        if (tableState == TableState.AFTER_TABLE && word && lexer.tokenIs("as")) {
+                            tableState = TableState.EXPECT_ALIAS;
+                            break;
+                        }
+                        if (tableState == TableState.AFTER_TABLE && name) {
+                            tableState = TableState.AFTER_ALIAS;
+                            break;
+                        }
+                        tableState = TableState.NONE;
+                        reprocess = true;
+                    }
+                    case EXPECT_ALIAS -> {
+                        tableState = name ? TableState.AFTER_ALIAS : TableState.NONE;
+                        reprocess = !name;
+                    }
+                    case NONE -> {
+                        if (word && TABLE_KEYWORDS.contains(lexer)) {
+                            startTable(lexer, leading);
+                        }
+                    }
+                }
+            }
+
+            trackParentheses(lexer, tokenType, punctuation);
+        }
+
+        private void startTable(SqlLexer lexer, boolean leading) {
+            if (lexer.tokenIs("from")) {
+                // 函数调用括号中的 FROM 不是表引用
+                if (depth > 0 && (depth > 63 || (subqueryDepths & (1L << depth)) == 0)) {
+                    return;
+                }
+                tableList = true;
+                tableState = TableState.EXPECT_TABLE;
+                return;
+            }
+            // UPDATE 只在语句开头引用表（排除 FOR UPDATE、ON DUPLICATE KEY UPDATE），DESCRIBE 同理（排除 ORDER BY ... DESC）
+            if ((lexer.tokenIs("update") || lexer.tokenIs("describe") || lexer.tokenIs("desc")) && !leading) {
+                return;
+            }
+            tableList = false;
+            tableState = TableState.EXPECT_TABLE;
+        }
+
+        private void trackParentheses(SqlLexer lexer, SqlLexer.TokenType tokenType, char punctuation) {
+            if (parenthesisJustOpened) {
+                parenthesisJustOpened = false;
+                if (tokenType == SqlLexer.TokenType.WORD && depth <= 63 && (lexer.tokenIs("select") || lexer.tokenIs("with"))) {
+                    subqueryDepths |= 1L << depth;
+                }
+            }
+            if (punctuation == '(') {
+                depth++;
+                if (depth <= 63) {
+                    subqueryDepths &= ~(1L << depth);
+                }
+                parenthesisJustOpened = true;
+            } else if (punctuation == ')' && depth > 0) {
+                depth--;
+            }
+        }
+
+        private void appendNamePart(SqlLexer lexer, SqlLexer.TokenType tokenType) {
+            if (tokenType == SqlLexer.TokenType.QUOTED_IDENTIFIER) {
+                tableName.append(sql, lexer.tokenStart() + 1, lexer.tokenEnd() - 1);
+            } else {
+                tableName.append(sql, lexer.tokenStart(), lexer.tokenEnd());
+            }
+        }
+
+        private void finishTableName() {
+            if (tableState == TableState.IN_NAME && !tableName.isEmpty()) {
+                tables.add(tableName.toString());
+            }
+            tableName.setLength(0);
+        }
+    }
+}
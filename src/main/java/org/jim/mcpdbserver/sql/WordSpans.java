@@ -0,0 +1,71 @@
+package org.jim.mcpdbserver.sql;
+
+import java.util.Arrays;
+
+/**
+ * SQL代码中出现的单词，只记录在原始SQL中的起止位置，不创建子串
+ * 按方言的各种解释重新扫描时同一个单词可能被记录多次
+ * @author yangxin
+ */
+public final class WordSpans {
+
+    private final String sql;
+    private int[] spans;
+    private int size;
+
+    WordSpans(String sql) {
+        this.sql = sql;
+        this.spans = new int[32];
+    }
+
+    void add(int start, int end) {
+        if (size * 2 == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[size * 2] = start;
+        spans[size * 2 + 1] = end;
+        size++;
+    }
+
+    /**
+     * 扫描结束后释放多余的容量，解析结果会被缓存
+     */
+    WordSpans trim() {
+        if (spans.length > size * 2) {
+            spans = Arrays.copyOf(spans, size * 2);
+        }
+        return this;
+    }
+
+    /**
+     * 查找第一个属于关键字集合的单词
+     * @param keywords 关键字集合
+     * @return 关键字序号，没有时返回-1
+     */
+    public int find(KeywordSet keywords) {
+        for (int i = 0; i < size; i++) {
+            int index = keywords.indexOf(sql, spans[i * 2], spans[i * 2 + 1]);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 是否包含指定单词（忽略大小写）
+     */
+    public boolean contains(String word) {
+        for (int i = 0; i < size; i++) {
+            int start = spans[i * 2];
+            if (spans[i * 2 + 1] - start == word.length() && sql.regionMatches(true, start, word, 0, word.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+}
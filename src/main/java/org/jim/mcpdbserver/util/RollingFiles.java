@@ -0,0 +1,42 @@
+package org.jim.mcpdbserver.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 按大小滚动的日志文件工具类，慢查询转储和审计日志共用
+ * @author yangxin
+ */
+public final class RollingFiles {
+
+    private RollingFiles() {
+    }
+
+    /**
+     * 滚动文件：file.(n-1) → file.n … file → file.1，超过保留数的最旧文件被删除
+     * @param file 当前文件
+     * @param maxFiles 保留的历史文件数，不大于0时直接删除当前文件
+     */
+    public static void roll(Path file, int maxFiles) throws IOException {
+        if (maxFiles <= 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Files.deleteIfExists(rolled(file, maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = rolled(file, i);
+            if (Files.exists(source)) {
+                Files.move(source, rolled(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (Files.exists(file)) {
+            Files.move(file, rolled(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path rolled(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -3,13 +3,20 @@ package org.jim.mcpdbserver.validator;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.jim.mcpdbserver.config.SqlSecurityConfig;
+import org.jim.mcpdbserver.metrics.jfr.SqlValidationEvent;
+import org.jim.mcpdbserver.sql.KeywordSet;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
  * SQL安全验证器
  * 用于检查SQL语句是否包含危险操作关键字
+ * 基于 {@link SqlStatementParser} 的解析结果检查，注释、字符串字面量和带引号的标识符中的关键字不会被误判
  * @author yangxin
  */
 @Component
@@ -17,9 +24,37 @@ import java.util.regex.Pattern;
 public class SqlSecurityValidator {
 
     private final SqlSecurityConfig sqlSecurityConfig;
+    private final SqlStatementParser sqlStatementParser;
 
-    public SqlSecurityValidator(SqlSecurityConfig sqlSecurityConfig) {
+    /**
+     * 单词形式的危险关键字，由词法分析器按记号匹配
+     */
+    private final KeywordSet dangerousKeywords;
+
+    /**
+     * 含空格或符号的危险关键字（例如 "load data"），无法按单个记号匹配，仍在原始SQL上用正则匹配
+     */
+    private final List<Pattern> dangerousPhrases = new ArrayList<>();
+    private final List<String> dangerousPhraseKeywords = new ArrayList<>();
+
+    public SqlSecurityValidator(SqlSecurityConfig sqlSecurityConfig, SqlStatementParser sqlStatementParser) {
         this.sqlSecurityConfig = sqlSecurityConfig;
+        this.sqlStatementParser = sqlStatementParser;
+
+        List<String> words = new ArrayList<>();
+        for (String keyword : sqlSecurityConfig.getDangerousKeywords()) {
+            if (StringUtils.isBlank(keyword)) {
+                continue;
+            }
+            if (KeywordSet.isSingleWord(keyword.trim())) {
+                words.add(keyword.trim());
+            } else {
+                dangerousPhraseKeywords.add(keyword.trim());
+                dangerousPhrases.add(Pattern.compile("(?<![\\w$])" + Pattern.quote(keyword.trim()).replace(" ", "\\E\\s+\\Q") + "(?![\\w$])",
+                        Pattern.CASE_INSENSITIVE));
+            }
+        }
+        this.dangerousKeywords = KeywordSet.of(words);
     }
 
     /**
@@ -28,6 +63,31 @@ public class SqlSecurityValidator {
      * @return SQL安全验证结果
      */
     public SqlValidationResult validateSql(String sql) {
+        return validateSql(sqlStatementParser.parse(sql));
+    }
+
+    /**
+     * 验证已解析的SQL语句是否安全，并提交 {@link SqlValidationEvent}
+     * @param statement SQL语句的解析结果
+     * @return SQL安全验证结果
+     */
+    public SqlValidationResult validateSql(ParsedStatement statement) {
+        SqlValidationEvent event = new SqlValidationEvent();
+        event.begin();
+        SqlValidationResult result = validate(statement);
+        if (event.shouldCommit()) {
+            event.fingerprint = statement.fingerprint();
+            event.statementType = String.valueOf(statement.type());
+            event.sqlLength = statement.sql() != null ? statement.sql().length() : 0;
+            event.valid = result.valid();
+            event.detectedKeyword = result.detectedKeyword();
+            event.commit();
+        }
+        return result;
+    }
+
+    private SqlValidationResult validate(ParsedStatement statement) {
+        String sql = statement.sql();
         // 如果未启用安全检查，直接通过
         if (!sqlSecurityConfig.isEnabled()) {
             log.debug("SQL security check is disabled, allowing SQL execution: {}", sql);
@@ -39,72 +99,49 @@ public class SqlSecurityValidator {
             return SqlValidationResult.failure("SQL statement cannot be empty", null);
         }
 
-        // 清理SQL语句：去除多余空格、换行符、注释等
-        String cleanedSql = cleanSql(sql);
-        log.debug("Validating SQL: {}", cleanedSql);
+        log.debug("Validating SQL: {}", sql);
 
         // 检查是否包含危险关键字
-        for (String keyword : sqlSecurityConfig.getDangerousKeywords()) {
-            if (containsDangerousKeyword(cleanedSql, keyword)) {
-                String errorMessage = String.format(
-                        """
-                                Dangerous SQL operation keyword '%s' detected. This operation has been blocked for data security.
-                                To execute this type of operation, please configure in application.yml:
-                                1) Set sql.security.enabled=false to completely disable SQL security checks, or
-                                2) Remove the '%s' keyword from the sql.security.dangerous-keywords list.
-                                Please restart the service after modifying the configuration.
-                                """,
-                        keyword.toUpperCase(), keyword.toLowerCase()
-                );
-
-                log.warn("SQL validation failed: detected dangerous keyword '{}' in SQL: {}", keyword, cleanedSql);
-                return SqlValidationResult.failure(errorMessage, keyword);
-            }
+        String keyword = findDangerousKeyword(statement);
+        if (keyword != null) {
+            String errorMessage = String.format(
+                    """
+                            Dangerous SQL operation keyword '%s' detected. This operation has been blocked for data security.
+                            To execute this type of operation, please configure in application.yml:
+                            1) Set sql.security.enabled=false to completely disable SQL security checks, or
+                            2) Remove the '%s' keyword from the sql.security.dangerous-keywords list.
+                            Please restart the service after modifying the configuration.
+                            """,
+                    keyword.toUpperCase(), keyword.toLowerCase()
+            );
+
+            log.warn("SQL validation failed: detected dangerous keyword '{}' in SQL: {}", keyword, sql);
+            return SqlValidationResult.failure(errorMessage, keyword);
         }
 
-        log.debug("SQL validation passed: {}", cleanedSql);
+        log.debug("SQL validation passed: {}", sql);
         return SqlValidationResult.success();
     }
 
     /**
-     * 清理SQL语句，移除注释、多余空格等
-     * @param sql 原始SQL语句
-     * @return 清理后的SQL语句
+     * 查找SQL中的危险关键字
+     * 解析结果中的单词已涵盖所有方言解释（反斜杠转义、Oracle q'' 字符串、方括号、会执行字符串的语句），
+     * 任一解释下出现危险关键字都视为危险
+     * @param statement SQL语句的解析结果
+     * @return 检测到的危险关键字，没有时返回null
      */
-    private String cleanSql(String sql) {
-        if (StringUtils.isBlank(sql)) {
-            return "";
+    private String findDangerousKeyword(ParsedStatement statement) {
+        int index = statement.words().find(dangerousKeywords);
+        if (index >= 0) {
+            return dangerousKeywords.get(index);
         }
 
-        // 移除单行注释 (-- 注释)
-        sql = sql.replaceAll("--[^\r\n]*", "");
-
-        // 移除多行注释 (/* 注释 */)
-        sql = sql.replaceAll("/\\*.*?\\*/", "");
-
-        // 统一换行符并移除多余空格
-        sql = sql.replaceAll("\\s+", " ").trim();
-
-        return sql;
-    }
-
-    /**
-     * 检查SQL中是否包含指定的危险关键字
-     * @param sql 清理后的SQL语句
-     * @param keyword 危险关键字
-     * @return 是否包含危险关键字
-     */
-    private boolean containsDangerousKeyword(String sql, String keyword) {
-        if (StringUtils.isBlank(sql) || StringUtils.isBlank(keyword)) {
-            return false;
+        for (int i = 0; i < dangerousPhrases.size(); i++) {
+            if (dangerousPhrases.get(i).matcher(statement.sql()).find()) {
+                return dangerousPhraseKeywords.get(i);
+            }
         }
-
-        // 构建词边界正则表达式，确保匹配完整单词而不是子字符串
-        // 例如：避免在 "description" 中误匹配 "update"
-        String pattern = "\\b" + Pattern.quote(keyword.toLowerCase()) + "\\b";
-        Pattern compiledPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-
-        return compiledPattern.matcher(sql.toLowerCase()).find();
+        return null;
     }
 
     /**
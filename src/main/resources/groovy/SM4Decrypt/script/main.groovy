@@ -84,4 +84,21 @@ def sm4DecryptGroovy(String input) {
     }
 }
 
-return sm4DecryptGroovy(inputString)
+/**
+ * 批量解密：整批复用一个 SM4 解密器，返回与输入等长的解密结果列表，解密失败的值返回包含 error 的 Map
+ */
+def sm4DecryptBatch(List<String> inputs) {
+    SymmetricCrypto sm4 = SmUtil.sm4("1234567890123456".getBytes())
+    return inputs.collect { encryptedData ->
+        if (encryptedData == null || encryptedData.isEmpty()) {
+            return null
+        }
+        try {
+            return sm4.decryptStr(encryptedData, CharsetUtil.CHARSET_UTF_8)
+        } catch (Exception ex) {
+            return ["error": ex.getMessage()]
+        }
+    }
+}
+
+return binding.hasVariable('inputStrings') ? sm4DecryptBatch(inputStrings) : sm4DecryptGroovy(inputString)
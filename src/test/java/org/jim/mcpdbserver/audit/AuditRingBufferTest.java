@@ -0,0 +1,108 @@
+package org.jim.mcpdbserver.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AuditRingBuffer} 在多个写入线程和一个读取线程下不丢失、不重复
+ * @author yangxin
+ */
+class AuditRingBufferTest {
+
+    @Test
+    void offerReturnsFalseWhenFull() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(8);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(-1)).isFalse();
+        assertThat(buffer.size()).isEqualTo(buffer.capacity());
+
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(-1)).isTrue();
+        assertThat(buffer.offer(-2)).isFalse();
+    }
+
+    @Test
+    void keepsOrderAcrossWrapArounds() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // 每轮写入和读取的个数与容量不同，读写位置落在槽位的各种偏移上
+        for (int round = 0; round < 10_000; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.offer(next++)).isTrue();
+            }
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.poll()).isEqualTo(expected++);
+            }
+            assertThat(buffer.poll()).isNull();
+        }
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    @Timeout(30)
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        // 20 万个元素经过 1024 个槽位，每个槽位被复用约 200 次
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    // 缓冲区满时重试，保证每个元素最终都被写入
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }, "producer-" + p);
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        BitSet seen = new BitSet(producers * perProducer);
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            Integer element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(seen.get(element)).as("duplicate %d", element).isFalse();
+            seen.set(element);
+            // 同一个写入线程的元素按写入顺序读出
+            int producer = element / perProducer;
+            assertThat(element % perProducer).isGreaterThan(lastPerProducer[producer]);
+            lastPerProducer[producer] = element % perProducer;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(seen.cardinality()).isEqualTo(producers * perProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+}
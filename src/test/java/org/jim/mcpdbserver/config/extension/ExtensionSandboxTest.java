@@ -0,0 +1,74 @@
+package org.jim.mcpdbserver.config.extension;
+
+import org.jim.mcpdbserver.metrics.ServerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link ExtensionSandbox} 的并发名额管理
+ * @author James Smith
+ */
+class ExtensionSandboxTest {
+
+    private ExtensionSandbox sandbox;
+
+    @AfterEach
+    void tearDown() {
+        if (sandbox != null) {
+            sandbox.shutdown();
+        }
+    }
+
+    @Test
+    void permitIsReturnedWhenQueuedCallTimesOut() throws Exception {
+        ExtensionSandboxConfig config = new ExtensionSandboxConfig();
+        config.setWorkerThreads(1);
+        config.setMaxWait(Duration.ofMillis(50));
+        sandbox = new ExtensionSandbox(config, mock(ServerMetrics.class));
+
+        Extension blocker = new Extension().setName("blocker").setTimeout(Duration.ofSeconds(10));
+        Extension queued = new Extension().setName("queued").setTimeout(Duration.ofMillis(100)).setMaxConcurrency(1);
+
+        // 占住唯一的工作线程，之后的调用只能排队
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> sandbox.execute(blocker, () -> {
+            started.countDown();
+            finish.await();
+            return "done";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> sandbox.execute(queued, () -> "never"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("timed out");
+
+        finish.countDown();
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+
+        assertThat(sandbox.execute(queued, () -> "ok")).isEqualTo("ok");
+        assertThat(sandbox.getStats().get("queued").running()).isZero();
+    }
+
+    @Test
+    void concurrencyLimitFollowsExtensionOverrideAndIsUnboundedWhenDisabled() {
+        ExtensionSandboxConfig config = new ExtensionSandboxConfig();
+        config.setMaxConcurrency(4);
+        sandbox = new ExtensionSandbox(config, mock(ServerMetrics.class));
+
+        assertThat(sandbox.concurrencyLimit(new Extension().setName("default"))).isEqualTo(4);
+        assertThat(sandbox.concurrencyLimit(new Extension().setName("single").setMaxConcurrency(1))).isEqualTo(1);
+
+        config.setEnabled(false);
+        assertThat(sandbox.concurrencyLimit(new Extension().setName("default"))).isEqualTo(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,67 @@
+package org.jim.mcpdbserver.config.extension.decoder;
+
+import org.jim.mcpdbserver.config.extension.ExtensionConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link ValueDecoderRegistry#decodeAll} 的错误处理
+ * @author James Smith
+ */
+class ValueDecoderRegistryTest {
+
+    /**
+     * 原样输出，输入为 "bad" 时格式错误，输入为 "cancel" 时模拟沙箱取消
+     */
+    private static final ValueDecoder TEST_DECODER = new ValueDecoder() {
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public String description() {
+            return "test decoder";
+        }
+
+        @Override
+        public void decode(ByteBuffer input, DecodeBuffer output) throws IOException {
+            String value = StandardCharsets.UTF_8.decode(input).toString();
+            if (value.equals("bad")) {
+                throw new IOException("malformed input");
+            }
+            if (value.equals("cancel")) {
+                throw new CancellationException("cancelled by sandbox");
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.write(bytes, 0, bytes.length);
+        }
+    };
+
+    private final ValueDecoderRegistry registry = new ValueDecoderRegistry(List.of(TEST_DECODER),
+            new DecodeBufferPool(new ValueDecoderConfig()), new ExtensionConfig());
+
+    @Test
+    void failedValueBecomesErrorEntry() {
+        List<Object> results = registry.decodeAll("test", List.of("a", "bad", "b"));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).isEqualTo("a");
+        assertThat(ValueDecoderRegistry.isError(results.get(1))).isTrue();
+        assertThat(results.get(2)).isEqualTo("b");
+    }
+
+    @Test
+    void cancellationFailsTheWholeBatch() {
+        assertThatThrownBy(() -> registry.decodeAll("test", List.of("a", "cancel", "b")))
+                .isInstanceOf(CancellationException.class);
+    }
+}
@@ -0,0 +1,44 @@
+package org.jim.mcpdbserver.format;
+
+import org.jim.mcpdbserver.config.SqlResultFormatConfig;
+import org.jim.mcpdbserver.enums.ResultFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ResultRenderer} 对带标记结果的渲染
+ * @author yangxin
+ */
+class ResultRendererTest {
+
+    private final ResultRenderer renderer = new ResultRenderer(new SqlResultFormatConfig(), List.of(new DelimitedTableRenderer.Csv()));
+
+    @Test
+    void truncatedResultKeepsRowLimitMarker() {
+        Map<String, Object> annotated = new LinkedHashMap<>();
+        annotated.put("row_limit_applied", 2);
+        annotated.put("truncated", true);
+        annotated.put("result", List.of(Map.of("id", 1), Map.of("id", 2)));
+
+        Object rendered = renderer.render(annotated, ResultFormat.CSV);
+
+        assertThat(rendered).isInstanceOf(RenderedTable.class);
+        RenderedTable table = (RenderedTable) rendered;
+        assertThat(table.rowLimitApplied()).isEqualTo(2);
+        assertThat(table.toText()).startsWith("row_limit_applied: 2, truncated: true\n");
+        assertThat(table.summary()).contains("truncated at row limit 2");
+    }
+
+    @Test
+    void completeResultHasNoMarker() {
+        Object rendered = renderer.render(List.of(Map.of("id", 1)), ResultFormat.CSV);
+
+        assertThat(((RenderedTable) rendered).rowLimitApplied()).isNull();
+        assertThat(((RenderedTable) rendered).toText()).doesNotContain("row_limit_applied");
+    }
+}
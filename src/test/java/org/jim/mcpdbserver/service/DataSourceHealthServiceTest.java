@@ -0,0 +1,85 @@
+package org.jim.mcpdbserver.service;
+
+import org.jim.mcpdbserver.config.DataSourceResilienceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link DataSourceHealthService} 的熔断器记账和并发隔离
+ * @author yangxin
+ */
+class DataSourceHealthServiceTest {
+
+    @Test
+    void thrownCallEndsHalfOpenTrial() {
+        DataSourceResilienceConfig config = new DataSourceResilienceConfig();
+        config.getCircuitBreaker().setMinimumCalls(1);
+        config.getCircuitBreaker().setHalfOpenCalls(1);
+        config.getCircuitBreaker().setOpenDuration(Duration.ZERO);
+        DataSourceHealthService service = new DataSourceHealthService(mock(DataSourceRegistry.class), config);
+
+        // 打开熔断器，打开时长为0，下一次调用进入半开状态
+        service.execute("ds", () -> JdbcExecutor.SqlResult.error("connection refused", true));
+        assertThat(service.describe("ds").get("circuit_state")).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> service.execute("ds", () -> {
+            throw new IllegalStateException("bad override");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(service.describe("ds").get("circuit_state")).isEqualTo(CircuitBreaker.State.OPEN);
+
+        JdbcExecutor.SqlResult result = service.execute("ds", () -> JdbcExecutor.SqlResult.success("ok"));
+        assertThat(result.success()).isTrue();
+        assertThat(service.describe("ds").get("circuit_state")).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void saturatedDataSourceDoesNotExhaustGlobalBudget() throws Exception {
+        DataSourceResilienceConfig config = new DataSourceResilienceConfig();
+        config.getBulkhead().setMaxConcurrentCallsPerDataSource(2);
+        config.getBulkhead().setMaxConcurrentCalls(3);
+        config.getBulkhead().setMaxWait(Duration.ofSeconds(5));
+        DataSourceHealthService service = new DataSourceHealthService(mock(DataSourceRegistry.class), config);
+
+        // slow 的两个许可都被占用，之后的调用在 slow 的并发隔离上排队
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<CompletableFuture<JdbcExecutor.SqlResult>> slowCalls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            slowCalls.add(CompletableFuture.supplyAsync(() -> service.execute("slow", () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return JdbcExecutor.SqlResult.success("slow");
+            }), executor));
+        }
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(200);
+
+        long start = System.nanoTime();
+        JdbcExecutor.SqlResult fast = service.execute("fast", () -> JdbcExecutor.SqlResult.success("fast"));
+        assertThat(fast.success()).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+
+        release.countDown();
+        for (CompletableFuture<JdbcExecutor.SqlResult> call : slowCalls) {
+            assertThat(call.get(10, TimeUnit.SECONDS).success()).isTrue();
+        }
+        executor.close();
+    }
+}
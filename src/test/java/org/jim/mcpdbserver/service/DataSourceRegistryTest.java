@@ -0,0 +1,74 @@
+package org.jim.mcpdbserver.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.jim.mcpdbserver.config.DataSourceConfig;
+import org.jim.mcpdbserver.config.DataSourceConfigLoader;
+import org.jim.mcpdbserver.config.DataSourceFactory;
+import org.jim.mcpdbserver.config.DataSourcePoolSharingConfig;
+import org.jim.mcpdbserver.config.DataSourceReloadConfig;
+import org.jim.mcpdbserver.config.DataSourceStartupConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link DataSourceRegistry} 在默认数据源启动失败时清理其他连接池
+ * @author yangxin
+ */
+class DataSourceRegistryTest {
+
+    @Test
+    void failedDefaultDataSourceClosesReadyPoolsAndStopsPendingOnes() throws Exception {
+        Map<String, Map<String, Object>> datasources = new LinkedHashMap<>();
+        datasources.put("main", new LinkedHashMap<>(Map.of("url", "jdbc:h2:mem:main", "default", true)));
+        datasources.put("ready", new LinkedHashMap<>(Map.of("url", "jdbc:h2:mem:ready")));
+        datasources.put("slow", new LinkedHashMap<>(Map.of("url", "jdbc:h2:mem:slow")));
+        DataSourceConfig dataSourceConfig = new DataSourceConfig();
+        dataSourceConfig.setDatasources(datasources);
+
+        DataSourceStartupConfig startupConfig = new DataSourceStartupConfig();
+        startupConfig.setWarmUp(false);
+        startupConfig.setDeadline(Duration.ofMillis(200));
+
+        HikariDataSource readyPool = mock(HikariDataSource.class);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        DataSourceFactory factory = mock(DataSourceFactory.class);
+        when(factory.createDataSource(eq("main"), anyMap())).thenThrow(new IllegalStateException("connection refused"));
+        when(factory.createDataSource(eq("ready"), anyMap())).thenReturn(readyPool);
+        when(factory.createDataSource(eq("slow"), anyMap())).thenAnswer(invocation -> {
+            slowStarted.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                slowInterrupted.countDown();
+            }
+            return mock(HikariDataSource.class);
+        });
+
+        DataSourceRegistry registry = new DataSourceRegistry(dataSourceConfig, mock(DataSourceConfigLoader.class), factory,
+                new DataSourcePoolPlanner(new DataSourcePoolSharingConfig()), new DataSourceReloadConfig(), startupConfig,
+                mock(ApplicationEventPublisher.class));
+
+        assertThatThrownBy(registry::init)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("main");
+
+        assertThat(slowStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(readyPool).close();
+        assertThat(slowInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
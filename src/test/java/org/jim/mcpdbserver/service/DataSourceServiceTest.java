@@ -0,0 +1,31 @@
+package org.jim.mcpdbserver.service;
+
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link DataSourceService} 在默认数据源不可用时的行为
+ * @author yangxin
+ */
+class DataSourceServiceTest {
+
+    @Test
+    void unavailableDefaultDataSourceReturnsNull() {
+        DataSourceRegistry registry = mock(DataSourceRegistry.class);
+        when(registry.getDefaultDataSourceName()).thenReturn("main");
+        when(registry.getStatus(anyString())).thenReturn(DataSourceRegistry.Status.UNKNOWN);
+        when(registry.getStatus("main")).thenReturn(DataSourceRegistry.Status.INITIALIZING);
+        DataSourceService service = new DataSourceService(registry, mock(ReplicaRouter.class));
+
+        assertThat(service.getDataSource(null)).isNull();
+        assertThat(service.getDataSource("primary")).isNull();
+        assertThat(service.getDataSource("missing")).isNull();
+        assertThat(service.getDataSource("primary", mock(ParsedStatement.class))).isNull();
+        assertThat(service.getStatus("primary")).isEqualTo(DataSourceRegistry.Status.INITIALIZING);
+    }
+}
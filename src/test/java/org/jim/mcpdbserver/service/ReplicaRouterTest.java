@@ -0,0 +1,78 @@
+package org.jim.mcpdbserver.service;
+
+import org.jim.mcpdbserver.config.DataSourceReplicaConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ReplicaRouter} 的复制延迟检测
+ * @author yangxin
+ */
+class ReplicaRouterTest {
+
+    @Test
+    void hungReplicaTimesOutWithoutDelayingOtherReplicas() throws Exception {
+        DataSource healthy = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(healthy.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+
+        CountDownLatch hungInterrupted = new CountDownLatch(1);
+        DataSource hung = mock(DataSource.class);
+        when(hung.getConnection()).thenAnswer(invocation -> {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                hungInterrupted.countDown();
+            }
+            throw new SQLException("interrupted");
+        });
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("hung", hung);
+        replicas.put("healthy", healthy);
+        DataSourceRegistry registry = mock(DataSourceRegistry.class);
+        when(registry.getDataSourceNames()).thenReturn(List.of("main"));
+        when(registry.getReplicas("main")).thenReturn(replicas);
+        when(registry.getReplicaNames("main")).thenReturn(List.of("hung", "healthy"));
+
+        DataSourceReplicaConfig config = new DataSourceReplicaConfig();
+        config.setLagCheckInterval(Duration.ofMinutes(1));
+        config.setLagCheckTimeout(Duration.ofMillis(200));
+        ReplicaRouter router = new ReplicaRouter(registry, config);
+        router.init();
+        try {
+            assertThat(hungInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            // 超时的检测被中断后，结果在同一轮中记录
+            Map<String, Object> described = waitForStatus(router, "hung", "UNHEALTHY");
+            assertThat(described.get("hung")).asString().contains("timed out");
+            assertThat(described.get("healthy")).asString().contains("AVAILABLE");
+        } finally {
+            router.shutdown();
+        }
+    }
+
+    private static Map<String, Object> waitForStatus(ReplicaRouter router, String replica, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Map<String, Object> described = router.describeReplicas("main");
+        while (!String.valueOf(described.get(replica)).contains(status) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            described = router.describeReplicas("main");
+        }
+        return described;
+    }
+}
@@ -0,0 +1,61 @@
+package org.jim.mcpdbserver.service;
+
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.jim.mcpdbserver.config.SqlSlowQueryConfig;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link SlowQueryLog} 的 top-k 指纹聚合
+ * @author yangxin
+ */
+class SlowQueryLogTest {
+
+    private final SqlStatementParser parser = new SqlStatementParser(new SqlParseCacheConfig());
+
+    @Test
+    void newFingerprintInheritsCountAndTotalOfReplacedOne() {
+        SqlSlowQueryConfig config = new SqlSlowQueryConfig();
+        config.setThreshold(Duration.ZERO);
+        config.setTopK(2);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(config, mock(DataSourceService.class));
+
+        for (int i = 0; i < 3; i++) {
+            record(slowQueryLog, "SELECT * FROM orders", 100);
+        }
+        record(slowQueryLog, "SELECT * FROM users", 10);
+        record(slowQueryLog, "SELECT * FROM items", 5);
+        // 等待后台线程处理完
+        slowQueryLog.shutdown();
+
+        Map<String, Object> stats = slowQueryLog.getStats(null, null);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> queries = (List<Map<String, Object>>) stats.get("queries");
+        assertThat(stats).containsEntry("evicted", 1L);
+        assertThat(queries).extracting(query -> query.get("fingerprint"))
+                .containsExactly(fingerprint("SELECT * FROM orders"), fingerprint("SELECT * FROM items"));
+        assertThat(queries.get(0)).containsEntry("count", 3L).doesNotContainKey("count_error");
+        assertThat(queries.get(1))
+                .containsEntry("count", 2L)
+                .containsEntry("count_error", 1L)
+                .containsEntry("total_ms", 15.0)
+                .containsEntry("total_error_ms", 10.0)
+                .containsEntry("mean_ms", 5.0)
+                .containsEntry("p95_ms", 5.0);
+    }
+
+    private void record(SlowQueryLog slowQueryLog, String sql, long millis) {
+        slowQueryLog.record("main", null, parser.parse(sql), 0, Duration.ofMillis(millis).toNanos(), 0, 1, null);
+    }
+
+    private String fingerprint(String sql) {
+        return parser.parse(sql).fingerprint();
+    }
+}
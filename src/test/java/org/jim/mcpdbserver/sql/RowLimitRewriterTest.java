@@ -0,0 +1,101 @@
+package org.jim.mcpdbserver.sql;
+
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.jim.mcpdbserver.config.SqlRowLimitConfig;
+import org.jim.mcpdbserver.enums.DatabaseType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RowLimitRewriter} 按方言改写行数限制
+ * @author yangxin
+ */
+class RowLimitRewriterTest {
+
+    private final SqlStatementParser parser = new SqlStatementParser(new SqlParseCacheConfig());
+    private final SqlRowLimitConfig config = new SqlRowLimitConfig();
+    private final RowLimitRewriter rewriter = new RowLimitRewriter(config, parser);
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+            "MYSQL      | SELECT * FROM t                              | SELECT * FROM t LIMIT 100",
+            "MARIADB    | SELECT * FROM t;                             | SELECT * FROM t LIMIT 100;",
+            "POSTGRESQL | SELECT * FROM t -- all rows                  | SELECT * FROM t LIMIT 100 -- all rows",
+            "H2         | WITH x AS (SELECT 1 AS a) SELECT a FROM x    | WITH x AS (SELECT 1 AS a) SELECT a FROM x LIMIT 100",
+            "SQLITE     | SELECT * FROM t ORDER BY id                  | SELECT * FROM t ORDER BY id LIMIT 100",
+            "CLICKHOUSE | SELECT * FROM t                              | SELECT * FROM t LIMIT 100",
+            "SQL_SERVER | SELECT name FROM t                           | SELECT TOP (100) name FROM t",
+            "SQL_SERVER | SELECT DISTINCT name FROM t                  | SELECT DISTINCT TOP (100) name FROM t",
+            "ORACLE     | SELECT * FROM t                              | SELECT * FROM t FETCH FIRST 100 ROWS ONLY",
+            "MYSQL      | SELECT * FROM (SELECT * FROM t LIMIT 5) x    | SELECT * FROM (SELECT * FROM t LIMIT 5) x LIMIT 100",
+            "MYSQL      | SELECT a FROM t UNION SELECT a FROM u        | SELECT a FROM t UNION SELECT a FROM u LIMIT 100"
+    })
+    void appliesDialectLimit(DatabaseType type, String sql, String expected) {
+        assertThat(rewriter.apply(parser.parse(sql), type, 100).sql()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "SELECT * FROM t SETTINGS max_threads = 1    | SELECT * FROM t LIMIT 100 SETTINGS max_threads = 1",
+            "SELECT * FROM t FORMAT JSON                 | SELECT * FROM t LIMIT 100 FORMAT JSON",
+            "SELECT * FROM t SETTINGS a = 1 FORMAT JSON  | SELECT * FROM t LIMIT 100 SETTINGS a = 1 FORMAT JSON"
+    })
+    void clickHouseLimitGoesBeforeSettingsAndFormat(String sql, String expected) {
+        assertThat(rewriter.apply(parser.parse(sql), DatabaseType.CLICKHOUSE, 100).sql()).isEqualTo(expected);
+    }
+
+    @Test
+    void oracleRownumWrapsQuery() {
+        config.setOracleSyntax(SqlRowLimitConfig.OracleSyntax.ROWNUM);
+
+        ParsedStatement rewritten = rewriter.apply(parser.parse("SELECT * FROM t ORDER BY id;"), DatabaseType.ORACLE, 100);
+
+        assertThat(rewritten.sql()).isEqualTo("SELECT * FROM (SELECT * FROM t ORDER BY id) WHERE ROWNUM <= 100;");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+            // 已经限制了行数
+            "MYSQL      | SELECT * FROM t LIMIT 5",
+            "POSTGRESQL | SELECT * FROM t OFFSET 10",
+            "SQL_SERVER | SELECT TOP 5 * FROM t",
+            "ORACLE     | SELECT * FROM t FETCH FIRST 5 ROWS ONLY",
+            "ORACLE     | SELECT * FROM t WHERE ROWNUM <= 5",
+            // TOP 只作用于第一个查询
+            "SQL_SERVER | SELECT a FROM t UNION SELECT a FROM u",
+            // 词法存在方言歧义
+            "MYSQL      | SELECT * FROM t # comment",
+            "MYSQL      | SELECT 'it\\'s' FROM t",
+            "POSTGRESQL | SELECT * FROM t --comment",
+            // 不是 SELECT 查询
+            "MYSQL      | DELETE FROM t",
+            "MYSQL      | SHOW TABLES",
+            "POSTGRESQL | EXPLAIN SELECT * FROM t",
+            "MYSQL      | SELECT 1; SELECT 2"
+    })
+    void leavesStatementUnchanged(DatabaseType type, String sql) {
+        ParsedStatement statement = parser.parse(sql);
+
+        assertThat(rewriter.apply(statement, type, 100)).isSameAs(statement);
+    }
+
+    @Test
+    void noLimitOrUnknownDialectLeavesStatementUnchanged() {
+        ParsedStatement statement = parser.parse("SELECT * FROM t");
+
+        assertThat(rewriter.apply(statement, DatabaseType.MYSQL, 0)).isSameAs(statement);
+        assertThat(rewriter.apply(statement, null, 100)).isSameAs(statement);
+    }
+
+    @Test
+    void requestedMaxRowsOnlyTightensConfiguredLimit() {
+        assertThat(rewriter.resolveMaxRows(null, null)).isEqualTo(1000);
+        assertThat(rewriter.resolveMaxRows(500, 2000)).isEqualTo(500);
+        assertThat(rewriter.resolveMaxRows(500, 50)).isEqualTo(50);
+        assertThat(rewriter.resolveMaxRows(0, 50)).isEqualTo(50);
+        assertThat(rewriter.resolveMaxRows(0, null)).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package org.jim.mcpdbserver.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link SqlLexer} 的方言歧义处理
+ * @author yangxin
+ */
+class SqlLexerTest {
+
+    @Test
+    void bracketsAreQuotedIdentifiersByDefaultAndReportedAsAmbiguous() {
+        SqlLexer lexer = new SqlLexer("SELECT [delete] FROM t");
+        List<String> words = words(lexer);
+
+        assertThat(words).containsExactly("select", "from", "t");
+        assertThat(lexer.getAmbiguities() & SqlLexer.BRACKETS_AS_CODE).isNotZero();
+    }
+
+    @Test
+    void bracketContentsAreCodeWhenRescanned() {
+        String sql = "SELECT ARRAY[(SELECT COUNT(*) FROM OLD TABLE (DELETE FROM users))]";
+
+        assertThat(words(new SqlLexer(sql))).doesNotContain("delete");
+        assertThat(words(new SqlLexer(sql, SqlLexer.BRACKETS_AS_CODE))).contains("delete", "users");
+    }
+
+    @Test
+    void doubleDashNeedsTrailingWhitespace() {
+        assertThat(words(new SqlLexer("SELECT 1 -- drop"))).doesNotContain("drop");
+        assertThat(words(new SqlLexer("SELECT 1 --drop"))).contains("drop");
+    }
+
+    @Test
+    void doubleDashWithoutWhitespaceIsReportedAsAmbiguous() {
+        String sql = "--'\nDELETE FROM t --'";
+        SqlLexer lexer = new SqlLexer(sql);
+
+        assertThat(words(lexer)).doesNotContain("delete");
+        assertThat(lexer.getAmbiguities() & SqlLexer.DASH_COMMENTS).isNotZero();
+        assertThat(words(new SqlLexer(sql, SqlLexer.DASH_COMMENTS))).contains("delete");
+    }
+
+    @Test
+    void hashIsNotAComment() {
+        assertThat(words(new SqlLexer("SELECT 1 # drop table t"))).contains("drop", "table", "t");
+    }
+
+    @Test
+    void hashCommentIsReportedAsAmbiguous() {
+        String sql = "# '\nDELETE FROM users -- '";
+        SqlLexer lexer = new SqlLexer(sql);
+
+        assertThat(words(lexer)).doesNotContain("delete");
+        assertThat(lexer.getAmbiguities() & SqlLexer.HASH_COMMENTS).isNotZero();
+        assertThat(words(new SqlLexer(sql, SqlLexer.HASH_COMMENTS))).contains("delete", "users");
+    }
+
+    @Test
+    void nestedBlockCommentIsReportedAsAmbiguous() {
+        String sql = "SELECT 1 /* /* */ '*/ DELETE FROM t --'";
+        SqlLexer lexer = new SqlLexer(sql);
+
+        assertThat(words(lexer)).doesNotContain("delete");
+        assertThat(lexer.getAmbiguities() & SqlLexer.NESTED_COMMENTS).isNotZero();
+        assertThat(words(new SqlLexer(sql, SqlLexer.NESTED_COMMENTS))).contains("delete");
+        assertThat(words(new SqlLexer("SELECT 1 /* a /* b */ c */ x", SqlLexer.NESTED_COMMENTS))).containsExactly("select", "x");
+    }
+
+    @Test
+    void executableCommentIsCode() {
+        assertThat(words(new SqlLexer("SELECT 1 /*!50000 drop */"))).contains("drop");
+        assertThat(words(new SqlLexer("SELECT 1 /*M! drop */"))).contains("drop");
+        assertThat(words(new SqlLexer("SELECT 1 /* drop */"))).doesNotContain("drop");
+    }
+
+    @Test
+    void dollarQuotedBodyIsCode() {
+        assertThat(words(new SqlLexer("DO $body$ BEGIN DELETE FROM t; END $body$"))).contains("delete");
+        assertThat(words(new SqlLexer("SELECT $$drop$$"))).contains("drop");
+    }
+
+    @Test
+    void oracleQuotesAreReportedAndRecognizedOnlyWhenRequested() {
+        String sql = "SELECT q'[it's]' FROM dual";
+        SqlLexer lexer = new SqlLexer(sql);
+        words(lexer);
+        assertThat(lexer.getAmbiguities() & SqlLexer.ORACLE_Q_QUOTES).isNotZero();
+
+        SqlLexer oracle = new SqlLexer(sql, SqlLexer.ORACLE_Q_QUOTES);
+        assertThat(oracle.next()).isEqualTo(SqlLexer.TokenType.WORD);
+        assertThat(oracle.next()).isEqualTo(SqlLexer.TokenType.STRING);
+        assertThat(sql.substring(oracle.tokenStart(), oracle.tokenEnd())).isEqualTo("q'[it's]'");
+        assertThat(words(oracle)).containsExactly("from", "dual");
+    }
+
+    @Test
+    void backslashEscapesAreReportedAndHonouredOnlyWhenRequested() {
+        String sql = "SELECT 'x\\' ' DROP TABLE t -- '";
+        SqlLexer lexer = new SqlLexer(sql);
+
+        assertThat(words(lexer)).doesNotContain("drop");
+        assertThat(lexer.getAmbiguities() & SqlLexer.BACKSLASH_ESCAPES).isNotZero();
+        assertThat(words(new SqlLexer(sql, SqlLexer.BACKSLASH_ESCAPES))).contains("drop");
+    }
+
+    @Test
+    void unterminatedLiteralIsRescannedAsCode() {
+        assertThat(words(new SqlLexer("SELECT 'drop table t"))).contains("drop");
+        assertThat(words(new SqlLexer("SELECT [drop table t"))).contains("drop");
+    }
+
+    @Test
+    void literalsAsCodeExposesStringContents() {
+        String sql = "PREPARE s FROM 'DELETE FROM t'";
+
+        assertThat(words(new SqlLexer(sql))).doesNotContain("delete");
+        assertThat(words(new SqlLexer(sql, SqlLexer.LITERALS_AS_CODE))).contains("delete");
+    }
+
+    private static List<String> words(SqlLexer lexer) {
+        List<String> words = new ArrayList<>();
+        SqlLexer.TokenType type;
+        while ((type = lexer.next()) != SqlLexer.TokenType.EOF) {
+            if (type == SqlLexer.TokenType.WORD) {
+                words.add(lexer.getSql().substring(lexer.tokenStart(), lexer.tokenEnd()).toLowerCase(Locale.ROOT));
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,56 @@
+package org.jim.mcpdbserver.sql;
+
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link SqlStatementParser} 的解析结果和缓存
+ * @author yangxin
+ */
+class SqlStatementParserTest {
+
+    @Test
+    void recordsWordsFromAllInterpretations() {
+        SqlStatementParser parser = new SqlStatementParser(new SqlParseCacheConfig());
+
+        ParsedStatement statement = parser.parse("SELECT a FROM [dbo].[users] WHERE b = 'delete'");
+
+        assertThat(statement.type()).isEqualTo(ParsedStatement.StatementType.READ);
+        assertThat(statement.tables()).containsExactly("dbo.users");
+        assertThat(statement.words().contains("SELECT")).isTrue();
+        // 方括号按代码重新扫描时 dbo、users 也是单词，字符串中的单词不是
+        assertThat(statement.words().contains("users")).isTrue();
+        assertThat(statement.words().contains("delete")).isFalse();
+        assertThat(statement.fingerprint()).isEqualTo("select a from [dbo].[users] where b = ?");
+    }
+
+    @Test
+    void cachesParsedStatementsWithinCapacity() {
+        SqlParseCacheConfig config = new SqlParseCacheConfig();
+        config.setMaxEntries(64);
+        SqlStatementParser parser = new SqlStatementParser(config);
+
+        ParsedStatement first = parser.parse("SELECT 'first'");
+        assertThat(parser.parse("SELECT 'first'")).isSameAs(first);
+
+        // 并发解析时每个结果都对应自己的SQL，超出容量的结果被淘汰
+        List<String> statements = IntStream.range(0, 10_000).mapToObj(i -> "SELECT " + i).toList();
+        assertThat(statements.parallelStream().allMatch(sql -> parser.parse(sql).sql().equals(sql))).isTrue();
+        assertThat(parser.parse("SELECT 'first'")).isNotSameAs(first);
+    }
+
+    @Test
+    void longStatementsAreNotCached() {
+        SqlParseCacheConfig config = new SqlParseCacheConfig();
+        config.setMaxSqlLength(8);
+        SqlStatementParser parser = new SqlStatementParser(config);
+
+        String sql = "SELECT * FROM users";
+        assertThat(parser.parse(sql)).isNotSameAs(parser.parse(sql));
+    }
+}
@@ -0,0 +1,81 @@
+package org.jim.mcpdbserver.validator;
+
+import org.jim.mcpdbserver.config.SqlParseCacheConfig;
+import org.jim.mcpdbserver.config.SqlSecurityConfig;
+import org.jim.mcpdbserver.sql.ParsedStatement;
+import org.jim.mcpdbserver.sql.SqlStatementParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link SqlSecurityValidator} 在各种方言歧义下都能发现危险关键字
+ * @author yangxin
+ */
+class SqlSecurityValidatorTest {
+
+    private final SqlStatementParser parser = new SqlStatementParser(new SqlParseCacheConfig());
+    private final SqlSecurityValidator validator = new SqlSecurityValidator(new SqlSecurityConfig(), parser);
+
+    @Test
+    void rejectsWriteInsideArrayConstructor() {
+        String sql = "SELECT ARRAY[(SELECT COUNT(*) FROM OLD TABLE (DELETE FROM users))]";
+
+        SqlSecurityValidator.SqlValidationResult result = validator.validateSql(sql);
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.detectedKeyword()).isEqualTo("delete");
+        assertThat(parser.parse(sql).type()).isEqualTo(ParsedStatement.StatementType.WRITE);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+            "SELECT 1 --drop table t                                   | drop",
+            "SELECT 1 # drop table t                                   | drop",
+            "SELECT 1 /*!50000 drop table t */                         | drop",
+            "DO $body$ BEGIN DELETE FROM t; END $body$                 | delete",
+            "SELECT q'[it's]' FROM dual; DELETE FROM t WHERE a = 'x'   | delete",
+            "SELECT 'x\\' ' DROP TABLE t -- '                          | drop",
+            "SELECT [a'] ; DROP TABLE t; -- '                          | drop",
+            "PREPARE s FROM 'DELETE FROM t'                            | delete"
+    })
+    void rejectsKeywordsHiddenByDialectAmbiguities(String sql, String keyword) {
+        SqlSecurityValidator.SqlValidationResult result = validator.validateSql(sql);
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.detectedKeyword()).isEqualTo(keyword);
+    }
+
+    /**
+     * 其他方言的注释让后面的引号开始一个假字符串，字符串中的代码在默认解释下被隐藏
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "# '\nDELETE FROM users -- '",
+            "--'\nDELETE FROM t --'",
+            "SELECT 1 /* /* */ '*/ DELETE FROM t --'"
+    })
+    void rejectsKeywordsHiddenBehindOtherDialectsComments(String sql) {
+        SqlSecurityValidator.SqlValidationResult result = validator.validateSql(sql);
+
+        assertThat(result.valid()).isFalse();
+        assertThat(result.detectedKeyword()).isEqualTo("delete");
+        assertThat(parser.parse(sql).type()).isEqualTo(ParsedStatement.StatementType.WRITE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "SELECT 1 /* a /* b */ c */ FROM t",
+            "SELECT 'delete' FROM t",
+            "SELECT \"update\" FROM t",
+            "SELECT 1 -- drop table t",
+            "SELECT 1 /* drop table t */",
+            "SELECT a[1] FROM t"
+    })
+    void allowsKeywordsInsideLiteralsAndComments(String sql) {
+        assertThat(validator.validateSql(sql).valid()).isTrue();
+    }
+}